@@ -0,0 +1,49 @@
+/*
+ * JMH benchmarks of the core processing hot paths. Run all benchmarks with
+ * ./gradlew :mzmine-benchmarks:jmh
+ * or a subset with
+ * ./gradlew :mzmine-benchmarks:jmh -Pjmh.includes=MassDetectorBenchmark
+ */
+plugins {
+    id("io.github.mzmine.java-common-conv")
+    id("io.github.mzmine.javafx-conv")
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+    // same repositories as mzmine-community to resolve its runtime dependencies
+    maven { url = uri("file://" + layout.projectDirectory.dir("../local-repo")) }
+    maven { url = uri("https://www.ebi.ac.uk/Tools/maven/repos/content/groups/ebi-repo/") }
+    maven { url = uri("https://bio.informatik.uni-jena.de/repository/libs-oss/") }
+    maven { url = uri("https://jitpack.io") }
+    maven { url = uri("https://www.xypron.de/repository/") }
+}
+
+dependencies {
+    jmh(project(":mzmine-community"))
+    jmh(project(":taskcontroller"))
+    jmh(project(":utils"))
+    jmh(project(":javafx-framework"))
+    jmh(libs.bundles.mzio)
+    jmh(libs.guava)
+    jmh(libs.fastutil)
+    jmh(libs.bundles.msdk)
+}
+
+// small bundled test data that is read by the file based benchmarks
+val benchmarkData = rootProject.layout.projectDirectory.dir("mzmine-community/src/test/resources")
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    includes = providers.gradleProperty("jmh.includes").map { listOf(it) }.orElse(listOf())
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    jvmArgs = listOf(
+        "--enable-preview", "-Djava.awt.headless=true", "-Xmx4g",
+        "-Dmzmine.benchmark.data=" + benchmarkData.asFile.absolutePath
+    )
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+}
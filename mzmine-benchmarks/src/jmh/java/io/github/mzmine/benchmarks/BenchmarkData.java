@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ADAPChromatogramBuilderParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reproducible synthetic data for the benchmarks. All generators take a seed so that every fork
+ * and every benchmark run works on the same data. Small bundled data files are resolved from the
+ * directory in the system property {@link #DATA_DIR_PROPERTY}, which is set by the jmh task to the
+ * test resources of mzmine-community.
+ */
+public final class BenchmarkData {
+
+  public static final String DATA_DIR_PROPERTY = "mzmine.benchmark.data";
+
+  /**
+   * Total retention time of synthetic LC-MS runs in minutes
+   */
+  public static final float RUN_TIME = 10f;
+
+  private static final double MIN_MZ = 100d;
+  private static final double MAX_MZ = 1000d;
+  private static final double[] NO_VALUES = new double[0];
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * @param relativePath path relative to the bundled data directory
+   * @return the bundled data file
+   */
+  public static @NotNull File getBundledFile(@NotNull String relativePath) {
+    final String dir = System.getProperty(DATA_DIR_PROPERTY);
+    if (dir == null) {
+      throw new IllegalStateException(
+          "System property " + DATA_DIR_PROPERTY + " is not set. Run the benchmarks with gradle.");
+    }
+    final File file = new File(dir, relativePath);
+    if (!file.exists()) {
+      throw new IllegalStateException("Missing benchmark data file " + file.getAbsolutePath());
+    }
+    return file;
+  }
+
+  /**
+   * Profile spectrum with Gaussian shaped m/z peaks on a regular m/z grid. Points between peaks
+   * are zero intensity like in most vendor profile data.
+   *
+   * @param numPeaks      number of peaks
+   * @param pointsPerPeak number of data points across each peak
+   * @return [mzs, intensities]
+   */
+  public static double[][] createProfileSpectrum(long seed, int numPeaks, int pointsPerPeak) {
+    final Random rnd = new Random(seed);
+    final double[] centers = randomSortedMzs(rnd, numPeaks);
+    final int n = numPeaks * (pointsPerPeak + 2);
+    final double[] mzs = new double[n];
+    final double[] intensities = new double[n];
+
+    int dp = 0;
+    double lastMz = 0;
+    for (final double center : centers) {
+      final double height = randomHeight(rnd);
+      // resolution of 30,000 FWHM
+      final double sigma = center / 30_000d / 2.355;
+      final double step = 6 * sigma / (pointsPerPeak - 1);
+      final double start = Math.max(center - 3 * sigma - step, lastMz + step);
+      for (int i = 0; i < pointsPerPeak + 2; i++) {
+        final double mz = start + i * step;
+        final boolean edge = i == 0 || i == pointsPerPeak + 1;
+        mzs[dp] = mz;
+        intensities[dp] = edge ? 0d : gauss(mz, center, sigma, height);
+        dp++;
+        lastMz = mz;
+      }
+    }
+    return new double[][]{Arrays.copyOf(mzs, dp), Arrays.copyOf(intensities, dp)};
+  }
+
+  /**
+   * @param numSignals number of centroid signals
+   * @return [mzs, intensities] sorted by m/z
+   */
+  public static double[][] createCentroidSpectrum(long seed, int numSignals) {
+    final Random rnd = new Random(seed);
+    final double[] mzs = randomSortedMzs(rnd, numSignals);
+    final double[] intensities = new double[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      intensities[i] = randomHeight(rnd);
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * Creates a fragment spectrum and a modified copy for similarity scoring. The copy shares
+   * {@code sharedFraction} of the signals with small m/z errors and changed intensities.
+   *
+   * @return [library, query]
+   */
+  public static DataPoint[][] createSpectraPair(long seed, int numSignals,
+      double sharedFraction) {
+    final Random rnd = new Random(seed);
+    final double[][] library = createCentroidSpectrum(rnd.nextLong(), numSignals);
+    final double[][] other = createCentroidSpectrum(rnd.nextLong(), numSignals);
+
+    final DataPoint[] lib = new DataPoint[numSignals];
+    final DataPoint[] query = new DataPoint[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      lib[i] = new SimpleDataPoint(library[0][i], library[1][i]);
+      if (rnd.nextDouble() < sharedFraction) {
+        final double mz = library[0][i] * (1 + (rnd.nextDouble() - 0.5) * 4E-6);
+        query[i] = new SimpleDataPoint(mz, library[1][i] * (0.5 + rnd.nextDouble()));
+      } else {
+        query[i] = new SimpleDataPoint(other[0][i], other[1][i]);
+      }
+    }
+    Arrays.sort(query, (a, b) -> Double.compare(a.getMZ(), b.getMZ()));
+    return new DataPoint[][]{lib, query};
+  }
+
+  /**
+   * Chromatogram with Gaussian peaks on a noisy baseline. Some peaks overlap to exercise the peak
+   * splitting in the resolvers.
+   *
+   * @return [rts, intensities]
+   */
+  public static double[][] createChromatogram(long seed, int numScans, int numPeaks) {
+    final Random rnd = new Random(seed);
+    final double[] rts = new double[numScans];
+    final double[] intensities = new double[numScans];
+    for (int i = 0; i < numScans; i++) {
+      rts[i] = RUN_TIME * i / numScans;
+      intensities[i] = 500 + rnd.nextDouble() * 1500;
+    }
+    for (int p = 0; p < numPeaks; p++) {
+      final double center = rnd.nextDouble() * RUN_TIME;
+      final double sigma = 0.02 + rnd.nextDouble() * 0.04;
+      final double height = randomHeight(rnd);
+      for (int i = 0; i < numScans; i++) {
+        intensities[i] += gauss(rts[i], center, sigma, height);
+      }
+    }
+    return new double[][]{rts, intensities};
+  }
+
+  /**
+   * Creates a centroided LC-MS run. The compounds are derived from the compound seed, so multiple
+   * files with the same compound seed describe the same sample with a retention time shift and
+   * m/z errors. Each scan also contains random noise signals. Mass lists point to the scan data,
+   * so no mass detection is needed before chromatogram building.
+   *
+   * @param name           file name
+   * @param compoundSeed   seed of the compounds
+   * @param fileSeed       seed for noise, shifts and m/z errors of this file
+   * @param numScans       number of MS1 scans over {@link #RUN_TIME}
+   * @param numCompounds   number of chromatographic peaks
+   * @param noiseSignals   number of noise signals per scan
+   * @return the raw data file
+   */
+  public static @NotNull RawDataFile createLcMsFile(@NotNull String name, long compoundSeed,
+      long fileSeed, int numScans, int numCompounds, int noiseSignals) {
+    final Random compoundRnd = new Random(compoundSeed);
+    final double[] mzs = new double[numCompounds];
+    final double[] rts = new double[numCompounds];
+    final double[] sigmas = new double[numCompounds];
+    final double[] heights = new double[numCompounds];
+
+    final Random rnd = new Random(fileSeed);
+    final double rtShift = (rnd.nextDouble() - 0.5) * 0.1;
+    for (int i = 0; i < numCompounds; i++) {
+      mzs[i] = MIN_MZ + compoundRnd.nextDouble() * (MAX_MZ - MIN_MZ);
+      rts[i] = 0.2 + compoundRnd.nextDouble() * (RUN_TIME - 0.4) + rtShift;
+      sigmas[i] = 0.01 + compoundRnd.nextDouble() * 0.03;
+      heights[i] = randomHeight(compoundRnd) * (0.8 + rnd.nextDouble() * 0.4);
+    }
+
+    final RawDataFile file = new RawDataFileImpl(name, null, null, Color.BLACK);
+    final double[] scanMzs = new double[numCompounds + noiseSignals];
+    final double[] scanIntensities = new double[numCompounds + noiseSignals];
+    final int[] order = new int[numCompounds + noiseSignals];
+    try {
+      for (int s = 0; s < numScans; s++) {
+        final float rt = RUN_TIME * s / numScans;
+        int dp = 0;
+        for (int c = 0; c < numCompounds; c++) {
+          if (Math.abs(rt - rts[c]) > 4 * sigmas[c]) {
+            continue;
+          }
+          // 3 ppm m/z error
+          scanMzs[dp] = mzs[c] * (1 + rnd.nextGaussian() * 3E-6);
+          scanIntensities[dp] = gauss(rt, rts[c], sigmas[c], heights[c]);
+          dp++;
+        }
+        for (int i = 0; i < noiseSignals; i++) {
+          scanMzs[dp] = MIN_MZ + rnd.nextDouble() * (MAX_MZ - MIN_MZ);
+          scanIntensities[dp] = 100 + rnd.nextDouble() * 900;
+          dp++;
+        }
+
+        for (int i = 0; i < dp; i++) {
+          order[i] = i;
+        }
+        IntArrays.quickSort(order, 0, dp,
+            (a, b) -> Double.compare(scanMzs[a], scanMzs[b]));
+        final double[] sortedMzs = new double[dp];
+        final double[] sortedIntensities = new double[dp];
+        for (int i = 0; i < dp; i++) {
+          sortedMzs[i] = scanMzs[order[i]];
+          sortedIntensities[i] = scanIntensities[order[i]];
+        }
+
+        final SimpleScan scan = new SimpleScan(file, s + 1, 1, rt, null, sortedMzs,
+            sortedIntensities, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+            Range.closed(MIN_MZ, MAX_MZ));
+        scan.addMassList(new ScanPointerMassList(scan));
+        file.addScan(scan);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return file;
+  }
+
+  /**
+   * @return ADAP chromatogram builder parameters that fit the synthetic LC-MS runs
+   */
+  public static @NotNull ParameterSet createChromatogramBuilderParameters() {
+    final ParameterSet params = new ADAPChromatogramBuilderParameters().cloneParameterSet();
+    params.setParameter(ADAPChromatogramBuilderParameters.scanSelection, ScanSelection.MS1);
+    params.setParameter(ADAPChromatogramBuilderParameters.minimumConsecutiveScans, 5);
+    params.setParameter(ADAPChromatogramBuilderParameters.minGroupIntensity, 2E3);
+    params.setParameter(ADAPChromatogramBuilderParameters.minHighestPoint, 5E3);
+    params.setParameter(ADAPChromatogramBuilderParameters.mzTolerance,
+        new MZTolerance(0.002, 10));
+    params.setParameter(ADAPChromatogramBuilderParameters.suffix, "chromatograms");
+    return params;
+  }
+
+  /**
+   * Runs the ADAP chromatogram builder in the calling thread
+   *
+   * @param project the project that receives the new feature list
+   * @return the chromatogram feature list
+   */
+  public static @NotNull ModularFeatureList buildChromatograms(@NotNull MZmineProject project,
+      @NotNull RawDataFile file, @NotNull ParameterSet params) {
+    final var task = ModularADAPChromatogramBuilderTask.forChromatography(project, file, params,
+        null, Instant.now(), ModularADAPChromatogramBuilderModule.class);
+    task.run();
+    if (task.getStatus() != TaskStatus.FINISHED) {
+      throw new IllegalStateException("Chromatogram builder failed: " + task.getErrorMessage());
+    }
+    final List<FeatureList> flists = project.getCurrentFeatureLists();
+    return (ModularFeatureList) flists.get(flists.size() - 1);
+  }
+
+  /**
+   * @return chromatograms of a synthetic LC-MS run
+   */
+  public static @NotNull ModularFeatureList createChromatograms(@NotNull String name,
+      long compoundSeed, long fileSeed, int numScans, int numCompounds, int noiseSignals) {
+    final RawDataFile file = createLcMsFile(name, compoundSeed, fileSeed, numScans, numCompounds,
+        noiseSignals);
+    return buildChromatograms(new MZmineProjectImpl(), file,
+        createChromatogramBuilderParameters());
+  }
+
+  private static double[] randomSortedMzs(Random rnd, int n) {
+    if (n == 0) {
+      return NO_VALUES;
+    }
+    final double[] mzs = new double[n];
+    for (int i = 0; i < n; i++) {
+      mzs[i] = MIN_MZ + rnd.nextDouble() * (MAX_MZ - MIN_MZ);
+    }
+    Arrays.sort(mzs);
+    return mzs;
+  }
+
+  /**
+   * @return log uniform intensity between 1E3 and 1E7
+   */
+  private static double randomHeight(Random rnd) {
+    return Math.pow(10, 3 + rnd.nextDouble() * 4);
+  }
+
+  private static double gauss(double x, double center, double sigma, double height) {
+    final double d = (x - center) / sigma;
+    return height * Math.exp(-0.5 * d * d);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass.ExactMassDetector;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_mzml.MSDKmzMLImportModule;
+import io.github.mzmine.modules.io.import_rawdata_mzml.MSDKmzMLImportParameters;
+import io.github.mzmine.modules.io.import_rawdata_mzml.MSDKmzMLImportTask;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import java.io.File;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * mzML import and mass detection on a small bundled profile mode GC-Orbitrap file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BundledDataBenchmark {
+
+  private static final String PROFILE_MZML = "rawdatafiles/additional/gc_orbi_profile_21scans.mzML";
+
+  private File mzmlFile;
+  private RawDataFile profileFile;
+  private ExactMassDetector massDetector;
+
+  @Setup
+  public void setup() {
+    mzmlFile = BenchmarkData.getBundledFile(PROFILE_MZML);
+    profileFile = importMzML();
+    massDetector = new ExactMassDetector(0d);
+  }
+
+  @Benchmark
+  public RawDataFile importMzML() {
+    final var task = new MSDKmzMLImportTask(new MZmineProjectImpl(), mzmlFile,
+        ScanImportProcessorConfig.createDefault(), MSDKmzMLImportModule.class,
+        new MSDKmzMLImportParameters(), Instant.now(), null);
+    final RawDataFile file = task.importStreamOrFile();
+    if (file == null) {
+      throw new IllegalStateException("Import failed: " + task.getErrorMessage());
+    }
+    return file;
+  }
+
+  @Benchmark
+  public void detectMassesAllScans(Blackhole bh) {
+    for (final Scan scan : profileFile.getScans()) {
+      bh.consume(massDetector.getMassValues(scan));
+    }
+  }
+}
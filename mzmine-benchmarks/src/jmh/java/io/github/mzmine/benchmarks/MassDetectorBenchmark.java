@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.auto.AutoMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.centroid.CentroidMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass.ExactMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.factor_of_lowest.FactorOfLowestMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.localmaxima.LocalMaxMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.recursive.RecursiveMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.wavelet.WaveletMassDetector;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * All {@link MassDetector} implementations on a single spectrum. Profile mode detectors run on a
+ * profile spectrum, the centroid detector on a centroid spectrum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MassDetectorBenchmark {
+
+  private static final double NOISE_LEVEL = 1E3;
+
+  @Param({"CENTROID", "EXACT", "LOCAL_MAX", "RECURSIVE", "WAVELET", "FACTOR_OF_LOWEST", "AUTO"})
+  public Detector detector;
+
+  @Param({"200", "2000"})
+  public int numPeaks;
+
+  private MassDetector massDetector;
+  private SimpleScan spectrum;
+
+  @Setup
+  public void setup() {
+    massDetector = detector.create();
+    final boolean profile = detector != Detector.CENTROID;
+    final double[][] data = profile ? BenchmarkData.createProfileSpectrum(1L, numPeaks, 12)
+        : BenchmarkData.createCentroidSpectrum(1L, numPeaks);
+    final RawDataFile file = new RawDataFileImpl("mass detection", null, null, Color.BLACK);
+    spectrum = new SimpleScan(file, 1, 1, 1f, null, data[0], data[1],
+        profile ? MassSpectrumType.PROFILE : MassSpectrumType.CENTROIDED, PolarityType.POSITIVE,
+        "", Range.closed(100d, 1000d));
+  }
+
+  @Benchmark
+  public double[][] detectMasses() {
+    return massDetector.getMassValues(spectrum);
+  }
+
+  public enum Detector {
+    CENTROID(() -> new CentroidMassDetector(NOISE_LEVEL)), //
+    EXACT(() -> new ExactMassDetector(NOISE_LEVEL)), //
+    LOCAL_MAX(() -> new LocalMaxMassDetector(NOISE_LEVEL)), //
+    RECURSIVE(() -> new RecursiveMassDetector(NOISE_LEVEL, 0.001, 0.1)), //
+    WAVELET(() -> new WaveletMassDetector(NOISE_LEVEL, 3, 0.3)), //
+    FACTOR_OF_LOWEST(() -> new FactorOfLowestMassDetector(2.5)), //
+    AUTO(() -> new AutoMassDetector(NOISE_LEVEL));
+
+    private final Supplier<MassDetector> factory;
+
+    Detector(Supplier<MassDetector> factory) {
+      this.factory = factory;
+    }
+
+    MassDetector create() {
+      return factory.get();
+    }
+  }
+}
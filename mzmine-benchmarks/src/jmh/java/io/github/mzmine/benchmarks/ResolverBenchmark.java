@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.featuredata.FeatureDataUtils;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.FeatureResolverTask;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.GeneralResolverParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.Resolver;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.ResolvingDimension;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolverParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.noiseamplitude.NoiseAmplitudeFeatureResolverParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.savitzkygolay.SavitzkyGolayFeatureResolverParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The resolvers in featdet_chromatogramdeconvolution. {@link #resolveFeatureList} runs the whole
+ * FeatureResolverTask on the chromatograms of a synthetic LC-MS run, {@link #resolveChromatogram}
+ * only the local minimum search on the x and y arrays of single chromatograms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class ResolverBenchmark {
+
+  private static final Range<Double> PEAK_DURATION = Range.closed(0d, 1d);
+  private static final double MIN_HEIGHT = 5E3;
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ModularFeatureList resolveFeatureList(FeatureListState state) {
+    final var task = new FeatureResolverTask(new MZmineProjectImpl(), null, state.chromatograms,
+        state.parameters, FeatureDataUtils.DEFAULT_CENTER_FUNCTION, Instant.now());
+    task.run();
+    if (task.getStatus() != TaskStatus.FINISHED) {
+      throw new IllegalStateException("Resolving failed: " + task.getErrorMessage());
+    }
+    return state.chromatograms;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void resolveChromatogram(ChromatogramState state, Blackhole bh) {
+    for (int i = 0; i < state.intensities.length; i++) {
+      // the resolver sets values below the chromatographic threshold to 0
+      final double[] y = state.intensities[i].clone();
+      final List<Range<Double>> resolved = state.resolver.resolve(state.rts, y);
+      bh.consume(resolved);
+    }
+  }
+
+  private static ParameterSet createLocalMinimumParameters() {
+    final ParameterSet params = new MinimumSearchFeatureResolverParameters().cloneParameterSet();
+    setGeneralParameters(params);
+    params.setParameter(GeneralResolverParameters.dimension, ResolvingDimension.RETENTION_TIME);
+    params.setParameter(MinimumSearchFeatureResolverParameters.CHROMATOGRAPHIC_THRESHOLD_LEVEL,
+        0.8);
+    params.setParameter(MinimumSearchFeatureResolverParameters.SEARCH_RT_RANGE, 0.05);
+    params.setParameter(MinimumSearchFeatureResolverParameters.MIN_RELATIVE_HEIGHT, 0d);
+    params.setParameter(MinimumSearchFeatureResolverParameters.MIN_ABSOLUTE_HEIGHT, MIN_HEIGHT);
+    params.setParameter(MinimumSearchFeatureResolverParameters.MIN_RATIO, 1.7);
+    params.setParameter(MinimumSearchFeatureResolverParameters.PEAK_DURATION, PEAK_DURATION);
+    return params;
+  }
+
+  private static ParameterSet createSavitzkyGolayParameters() {
+    final ParameterSet params = new SavitzkyGolayFeatureResolverParameters().cloneParameterSet();
+    setGeneralParameters(params);
+    params.setParameter(SavitzkyGolayFeatureResolverParameters.MIN_PEAK_HEIGHT, MIN_HEIGHT);
+    params.setParameter(SavitzkyGolayFeatureResolverParameters.PEAK_DURATION, PEAK_DURATION);
+    params.setParameter(SavitzkyGolayFeatureResolverParameters.DERIVATIVE_THRESHOLD_LEVEL, 0.2);
+    return params;
+  }
+
+  private static ParameterSet createNoiseAmplitudeParameters() {
+    final ParameterSet params = new NoiseAmplitudeFeatureResolverParameters().cloneParameterSet();
+    setGeneralParameters(params);
+    params.setParameter(NoiseAmplitudeFeatureResolverParameters.MIN_PEAK_HEIGHT, MIN_HEIGHT);
+    params.setParameter(NoiseAmplitudeFeatureResolverParameters.PEAK_DURATION, PEAK_DURATION);
+    params.setParameter(NoiseAmplitudeFeatureResolverParameters.NOISE_AMPLITUDE, 2E3);
+    return params;
+  }
+
+  private static void setGeneralParameters(ParameterSet params) {
+    params.setParameter(GeneralResolverParameters.SUFFIX, "resolved");
+    params.setParameter(GeneralResolverParameters.handleOriginal, OriginalFeatureListOption.KEEP);
+    params.setParameter(GeneralResolverParameters.groupMS2Parameters, false);
+    params.setParameter(GeneralResolverParameters.MIN_NUMBER_OF_DATAPOINTS, 4);
+  }
+
+  public enum ResolverType {
+    LOCAL_MINIMUM(ResolverBenchmark::createLocalMinimumParameters), //
+    SAVITZKY_GOLAY(ResolverBenchmark::createSavitzkyGolayParameters), //
+    NOISE_AMPLITUDE(ResolverBenchmark::createNoiseAmplitudeParameters);
+
+    private final Supplier<ParameterSet> parameters;
+
+    ResolverType(Supplier<ParameterSet> parameters) {
+      this.parameters = parameters;
+    }
+
+    ParameterSet createParameters() {
+      return parameters.get();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class FeatureListState {
+
+    @Param({"LOCAL_MINIMUM", "SAVITZKY_GOLAY", "NOISE_AMPLITUDE"})
+    public ResolverType resolver;
+
+    @Param({"2000"})
+    public int numCompounds;
+
+    private ModularFeatureList chromatograms;
+    private ParameterSet parameters;
+
+    @Setup
+    public void setup() {
+      chromatograms = BenchmarkData.createChromatograms("resolve", 1L, 2L, 1200, numCompounds,
+          200);
+      parameters = resolver.createParameters();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ChromatogramState {
+
+    @Param({"1200", "6000"})
+    public int numScans;
+
+    private double[] rts;
+    private double[][] intensities;
+    private Resolver resolver;
+
+    @Setup
+    public void setup() {
+      intensities = new double[100][];
+      for (int i = 0; i < intensities.length; i++) {
+        final double[][] chrom = BenchmarkData.createChromatogram(i, numScans, 8);
+        rts = chrom[0];
+        intensities[i] = chrom[1];
+      }
+      // the resolver only takes the raw data file from the feature list
+      final ModularFeatureList flist = new ModularFeatureList("resolve", null,
+          BenchmarkData.createLcMsFile("resolve", 1L, 2L, 10, 10, 0));
+      final ParameterSet params = createLocalMinimumParameters();
+      resolver = ((GeneralResolverParameters) params).getResolver(params, flist);
+    }
+  }
+}
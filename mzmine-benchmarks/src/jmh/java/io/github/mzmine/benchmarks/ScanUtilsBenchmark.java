@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.util.scans.ScanUtils;
+import io.github.mzmine.util.scans.ScanUtils.BinningType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Frequently called spectrum utilities on profile and centroid spectra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScanUtilsBenchmark {
+
+  private static final Range<Double> MZ_RANGE = Range.closed(300d, 700d);
+
+  @Param({"200", "2000"})
+  public int numPeaks;
+
+  private double[] profileMzs;
+  private double[] profileIntensities;
+  private double[] centroidMzs;
+  private double[] centroidIntensities;
+  private DataPoint[] centroidDataPoints;
+
+  @Setup
+  public void setup() {
+    final double[][] profile = BenchmarkData.createProfileSpectrum(1L, numPeaks, 12);
+    profileMzs = profile[0];
+    profileIntensities = profile[1];
+    final double[][] centroid = BenchmarkData.createCentroidSpectrum(2L, numPeaks);
+    centroidMzs = centroid[0];
+    centroidIntensities = centroid[1];
+    centroidDataPoints = BenchmarkData.createSpectraPair(3L, numPeaks, 1d)[0];
+  }
+
+  @Benchmark
+  public MassSpectrumType detectSpectrumTypeProfile() {
+    return ScanUtils.detectSpectrumType(profileMzs, profileIntensities);
+  }
+
+  @Benchmark
+  public MassSpectrumType detectSpectrumTypeCentroid() {
+    return ScanUtils.detectSpectrumType(centroidMzs, centroidIntensities);
+  }
+
+  @Benchmark
+  public double[] binValuesProfile() {
+    return ScanUtils.binValues(profileMzs, profileIntensities, Range.closed(100d, 1000d), 9000,
+        false, BinningType.SUM);
+  }
+
+  @Benchmark
+  public DataPoint findBasePeakInRange() {
+    return ScanUtils.findBasePeak(profileMzs, profileIntensities, MZ_RANGE, profileMzs.length);
+  }
+
+  @Benchmark
+  public double calculateTICInRange() {
+    return ScanUtils.calculateTIC(profileMzs, profileIntensities, MZ_RANGE, profileMzs.length);
+  }
+
+  @Benchmark
+  public int findClosestDataPoint() {
+    return ScanUtils.findClosestDatapoint(512.2345, centroidMzs, 0.01);
+  }
+
+  @Benchmark
+  public double spectralEntropy() {
+    return ScanUtils.getSpectralEntropy(centroidIntensities);
+  }
+
+  @Benchmark
+  public DataPoint[] mostAbundantSignals() {
+    // sorts in place, so always start from the m/z sorted input
+    return ScanUtils.getMostAbundantSignals(centroidDataPoints.clone(), 50);
+  }
+}
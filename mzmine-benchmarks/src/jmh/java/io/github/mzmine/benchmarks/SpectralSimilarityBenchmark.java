@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.FastWeightedCosineSpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarityParameters;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Weighted cosine similarity of two fragment spectra that share half of their signals. The fast
+ * implementation is included as a reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpectralSimilarityBenchmark {
+
+  private static final MZTolerance MZ_TOLERANCE = new MZTolerance(0.005, 10);
+
+  @Param({"20", "200", "1000"})
+  public int numSignals;
+
+  private final WeightedCosineSpectralSimilarity weightedCosine =
+      new WeightedCosineSpectralSimilarity();
+  private final FastWeightedCosineSpectralSimilarity fastWeightedCosine =
+      new FastWeightedCosineSpectralSimilarity();
+  private ParameterSet parameters;
+  private DataPoint[] library;
+  private DataPoint[] query;
+
+  @Setup
+  public void setup() {
+    final DataPoint[][] pair = BenchmarkData.createSpectraPair(1L, numSignals, 0.5);
+    library = pair[0];
+    query = pair[1];
+    parameters = new WeightedCosineSpectralSimilarityParameters().cloneParameterSet();
+    // always score to not measure the early exit
+    parameters.setParameter(WeightedCosineSpectralSimilarityParameters.minCosine, 0d);
+  }
+
+  @Benchmark
+  public SpectralSimilarity weightedCosine() {
+    return weightedCosine.getSimilarity(parameters, MZ_TOLERANCE, 0, library, query);
+  }
+
+  @Benchmark
+  public SpectralSimilarity fastWeightedCosine() {
+    return fastWeightedCosine.getSimilarity(parameters, MZ_TOLERANCE, 0, library, query);
+  }
+}
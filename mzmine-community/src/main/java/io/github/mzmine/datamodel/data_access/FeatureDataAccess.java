@@ -90,17 +90,30 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
    * @param dataFile define the data file in an aligned feature list
    */
   protected FeatureDataAccess(FeatureList flist, @Nullable RawDataFile dataFile) {
+    this(flist, dataFile, flist.getRows());
+  }
+
+  /**
+   * Access the chromatographic data of a subset of rows in a feature list sorted by scan ID
+   * (usually sorted by retention time). Used to split the rows into chunks that are processed in
+   * parallel, each with its own data access.
+   *
+   * @param flist    target feature list
+   * @param dataFile define the data file in an aligned feature list
+   * @param rows     the rows to loop through
+   */
+  protected FeatureDataAccess(FeatureList flist, @Nullable RawDataFile dataFile,
+      List<? extends FeatureListRow> rows) {
     this.flist = flist;
     this.dataFile = dataFile;
 
     // set rows and number of features
     int totalFeatures = 0;
-    List<FeatureListRow> allRows = flist.getRows();
     // handle aligned flist
     if (flist.getNumberOfRawDataFiles() > 1) {
       if (dataFile != null) {
         List<FeatureListRow> result = new ArrayList<>();
-        for (FeatureListRow row : allRows) {
+        for (FeatureListRow row : rows) {
           if (row.hasFeature(dataFile)) {
             result.add(row);
             totalFeatures++;
@@ -108,16 +121,16 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
         }
         this.rows = Collections.unmodifiableList(result);
       } else {
-        this.rows = Collections.unmodifiableList(allRows);
+        this.rows = Collections.unmodifiableList(rows);
         // all features
-        for (FeatureListRow row : allRows) {
+        for (FeatureListRow row : rows) {
           totalFeatures += row.getNumberOfFeatures();
         }
       }
     } else {
       // single raw data file in feature list - use all rows
-      this.rows = Collections.unmodifiableList(allRows);
-      totalFeatures = rows.size();
+      this.rows = Collections.unmodifiableList(rows);
+      totalFeatures = this.rows.size();
     }
     this.totalFeatures = totalFeatures;
   }
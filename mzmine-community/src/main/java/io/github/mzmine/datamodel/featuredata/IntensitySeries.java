@@ -41,29 +41,25 @@ public interface IntensitySeries extends SeriesValueCount {
   static void saveIntensityValuesToXML(XMLStreamWriter writer, IntensitySeries series)
       throws XMLStreamException {
     writer.writeStartElement(CONST.XML_INTENSITY_VALUES_ELEMENT);
-    writer.writeAttribute(CONST.XML_NUM_VALUES_ATTR, String.valueOf(series.getNumberOfValues()));
-    writer.writeCharacters(ParsingUtils.doubleBufferToString(series.getIntensityValueBuffer()));
+    final int numValues = series.getNumberOfValues();
+    writer.writeAttribute(CONST.XML_NUM_VALUES_ATTR, String.valueOf(numValues));
+    writer.writeCharacters(ParsingUtils.doubleArrayToString(
+        series.getIntensityValues(new double[numValues]), numValues));
     writer.writeEndElement();
   }
 
   /**
-   * Tests a subset of intensity values of both series for equality. Note that the number of values
-   * and the underlying buffer is checked for equality. However, of the actual series values, only
-   * a subset of five points is compared.
+   * Tests the intensity values of both series for equality. The values are read by index, so
+   * float-backed series are compared without copying them to a double buffer.
    */
   static boolean seriesSubsetEqual(IntensitySeries s1, IntensitySeries s2) {
-    if (s1.getNumberOfValues() != s2.getNumberOfValues()) {
+    final int numValues = s1.getNumberOfValues();
+    if (numValues != s2.getNumberOfValues()) {
       return false;
     }
 
-    if (!s1.getIntensityValueBuffer().equals(s2.getIntensityValueBuffer())) {
-      return false;
-    }
-
-    final int max = s1.getNumberOfValues() - 1;
-
-    for (int i = 1; i < 5; i++) {
-      if (Double.compare(s1.getIntensity(max / i), s2.getIntensity(max / i)) != 0) {
+    for (int i = 0; i < numValues; i++) {
+      if (Double.compare(s1.getIntensity(i), s2.getIntensity(i)) != 0) {
         return false;
       }
     }
@@ -32,9 +32,9 @@ import io.github.mzmine.datamodel.featuredata.IntensitySeries;
 import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
 import io.github.mzmine.datamodel.featuredata.IonSpectrumSeries;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
-import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
+import java.nio.Buffer;
 import java.nio.DoubleBuffer;
 import java.util.Collections;
 import java.util.List;
@@ -58,7 +58,11 @@ public class SimpleIonMobilitySeries implements IonMobilitySeries, ModifiableSpe
 
   protected final List<MobilityScan> scans;
 
-  protected final DoubleBuffer intensityValues;
+  /**
+   * {@link DoubleBuffer} or {@link java.nio.FloatBuffer}, see
+   * {@link StorageUtils#isStoreIntensitiesAsFloat()}
+   */
+  protected final Buffer intensityValues;
   protected final DoubleBuffer mzValues;
 
   /**
@@ -82,7 +86,7 @@ public class SimpleIonMobilitySeries implements IonMobilitySeries, ModifiableSpe
 
     this.scans = scans;
     this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
+    this.intensityValues = StorageUtils.storeIntensityValues(storage, intensityValues);
   }
 
   public static SimpleIonMobilitySeries loadFromXML(@NotNull XMLStreamReader reader,
@@ -159,7 +163,21 @@ public class SimpleIonMobilitySeries implements IonMobilitySeries, ModifiableSpe
 
   @Override
   public DoubleBuffer getIntensityValueBuffer() {
-    return intensityValues;
+    return StorageUtils.asDoubleBuffer(intensityValues);
+  }
+
+  @Override
+  public double[] getIntensityValues(double[] dst) {
+    if (dst.length < getNumberOfValues()) {
+      dst = new double[getNumberOfValues()];
+    }
+    StorageUtils.getIntensities(intensityValues, dst, getNumberOfValues());
+    return dst;
+  }
+
+  @Override
+  public double getIntensity(int index) {
+    return StorageUtils.getIntensity(intensityValues, index);
   }
 
   @Override
@@ -178,10 +196,8 @@ public class SimpleIonMobilitySeries implements IonMobilitySeries, ModifiableSpe
 
   @Override
   public IonSpectrumSeries<MobilityScan> copy(@Nullable MemoryMapStorage storage) {
-    double[][] data = DataPointUtils.getDataPointsAsDoubleArray(getMZValueBuffer(),
-        getIntensityValueBuffer());
-
-    return new SimpleIonMobilitySeries(storage, data[0], data[1], scans);
+    return new SimpleIonMobilitySeries(storage, getMzValues(new double[0]),
+        getIntensityValues(new double[0]), scans);
   }
 
   @Override
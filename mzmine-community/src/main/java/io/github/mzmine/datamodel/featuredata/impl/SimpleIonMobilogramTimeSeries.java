@@ -256,11 +256,9 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
 
     for (int i = 0; i < mobilograms.size(); i++) {
       IonMobilitySeries ims = mobilograms.get(i);
-      DoubleBuffer mobilogramIntensities = ims.getIntensityValueBuffer();
-      DoubleBuffer mobilogramMzs = ims.getMZValueBuffer();
       double weightedMz = 0;
-      for (int j = 0; j < mobilogramMzs.capacity(); j++) {
-        weightedMz += mobilogramMzs.get(j) * (mobilogramIntensities.get(j) / summedIntensities[i]);
+      for (int j = 0, numValues = ims.getNumberOfValues(); j < numValues; j++) {
+        weightedMz += ims.getMZ(j) * (ims.getIntensity(j) / summedIntensities[i]);
       }
       // due to added zeros, the summed intensity might have been 0 -> NaN
       if (Double.compare(weightedMz, Double.NaN) == 0) {
@@ -275,9 +273,8 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
     double[] summedIntensities = new double[mobilograms.size()];
     for (int i = 0; i < mobilograms.size(); i++) {
       IonMobilitySeries ims = mobilograms.get(i);
-      DoubleBuffer intensities = ims.getIntensityValueBuffer();
-      for (int j = 0; j < intensities.capacity(); j++) {
-        summedIntensities[i] += intensities.get(j);
+      for (int j = 0, numValues = ims.getNumberOfValues(); j < numValues; j++) {
+        summedIntensities[i] += ims.getIntensity(j);
       }
     }
     return summedIntensities;
@@ -313,6 +310,24 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
     return DoubleBuffer.wrap(values);
   }
 
+  protected double[] getMobilogramMzValues(StorableIonMobilitySeries mobilogram, double[] dst) {
+    if (dst.length < mobilogram.getNumberOfValues()) {
+      dst = new double[mobilogram.getNumberOfValues()];
+    }
+    mobilogramMzValues.get(mobilogram.getStorageOffset(), dst, 0, mobilogram.getNumberOfValues());
+    return dst;
+  }
+
+  protected double[] getMobilogramIntensityValues(StorableIonMobilitySeries mobilogram,
+      double[] dst) {
+    if (dst.length < mobilogram.getNumberOfValues()) {
+      dst = new double[mobilogram.getNumberOfValues()];
+    }
+    mobilogramIntensityValues.get(mobilogram.getStorageOffset(), dst, 0,
+        mobilogram.getNumberOfValues());
+    return dst;
+  }
+
   protected double getMobilogramMzValue(StorableIonMobilitySeries mobilogram, int index) {
     assert index < mobilogram.getNumberOfValues();
     return mobilogramMzValues.get(mobilogram.getStorageOffset() + index);
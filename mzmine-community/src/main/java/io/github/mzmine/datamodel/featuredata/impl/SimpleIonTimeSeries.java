@@ -34,9 +34,9 @@ import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.MzSeries;
 import io.github.mzmine.modules.io.projectload.CachedIMSFrame;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
-import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
+import java.nio.Buffer;
 import java.nio.DoubleBuffer;
 import java.util.Collections;
 import java.util.Comparator;
@@ -59,7 +59,11 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
   public static final String XML_ELEMENT = "simpleiontimeseries";
 
   protected final List<? extends Scan> scans;
-  protected final DoubleBuffer intensityValues;
+  /**
+   * {@link DoubleBuffer} or {@link java.nio.FloatBuffer}, see
+   * {@link StorageUtils#isStoreIntensitiesAsFloat()}
+   */
+  protected final Buffer intensityValues;
   protected final DoubleBuffer mzValues;
 
   /**
@@ -83,7 +87,7 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
     this.scans = scans;
 
     this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
+    this.intensityValues = StorageUtils.storeIntensityValues(storage, intensityValues);
   }
 
   public static SimpleIonTimeSeries loadFromXML(XMLStreamReader reader, MemoryMapStorage storage,
@@ -161,7 +165,21 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
 
   @Override
   public DoubleBuffer getIntensityValueBuffer() {
-    return intensityValues;
+    return StorageUtils.asDoubleBuffer(intensityValues);
+  }
+
+  @Override
+  public double[] getIntensityValues(double[] dst) {
+    if (dst.length < getNumberOfValues()) {
+      dst = new double[getNumberOfValues()];
+    }
+    StorageUtils.getIntensities(intensityValues, dst, getNumberOfValues());
+    return dst;
+  }
+
+  @Override
+  public double getIntensity(int index) {
+    return StorageUtils.getIntensity(intensityValues, index);
   }
 
   @Override
@@ -181,10 +199,8 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
 
   @Override
   public IonSpectrumSeries<Scan> copy(MemoryMapStorage storage) {
-    double[][] data = DataPointUtils.getDataPointsAsDoubleArray(getMZValueBuffer(),
-        getIntensityValueBuffer());
-
-    return copyAndReplace(storage, data[0], data[1]);
+    return copyAndReplace(storage, getMzValues(new double[0]),
+        getIntensityValues(new double[0]));
   }
 
   @Override
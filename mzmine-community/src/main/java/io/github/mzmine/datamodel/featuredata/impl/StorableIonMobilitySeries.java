@@ -30,7 +30,6 @@ import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.featuredata.IntensitySeries;
 import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
 import io.github.mzmine.datamodel.featuredata.IonSpectrumSeries;
-import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.nio.DoubleBuffer;
 import java.util.Collections;
@@ -117,6 +116,16 @@ public class StorableIonMobilitySeries implements IonMobilitySeries,
     return ionTrace.getMobilogramMzValue(this, index);
   }
 
+  @Override
+  public double[] getIntensityValues(double[] dst) {
+    return ionTrace.getMobilogramIntensityValues(this, dst);
+  }
+
+  @Override
+  public double[] getMzValues(double[] dst) {
+    return ionTrace.getMobilogramMzValues(this, dst);
+  }
+
   @Override
   public DoubleBuffer getIntensityValueBuffer() {
     return ionTrace.getMobilogramIntensityValues(this);
@@ -138,10 +147,8 @@ public class StorableIonMobilitySeries implements IonMobilitySeries,
 
   @Override
   public IonSpectrumSeries<MobilityScan> copy(@Nullable MemoryMapStorage storage) {
-    double[][] data = DataPointUtils.getDataPointsAsDoubleArray(getMZValueBuffer(),
-        getIntensityValueBuffer());
-
-    return new SimpleIonMobilitySeries(storage, data[0], data[1], scans);
+    return new SimpleIonMobilitySeries(storage, getMzValues(new double[numValues]),
+        getIntensityValues(new double[numValues]), scans);
   }
 
   public int getStorageOffset() {
@@ -30,12 +30,15 @@ import io.github.mzmine.datamodel.impl.AbstractStorableSpectrum;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -47,6 +50,38 @@ import org.jetbrains.annotations.Nullable;
  */
 public class StorageUtils {
 
+  /**
+   * Store intensities with float precision to halve the memory and temp file footprint
+   */
+  private static volatile boolean storeIntensitiesAsFloat = false;
+
+  /**
+   * @return true if intensities of new series and spectra are stored as float values
+   */
+  public static boolean isStoreIntensitiesAsFloat() {
+    return storeIntensitiesAsFloat;
+  }
+
+  /**
+   * Intensities of series and spectra created after this call are stored as float (true) or as
+   * double values (false). Existing data is not changed.
+   */
+  public static void setStoreIntensitiesAsFloat(final boolean storeAsFloat) {
+    storeIntensitiesAsFloat = storeAsFloat;
+  }
+
+  /**
+   * Bytes written to any {@link MemoryMapStorage} through this class
+   */
+  private static final LongAdder memoryMappedBytes = new LongAdder();
+
+  /**
+   * @return total bytes written to memory mapped storage since startup. Used for profiling.
+   */
+  public static long getMemoryMappedBytes() {
+    return memoryMappedBytes.sum();
+  }
+
   public static <T> List<double[][]> mapTo2dDoubleArrayList(List<T> objects,
       Function<T, double[]> firstDimension, Function<T, double[]> secondDimension) {
     return objects.stream().<double[][]>mapMulti((scan, c) -> {
@@ -178,6 +213,7 @@ public class StorageUtils {
     if (storage != null) {
       try {
         buffer = storage.storeData(values);
+        memoryMappedBytes.add((long) values.length * Double.BYTES);
       } catch (IOException e) {
         e.printStackTrace();
         buffer = DoubleBuffer.wrap(values);
@@ -206,6 +242,7 @@ public class StorageUtils {
     if (storage != null) {
       try {
         buffer = storage.storeData(values);
+        memoryMappedBytes.add((long) values.length * Integer.BYTES);
       } catch (IOException e) {
         e.printStackTrace();
         buffer = IntBuffer.wrap(values);
@@ -215,4 +252,99 @@ public class StorageUtils {
     }
     return buffer;
   }
+
+  /**
+   * Stores the given array into a float buffer.
+   *
+   * @param storage The storage to be used. If null, the values will be wrapped using
+   *                {@link FloatBuffer#wrap(float[])}.
+   * @param values  The values to be stored.
+   * @return The float buffer the values were stored in.
+   */
+  @NotNull
+  public static FloatBuffer storeValuesToFloatBuffer(@Nullable final MemoryMapStorage storage,
+      @NotNull final float[] values) {
+
+    FloatBuffer buffer;
+    if (storage != null) {
+      try {
+        buffer = storage.storeData(values);
+        memoryMappedBytes.add((long) values.length * Float.BYTES);
+      } catch (IOException e) {
+        e.printStackTrace();
+        buffer = FloatBuffer.wrap(values);
+      }
+    } else {
+      buffer = FloatBuffer.wrap(values);
+    }
+    return buffer;
+  }
+
+  /**
+   * Stores intensity values as double or as float values, depending on
+   * {@link #isStoreIntensitiesAsFloat()}. Use {@link #getIntensity(Buffer, int)},
+   * {@link #getIntensities(Buffer, double[], int)} and {@link #asDoubleBuffer(Buffer)} to read
+   * the values.
+   *
+   * @param storage The storage to be used. If null, the values are kept in RAM.
+   * @param values  The values to be stored.
+   * @return a {@link DoubleBuffer} or a {@link FloatBuffer}
+   */
+  @NotNull
+  public static Buffer storeIntensityValues(@Nullable final MemoryMapStorage storage,
+      @NotNull final double[] values) {
+    if (!storeIntensitiesAsFloat || values.length == 0) {
+      return storeValuesToDoubleBuffer(storage, values);
+    }
+    final float[] floats = new float[values.length];
+    for (int i = 0; i < values.length; i++) {
+      floats[i] = (float) values[i];
+    }
+    return storeValuesToFloatBuffer(storage, floats);
+  }
+
+  /**
+   * @param intensities a buffer created by {@link #storeIntensityValues(MemoryMapStorage,
+   *                    double[])}
+   * @return the value at index
+   */
+  public static double getIntensity(@NotNull final Buffer intensities, final int index) {
+    if (intensities instanceof FloatBuffer floats) {
+      return floats.get(index);
+    }
+    return ((DoubleBuffer) intensities).get(index);
+  }
+
+  /**
+   * @param intensities a buffer created by {@link #storeIntensityValues(MemoryMapStorage,
+   *                    double[])}
+   * @param dst         the target array
+   * @param length      the number of values to copy
+   */
+  public static void getIntensities(@NotNull final Buffer intensities, @NotNull final double[] dst,
+      final int length) {
+    if (intensities instanceof FloatBuffer floats) {
+      for (int i = 0; i < length; i++) {
+        dst[i] = floats.get(i);
+      }
+    } else {
+      ((DoubleBuffer) intensities).get(0, dst, 0, length);
+    }
+  }
+
+  /**
+   * @param intensities a buffer created by {@link #storeIntensityValues(MemoryMapStorage,
+   *                    double[])}
+   * @return the buffer itself if values are stored as double, otherwise a new heap buffer with a
+   * copy of the values
+   */
+  @NotNull
+  public static DoubleBuffer asDoubleBuffer(@NotNull final Buffer intensities) {
+    if (intensities instanceof DoubleBuffer doubles) {
+      return doubles;
+    }
+    final double[] values = new double[intensities.limit()];
+    getIntensities(intensities, values, values.length);
+    return DoubleBuffer.wrap(values);
+  }
 }
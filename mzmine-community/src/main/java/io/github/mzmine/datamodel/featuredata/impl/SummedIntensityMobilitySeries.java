@@ -126,7 +126,7 @@ public class SummedIntensityMobilitySeries implements IntensitySeries, MobilityS
   }
 
   public double getIntensity(int index) {
-    return getIntensityValueBuffer().get(index);
+    return intensityValues.get(index);
   }
 
   /**
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Map of {@link DataType} to values of a single row or feature. Non-null values of the numeric
+ * types in {@link ModularDataColumns} are stored in the primitive columns of the feature list, all
+ * other values in a HashMap. Wrapped as an {@link javafx.collections.ObservableMap} in
+ * {@link ModularFeatureListRow} and {@link ModularFeature}, so listeners and the GUI see a regular
+ * map. Like the HashMap before, this map is not thread safe.
+ */
+@SuppressWarnings("rawtypes")
+final class ColumnarDataTypeMap extends AbstractMap<DataType, Object> {
+
+  private ModularDataColumns columns;
+  private int slot;
+  private final Map<DataType, Object> other = new HashMap<>();
+  /**
+   * one bit per column in {@link ModularDataColumns}
+   */
+  private int present;
+  private transient Set<Entry<DataType, Object>> entrySet;
+
+  ColumnarDataTypeMap(@NotNull final ModularDataColumns columns) {
+    this.columns = columns;
+    this.slot = columns.nextSlot();
+  }
+
+  /**
+   * Moves the column values to a new slot in other columns, e.g., when the row or feature is moved
+   * to another feature list. The old slot is released for reuse.
+   *
+   * @param newColumns the columns of the new feature list
+   */
+  void moveTo(@NotNull final ModularDataColumns newColumns) {
+    if (newColumns == columns) {
+      return;
+    }
+    final int newSlot = newColumns.nextSlot();
+    for (int column = 0; column < ModularDataColumns.NUM_COLUMNS; column++) {
+      if (isPresent(column)) {
+        newColumns.set(column, newSlot, columns.get(column, slot));
+      }
+    }
+    columns.releaseSlot(slot);
+    columns = newColumns;
+    slot = newSlot;
+  }
+
+  private boolean isPresent(final int column) {
+    return (present & (1 << column)) != 0;
+  }
+
+  private int columnOf(final Object key) {
+    return key instanceof DataType type ? ModularDataColumns.columnOf(type) : -1;
+  }
+
+  @Override
+  public Object get(final Object key) {
+    final int column = columnOf(key);
+    if (column >= 0 && isPresent(column)) {
+      return columns.get(column, slot);
+    }
+    return other.get(key);
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    final int column = columnOf(key);
+    if (column >= 0 && isPresent(column)) {
+      return true;
+    }
+    return other.containsKey(key);
+  }
+
+  @Override
+  public Object put(final DataType key, final Object value) {
+    final int column = columnOf(key);
+    if (column < 0) {
+      return other.put(key, value);
+    }
+
+    final Object old = isPresent(column) ? columns.get(column, slot) : other.remove(key);
+    if (ModularDataColumns.accepts(column, value)) {
+      columns.set(column, slot, value);
+      present |= 1 << column;
+    } else {
+      // null or unexpected value class
+      present &= ~(1 << column);
+      other.put(key, value);
+    }
+    return old;
+  }
+
+  @Override
+  public Object remove(final Object key) {
+    final int column = columnOf(key);
+    if (column >= 0 && isPresent(column)) {
+      present &= ~(1 << column);
+      return columns.get(column, slot);
+    }
+    return other.remove(key);
+  }
+
+  @Override
+  public int size() {
+    return Integer.bitCount(present) + other.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return present == 0 && other.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    present = 0;
+    other.clear();
+  }
+
+  @Override
+  public @NotNull Set<Entry<DataType, Object>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<DataType, Object>> {
+
+    @Override
+    public @NotNull Iterator<Entry<DataType, Object>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return ColumnarDataTypeMap.this.size();
+    }
+
+    @Override
+    public void clear() {
+      ColumnarDataTypeMap.this.clear();
+    }
+  }
+
+  /**
+   * Iterates the set columns first and then the other values
+   */
+  private final class EntryIterator implements Iterator<Entry<DataType, Object>> {
+
+    private final Iterator<Entry<DataType, Object>> otherIterator = other.entrySet().iterator();
+    private int nextColumn = findColumn(0);
+    private int lastColumn = -1;
+    private boolean lastWasOther = false;
+
+    private int findColumn(int from) {
+      while (from < ModularDataColumns.NUM_COLUMNS && !isPresent(from)) {
+        from++;
+      }
+      return from;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextColumn < ModularDataColumns.NUM_COLUMNS || otherIterator.hasNext();
+    }
+
+    @Override
+    public Entry<DataType, Object> next() {
+      if (nextColumn < ModularDataColumns.NUM_COLUMNS) {
+        lastColumn = nextColumn;
+        lastWasOther = false;
+        nextColumn = findColumn(nextColumn + 1);
+        return new ColumnEntry(ModularDataColumns.typeOf(lastColumn));
+      }
+      if (!otherIterator.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      lastColumn = -1;
+      lastWasOther = true;
+      return otherIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      if (lastWasOther) {
+        otherIterator.remove();
+        lastWasOther = false;
+      } else if (lastColumn >= 0) {
+        present &= ~(1 << lastColumn);
+        lastColumn = -1;
+      } else {
+        throw new IllegalStateException();
+      }
+    }
+  }
+
+  /**
+   * Entry that reads and writes through to the map
+   */
+  private final class ColumnEntry implements Entry<DataType, Object> {
+
+    private final DataType key;
+
+    private ColumnEntry(final DataType key) {
+      this.key = key;
+    }
+
+    @Override
+    public DataType getKey() {
+      return key;
+    }
+
+    @Override
+    public Object getValue() {
+      return get(key);
+    }
+
+    @Override
+    public Object setValue(final Object value) {
+      return put(key, value);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof Entry<?, ?> e && Objects.equals(key, e.getKey()) && Objects.equals(
+          getValue(), e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + getValue();
+    }
+  }
+}
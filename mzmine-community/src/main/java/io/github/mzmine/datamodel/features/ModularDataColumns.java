@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.CCSType;
+import io.github.mzmine.datamodel.features.types.numbers.ChargeType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Primitive column store for the most common numeric {@link DataType}s of all rows or all features
+ * of a {@link ModularFeatureList}. Each {@link ColumnarDataTypeMap} reserves one slot (position)
+ * in all columns and keeps its values there instead of boxed Float/Double objects in a HashMap.
+ * <p>
+ * Columns are split into pages of {@link #PAGE_SIZE} values that are allocated on the first write,
+ * so columns that are never used (e.g., mobility or CCS for LC-MS data) take no memory. Pages never
+ * move, which allows concurrent reads and writes of different slots without locking. Slots of rows
+ * or features that move to another feature list are released and reused. Slots of removed rows or
+ * features are freed together with the feature list.
+ */
+final class ModularDataColumns {
+
+  static final int MZ = 0;
+  static final int RT = 1;
+  static final int HEIGHT = 2;
+  static final int AREA = 3;
+  static final int MOBILITY = 4;
+  static final int CCS = 5;
+  static final int CHARGE = 6;
+  static final int NUM_COLUMNS = 7;
+
+  private static final Class<?>[] TYPE_CLASSES = {MZType.class, RTType.class, HeightType.class,
+      AreaType.class, MobilityType.class, CCSType.class, ChargeType.class};
+
+  private static final int PAGE_BITS = 12;
+  static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private final AtomicInteger nextSlot = new AtomicInteger();
+  /**
+   * released slots that are reused before new slots are reserved
+   */
+  private final IntArrayList freeSlots = new IntArrayList();
+  /**
+   * [column][page] either double[], float[] or int[] depending on the column. Replaced as a whole
+   * when a page is added to publish new pages safely to other threads.
+   */
+  private volatile Object[][] pages = new Object[NUM_COLUMNS][0];
+
+  /**
+   * @param type the data type
+   * @return the column index or -1 if this type is not stored in a primitive column. Subclasses of
+   * the column types are not stored in columns.
+   */
+  static int columnOf(@NotNull final DataType<?> type) {
+    final Class<?> typeClass = type.getClass();
+    for (int i = 0; i < NUM_COLUMNS; i++) {
+      if (TYPE_CLASSES[i] == typeClass) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the data type instance of a column
+   */
+  static DataType<?> typeOf(final int column) {
+    return DataTypes.get(TYPE_CLASSES[column].getName());
+  }
+
+  /**
+   * @return true if the value can be stored in the column. Null values and values of an unexpected
+   * class are kept in the generic map.
+   */
+  static boolean accepts(final int column, @Nullable final Object value) {
+    return switch (column) {
+      case MZ -> value instanceof Double;
+      case CHARGE -> value instanceof Integer;
+      default -> value instanceof Float;
+    };
+  }
+
+  /**
+   * @return a new slot in all columns, either a released or a new one
+   */
+  int nextSlot() {
+    synchronized (freeSlots) {
+      if (!freeSlots.isEmpty()) {
+        return freeSlots.popInt();
+      }
+    }
+    return nextSlot.getAndIncrement();
+  }
+
+  /**
+   * Releases a slot for reuse. The old values are not cleared, a new owner of the slot only reads
+   * columns it has set itself.
+   */
+  void releaseSlot(final int slot) {
+    synchronized (freeSlots) {
+      freeSlots.add(slot);
+    }
+  }
+
+  /**
+   * @return number of reserved slots, including released ones
+   */
+  int size() {
+    return nextSlot.get();
+  }
+
+  /**
+   * Only call for slots that were set before
+   *
+   * @return the boxed value of the column at slot
+   */
+  @NotNull Object get(final int column, final int slot) {
+    final Object page = pages[column][slot >>> PAGE_BITS];
+    final int offset = slot & PAGE_MASK;
+    return switch (column) {
+      case MZ -> ((double[]) page)[offset];
+      case CHARGE -> ((int[]) page)[offset];
+      default -> ((float[]) page)[offset];
+    };
+  }
+
+  /**
+   * @param value needs to be accepted by {@link #accepts(int, Object)}
+   */
+  void set(final int column, final int slot, @NotNull final Object value) {
+    final Object page = getOrCreatePage(column, slot >>> PAGE_BITS);
+    final int offset = slot & PAGE_MASK;
+    switch (column) {
+      case MZ -> ((double[]) page)[offset] = (Double) value;
+      case CHARGE -> ((int[]) page)[offset] = (Integer) value;
+      default -> ((float[]) page)[offset] = (Float) value;
+    }
+  }
+
+  private Object getOrCreatePage(final int column, final int pageIndex) {
+    final Object[] columnPages = pages[column];
+    if (pageIndex < columnPages.length && columnPages[pageIndex] != null) {
+      return columnPages[pageIndex];
+    }
+    synchronized (this) {
+      final Object[][] current = pages;
+      Object[] newColumnPages = current[column];
+      if (pageIndex < newColumnPages.length && newColumnPages[pageIndex] != null) {
+        return newColumnPages[pageIndex];
+      }
+      final Object page = switch (column) {
+        case MZ -> new double[PAGE_SIZE];
+        case CHARGE -> new int[PAGE_SIZE];
+        default -> new float[PAGE_SIZE];
+      };
+      newColumnPages = Arrays.copyOf(newColumnPages,
+          Math.max(newColumnPages.length, pageIndex + 1));
+      newColumnPages[pageIndex] = page;
+
+      final Object[][] updated = current.clone();
+      updated[column] = newColumnPages;
+      pages = updated;
+      return page;
+    }
+  }
+}
@@ -64,7 +64,6 @@ import io.github.mzmine.modules.tools.qualityparameters.QualityParameters;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.FeatureUtils;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -85,7 +84,9 @@ import org.jetbrains.annotations.Nullable;
 public class ModularFeature implements Feature, ModularDataModel {
 
   private static final Logger logger = Logger.getLogger(ModularFeature.class.getName());
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
+  private final ObservableMap<DataType, Object> map;
+  // backs the map, moved to the columns of a new feature list
+  private final ColumnarDataTypeMap columnarMap;
   // buffert col charts and nodes
   @NotNull
   private ModularFeatureList flist;
@@ -94,8 +95,9 @@ public class ModularFeature implements Feature, ModularDataModel {
 
   public ModularFeature(@NotNull ModularFeatureList flist) {
     this.flist = flist;
+    columnarMap = new ColumnarDataTypeMap(flist.getFeatureColumns());
+    map = FXCollections.observableMap(columnarMap);
 
-    //
     map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
       if (change.wasAdded()) {
         flist.addFeatureType(change.getKey());
@@ -431,6 +433,7 @@ public class ModularFeature implements Feature, ModularDataModel {
   @Override
   public void setFeatureList(@NotNull FeatureList flist) {
     this.flist = (ModularFeatureList) flist;
+    columnarMap.moveTo(this.flist.getFeatureColumns());
   }
 
   @Override
@@ -110,6 +110,9 @@ public class ModularFeatureList implements FeatureList {
   // TODO do we need two sets? We could have observableSet of LinkedHashSet
   private final ObservableSet<DataType> featureTypes = FXCollections.observableSet(
       new LinkedHashSet<>());
+  // primitive columns for common numeric types of all rows and features, see ColumnarDataTypeMap
+  private final ModularDataColumns rowColumns = new ModularDataColumns();
+  private final ModularDataColumns featureColumns = new ModularDataColumns();
   private final ObservableList<FeatureListRow> featureListRows;
   private final ObservableList<FeatureListAppliedMethod> descriptionOfAppliedTasks;
 
@@ -352,6 +355,20 @@ public class ModularFeatureList implements FeatureList {
     }
   }
 
+  /**
+   * @return primitive columns for values of all rows of this list
+   */
+  ModularDataColumns getRowColumns() {
+    return rowColumns;
+  }
+
+  /**
+   * @return primitive columns for values of all features of this list
+   */
+  ModularDataColumns getFeatureColumns() {
+    return featureColumns;
+  }
+
   /**
    * Summary of all feature type columns
    *
@@ -107,7 +107,9 @@ public class ModularFeatureListRow implements FeatureListRow {
    * this final map is used in the FeaturesType - only ModularFeatureListRow is supposed to change
    * this map see {@link #addFeature}
    */
-  private final ObservableMap<DataType, Object> map = FXCollections.observableMap(new HashMap<>());
+  private final ObservableMap<DataType, Object> map;
+  // backs the map, moved to the columns of a new feature list
+  private final ColumnarDataTypeMap columnarMap;
   private final Map<RawDataFile, ModularFeature> features;
   @NotNull
   private ModularFeatureList flist;
@@ -120,6 +122,8 @@ public class ModularFeatureListRow implements FeatureListRow {
    */
   public ModularFeatureListRow(@NotNull ModularFeatureList flist, int id) {
     this.flist = flist;
+    columnarMap = new ColumnarDataTypeMap(flist.getRowColumns());
+    map = FXCollections.observableMap(columnarMap);
 
     map.addListener((MapChangeListener<? super DataType, ? super Object>) change -> {
       if (change.wasAdded()) {
@@ -380,6 +384,7 @@ public class ModularFeatureListRow implements FeatureListRow {
           "Cannot set non-modular feature list to modular feature list row.");
     }
     this.flist = (ModularFeatureList) flist;
+    columnarMap.moveTo(this.flist.getRowColumns());
   }
 
   @Override
@@ -27,20 +27,25 @@ package io.github.mzmine.datamodel.features.correlation;
 
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * Contains all the {@link R2RMap} for networking of rows
+ * Contains all the {@link R2RMap} and {@link R2RSparseGraph} for networking of rows
  */
 public class R2RNetworkingMaps {
 
   // a map that stores row-2-row relationship maps for MS1, MS2, and other relationships
   // key is the type of the relationship
   private final Map<String, R2RMap<RowsRelationship>> r2rMaps = new ConcurrentHashMap<>();
+  // compact graphs for large networks with one score per edge, key is the type of the relationship
+  private final Map<String, R2RSparseGraph> graphs = new ConcurrentHashMap<>();
 
   public void addAllRowsRelationships(R2RMap<? extends RowsRelationship> map, Type relationship) {
     addAllRowsRelationships(map, relationship.toString());
@@ -51,6 +56,14 @@ public class R2RNetworkingMaps {
     rowMap.putAll(map);
   }
 
+  /**
+   * Adds all edges of the graph to the graph of the same type
+   */
+  public void addAllRowsRelationships(@NotNull R2RSparseGraph graph) {
+    graphs.computeIfAbsent(graph.getType(),
+        type -> new R2RSparseGraph(type, graph.getScoreLabel())).addAll(graph);
+  }
+
   public void addRowsRelationship(FeatureListRow a, FeatureListRow b,
       RowsRelationship relationship) {
     R2RMap<RowsRelationship> rowMap = r2rMaps.computeIfAbsent(relationship.getType(),
@@ -63,27 +76,87 @@ public class R2RNetworkingMaps {
     return removeAllRowRelationships(type.toString());
   }
 
+  /**
+   * Removes the map and the graph of this type
+   *
+   * @return the removed map or the materialized graph if there was no map
+   */
   @Nullable
   public R2RMap<RowsRelationship> removeAllRowRelationships(String type) {
-    return r2rMaps.remove(type);
+    final R2RSparseGraph graph = graphs.remove(type);
+    final R2RMap<RowsRelationship> map = r2rMaps.remove(type);
+    return map == null && graph != null ? graph.asR2RMap() : map;
   }
 
+  /**
+   * @return the relationship maps. Does not contain the {@link #getGraphs()}
+   */
   public Map<String, R2RMap<RowsRelationship>> getRowsMaps() {
     return r2rMaps;
   }
 
+  /**
+   * @return the compact relationship graphs. Not contained in {@link #getRowsMaps()}
+   */
+  public Map<String, R2RSparseGraph> getGraphs() {
+    return graphs;
+  }
+
+  public Optional<R2RSparseGraph> getGraph(String type) {
+    return Optional.ofNullable(graphs.get(type));
+  }
+
+  /**
+   * A graph of this type is materialized as map, prefer {@link #getGraph(String)} or
+   * {@link #streamAllRelationships(String, FeatureListRow, Collection)} for large networks.
+   *
+   * @return the map of this type, combined with the graph of the same type
+   */
   public Optional<R2RMap<RowsRelationship>> getRowsMap(String type) {
-    return Optional.ofNullable(r2rMaps.get(type));
+    final R2RMap<RowsRelationship> map = r2rMaps.get(type);
+    final R2RSparseGraph graph = graphs.get(type);
+    if (graph == null) {
+      return Optional.ofNullable(map);
+    }
+    if (map == null) {
+      return Optional.of(graph.asR2RMap());
+    }
+    final R2RMap<RowsRelationship> combined = new R2RMap<>();
+    combined.putAll(graph.asR2RMap());
+    combined.putAll(map);
+    return Optional.of(combined);
+  }
+
+  /**
+   * All relationships of a row of this type
+   *
+   * @param allRows all rows of the feature list to search the map
+   */
+  public Stream<RowsRelationship> streamAllRelationships(String type, FeatureListRow row,
+      Collection<FeatureListRow> allRows) {
+    final R2RMap<RowsRelationship> map = r2rMaps.get(type);
+    final R2RSparseGraph graph = graphs.get(type);
+    final Stream<RowsRelationship> fromMap =
+        map == null ? Stream.empty() : map.streamAllCorrelatedRows(row, allRows);
+    if (graph == null) {
+      return fromMap;
+    }
+    // edges in the map replace the edges in the graph like in getRowsMap
+    return Stream.concat(fromMap, graph.streamRelationships(row)
+        .filter(rel -> map == null || !map.contains(rel.getRowA(), rel.getRowB())));
   }
 
 
   public boolean isEmpty() {
-    return r2rMaps.isEmpty();
+    return r2rMaps.isEmpty() && graphs.isEmpty();
   }
 
   public void addAll(final R2RNetworkingMaps maps) {
     for (final Entry<String, R2RMap<RowsRelationship>> map : maps.getRowsMaps().entrySet()) {
       addAllRowsRelationships(map.getValue(), map.getKey());
     }
+    for (final R2RSparseGraph graph : maps.getGraphs().values()) {
+      addAllRowsRelationships(graph);
+    }
   }
 }
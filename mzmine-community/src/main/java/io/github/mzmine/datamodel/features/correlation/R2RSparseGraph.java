@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.correlation;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.lang.ref.SoftReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compact and thread-safe store of undirected row-2-row edges of one relationship type with a
+ * single score per edge. Alternative to {@link R2RMap} for large networks: edges are appended as
+ * primitive row IDs and float scores (coordinate list) and are compacted into a sorted edge list on
+ * the first read. The neighbor index (compressed sparse rows) is only built if neighbors of a row
+ * are requested. {@link RowsRelationship} objects are only created as lightweight views when
+ * accessed.
+ * <p>
+ * Adding the same edge twice keeps the higher score. Row IDs need to be >= 0 and all rows need to
+ * originate from the same feature list.
+ */
+public class R2RSparseGraph {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final @NotNull String type;
+  private final @NotNull String scoreLabel;
+  // guarded by this
+  private final Int2ObjectMap<FeatureListRow> rowsById = new Int2ObjectOpenHashMap<>();
+  private long[] pendingKeys = new long[INITIAL_CAPACITY];
+  private float[] pendingScores = new float[INITIAL_CAPACITY];
+  private int pending = 0;
+  private Edges edges = Edges.EMPTY;
+  // null while edges are pending
+  private volatile Edges readView = Edges.EMPTY;
+  private volatile SoftReference<R2RMap<RowsRelationship>> materialized = null;
+
+  /**
+   * @param type       the relationship type
+   * @param scoreLabel used in the annotation of relationships, e.g., cos for cos=0.95
+   */
+  public R2RSparseGraph(@NotNull Type type, @NotNull String scoreLabel) {
+    this(type.toString(), scoreLabel);
+  }
+
+  /**
+   * @param type       the relationship type
+   * @param scoreLabel used in the annotation of relationships, e.g., cos for cos=0.95
+   */
+  public R2RSparseGraph(@NotNull String type, @NotNull String scoreLabel) {
+    this.type = type;
+    this.scoreLabel = scoreLabel;
+  }
+
+  /**
+   * A unique undirected key with the lower ID in the upper 32 bits. Sorting by key sorts edges by
+   * the lower and then the higher ID.
+   */
+  static long toKey(int idA, int idB) {
+    final int low = Math.min(idA, idB);
+    final int high = Math.max(idA, idB);
+    return ((long) low << 32) | (high & 0xffffffffL);
+  }
+
+  private static int lowId(long key) {
+    return (int) (key >>> 32);
+  }
+
+  private static int highId(long key) {
+    return (int) key;
+  }
+
+  /**
+   * Adds an undirected edge. Arguments a and b are interchangeable. Thread-safe.
+   */
+  public void add(@NotNull FeatureListRow a, @NotNull FeatureListRow b, double score) {
+    synchronized (this) {
+      rowsById.putIfAbsent(a.getID(), a);
+      rowsById.putIfAbsent(b.getID(), b);
+      appendPending(toKey(a.getID(), b.getID()), (float) score);
+    }
+  }
+
+  /**
+   * Adds all edges of another graph. Thread-safe.
+   */
+  public void addAll(@NotNull R2RSparseGraph other) {
+    if (other == this) {
+      return;
+    }
+    final Edges otherEdges = other.compacted();
+    final FeatureListRow[] otherRows;
+    synchronized (other) {
+      otherRows = other.rowsById.values().toArray(FeatureListRow[]::new);
+    }
+    synchronized (this) {
+      for (FeatureListRow row : otherRows) {
+        rowsById.putIfAbsent(row.getID(), row);
+      }
+      for (int i = 0; i < otherEdges.size(); i++) {
+        appendPending(otherEdges.keys[i], otherEdges.scores[i]);
+      }
+    }
+  }
+
+  // guarded by this
+  private void appendPending(long key, float score) {
+    if (pending == pendingKeys.length) {
+      final int capacity = pendingKeys.length * 2;
+      pendingKeys = java.util.Arrays.copyOf(pendingKeys, capacity);
+      pendingScores = java.util.Arrays.copyOf(pendingScores, capacity);
+    }
+    pendingKeys[pending] = key;
+    pendingScores[pending] = score;
+    pending++;
+    readView = null;
+    materialized = null;
+  }
+
+  /**
+   * Merges all pending edges into the sorted edge list
+   */
+  private Edges compacted() {
+    final Edges view = readView;
+    if (view != null) {
+      return view;
+    }
+    synchronized (this) {
+      if (readView == null) {
+        edges = Edges.merge(edges, pendingKeys, pendingScores, pending);
+        pendingKeys = new long[INITIAL_CAPACITY];
+        pendingScores = new float[INITIAL_CAPACITY];
+        pending = 0;
+        readView = edges;
+      }
+      return readView;
+    }
+  }
+
+  @NotNull
+  public String getType() {
+    return type;
+  }
+
+  @NotNull
+  public String getScoreLabel() {
+    return scoreLabel;
+  }
+
+  /**
+   * @return number of unique edges
+   */
+  public int size() {
+    return compacted().size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Arguments a and b are interchangeable.
+   *
+   * @return the score of edge a-b or NaN if there is no edge
+   */
+  public float getScore(@NotNull FeatureListRow a, @NotNull FeatureListRow b) {
+    final Edges current = compacted();
+    final int index = current.indexOf(toKey(a.getID(), b.getID()));
+    return index < 0 ? Float.NaN : current.scores[index];
+  }
+
+  /**
+   * The order of arguments does not matter
+   *
+   * @return true if there is an edge between a and b
+   */
+  public boolean contains(@NotNull FeatureListRow a, @NotNull FeatureListRow b) {
+    return compacted().indexOf(toKey(a.getID(), b.getID())) >= 0;
+  }
+
+  /**
+   * @return a view of edge a-b or null if there is no edge
+   */
+  @Nullable
+  public RowsRelationship get(@NotNull FeatureListRow a, @NotNull FeatureListRow b) {
+    final float score = getScore(a, b);
+    return Float.isNaN(score) ? null : createView(a, b, score);
+  }
+
+  /**
+   * Iterates all edges with the lower row ID first, sorted by IDs. No objects are created.
+   */
+  public void forEachEdge(@NotNull EdgeConsumer consumer) {
+    final Edges current = compacted();
+    for (int i = 0; i < current.size(); i++) {
+      final long key = current.keys[i];
+      consumer.accept(lowId(key), highId(key), current.scores[i]);
+    }
+  }
+
+  /**
+   * @return number of edges of this row
+   */
+  public int getDegree(@NotNull FeatureListRow row) {
+    final NeighborIndex index = compacted().neighborIndex();
+    final int node = java.util.Arrays.binarySearch(index.nodeIds, row.getID());
+    return node < 0 ? 0 : index.offsets[node + 1] - index.offsets[node];
+  }
+
+  /**
+   * Lazily creates relationship views for all edges
+   */
+  public Stream<RowsRelationship> streamRelationships() {
+    final Edges current = compacted();
+    return IntStream.range(0, current.size()).mapToObj(i -> {
+      final long key = current.keys[i];
+      return createView(getRow(lowId(key)), getRow(highId(key)), current.scores[i]);
+    });
+  }
+
+  /**
+   * Lazily creates relationship views for all edges of a row. Uses the neighbor index instead of
+   * checking all rows like {@link R2RMap#streamAllCorrelatedRows(FeatureListRow,
+   * java.util.Collection)}.
+   */
+  public Stream<RowsRelationship> streamRelationships(@NotNull FeatureListRow row) {
+    final NeighborIndex index = compacted().neighborIndex();
+    final int node = java.util.Arrays.binarySearch(index.nodeIds, row.getID());
+    if (node < 0) {
+      return Stream.empty();
+    }
+    return IntStream.range(index.offsets[node], index.offsets[node + 1])
+        .mapToObj(i -> createView(row, getRow(index.neighbors[i]), index.scores[i]));
+  }
+
+  /**
+   * Materializes all edges as {@link R2RMap} for code that requires the map. The map is cached
+   * until the next edge is added or the memory is needed.
+   */
+  @NotNull
+  public R2RMap<RowsRelationship> asR2RMap() {
+    final SoftReference<R2RMap<RowsRelationship>> reference = materialized;
+    R2RMap<RowsRelationship> map = reference == null ? null : reference.get();
+    if (map == null) {
+      final R2RMap<RowsRelationship> newMap = new R2RMap<>();
+      streamRelationships().forEach(
+          rel -> newMap.add(rel.getRowA(), rel.getRowB(), rel));
+      map = newMap;
+      materialized = new SoftReference<>(map);
+    }
+    return map;
+  }
+
+  private FeatureListRow getRow(int id) {
+    synchronized (this) {
+      return rowsById.get(id);
+    }
+  }
+
+  private RowsRelationship createView(FeatureListRow a, FeatureListRow b, float score) {
+    return new SparseRowsRelationship(a, b, score, type, scoreLabel);
+  }
+
+  @FunctionalInterface
+  public interface EdgeConsumer {
+
+    void accept(int lowerRowId, int higherRowId, float score);
+  }
+
+  /**
+   * Sorted unique edges. Immutable except for the lazily created neighbor index.
+   */
+  private static final class Edges {
+
+    private static final Edges EMPTY = new Edges(new long[0], new float[0]);
+
+    private final long[] keys;
+    private final float[] scores;
+    private volatile NeighborIndex neighborIndex;
+
+    private Edges(long[] keys, float[] scores) {
+      this.keys = keys;
+      this.scores = scores;
+    }
+
+    /**
+     * Sorts the new edges and merges them with the existing edges. Duplicates keep the higher
+     * score.
+     */
+    private static Edges merge(Edges old, long[] newKeys, float[] newScores, int numNew) {
+      if (numNew == 0) {
+        return old;
+      }
+      final int total = old.size() + numNew;
+      final long[] keys = java.util.Arrays.copyOf(old.keys, total);
+      final float[] scores = java.util.Arrays.copyOf(old.scores, total);
+      System.arraycopy(newKeys, 0, keys, old.size(), numNew);
+      System.arraycopy(newScores, 0, scores, old.size(), numNew);
+
+      Arrays.parallelQuickSort(0, total, (i, j) -> Long.compare(keys[i], keys[j]), (i, j) -> {
+        final long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        final float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+      });
+
+      int unique = 0;
+      for (int i = 0; i < total; i++) {
+        if (unique > 0 && keys[unique - 1] == keys[i]) {
+          scores[unique - 1] = Math.max(scores[unique - 1], scores[i]);
+        } else {
+          keys[unique] = keys[i];
+          scores[unique] = scores[i];
+          unique++;
+        }
+      }
+      return new Edges(java.util.Arrays.copyOf(keys, unique),
+          java.util.Arrays.copyOf(scores, unique));
+    }
+
+    private int size() {
+      return keys.length;
+    }
+
+    private int indexOf(long key) {
+      return java.util.Arrays.binarySearch(keys, key);
+    }
+
+    private NeighborIndex neighborIndex() {
+      NeighborIndex index = neighborIndex;
+      if (index == null) {
+        synchronized (this) {
+          index = neighborIndex;
+          if (index == null) {
+            index = NeighborIndex.create(keys, scores);
+            neighborIndex = index;
+          }
+        }
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Compressed sparse rows of both directions of all edges. Neighbors of the node at index i are
+   * between offsets[i] and offsets[i+1], sorted by ID.
+   */
+  private record NeighborIndex(int[] nodeIds, int[] offsets, int[] neighbors, float[] scores) {
+
+    private static NeighborIndex create(long[] keys, float[] edgeScores) {
+      final int numEdges = keys.length;
+      final int[] ids = new int[numEdges * 2];
+      for (int i = 0; i < numEdges; i++) {
+        ids[i * 2] = lowId(keys[i]);
+        ids[i * 2 + 1] = highId(keys[i]);
+      }
+      IntArrays.parallelQuickSort(ids);
+      int numNodes = 0;
+      for (int i = 0; i < ids.length; i++) {
+        if (numNodes == 0 || ids[numNodes - 1] != ids[i]) {
+          ids[numNodes++] = ids[i];
+        }
+      }
+      final int[] nodeIds = java.util.Arrays.copyOf(ids, numNodes);
+
+      final int[] offsets = new int[numNodes + 1];
+      final int[] lowNodes = new int[numEdges];
+      final int[] highNodes = new int[numEdges];
+      for (int i = 0; i < numEdges; i++) {
+        lowNodes[i] = java.util.Arrays.binarySearch(nodeIds, lowId(keys[i]));
+        highNodes[i] = java.util.Arrays.binarySearch(nodeIds, highId(keys[i]));
+        offsets[lowNodes[i] + 1]++;
+        offsets[highNodes[i] + 1]++;
+      }
+      for (int i = 0; i < numNodes; i++) {
+        offsets[i + 1] += offsets[i];
+      }
+
+      // edges are sorted by low then high ID, so each neighbor list is filled in ascending order:
+      // first all lower neighbors (x, node) then all higher neighbors (node, y)
+      final int[] next = java.util.Arrays.copyOf(offsets, numNodes);
+      final int[] neighbors = new int[numEdges * 2];
+      final float[] scores = new float[numEdges * 2];
+      for (int i = 0; i < numEdges; i++) {
+        final int low = lowNodes[i];
+        final int high = highNodes[i];
+        neighbors[next[low]] = nodeIds[high];
+        scores[next[low]++] = edgeScores[i];
+        neighbors[next[high]] = nodeIds[low];
+        scores[next[high]++] = edgeScores[i];
+      }
+      return new NeighborIndex(nodeIds, offsets, neighbors, scores);
+    }
+  }
+
+  /**
+   * Lightweight view of one edge
+   */
+  private static final class SparseRowsRelationship extends AbstractRowsRelationship {
+
+    private final double score;
+    private final String type;
+    private final String scoreLabel;
+
+    private SparseRowsRelationship(FeatureListRow a, FeatureListRow b, double score, String type,
+        String scoreLabel) {
+      super(a, b);
+      this.score = score;
+      this.type = type;
+      this.scoreLabel = scoreLabel;
+    }
+
+    @Override
+    public double getScore() {
+      return score;
+    }
+
+    @Override
+    public @NotNull String getType() {
+      return type;
+    }
+
+    @Override
+    public @NotNull String getAnnotation() {
+      return scoreLabel + "=" + getScoreFormatted();
+    }
+  }
+}
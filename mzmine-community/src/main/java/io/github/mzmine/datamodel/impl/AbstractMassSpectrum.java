@@ -53,11 +53,9 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
   protected synchronized void updateMzRangeAndTICValues() {
 
     final DoubleBuffer mzValues = getMzValues();
-    final DoubleBuffer intensityValues = getIntensityValues();
 
     assert mzValues != null;
-    assert intensityValues != null;
-    assert mzValues.limit() == intensityValues.limit();
+    assert mzValues.limit() == getIntensityValues().limit();
 
 
     if (mzValues.limit() == 0) {
@@ -70,7 +68,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     basePeakIndex = 0;
 
     double lastMz = mzValues.get(0);
-    double maxIntensity = intensityValues.get(0);
+    double maxIntensity = getIntensityValue(0);
     totalIonCurrent = maxIntensity;
     for (int i = 1; i < mzValues.limit(); i++) {
 
@@ -81,7 +79,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
       }
 
       // Update base peak index
-      double intensity = intensityValues.get(i);
+      double intensity = getIntensityValue(i);
       if (intensity > maxIntensity) {
         basePeakIndex = i;
         maxIntensity = intensity;
@@ -135,7 +133,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     if (spectrumType == null) {
       spectrumType = ScanUtils.detectSpectrumType(
           DataPointUtils.getDoubleBufferAsArray(getMzValues()),
-          DataPointUtils.getDoubleBufferAsArray(getIntensityValues()));
+          getIntensityValues(new double[0]));
     }
 
     return spectrumType;
@@ -171,12 +169,16 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
     if (basePeakIndex == null) {
       return null;
     } else {
-      return getIntensityValues().get(basePeakIndex);
+      return getIntensityValue(basePeakIndex);
     }
   }
 
   abstract DoubleBuffer getMzValues();
 
+  /**
+   * @return the intensity values as double buffer. Might be a copy if the intensities are stored
+   * with float precision, use {@link #getIntensityValue(int)} for single values.
+   */
   abstract DoubleBuffer getIntensityValues();
 
   @Override
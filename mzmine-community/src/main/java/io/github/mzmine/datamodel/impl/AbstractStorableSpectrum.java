@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
+import java.nio.Buffer;
 import java.nio.DoubleBuffer;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -44,7 +45,11 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
   public static final DoubleBuffer EMPTY_BUFFER = DoubleBuffer.wrap(new double[0]);
 
   protected DoubleBuffer mzValues;
-  protected DoubleBuffer intensityValues;
+  /**
+   * {@link DoubleBuffer} or {@link java.nio.FloatBuffer}, see
+   * {@link StorageUtils#isStoreIntensitiesAsFloat()}
+   */
+  protected Buffer intensityValues;
 
   /**
    * Note: mz and intensity values for a scan shall only be set once and are enforced to be
@@ -65,7 +70,7 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
   }
 
   public AbstractStorableSpectrum(@Nullable DoubleBuffer mzValues,
-      @Nullable DoubleBuffer intensityValues) {
+      @Nullable Buffer intensityValues) {
     if (mzValues == null ^ intensityValues == null) {
       // one is null the other not
       throw new IllegalArgumentException(
@@ -100,7 +105,7 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
         new SimpleSpectralArrays(mzValues, intensityValues));
 
     this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.intensities());
+    this.intensityValues = StorageUtils.storeIntensityValues(storage, sorted.intensities());
     onDataChangedEvent();
   }
 
@@ -120,10 +125,15 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     if (intensityValues == null) {
       return EMPTY_BUFFER;
     } else {
-      return intensityValues;
+      return StorageUtils.asDoubleBuffer(intensityValues);
     }
   }
 
+  @Override
+  public double getIntensityValue(int index) {
+    return StorageUtils.getIntensity(intensityValues, index);
+  }
+
   @Override
   public double[] getMzValues(@NotNull double[] dst) {
     if (mzValues == null) {
@@ -145,7 +155,7 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     if (dst.length < getNumberOfDataPoints()) {
       dst = new double[getNumberOfDataPoints()];
     }
-    intensityValues.get(0, dst, 0, getNumberOfDataPoints());
+    StorageUtils.getIntensities(intensityValues, dst, getNumberOfDataPoints());
     return dst;
   }
 
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounded least recently used cache for the spectral data of {@link SourceBackedScan}s. The
+ * capacity is defined as the total number of data points of all cached spectra. Spectra are loaded
+ * outside the lock, so concurrent access to the same scan might load it twice.
+ */
+public class ScanDataCache {
+
+  /**
+   * 8 million data points, about 128 MB
+   */
+  public static final long DEFAULT_MAX_DATA_POINTS = 8_000_000L;
+  private static final Logger logger = Logger.getLogger(ScanDataCache.class.getName());
+  private static final ScanDataCache INSTANCE = new ScanDataCache(DEFAULT_MAX_DATA_POINTS);
+
+  /**
+   * Import new scans backed by their source files instead of memory mapping their data
+   */
+  private static volatile boolean lazyScanLoading = false;
+
+  private final long maxDataPoints;
+  // access ordered
+  private final LinkedHashMap<SourceBackedScan, SimpleSpectralArrays> cache = new LinkedHashMap<>(
+      256, 0.75f, true);
+  private long cachedDataPoints = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  public ScanDataCache(final long maxDataPoints) {
+    this.maxDataPoints = maxDataPoints;
+  }
+
+  /**
+   * @return the cache shared by all source backed scans
+   */
+  public static ScanDataCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return true if supported importers create {@link SourceBackedScan}s
+   */
+  public static boolean isLazyScanLoading() {
+    return lazyScanLoading;
+  }
+
+  /**
+   * Scans imported after this call are backed by their source file (true) or memory mapped
+   * (false). Existing data is not changed.
+   */
+  public static void setLazyScanLoading(final boolean lazy) {
+    lazyScanLoading = lazy;
+  }
+
+  /**
+   * @return the cached data or the data loaded by the loader
+   * @throws UncheckedIOException if the data cannot be read from the source
+   */
+  @NotNull
+  public SimpleSpectralArrays getData(@NotNull final SourceBackedScan scan,
+      @NotNull final ScanDataLoader loader) {
+    synchronized (this) {
+      final SimpleSpectralArrays data = cache.get(scan);
+      if (data != null) {
+        hits++;
+        return data;
+      }
+      misses++;
+    }
+
+    final SimpleSpectralArrays data;
+    try {
+      data = loader.loadData(scan);
+    } catch (IOException e) {
+      logger.warning("Cannot load data of scan %s from its source: %s".formatted(scan,
+          e.getMessage()));
+      throw new UncheckedIOException(e);
+    }
+    put(scan, data);
+    return data;
+  }
+
+  private synchronized void put(@NotNull final SourceBackedScan scan,
+      @NotNull final SimpleSpectralArrays data) {
+    final SimpleSpectralArrays old = cache.put(scan, data);
+    if (old != null) {
+      cachedDataPoints -= old.getNumberOfDataPoints();
+    }
+    cachedDataPoints += data.getNumberOfDataPoints();
+
+    // evict least recently used but always keep the latest spectrum
+    final Iterator<Entry<SourceBackedScan, SimpleSpectralArrays>> it = cache.entrySet().iterator();
+    while (cachedDataPoints > maxDataPoints && cache.size() > 1) {
+      final Entry<SourceBackedScan, SimpleSpectralArrays> eldest = it.next();
+      cachedDataPoints -= eldest.getValue().getNumberOfDataPoints();
+      it.remove();
+    }
+  }
+
+  /**
+   * Removes the data of all scans of a raw data file, e.g., when the file is closed
+   */
+  public synchronized void removeAll(@NotNull final RawDataFile file) {
+    final Iterator<Entry<SourceBackedScan, SimpleSpectralArrays>> it = cache.entrySet().iterator();
+    while (it.hasNext()) {
+      final Entry<SourceBackedScan, SimpleSpectralArrays> entry = it.next();
+      if (entry.getKey().getDataFile() == file) {
+        cachedDataPoints -= entry.getValue().getNumberOfDataPoints();
+        it.remove();
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    cache.clear();
+    cachedDataPoints = 0;
+  }
+
+  public synchronized long getCachedDataPoints() {
+    return cachedDataPoints;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
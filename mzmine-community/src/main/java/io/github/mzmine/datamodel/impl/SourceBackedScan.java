@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import java.lang.ref.WeakReference;
+import java.nio.DoubleBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A scan that only keeps its metadata and the position of its data in the source file. The m/z and
+ * intensity values are loaded on access through the {@link ScanDataCache}, so the data is neither
+ * kept in memory nor memory mapped to the temp directory. Used for data that is only accessed a few
+ * times, e.g., profile spectra that are centroided by the mass detection.
+ * <p>
+ * Loops over the data points of a scan only go through the synchronized cache on the first access.
+ * Later accesses use the last loaded data as long as it is referenced elsewhere, e.g., by the cache.
+ * Bulk access with {@link #getMzValues(double[])} and {@link #getIntensityValues(double[])} is
+ * preferred.
+ */
+public class SourceBackedScan extends SimpleScan {
+
+  private static final WeakReference<SimpleSpectralArrays> NO_DATA = new WeakReference<>(null);
+
+  private final @NotNull ScanDataLoader loader;
+  private final int numberOfDataPoints;
+  // weak, so the memory is still bounded by the cache
+  private volatile @NotNull WeakReference<SimpleSpectralArrays> lastData = NO_DATA;
+
+  public SourceBackedScan(@NotNull RawDataFile dataFile, int scanNumber, int msLevel,
+      float retentionTime, @Nullable MsMsInfo msMsInfo, @NotNull DataSummary summary,
+      @NotNull ScanDataLoader loader, MassSpectrumType spectrumType, PolarityType polarity,
+      String scanDefinition, Range<Double> scanMZRange, @Nullable Float injectionTime) {
+    super(dataFile, scanNumber, msLevel, retentionTime, msMsInfo, (DoubleBuffer) null, null,
+        spectrumType, polarity, scanDefinition, scanMZRange, injectionTime);
+    this.loader = loader;
+    this.numberOfDataPoints = summary.numberOfDataPoints();
+    this.mzRange = summary.mzRange();
+    this.basePeakIndex = summary.basePeakIndex();
+    this.totalIonCurrent = summary.totalIonCurrent();
+  }
+
+  @NotNull
+  private SimpleSpectralArrays getData() {
+    final SimpleSpectralArrays last = lastData.get();
+    if (last != null) {
+      return last;
+    }
+    final SimpleSpectralArrays data = ScanDataCache.getInstance().getData(this, loader);
+    lastData = new WeakReference<>(data);
+    return data;
+  }
+
+  @Override
+  public int getNumberOfDataPoints() {
+    return numberOfDataPoints;
+  }
+
+  @Override
+  DoubleBuffer getMzValues() {
+    return DoubleBuffer.wrap(getData().mzs());
+  }
+
+  @Override
+  DoubleBuffer getIntensityValues() {
+    return DoubleBuffer.wrap(getData().intensities());
+  }
+
+  @Override
+  public double getMzValue(int index) {
+    return getData().mzs()[index];
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    return getData().intensities()[index];
+  }
+
+  @Override
+  public double[] getMzValues(@NotNull double[] dst) {
+    if (dst.length < numberOfDataPoints) {
+      dst = new double[numberOfDataPoints];
+    }
+    System.arraycopy(getData().mzs(), 0, dst, 0, numberOfDataPoints);
+    return dst;
+  }
+
+  @Override
+  public double[] getIntensityValues(@NotNull double[] dst) {
+    if (dst.length < numberOfDataPoints) {
+      dst = new double[numberOfDataPoints];
+    }
+    System.arraycopy(getData().intensities(), 0, dst, 0, numberOfDataPoints);
+    return dst;
+  }
+
+  /**
+   * Values of the spectrum that are computed once during import
+   *
+   * @param basePeakIndex   null if the spectrum is empty
+   * @param mzRange         null if the spectrum is empty
+   * @param totalIonCurrent sum of all intensities
+   */
+  public record DataSummary(int numberOfDataPoints, @Nullable Range<Double> mzRange,
+                            @Nullable Integer basePeakIndex, double totalIonCurrent) {
+
+    /**
+     * @param data sorted by m/z
+     */
+    public static DataSummary of(@NotNull SimpleSpectralArrays data) {
+      final double[] mzs = data.mzs();
+      final double[] intensities = data.intensities();
+      if (mzs.length == 0) {
+        return new DataSummary(0, null, null, 0d);
+      }
+      int basePeak = 0;
+      double tic = 0d;
+      for (int i = 0; i < intensities.length; i++) {
+        tic += intensities[i];
+        if (intensities[i] > intensities[basePeak]) {
+          basePeak = i;
+        }
+      }
+      return new DataSummary(mzs.length, Range.closed(mzs[0], mzs[mzs.length - 1]), basePeak,
+          tic);
+    }
+  }
+}
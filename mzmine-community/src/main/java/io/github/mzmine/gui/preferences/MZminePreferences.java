@@ -25,6 +25,8 @@
 
 package io.github.mzmine.gui.preferences;
 
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.impl.ScanDataCache;
 import io.github.mzmine.gui.chartbasics.chartthemes.ChartThemeParameters;
 import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
 import io.github.mzmine.main.KeepInMemory;
@@ -38,6 +40,7 @@ import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.FontSpecs;
 import io.github.mzmine.parameters.parametertypes.HiddenParameter;
 import io.github.mzmine.parameters.parametertypes.OptOutParameter;
+import io.github.mzmine.parameters.parametertypes.PercentParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.WindowSettingsParameter;
 import io.github.mzmine.parameters.parametertypes.colorpalette.ColorPaletteParameter;
@@ -155,6 +158,31 @@ public class MZminePreferences extends SimpleParameterSet {
       KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES), KeepInMemory.values(),
       KeepInMemory.NONE);
 
+  public static final BooleanParameter storeIntensitiesAsFloat = new BooleanParameter(
+      "Store intensities as float", """
+      Stores intensities of new scans, mass lists and feature data with float instead of double precision.
+      Halves the memory and temp file size of intensities at a relative precision of about 1E-7.
+      m/z values are always stored with double precision. Parameter is overriden by the program argument --floatintensities.""",
+      false);
+
+  public static final BooleanParameter lazyScanLoading = new BooleanParameter(
+      "Read scans from source files", """
+      Scans of indexed mzML files imported without mass detection only keep their metadata and are read from the original file on access.
+      Reduces the temp file size and import time but the original files need to stay available. Recently used scans are cached in memory.""",
+      false);
+
+  public static final PercentParameter rawConverterShare = new PercentParameter(
+      "Concurrent RAW file converters", """
+      Maximum number of vendor file converter processes (e.g., ThermoRawFileParser) that run at the same time as a share of the number of threads.
+      Each converter uses about one core while its output is parsed and decoded by other threads.""",
+      0.5, 0.01, 1d);
+
+  public static final BooleanParameter cacheSpectralLibraries = new BooleanParameter(
+      "Cache spectral libraries", """
+      Writes a binary cache of each imported spectral library to the .mzmine folder in the user directory.
+      Later imports of the unchanged library file memory map the cache instead of parsing the file again.""",
+      true);
+
   /*public static final BooleanParameter applyTimsPressureCompensation = new BooleanParameter(
       "Use MALDI-TIMS pressure compensation", """
       Specifies if mobility values from Bruker timsTOF fleX MALDI raw data shall be recalibrated using a Bruker algorithm.
@@ -189,7 +217,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
   public MZminePreferences() {
     super(// start with performance
-        numOfThreads, memoryOption, tempDirectory, proxySettings,
+        numOfThreads, memoryOption, storeIntensitiesAsFloat, lazyScanLoading, rawConverterShare,
+        tempDirectory, cacheSpectralLibraries, proxySettings,
         /*applyTimsPressureCompensation,*/
         // visuals
         // number formats
@@ -217,7 +246,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
     // add groups
     dialog.addParameterGroup("General",
-        new Parameter[]{numOfThreads, memoryOption, tempDirectory, proxySettings,
+        new Parameter[]{numOfThreads, memoryOption, storeIntensitiesAsFloat, lazyScanLoading,
+            rawConverterShare, tempDirectory, cacheSpectralLibraries, proxySettings,
             /*, applyTimsPressureCompensation*/});
     dialog.addParameterGroup("Formats",
         new Parameter[]{mzFormat, rtFormat, mobilityFormat, ccsFormat, intensityFormat, ppmFormat,
@@ -253,6 +283,8 @@ public class MZminePreferences extends SimpleParameterSet {
     final KeepInMemory keepInMemory = MZmineCore.getConfiguration().getPreferences()
         .getParameter(MZminePreferences.memoryOption).getValue();
     keepInMemory.enforceToMemoryMapping();
+    StorageUtils.setStoreIntensitiesAsFloat(getValue(MZminePreferences.storeIntensitiesAsFloat));
+    ScanDataCache.setLazyScanLoading(getValue(MZminePreferences.lazyScanLoading));
 
     final Themes theme = getValue(MZminePreferences.theme);
     if (previousTheme != null) {
@@ -58,6 +58,7 @@ public class MZmineArgumentParser {
   private boolean loadTdfPseudoProfile = false;
   private boolean loadTsfProfile = false;
   private KeepInMemory isKeepInMemory = null;
+  private boolean isStoreIntensitiesAsFloat = false;
   private String numCores;
 
   public void parse(String[] args) {
@@ -109,6 +110,11 @@ public class MZmineArgumentParser {
     keepInMemory.setRequired(false);
     options.addOption(keepInMemory);
 
+    Option floatIntensities = new Option(null, "floatintensities", false,
+        "store intensities of scans, mass lists and features with float precision to reduce memory and temp file size. Overrides the preference.");
+    floatIntensities.setRequired(false);
+    options.addOption(floatIntensities);
+
     Option numCores = new Option(null, "threads", true,
         "the number of threads to use during processing, or 'auto' to automatically detect available resources. "
         + "threads overwrites the specified value in the preference.");
@@ -201,6 +207,11 @@ public class MZmineArgumentParser {
                           + " to keep objects in RAM (scan data, features, etc) which are otherwise stored in memory mapped ");
       }
 
+      if (cmd.hasOption(floatIntensities.getLongOpt())) {
+        isStoreIntensitiesAsFloat = true;
+        logger.info("the --floatintensities argument was set to store intensities as float values");
+      }
+
       this.numCores = cmd.getOptionValue(numCores.getLongOpt());
 
       if (cmd.hasOption(loadTdfPseudoProfile.getOpt())) {
@@ -261,6 +272,15 @@ public class MZmineArgumentParser {
     return isKeepInMemory;
   }
 
+  /**
+   * Store intensities with float precision. Overrides the preference if set
+   *
+   * @return true if the --floatintensities argument was set
+   */
+  public boolean isStoreIntensitiesAsFloat() {
+    return isStoreIntensitiesAsFloat;
+  }
+
   public boolean isLoadTdfPseudoProfile() {
     return loadTdfPseudoProfile;
   }
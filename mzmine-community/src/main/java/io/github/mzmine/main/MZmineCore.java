@@ -31,6 +31,8 @@ import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.impl.ScanDataCache;
 import io.github.mzmine.gui.DesktopService;
 import io.github.mzmine.gui.HeadLessDesktop;
 import io.github.mzmine.gui.MZmineDesktop;
@@ -203,6 +205,10 @@ public final class MZmineCore {
         keepInMemory = preferences.getParameter(MZminePreferences.memoryOption).getValue();
       }
 
+      if (argsParser.isStoreIntensitiesAsFloat()) {
+        preferences.setParameter(MZminePreferences.storeIntensitiesAsFloat, true);
+      }
+
       String numCores = argsParser.getNumCores();
       setNumThreadsOverride(numCores);
 
@@ -211,6 +217,9 @@ public final class MZmineCore {
 
       // apply memory management option
       keepInMemory.enforceToMemoryMapping();
+      StorageUtils.setStoreIntensitiesAsFloat(
+          preferences.getValue(MZminePreferences.storeIntensitiesAsFloat));
+      ScanDataCache.setLazyScanLoading(preferences.getValue(MZminePreferences.lazyScanLoading));
 
       // batch mode defined by command line argument
       File batchFile = argsParser.getBatchFile();
@@ -33,8 +33,13 @@ import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.MZmineRunnableModule;
+import io.github.mzmine.modules.batchmode.timing.BatchProfilingReport;
+import io.github.mzmine.modules.batchmode.timing.StepProfile;
+import io.github.mzmine.modules.batchmode.timing.StepProfiler;
 import io.github.mzmine.modules.batchmode.timing.StepTimeMeasurement;
+import io.github.mzmine.modules.dataprocessing.id_localcsvsearch.LocalCSVDatabaseSearchModule;
 import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.EmbeddedParameterSet;
@@ -93,6 +98,7 @@ public class BatchTask extends AbstractTask {
   private File parentDir;
   private int currentDataset;
   private List<StepTimeMeasurement> stepTimes = new ArrayList<>();
+  private final List<StepProfile> stepProfiles = new ArrayList<>();
 
   BatchTask(MZmineProject project, ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(project, parameters, moduleCallDate,
@@ -158,8 +164,18 @@ public class BatchTask extends AbstractTask {
 
   @Override
   public void run() {
+    final List<Task> predictionTasks = startPredictionTasks();
+    try {
+      runBatch();
+    } finally {
+      // predictions are only useful for this batch, finished tasks are not changed
+      predictionTasks.forEach(Task::cancel);
+    }
+  }
 
+  private void runBatch() {
     Instant batchStart = Instant.now();
+    final StepProfiler batchProfiler = StepProfiler.startBatch(getName());
     setStatus(TaskStatus.PROCESSING);
     logger.info("Starting a batch of " + totalSteps + " steps");
 
@@ -178,6 +194,8 @@ public class BatchTask extends AbstractTask {
         if (!stepTimes.isEmpty()) {
           printBatchTimes(batchStart);
           stepTimes.clear();
+          writeProfilingReport();
+          stepProfiles.clear();
         }
 
         // change files
@@ -243,10 +261,36 @@ public class BatchTask extends AbstractTask {
     }
 
     logger.info("Finished a batch of " + totalSteps + " steps");
+    IsotopePatternCalculator.logCacheStats();
     setStatus(TaskStatus.FINISHED);
     printBatchTimes(batchStart);
     Duration duration = Duration.between(batchStart, Instant.now());
     stepTimes.addFirst(new StepTimeMeasurement(0, getName(), duration));
+    stepProfiles.addFirst(batchProfiler.stop(previousCreatedFeatureLists));
+    writeProfilingReport();
+  }
+
+  /**
+   * Starts background predictions for steps that benefit from cached results, e.g., isotope
+   * patterns of compound databases.
+   *
+   * @return the started tasks
+   */
+  private List<Task> startPredictionTasks() {
+    final List<Task> tasks = new ArrayList<>();
+    for (MZmineProcessingStep<MZmineProcessingModule> step : queue) {
+      if (step.getModule() instanceof LocalCSVDatabaseSearchModule) {
+        final Task task = LocalCSVDatabaseSearchModule.createIsotopePatternPredictionTask(
+            step.getParameterSet());
+        if (task != null) {
+          tasks.add(task);
+        }
+      }
+    }
+    if (!tasks.isEmpty()) {
+      MZmineCore.getTaskController().addTasks(tasks.toArray(Task[]::new));
+    }
+    return tasks;
   }
 
   private void printBatchTimes(final Instant batchStart) {
@@ -257,6 +301,29 @@ public class BatchTask extends AbstractTask {
     \{times}""");
   }
 
+  /**
+   * Writes the step profiles next to the output of the first export step. Skipped if there is no
+   * export step.
+   */
+  private void writeProfilingReport() {
+    if (stepProfiles.isEmpty()) {
+      return;
+    }
+    for (MZmineProcessingStep<?> currentStep : queue) {
+      if (currentStep.getModule() instanceof MZmineRunnableModule mod && (
+          mod.getModuleCategory() == MZmineModuleCategory.FEATURELISTEXPORT
+          || mod.getModuleCategory() == MZmineModuleCategory.RAWDATAEXPORT)) {
+        for (final Parameter<?> p : currentStep.getParameterSet().getParameters()) {
+          if (p instanceof FileNameParameter fnp && fnp.getValue() != null) {
+            BatchProfilingReport.write(fnp.getValue(), stepProfiles);
+            return;
+          }
+        }
+      }
+    }
+    logger.fine("No export step in batch, batch profiling report is not written");
+  }
+
   private void setOutputFiles(final File parentDir, final boolean createResultsDir,
       final String datasetName) {
     int changedOutputSteps = 0;
@@ -300,6 +367,14 @@ public class BatchTask extends AbstractTask {
     return stepTimes;
   }
 
+  /**
+   * @return resource usage of all steps of the last dataset, the whole batch is the first entry
+   * after the batch finished
+   */
+  public List<StepProfile> getStepProfiles() {
+    return stepProfiles;
+  }
+
   public int currentStep() {
     return processedSteps % stepsPerDataset;
   }
@@ -325,6 +400,8 @@ public class BatchTask extends AbstractTask {
     if (createdFeatureLists.isEmpty()) {
       createdFeatureLists = previousCreatedFeatureLists;
     }
+    final StepProfiler profiler = StepProfiler.start(stepNumber, method.getName(),
+        createdFeatureLists);
 
     // Update the RawDataFilesParameter parameters to reflect the current
     // state of the batch
@@ -417,6 +494,7 @@ public class BatchTask extends AbstractTask {
 
     Duration duration = Duration.between(start, Instant.now());
     stepTimes.add(new StepTimeMeasurement(stepNumber, method.getName(), duration));
+    stepProfiles.add(profiler.stop(previousCreatedFeatureLists));
   }
 
   /**
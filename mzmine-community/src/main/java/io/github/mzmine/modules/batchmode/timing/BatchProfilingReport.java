@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.timing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.CsvWriter;
+import io.github.mzmine.util.io.WriterOptions;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes the {@link StepProfile}s of a batch as JSON and CSV to track performance across
+ * releases.
+ */
+public class BatchProfilingReport {
+
+  private static final Logger logger = Logger.getLogger(BatchProfilingReport.class.getName());
+  public static final String SUFFIX = "_batch_profile";
+
+  /**
+   * Writes baseFile_batch_profile.json and baseFile_batch_profile.csv
+   *
+   * @param baseFile the base file, the format is replaced
+   * @param profiles the step profiles
+   * @return true if both files were written
+   */
+  public static boolean write(@NotNull final File baseFile,
+      @NotNull final List<StepProfile> profiles) {
+    final File base = FileAndPathUtil.eraseFormat(baseFile);
+    final File json = new File(base.getParentFile(), base.getName() + SUFFIX + ".json");
+    final File csv = new File(base.getParentFile(), base.getName() + SUFFIX + ".csv");
+    try {
+      FileAndPathUtil.createDirectory(json.getParentFile());
+      new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(json, profiles);
+      CsvWriter.writeToFile(csv, profiles, StepProfile.class, WriterOptions.REPLACE);
+      logger.info("Batch profiling report written to " + json.getAbsolutePath());
+      return true;
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot write batch profiling report " + e.getMessage(), e);
+      return false;
+    }
+  }
+}
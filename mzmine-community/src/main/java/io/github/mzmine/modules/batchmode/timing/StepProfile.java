@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.timing;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Resource usage of one batch step or of the whole batch. Written to the batch profiling report,
+ * see {@link BatchProfilingReport}. Values that are not supported by the JVM are -1.
+ *
+ * @param stepNumber          zero based step number in the batch queue, -1 for the whole batch
+ * @param name                module name
+ * @param wallSeconds         wall clock time
+ * @param cpuSeconds          process CPU time of all threads
+ * @param threadUtilization   cpuSeconds / (wallSeconds * available processors)
+ * @param tasks               number of tasks that reported into this step
+ * @param taskSeconds         summed wall time of all reported tasks
+ * @param peakHeapBytes       sum of the peak usage of all heap memory pools during the step. Upper
+ *                            bound of the actual peak heap usage.
+ * @param allocatedBytes      bytes allocated by all threads
+ * @param memoryMappedBytes   bytes written to memory mapped storage
+ * @param rowsIn              rows in the input feature lists
+ * @param featuresIn          features in the input feature lists
+ * @param rowsOut             rows in the feature lists created by this step or in the input lists
+ *                            if no lists were created
+ * @param featuresOut         features in the same lists as rowsOut
+ */
+@JsonPropertyOrder({"stepNumber", "name", "wallSeconds", "cpuSeconds", "threadUtilization",
+    "tasks", "taskSeconds", "peakHeapBytes", "allocatedBytes", "memoryMappedBytes", "rowsIn",
+    "featuresIn", "rowsOut", "featuresOut"})
+public record StepProfile(int stepNumber, String name, double wallSeconds, double cpuSeconds,
+                          double threadUtilization, int tasks, double taskSeconds,
+                          long peakHeapBytes, long allocatedBytes, long memoryMappedBytes,
+                          long rowsIn, long featuresIn, long rowsOut, long featuresOut) {
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.timing;
+
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Measures the resource usage of a batch step. The batch task starts a profiler for each step and
+ * tasks report their processing time via {@link #reportTask(Duration)} into the active profiler.
+ * If multiple batches run in parallel, tasks report into the last started step.
+ * <p>
+ * The JVM only tracks one peak heap usage. Before it is reset for a new profiler, the current peak
+ * is added to all running profilers, so the batch profiler keeps the peak of all its steps.
+ */
+public class StepProfiler {
+
+  private static final Logger logger = Logger.getLogger(StepProfiler.class.getName());
+
+  @Nullable
+  private static volatile StepProfiler active;
+  /**
+   * profilers that track the peak heap usage, guarded by StepProfiler.class. Weak references, so
+   * profilers of batches that ended without stopping them are dropped.
+   */
+  private static final List<WeakReference<StepProfiler>> running = new ArrayList<>();
+  @NotNull
+  private static HeapPeakSource heapPeakSource = new MemoryPoolHeapPeakSource();
+
+  private final int stepNumber;
+  private final String name;
+  private final long startNanos;
+  private final long startCpuNanos;
+  private final long startAllocatedBytes;
+  private final long startMemoryMappedBytes;
+  private final long rowsIn;
+  private final long featuresIn;
+
+  private final AtomicInteger tasks = new AtomicInteger();
+  private final LongAdder taskNanos = new LongAdder();
+  /**
+   * guarded by StepProfiler.class
+   */
+  private long peakHeapBytes;
+
+  private StepProfiler(final int stepNumber, final String name, final long rowsIn,
+      final long featuresIn) {
+    this.stepNumber = stepNumber;
+    this.name = name;
+    this.rowsIn = rowsIn;
+    this.featuresIn = featuresIn;
+    startPeakHeapTracking(this);
+    startAllocatedBytes = getAllocatedBytes();
+    startMemoryMappedBytes = StorageUtils.getMemoryMappedBytes();
+    startCpuNanos = getProcessCpuNanos();
+    startNanos = System.nanoTime();
+  }
+
+  /**
+   * Starts profiling of a step and makes it the active profiler for task reports
+   *
+   * @param inputLists the input feature lists to count rows and features
+   */
+  public static StepProfiler start(final int stepNumber, @NotNull final String name,
+      @NotNull final Collection<? extends FeatureList> inputLists) {
+    final StepProfiler profiler = new StepProfiler(stepNumber, name, countRows(inputLists),
+        countFeatures(inputLists));
+    active = profiler;
+    return profiler;
+  }
+
+  /**
+   * Starts profiling of a whole batch without setting it active
+   */
+  public static StepProfiler startBatch(@NotNull final String name) {
+    return new StepProfiler(-1, name, 0, 0);
+  }
+
+  /**
+   * Report the processing time of a task into the active step profiler, if any
+   *
+   * @param duration processing time of the task
+   */
+  public static void reportTask(@NotNull final Duration duration) {
+    final StepProfiler profiler = active;
+    if (profiler != null) {
+      profiler.tasks.incrementAndGet();
+      profiler.taskNanos.add(duration.toNanos());
+    }
+  }
+
+  /**
+   * Stops this profiler and removes it from the active profiler
+   *
+   * @param outputLists feature lists after this step
+   * @return the step profile
+   */
+  public StepProfile stop(@NotNull final Collection<? extends FeatureList> outputLists) {
+    final long wallNanos = System.nanoTime() - startNanos;
+    final long cpuNanos = diff(getProcessCpuNanos(), startCpuNanos);
+    final long peakHeap = stopPeakHeapTracking(this);
+    if (active == this) {
+      active = null;
+    }
+
+    final double wallSeconds = wallNanos / 1E9;
+    final double cpuSeconds = cpuNanos < 0 ? -1 : cpuNanos / 1E9;
+    final int processors = Runtime.getRuntime().availableProcessors();
+    final double utilization =
+        cpuNanos < 0 || wallNanos <= 0 ? -1 : cpuNanos / ((double) wallNanos * processors);
+
+    return new StepProfile(stepNumber, name, wallSeconds, cpuSeconds, utilization, tasks.get(),
+        taskNanos.sum() / 1E9, peakHeap, diff(getAllocatedBytes(), startAllocatedBytes),
+        StorageUtils.getMemoryMappedBytes() - startMemoryMappedBytes, rowsIn, featuresIn,
+        countRows(outputLists), countFeatures(outputLists));
+  }
+
+  private static long diff(final long end, final long start) {
+    return end < 0 || start < 0 ? -1 : end - start;
+  }
+
+  private static long countRows(final Collection<? extends FeatureList> lists) {
+    return lists.stream().mapToLong(FeatureList::getNumberOfRows).sum();
+  }
+
+  private static long countFeatures(final Collection<? extends FeatureList> lists) {
+    return lists.stream().flatMap(flist -> flist.getRows().stream())
+        .mapToLong(FeatureListRow::getNumberOfFeatures).sum();
+  }
+
+  private static long getProcessCpuNanos() {
+    if (ManagementFactory.getOperatingSystemMXBean()
+        instanceof com.sun.management.OperatingSystemMXBean os) {
+      return os.getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private static long getAllocatedBytes() {
+    try {
+      if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+          && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getTotalThreadAllocatedBytes();
+      }
+    } catch (UnsupportedOperationException e) {
+      logger.finest("Allocated bytes are not supported by this JVM");
+    }
+    return -1;
+  }
+
+  /**
+   * Adds the current peak to all running profilers before the JVM peak is reset for the new one
+   */
+  private static synchronized void startPeakHeapTracking(final StepProfiler profiler) {
+    collectPeakHeap();
+    heapPeakSource.reset();
+    profiler.peakHeapBytes = heapPeakSource.getPeak();
+    running.add(new WeakReference<>(profiler));
+  }
+
+  /**
+   * @return the peak heap usage while the profiler was running
+   */
+  private static synchronized long stopPeakHeapTracking(final StepProfiler profiler) {
+    collectPeakHeap();
+    running.removeIf(ref -> ref.get() == profiler);
+    return profiler.peakHeapBytes;
+  }
+
+  private static void collectPeakHeap() {
+    final long peak = heapPeakSource.getPeak();
+    for (final Iterator<WeakReference<StepProfiler>> it = running.iterator(); it.hasNext(); ) {
+      final StepProfiler profiler = it.next().get();
+      if (profiler == null) {
+        it.remove();
+      } else {
+        profiler.peakHeapBytes = Math.max(profiler.peakHeapBytes, peak);
+      }
+    }
+  }
+
+  /**
+   * Only for tests
+   */
+  static synchronized void setHeapPeakSource(@NotNull final HeapPeakSource source) {
+    heapPeakSource = source;
+  }
+
+  /**
+   * Only for tests
+   */
+  static synchronized void resetHeapPeakSource() {
+    heapPeakSource = new MemoryPoolHeapPeakSource();
+    running.clear();
+  }
+
+  /**
+   * Source of the peak heap usage, replaced in tests
+   */
+  interface HeapPeakSource {
+
+    /**
+     * @return the peak heap usage since the last reset
+     */
+    long getPeak();
+
+    /**
+     * Resets the peak to the current usage
+     */
+    void reset();
+  }
+
+  /**
+   * Sum of the peak usage of all heap memory pools
+   */
+  private static class MemoryPoolHeapPeakSource implements HeapPeakSource {
+
+    @Override
+    public long getPeak() {
+      return heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    @Override
+    public void reset() {
+      for (final MemoryPoolMXBean pool : heapPools()) {
+        pool.resetPeakUsage();
+      }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+      return ManagementFactory.getMemoryPoolMXBeans().stream()
+          .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid()).toList();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compares the row assignments of two alignments of the same feature lists, e.g., the sequential
+ * and the hierarchical join aligner. A row is identical if the other alignment contains a row with
+ * exactly the same features. Features are matched by raw data file, m/z, RT, and height as the
+ * aligned lists contain copies of the original features.
+ *
+ * @param referenceRows  number of rows in the reference alignment
+ * @param otherRows      number of rows in the other alignment
+ * @param identicalRows  rows of the other alignment with the same features in the reference
+ * @param differentRows  rows of the other alignment without identical row in the reference
+ * @param movedFeatures  features in rows that differ between both alignments
+ * @param totalFeatures  all features in the other alignment
+ */
+public record AlignmentComparison(int referenceRows, int otherRows, int identicalRows,
+                                  @NotNull List<FeatureListRow> differentRows, int movedFeatures,
+                                  int totalFeatures) {
+
+  private static final Logger logger = Logger.getLogger(AlignmentComparison.class.getName());
+
+  public static AlignmentComparison compare(@NotNull FeatureList reference,
+      @NotNull FeatureList other) {
+    final Set<Set<FeatureKey>> referenceRows = new HashSet<>(reference.getNumberOfRows());
+    for (FeatureListRow row : reference.getRows()) {
+      referenceRows.add(keysOf(row));
+    }
+
+    int identical = 0;
+    int moved = 0;
+    int total = 0;
+    final List<FeatureListRow> different = new ArrayList<>();
+    for (FeatureListRow row : other.getRows()) {
+      final int features = row.getNumberOfFeatures();
+      total += features;
+      if (referenceRows.contains(keysOf(row))) {
+        identical++;
+      } else {
+        different.add(row);
+        moved += features;
+      }
+    }
+    return new AlignmentComparison(reference.getNumberOfRows(), other.getNumberOfRows(),
+        identical, different, moved, total);
+  }
+
+  private static Set<FeatureKey> keysOf(FeatureListRow row) {
+    final Set<FeatureKey> keys = new HashSet<>(row.getNumberOfFeatures());
+    for (Feature feature : row.getFeatures()) {
+      keys.add(new FeatureKey(feature.getRawDataFile(), feature.getMZ(), feature.getRT(),
+          feature.getHeight()));
+    }
+    return keys;
+  }
+
+  /**
+   * Logs the summary at info level and each differing row at fine level
+   */
+  public void log() {
+    logger.info(() -> """
+        Alignment comparison: %d of %d rows are identical to the %d reference rows, \
+        %d of %d features are assigned to different rows""".formatted(identicalRows, otherRows,
+        referenceRows, movedFeatures, totalFeatures));
+    for (FeatureListRow row : differentRows) {
+      logger.fine(() -> "Different row: m/z %.4f RT %.2f with %d features".formatted(
+          row.getAverageMZ(), row.getAverageRT(), row.getNumberOfFeatures()));
+    }
+  }
+
+  private record FeatureKey(RawDataFile raw, Double mz, Float rt, Float height) {
+
+  }
+}
@@ -171,6 +171,21 @@ public class BaseFeatureListAligner {
   }
 
   public ModularFeatureList alignFeatureLists() {
+    var alignedFeatureList = alignRows();
+    if (alignedFeatureList == null) {
+      return null;
+    }
+    finishAlignedList(alignedFeatureList, featureLists, rowAligner);
+    return alignedFeatureList;
+  }
+
+  /**
+   * Aligns all rows without updating the row bindings and without the final sorting and scoring.
+   *
+   * @return the aligned list or null if canceled or if there were no raw data files
+   */
+  @Nullable
+  ModularFeatureList alignRows() {
     // Remember how many rows we need to process. Each row will be processed
     // twice, first for score calculation, second for actual alignment.
     progress.setTotal(featureLists.stream().mapToLong(FeatureList::getNumberOfRows).sum());
@@ -200,19 +215,34 @@ public class BaseFeatureListAligner {
       }
       iteration++;
     }
+    return alignedFeatureList;
+  }
 
+  /**
+   * Sorts the aligned list by RT, resets the IDs, updates the row bindings, and calculates the
+   * alignment scores
+   *
+   * @param alignedFeatureList   the aligned list
+   * @param originalFeatureLists the input lists of the alignment
+   */
+  static void finishAlignedList(final ModularFeatureList alignedFeatureList,
+      final List<FeatureList> originalFeatureLists, final FeatureRowAlignScorer rowAligner) {
     // sort by RT and reset IDs
     FeatureListUtils.sortByDefaultRT(alignedFeatureList, true);
 
-    // update row bindings
-    alignedFeatureList.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
-        .forEach(FeatureListRow::applyRowBindings);
+    applyRowBindings(alignedFeatureList);
 
     // score alignment by the number of features that fall within the mz, RT, mobility range
     // do not apply all the advanced filters to keep it simple
-    rowAligner.calculateAlignmentScores(alignedFeatureList, featureLists);
+    rowAligner.calculateAlignmentScores(alignedFeatureList, originalFeatureLists);
+  }
 
-    return alignedFeatureList;
+  /**
+   * Update row bindings of all rows with more than one feature
+   */
+  static void applyRowBindings(final ModularFeatureList alignedFeatureList) {
+    alignedFeatureList.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
+        .forEach(FeatureListRow::applyRowBindings);
   }
 
   private boolean nextAlignmentIteration(final List<List<FeatureListRow>> allRows,
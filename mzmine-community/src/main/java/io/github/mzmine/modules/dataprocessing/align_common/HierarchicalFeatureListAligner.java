@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import com.google.common.collect.Lists;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.progress.TotalFinishedItemsProgress;
+import io.github.mzmine.util.FeatureListRowSorter;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tree reduction alignment for large numbers of feature lists. Disjoint batches of feature lists
+ * are aligned in parallel by {@link BaseFeatureListAligner}. The partial aligned lists are then
+ * merged pairwise with the same row scorer until a single aligned list remains. Final sorting and
+ * alignment scores are calculated once against the original feature lists.
+ */
+public class HierarchicalFeatureListAligner {
+
+  private static final Logger logger = Logger.getLogger(
+      HierarchicalFeatureListAligner.class.getName());
+
+  private final Task parentTask;
+  private final List<FeatureList> featureLists;
+  private final String featureListName;
+  private final MemoryMapStorage storage;
+  private final FeatureRowAlignScorer rowAligner;
+  private final FeatureCloner featureCloner;
+  private final FeatureListRowSorter baseRowSorter;
+  private final int batchSize;
+  // each batch alignment and each merge is one step
+  private final TotalFinishedItemsProgress progress = new TotalFinishedItemsProgress();
+
+  /**
+   * @param batchSize number of feature lists that are aligned sequentially in one batch
+   */
+  public HierarchicalFeatureListAligner(final Task parentTask,
+      final List<FeatureList> featureLists, final String featureListName,
+      final @Nullable MemoryMapStorage storage, final FeatureRowAlignScorer rowAligner,
+      final FeatureCloner featureCloner, final FeatureListRowSorter baseRowSorter,
+      final int batchSize) {
+    this.parentTask = parentTask;
+    this.featureLists = featureLists;
+    this.featureListName = featureListName;
+    this.storage = storage;
+    this.rowAligner = rowAligner;
+    this.featureCloner = featureCloner;
+    this.baseRowSorter = baseRowSorter;
+    this.batchSize = Math.max(2, batchSize);
+  }
+
+  /**
+   * @return the aligned feature list or null if canceled or if there were no raw data files
+   */
+  @Nullable
+  public ModularFeatureList alignFeatureLists() {
+    final List<List<FeatureList>> batches = Lists.partition(featureLists, batchSize);
+    // n batches need n-1 merges
+    progress.setTotal(2L * batches.size() - 1);
+    logger.fine(() -> "Aligning %d feature lists in %d batches".formatted(featureLists.size(),
+        batches.size()));
+
+    List<ModularFeatureList> partialLists = batches.parallelStream().map(this::alignPartial)
+        .toList();
+
+    int round = 1;
+    while (partialLists.size() > 1) {
+      if (parentTask.isCanceled() || partialLists.stream().anyMatch(Objects::isNull)) {
+        return null;
+      }
+      final List<ModularFeatureList> current = partialLists;
+      partialLists = IntStream.range(0, (current.size() + 1) / 2).parallel().mapToObj(i -> {
+        final int first = i * 2;
+        if (first + 1 >= current.size()) {
+          // odd number of lists, merged in the next round
+          return current.get(first);
+        }
+        return alignPartial(List.of(current.get(first), current.get(first + 1)));
+      }).toList();
+
+      final int finalRound = round++;
+      final int remaining = partialLists.size();
+      logger.finer(() -> "Merge round %d: %d partial aligned lists remaining".formatted(finalRound,
+          remaining));
+    }
+
+    final ModularFeatureList alignedFeatureList = partialLists.getFirst();
+    if (parentTask.isCanceled() || alignedFeatureList == null) {
+      return null;
+    }
+
+    BaseFeatureListAligner.finishAlignedList(alignedFeatureList, featureLists, rowAligner);
+    return alignedFeatureList;
+  }
+
+  /**
+   * Align a batch of feature lists or merge two partial aligned lists
+   *
+   * @return the partial aligned list with updated row bindings or null if canceled
+   */
+  @Nullable
+  private ModularFeatureList alignPartial(final List<? extends FeatureList> lists) {
+    if (parentTask.isCanceled()) {
+      return null;
+    }
+    final var aligner = new BaseFeatureListAligner(parentTask, new ArrayList<>(lists),
+        featureListName, storage, rowAligner, featureCloner, baseRowSorter);
+    final ModularFeatureList partial = aligner.alignRows();
+    if (partial != null) {
+      // the averages of the rows are used to align the partial list in the next merge
+      BaseFeatureListAligner.applyRowBindings(partial);
+    }
+    progress.getAndIncrement();
+    return partial;
+  }
+
+  public double getFinishedPercentage() {
+    return progress.progress();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_join;
+
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+
+/**
+ * Tree reduction alignment of the join aligner for large numbers of feature lists
+ */
+public class JoinAlignerHierarchicalParameters extends SimpleParameterSet {
+
+  public static final IntegerParameter batchSize = new IntegerParameter("Batch size", """
+      Number of feature lists that are aligned together in one batch. Batches are aligned in \
+      parallel and the partial results are merged pairwise until one aligned list remains.""",
+      100, 2, Integer.MAX_VALUE);
+
+  public static final BooleanParameter compareToSequential = new BooleanParameter(
+      "Compare to sequential alignment", """
+      Also runs the sequential alignment and logs the rows that are aligned differently. \
+      Only for validation as this doubles the processing time.""", false);
+
+  public JoinAlignerHierarchicalParameters() {
+    super(batchSize, compareToSequential);
+  }
+}
@@ -90,6 +90,12 @@ public class JoinAlignerParameters extends SimpleParameterSet {
       "Compare spectra similarity", "Compare MS1 or MS2 spectra similarity",
       new JoinAlignerSpectraSimilarityScoreParameters(), false);
 
+  public static final OptionalModuleParameter<JoinAlignerHierarchicalParameters> hierarchical = new OptionalModuleParameter<>(
+      "Hierarchical alignment",
+      "Aligns batches of feature lists in parallel and merges the partial results pairwise.\n"
+          + "Speeds up the alignment of very large numbers of samples. Results are comparable to "
+          + "the sequential alignment but may differ for some rows.",
+      new JoinAlignerHierarchicalParameters(), false);
 
   public static final OriginalFeatureListHandlingParameter handleOriginal = new OriginalFeatureListHandlingParameter(
       "Original feature list",
@@ -99,7 +105,7 @@ public class JoinAlignerParameters extends SimpleParameterSet {
   public JoinAlignerParameters() {
     super(new Parameter[]{peakLists, peakListName, MZTolerance, MZWeight, RTTolerance, RTWeight,
             mobilityTolerance, mobilityWeight, SameChargeRequired, SameIDRequired,
-            compareIsotopePattern, compareSpectraSimilarity, handleOriginal},
+            compareIsotopePattern, compareSpectraSimilarity, hierarchical, handleOriginal},
         "https://mzmine.github.io/mzmine_documentation/module_docs/join_aligner/join_aligner.html");
   }
 
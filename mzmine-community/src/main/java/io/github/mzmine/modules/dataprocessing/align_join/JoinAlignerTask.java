@@ -31,9 +31,11 @@ import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.dataprocessing.align_common.AlignmentComparison;
 import io.github.mzmine.modules.dataprocessing.align_common.BaseFeatureListAligner;
 import io.github.mzmine.modules.dataprocessing.align_common.FeatureCloner;
 import io.github.mzmine.modules.dataprocessing.align_common.FeatureCloner.SimpleFeatureCloner;
+import io.github.mzmine.modules.dataprocessing.align_common.HierarchicalFeatureListAligner;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
 import io.github.mzmine.taskcontrol.AbstractFeatureListTask;
@@ -62,6 +64,7 @@ public class JoinAlignerTask extends AbstractFeatureListTask {
   private ModularFeatureList alignedFeatureList;
   private final OriginalFeatureListOption handleOriginal;
   private BaseFeatureListAligner listAligner;
+  private HierarchicalFeatureListAligner hierarchicalAligner;
 
   public JoinAlignerTask(MZmineProject project, @Nullable MemoryMapStorage storage,
       @NotNull Instant moduleCallDate, @NotNull ParameterSet parameters,
@@ -80,6 +83,9 @@ public class JoinAlignerTask extends AbstractFeatureListTask {
 
   @Override
   public double getFinishedPercentage() {
+    if (hierarchicalAligner != null) {
+      return hierarchicalAligner.getFinishedPercentage();
+    }
     if (listAligner == null) {
       return 0;
     }
@@ -101,14 +107,36 @@ public class JoinAlignerTask extends AbstractFeatureListTask {
     FeatureCloner featureCloner = new SimpleFeatureCloner();
     // create the row aligner that handles the scoring
     var rowAligner = new JoinRowAlignScorer(parameters);
-    listAligner = new BaseFeatureListAligner(this, featureLists, featureListName,
-        getMemoryMapStorage(), rowAligner, featureCloner, MZ_ASCENDING);
 
-    alignedFeatureList = listAligner.alignFeatureLists();
+    final boolean hierarchical = parameters.getValue(JoinAlignerParameters.hierarchical);
+    if (hierarchical) {
+      var hierarchicalParam = parameters.getParameter(JoinAlignerParameters.hierarchical)
+          .getEmbeddedParameters();
+      int batchSize = hierarchicalParam.getValue(JoinAlignerHierarchicalParameters.batchSize);
+      hierarchicalAligner = new HierarchicalFeatureListAligner(this, featureLists,
+          featureListName, getMemoryMapStorage(), rowAligner, featureCloner, MZ_ASCENDING,
+          batchSize);
+      alignedFeatureList = hierarchicalAligner.alignFeatureLists();
+    } else {
+      listAligner = new BaseFeatureListAligner(this, featureLists, featureListName,
+          getMemoryMapStorage(), rowAligner, featureCloner, MZ_ASCENDING);
+      alignedFeatureList = listAligner.alignFeatureLists();
+    }
     if (alignedFeatureList == null || isCanceled()) {
       return;
     }
 
+    if (hierarchical && parameters.getParameter(JoinAlignerParameters.hierarchical)
+        .getEmbeddedParameters().getValue(JoinAlignerHierarchicalParameters.compareToSequential)) {
+      // only for validation of the hierarchical alignment
+      var sequential = new BaseFeatureListAligner(this, featureLists, featureListName, null,
+          rowAligner, featureCloner, MZ_ASCENDING).alignFeatureLists();
+      if (sequential == null || isCanceled()) {
+        return;
+      }
+      AlignmentComparison.compare(sequential, alignedFeatureList).log();
+    }
+
     handleOriginal.reflectNewFeatureListToProject(project, alignedFeatureList, featureLists);
 
     logger.info("Finished join aligner");
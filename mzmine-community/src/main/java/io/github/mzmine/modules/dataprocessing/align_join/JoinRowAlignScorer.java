@@ -40,13 +40,16 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
+import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.logging.Logger;
 
 /**
  * the row aligner used by {@link JoinAlignerTask}. Based on weighted mz, rt, mobility difference
@@ -54,6 +57,8 @@ import java.util.concurrent.ConcurrentLinkedDeque;
  */
 public class JoinRowAlignScorer implements FeatureRowAlignScorer {
 
+  private static final Logger logger = Logger.getLogger(JoinRowAlignScorer.class.getName());
+
   private final MZTolerance mzTolerance;
   private final RTTolerance rtTolerance;
   private final MobilityTolerance mobilityTolerance;
@@ -113,9 +118,39 @@ public class JoinRowAlignScorer implements FeatureRowAlignScorer {
     }
   }
 
+  /**
+   * Indexes the base rows once per alignment iteration and scores all unaligned rows against the
+   * index
+   */
+  @Override
+  public Collection<RowVsRowScore> alignRowsOnBaseRows(final Task parentTask,
+      final List<List<FeatureListRow>> unalignedRows, final List<FeatureListRow> baseRowsSorted) {
+    final RowCandidateIndex index = new RowCandidateIndex(baseRowsSorted, true);
+
+    final ConcurrentLinkedDeque<RowVsRowScore> scoresList = new ConcurrentLinkedDeque<>();
+    unalignedRows.stream().flatMap(Collection::stream).parallel().forEach(rowToAdd -> {
+      if (parentTask.isCanceled()) {
+        return;
+      }
+      scoreRow(rowToAdd, scoresList, index::getCandidatesWithinRanges);
+    });
+
+    logger.finer(
+        () -> "Aligned %d rows on %d base rows, examined %.1f candidates per row".formatted(
+            index.getQueries(), index.size(), index.getAverageExaminedCandidates()));
+    return scoresList;
+  }
+
   @Override
   public void scoreRowAgainstBaseRows(final List<FeatureListRow> baseRowsByMz,
       final FeatureListRow rowToAdd, final ConcurrentLinkedDeque<RowVsRowScore> scoresList) {
+    scoreRow(rowToAdd, scoresList,
+        (mzRange, rtRange, mobilityRange) -> FeatureListUtils.getCandidatesWithinRanges(mzRange,
+            rtRange, mobilityRange, baseRowsByMz, true));
+  }
+
+  private void scoreRow(final FeatureListRow rowToAdd,
+      final ConcurrentLinkedDeque<RowVsRowScore> scoresList, final CandidateSearch search) {
     // ranges are build with prechecks - so if there is no mobility use Range.all() to deactivate the filter
     final Range<Double> mzRange =
         mzWeight > 0 ? mzTolerance.getToleranceRange(rowToAdd.getAverageMZ()) : Range.all();
@@ -126,8 +161,7 @@ public class JoinRowAlignScorer implements FeatureRowAlignScorer {
             ? mobilityTolerance.getToleranceRange(rowToAdd.getAverageMobility()) : Range.all();
 
     // find all rows in the aligned rows that might match
-    final List<FeatureListRow> candidatesInAligned = FeatureListUtils.getCandidatesWithinRanges(
-        mzRange, rtRange, mobilityRange, baseRowsByMz, true);
+    final List<FeatureListRow> candidatesInAligned = search.find(mzRange, rtRange, mobilityRange);
 
     if (candidatesInAligned.isEmpty()) {
       return;
@@ -144,6 +178,13 @@ public class JoinRowAlignScorer implements FeatureRowAlignScorer {
     }
   }
 
+  @FunctionalInterface
+  private interface CandidateSearch {
+
+    List<FeatureListRow> find(Range<Double> mzRange, Range<Float> rtRange,
+        Range<Float> mobilityRange);
+  }
+
   private boolean additionalChecks(final FeatureListRow row,
       final FeatureListRow candidateInAligned) {
     return (!sameChargeRequired || FeatureUtils.compareChargeState(row, candidateInAligned)) //
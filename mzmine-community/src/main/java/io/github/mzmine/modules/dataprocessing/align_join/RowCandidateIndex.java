@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_join;
+
+import static io.github.mzmine.util.FeatureListRowSorter.MZ_ASCENDING;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Candidate lookup of rows within m/z, RT, and mobility ranges. The rows are stored as primitive
+ * arrays sorted by m/z and split into blocks of consecutive rows. Each block keeps an additional
+ * RT sorted order, so that blocks that are completely within the m/z range are searched by binary
+ * search on RT instead of testing each row. Rows without RT or mobility match all ranges, like in
+ * {@link io.github.mzmine.util.FeatureListUtils#getCandidatesWithinRanges}.
+ * <p>
+ * The index is immutable after creation and thread safe.
+ */
+public final class RowCandidateIndex {
+
+  private static final int BLOCK_SIZE = 64;
+
+  private final FeatureListRow[] rows;
+  // all sorted by mz
+  private final double[] mzs;
+  private final float[] rts;
+  private final float[] mobilities;
+  // per block: row indices sorted by RT, rows without RT (NaN) at the end
+  private final int[] rtOrder;
+  private final float[] rtSorted;
+  // first index of a row without RT in rtOrder per block
+  private final int[] blockNaNStart;
+
+  private final LongAdder queries = new LongAdder();
+  private final LongAdder examined = new LongAdder();
+
+  /**
+   * @param rows                rows to index
+   * @param sortedByMzAscending rows are already sorted by ascending mz
+   */
+  public RowCandidateIndex(@NotNull List<? extends FeatureListRow> rows,
+      boolean sortedByMzAscending) {
+    if (!sortedByMzAscending) {
+      rows = rows.stream().sorted(MZ_ASCENDING).toList();
+    }
+    final int n = rows.size();
+    this.rows = rows.toArray(new FeatureListRow[0]);
+    mzs = new double[n];
+    rts = new float[n];
+    mobilities = new float[n];
+    for (int i = 0; i < n; i++) {
+      final FeatureListRow row = this.rows[i];
+      mzs[i] = row.getAverageMZ();
+      final Float rt = row.getAverageRT();
+      rts[i] = rt == null ? Float.NaN : rt;
+      final Float mobility = row.getAverageMobility();
+      mobilities[i] = mobility == null ? Float.NaN : mobility;
+    }
+
+    final int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    rtOrder = new int[n];
+    rtSorted = new float[n];
+    blockNaNStart = new int[blocks];
+    for (int i = 0; i < n; i++) {
+      rtOrder[i] = i;
+    }
+    for (int b = 0; b < blocks; b++) {
+      final int start = b * BLOCK_SIZE;
+      final int end = Math.min(n, start + BLOCK_SIZE);
+      // Float.compare sorts NaN to the end
+      IntArrays.quickSort(rtOrder, start, end, (a, c) -> Float.compare(rts[a], rts[c]));
+      int nanStart = end;
+      for (int i = start; i < end; i++) {
+        rtSorted[i] = rts[rtOrder[i]];
+        if (nanStart == end && Float.isNaN(rtSorted[i])) {
+          nanStart = i;
+        }
+      }
+      blockNaNStart[b] = nanStart;
+    }
+  }
+
+  /**
+   * All rows within all ranges. Use Range.all() to deactivate a filter.
+   *
+   * @return an unsorted list of candidates
+   */
+  public @NotNull List<FeatureListRow> getCandidatesWithinRanges(@NotNull Range<Double> mzRange,
+      @NotNull Range<Float> rtRange, @NotNull Range<Float> mobilityRange) {
+    queries.increment();
+    final int n = mzs.length;
+    final int from = lowerBound(mzs, 0, n,
+        mzRange.hasLowerBound() ? mzRange.lowerEndpoint() : Double.NEGATIVE_INFINITY);
+    final int to = upperBound(mzs, from, n,
+        mzRange.hasUpperBound() ? mzRange.upperEndpoint() : Double.POSITIVE_INFINITY);
+    if (from >= to) {
+      return List.of();
+    }
+
+    final float minRt = rtRange.hasLowerBound() ? rtRange.lowerEndpoint() : Float.NEGATIVE_INFINITY;
+    final float maxRt = rtRange.hasUpperBound() ? rtRange.upperEndpoint() : Float.POSITIVE_INFINITY;
+    final float minMobility = mobilityRange.hasLowerBound() ? mobilityRange.lowerEndpoint()
+        : Float.NEGATIVE_INFINITY;
+    final float maxMobility = mobilityRange.hasUpperBound() ? mobilityRange.upperEndpoint()
+        : Float.POSITIVE_INFINITY;
+
+    final List<FeatureListRow> candidates = new ArrayList<>();
+    int tested = 0;
+    for (int b = from / BLOCK_SIZE, last = (to - 1) / BLOCK_SIZE; b <= last; b++) {
+      final int start = b * BLOCK_SIZE;
+      final int end = Math.min(n, start + BLOCK_SIZE);
+      if (from <= start && end <= to) {
+        // all rows of this block are within the mz range, search by RT
+        final int nanStart = blockNaNStart[b];
+        final int rtFrom = lowerBound(rtSorted, start, nanStart, minRt);
+        final int rtTo = upperBound(rtSorted, rtFrom, nanStart, maxRt);
+        for (int i = rtFrom; i < rtTo; i++) {
+          tested++;
+          addIfMobilityMatches(rtOrder[i], minMobility, maxMobility, candidates);
+        }
+        for (int i = nanStart; i < end; i++) {
+          tested++;
+          addIfMobilityMatches(rtOrder[i], minMobility, maxMobility, candidates);
+        }
+      } else {
+        // partially covered block at the edges of the mz range
+        for (int i = Math.max(from, start), max = Math.min(to, end); i < max; i++) {
+          tested++;
+          final float rt = rts[i];
+          if (Float.isNaN(rt) || (rt >= minRt && rt <= maxRt)) {
+            addIfMobilityMatches(i, minMobility, maxMobility, candidates);
+          }
+        }
+      }
+    }
+    examined.add(tested);
+    return candidates;
+  }
+
+  private void addIfMobilityMatches(final int index, final float minMobility,
+      final float maxMobility, final List<FeatureListRow> candidates) {
+    final float mobility = mobilities[index];
+    if (Float.isNaN(mobility) || (mobility >= minMobility && mobility <= maxMobility)) {
+      candidates.add(rows[index]);
+    }
+  }
+
+  /**
+   * @return first index with value >= key
+   */
+  private static int lowerBound(double[] values, int from, int to, double key) {
+    while (from < to) {
+      final int mid = (from + to) >>> 1;
+      if (values[mid] < key) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  /**
+   * @return first index with value > key
+   */
+  private static int upperBound(double[] values, int from, int to, double key) {
+    while (from < to) {
+      final int mid = (from + to) >>> 1;
+      if (values[mid] <= key) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  private static int lowerBound(float[] values, int from, int to, float key) {
+    while (from < to) {
+      final int mid = (from + to) >>> 1;
+      if (values[mid] < key) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  private static int upperBound(float[] values, int from, int to, float key) {
+    while (from < to) {
+      final int mid = (from + to) >>> 1;
+      if (values[mid] <= key) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    return from;
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  /**
+   * @return number of lookups
+   */
+  public long getQueries() {
+    return queries.sum();
+  }
+
+  /**
+   * @return number of rows that were tested for RT and mobility in all lookups
+   */
+  public long getExaminedCandidates() {
+    return examined.sum();
+  }
+
+  /**
+   * @return average number of rows tested per lookup
+   */
+  public double getAverageExaminedCandidates() {
+    final long q = queries.sum();
+    return q == 0 ? 0 : examined.sum() / (double) q;
+  }
+}
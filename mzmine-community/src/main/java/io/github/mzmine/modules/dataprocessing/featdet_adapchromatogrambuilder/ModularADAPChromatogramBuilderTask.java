@@ -28,9 +28,6 @@ package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
 
 import static java.util.Objects.requireNonNullElse;
 
-import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
-import com.google.common.collect.TreeRangeMap;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrum;
@@ -44,6 +41,7 @@ import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.FeatureShapeType;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.dataprocessing.featdet_imagebuilder.ImageBuilderModule;
@@ -53,18 +51,16 @@ import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.DataPointSorter;
 import io.github.mzmine.util.DataTypeUtils;
 import io.github.mzmine.util.FeatureConvertors;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
-import io.github.mzmine.util.SortingDirection;
-import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.exceptions.MissingMassListException;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -159,7 +155,6 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     return dataFile;
   }
 
-  @SuppressWarnings("UnstableApiUsage")
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
@@ -216,26 +211,25 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
       }
     }
 
-    // make a list of all the data points
-    // sort data points by intensity
-    // loop through list
-    // add data point to chromatogrm or make new one
-    // update mz avg and other stuff
-    //
-
-    // map the mz tolerance to chromatograms
-    RangeMap<Double, ADAPChromatogram> rangeToChromMap = TreeRangeMap.create();
-
-    // make a list of all the data points
+    // collect all data points in primitive arrays
+    // sort an index permutation by intensity
+    // loop through the sorted data points
+    // add data point to chromatogram or make new one
 
     final int totalDps = Arrays.stream(scans).map(Scan::getMassList)
         .mapToInt(MassSpectrum::getNumberOfDataPoints).sum();
     int dpCounter = 0;
 
-    ExpandedDataPoint[] allMzValues = new ExpandedDataPoint[totalDps];
+    final double[] mzs = new double[totalDps];
+    final double[] intensities = new double[totalDps];
+    final int[] scanIndices = new int[totalDps];
+    double minMz = Double.POSITIVE_INFINITY;
+    double maxMz = Double.NEGATIVE_INFINITY;
 
     ScanDataAccess scanData = EfficientDataAccess.of(dataFile, ScanDataType.MASS_LIST,
         scanSelection);
+    final Scan[] accessedScans = new Scan[scanData.getNumberOfScans()];
+    int scanIndex = 0;
 
     progress = 0;
     double progressStep = 0.1 / scanData.getNumberOfScans();
@@ -263,56 +257,75 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
         return;
       }
 
-      int dps = scanData.getNumberOfDataPoints();
+      accessedScans[scanIndex] = scan;
+      int dps = Math.min(scanData.getNumberOfDataPoints(), totalDps - dpCounter);
       for (int i = 0; i < dps; i++) {
-        ExpandedDataPoint curDatP = new ExpandedDataPoint(scanData.getMzValue(i),
-            scanData.getIntensityValue(i), scan);
-        allMzValues[dpCounter] = curDatP;
+        final double mz = scanData.getMzValue(i);
+        final double intensity = scanData.getIntensityValue(i);
+        if (Double.isNaN(mz) || Double.isNaN(intensity)) {
+          continue;
+        }
+        mzs[dpCounter] = mz;
+        intensities[dpCounter] = intensity;
+        scanIndices[dpCounter] = scanIndex;
+        minMz = Math.min(minMz, mz);
+        maxMz = Math.max(maxMz, mz);
         dpCounter++;
       }
+      scanIndex++;
       progress += progressStep;
     }
 
-    // sort data points by intensity
-    Arrays.parallelSort(allMzValues,
-        new DataPointSorter(SortingProperty.Intensity, SortingDirection.Descending));
+    // sort data points by intensity, same order as the DataPointSorter (intensity, then m/z
+    // descending) and keep the scan order for equal data points
+    final int[] sorted = new int[dpCounter];
+    for (int i = 0; i < dpCounter; i++) {
+      sorted[i] = i;
+    }
+    IntArrays.parallelQuickSort(sorted, (a, b) -> {
+      int result = Double.compare(intensities[b], intensities[a]);
+      if (result == 0) {
+        result = Double.compare(mzs[b], mzs[a]);
+      }
+      return result != 0 ? result : Integer.compare(a, b);
+    });
 
-    // count starts at 1 since we already have added one with a single point.
-    progress = 0.1;
-    progressStep = (allMzValues.length > 0) ? 0.45 / allMzValues.length : 0.0;
+    // map the mz tolerance to chromatograms
+    final MzRangeIntervals mzRanges = new MzRangeIntervals(minMz, maxMz,
+        2 * mzTolerance.getMzToleranceForMass(maxMz));
+    final List<ADAPChromatogram> chromatograms = new ArrayList<>();
 
-    for (ExpandedDataPoint mzFeature : allMzValues) {
+    progress = 0.1;
+    progressStep = (sorted.length > 0) ? 0.45 / sorted.length : 0.0;
 
+    for (final int dp : sorted) {
       progress += progressStep;
 
       if (isCanceled()) {
         return;
       }
 
-      if (mzFeature == null || Double.isNaN(mzFeature.getMZ()) || Double.isNaN(
-          mzFeature.getIntensity())) {
-        continue;
-      }
-
-      final Entry<Range<Double>, ADAPChromatogram> existing = rangeToChromMap.getEntry(
-          mzFeature.getMZ());
-      if (existing != null) {
+      final double mz = mzs[dp];
+      final int existing = mzRanges.find(mz);
+      if (existing != -1) {
         // add data point to chromatogram
-        existing.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
+        chromatograms.get(existing)
+            .addMzFeature(accessedScans[scanIndices[dp]], new SimpleDataPoint(mz, intensities[dp]));
       } else {
         // skip it entierly if the intensity is not high enough
-        if (mzFeature.getIntensity() < minHighestPoint) {
+        if (intensities[dp] < minHighestPoint) {
           continue;
         }
         // add a new chromatogram to the range map - limit ranges to avoid overlap
-        startNewChromatogramLimitMzRanges(rangeToChromMap, mzFeature);
+        startNewChromatogramLimitMzRanges(mzRanges, chromatograms, accessedScans[scanIndices[dp]],
+            mz, intensities[dp]);
       }
     }
 
     // finish chromatograms sorted by m/z
-    final Map<Range<Double>, ADAPChromatogram> finalRangeMap = rangeToChromMap.asMapOfRanges();
+    final int[] chromatogramsByMz = mzRanges.getIdsSortedByMz();
 
-    int numChromatograms = finalRangeMap.size();
+    int numChromatograms = chromatogramsByMz.length;
     progressStep = numChromatograms > 0 ? 0.45 / numChromatograms : 0.0;
 
     // Create new feature list
@@ -323,7 +336,8 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
 
     int newFeatureID = 1;
     // add chromatograms that match criteria
-    for (ADAPChromatogram chromatogram : finalRangeMap.values()) {
+    for (final int id : chromatogramsByMz) {
+      final ADAPChromatogram chromatogram = chromatograms.get(id);
       if (isCanceled()) {
         return;
       }
@@ -374,45 +388,48 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
    * Starts a new chromatogram and limits its range so that it does not overlap with existing m/z
    * ranges
    *
-   * @param rangeToChromMap started chromatograms with their non overlapping m/z range
-   * @param mzFeature       current tested data point
+   * @param mzRanges      started chromatograms with their non overlapping m/z range
+   * @param chromatograms the chromatograms by range id
+   * @param scan          scan of the current data point
+   * @param mz            m/z of the current data point
+   * @param intensity     intensity of the current data point
    */
-  @SuppressWarnings("UnstableApiUsage")
-  private void startNewChromatogramLimitMzRanges(RangeMap<Double, ADAPChromatogram> rangeToChromMap,
-      ExpandedDataPoint mzFeature) {
+  private void startNewChromatogramLimitMzRanges(MzRangeIntervals mzRanges,
+      List<ADAPChromatogram> chromatograms, Scan scan, double mz, double intensity) {
     // start new chromatogram and create new range (subract overlapping existing ranges)
-    Range<Double> toleranceRange = mzTolerance.getToleranceRange(mzFeature.getMZ());
+    final double tolerance = mzTolerance.getMzToleranceForMass(mz);
+    final double lowerEndpoint = mz - tolerance;
+    final double upperEndpoint = mz + tolerance;
 
     // look +- mz tolerance to see if ther is a range near by.
     // If there is use the proper boundry of that range for the
     // new range to insure than NON OF THE RANGES OVERLAP.
-    final Entry<Range<Double>, ADAPChromatogram> minusRange = rangeToChromMap.getEntry(
-        toleranceRange.lowerEndpoint());
-    final Entry<Range<Double>, ADAPChromatogram> plusRange = rangeToChromMap.getEntry(
-        toleranceRange.upperEndpoint());
+    final int minusRange = mzRanges.find(lowerEndpoint);
+    final int plusRange = mzRanges.find(upperEndpoint);
 
-    // If both of the above ranges are null then we make the new range spaning the full
+    // If both of the above ranges are not found then we make the new range spaning the full
     // mz tolerance range.
-    // If one or both are not null we need to properly modify the range of the new
+    // If one or both are found we need to properly modify the range of the new
     // chromatogram so that none of the points are overlapping.
-    Double toBeLowerBound =
-        minusRange == null ? toleranceRange.lowerEndpoint() : minusRange.getKey().upperEndpoint();
-    Double toBeUpperBound =
-        plusRange == null ? toleranceRange.upperEndpoint() : plusRange.getKey().lowerEndpoint();
+    final double toBeLowerBound =
+        minusRange == -1 ? lowerEndpoint : mzRanges.getUpper(minusRange);
+    final double toBeUpperBound =
+        plusRange == -1 ? upperEndpoint : mzRanges.getLower(plusRange);
 
+    final SimpleDataPoint dataPoint = new SimpleDataPoint(mz, intensity);
     if (toBeLowerBound < toBeUpperBound) {
-      // use closed open so that every value may be captured by rangeMap
-      Range<Double> newRange = Range.closedOpen(toBeLowerBound, toBeUpperBound);
+      // use closed open so that every value may be captured by the ranges
       ADAPChromatogram newChrom = new ADAPChromatogram();
-      newChrom.addMzFeature(mzFeature.getScan(), mzFeature);
+      newChrom.addMzFeature(scan, dataPoint);
 
-      rangeToChromMap.put(newRange, newChrom);
-    } else if (toBeLowerBound.equals(toBeUpperBound) && plusRange != null) {
-      plusRange.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
+      mzRanges.add(toBeLowerBound, toBeUpperBound);
+      chromatograms.add(newChrom);
+    } else if (toBeLowerBound == toBeUpperBound && plusRange != -1) {
+      chromatograms.get(plusRange).addMzFeature(scan, dataPoint);
     } else {
       throw new IllegalStateException(
           String.format("Incorrect range [%f, %f] for m/z %f", toBeLowerBound, toBeUpperBound,
-              mzFeature.getMZ()));
+              mz));
     }
   }
 
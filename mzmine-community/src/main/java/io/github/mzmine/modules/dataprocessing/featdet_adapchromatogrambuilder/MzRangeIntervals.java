@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+
+/**
+ * Non overlapping closed-open m/z ranges [lower, upper) mapped to consecutive int ids. The ranges
+ * are kept sorted in primitive arrays, split into buckets of a fixed m/z width that is at least the
+ * maximum range width. A range that contains a value therefore starts in the bucket of the value or
+ * in the bucket before. Replaces a Guava TreeRangeMap for the point lookups and inserts in the
+ * chromatogram builder without boxing and entry objects.
+ */
+class MzRangeIntervals {
+
+  private static final int MAX_BUCKETS = 1 << 22;
+
+  private final double minMz;
+  private final double bucketWidth;
+  private final Bucket[] buckets;
+  // ranges by id
+  private final DoubleArrayList lowers = new DoubleArrayList();
+  private final DoubleArrayList uppers = new DoubleArrayList();
+
+  /**
+   * @param minMz         minimum m/z of all values
+   * @param maxMz         maximum m/z of all values
+   * @param maxRangeWidth the maximum width of a range
+   */
+  MzRangeIntervals(double minMz, double maxMz, double maxRangeWidth) {
+    this.minMz = minMz;
+    final double span = Math.max(maxMz - minMz, 0d);
+    double width = Math.max(maxRangeWidth, 1E-6);
+    if (span / width > MAX_BUCKETS) {
+      width = span / MAX_BUCKETS;
+    }
+    bucketWidth = width;
+    buckets = new Bucket[(int) (span / width) + 1];
+  }
+
+  private int bucketIndex(double mz) {
+    final double index = Math.floor((mz - minMz) / bucketWidth);
+    if (index < 0) {
+      return 0;
+    }
+    return index >= buckets.length ? buckets.length - 1 : (int) index;
+  }
+
+  /**
+   * @return the id of the range that contains mz or -1
+   */
+  int find(double mz) {
+    final int bucketIndex = bucketIndex(mz);
+    final Bucket bucket = buckets[bucketIndex];
+    if (bucket != null) {
+      final int pos = bucket.lastLowerOrEqual(mz);
+      if (pos >= 0) {
+        // ranges do not overlap, only the range with the closest lower bound may contain mz
+        final int id = bucket.ids[pos];
+        return mz < uppers.getDouble(id) ? id : -1;
+      }
+    }
+    // ranges are not wider than a bucket, only the last range of the previous bucket may contain mz
+    final Bucket previous = bucketIndex > 0 ? buckets[bucketIndex - 1] : null;
+    if (previous != null && previous.size > 0) {
+      final int id = previous.ids[previous.size - 1];
+      return lowers.getDouble(id) <= mz && mz < uppers.getDouble(id) ? id : -1;
+    }
+    return -1;
+  }
+
+  /**
+   * Add a new range that must not overlap with existing ranges
+   *
+   * @return the id of the new range
+   */
+  int add(double lower, double upper) {
+    final int id = lowers.size();
+    lowers.add(lower);
+    uppers.add(upper);
+    final int bucketIndex = bucketIndex(lower);
+    Bucket bucket = buckets[bucketIndex];
+    if (bucket == null) {
+      bucket = new Bucket();
+      buckets[bucketIndex] = bucket;
+    }
+    bucket.insert(lower, id);
+    return id;
+  }
+
+  double getLower(int id) {
+    return lowers.getDouble(id);
+  }
+
+  double getUpper(int id) {
+    return uppers.getDouble(id);
+  }
+
+  int size() {
+    return lowers.size();
+  }
+
+  /**
+   * @return all ids sorted by ascending m/z
+   */
+  int[] getIdsSortedByMz() {
+    final int[] ids = new int[size()];
+    int n = 0;
+    for (Bucket bucket : buckets) {
+      if (bucket != null) {
+        System.arraycopy(bucket.ids, 0, ids, n, bucket.size);
+        n += bucket.size;
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Ranges that start in the same bucket, sorted by lower bound
+   */
+  private static class Bucket {
+
+    private double[] lowers = new double[4];
+    private int[] ids = new int[4];
+    private int size;
+
+    /**
+     * @return the position of the last range with lower <= mz or -1
+     */
+    private int lastLowerOrEqual(double mz) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        if (lowers[mid] <= mz) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+
+    private void insert(double lower, int id) {
+      if (size == lowers.length) {
+        lowers = Arrays.copyOf(lowers, size * 2);
+        ids = IntArrays.grow(ids, size * 2);
+      }
+      final int pos = lastLowerOrEqual(lower) + 1;
+      System.arraycopy(lowers, pos, lowers, pos + 1, size - pos);
+      System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+      lowers[pos] = lower;
+      ids[pos] = id;
+      size++;
+    }
+  }
+}
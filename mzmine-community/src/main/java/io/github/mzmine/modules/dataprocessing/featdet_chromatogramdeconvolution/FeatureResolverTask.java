@@ -35,6 +35,7 @@ import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
@@ -54,9 +55,13 @@ import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.maths.CenterFunction;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 
 public class FeatureResolverTask extends AbstractTask {
@@ -72,8 +77,13 @@ public class FeatureResolverTask extends AbstractTask {
   // function to find center mz of all feature data points
   private final CenterFunction mzCenterFunction;
   private FeatureList newPeakList;
+  /**
+   * Minimum number of rows per chunk to resolve chromatograms of one file in parallel
+   */
+  private static final int MIN_ROWS_PER_CHUNK = 500;
+
   // Counters.
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
   private int totalRows;
   private String errorMsg;
   private boolean setMSMSRange, setMSMSRT;
@@ -98,7 +108,6 @@ public class FeatureResolverTask extends AbstractTask {
     parameters = parameterSet;
     originalPeakList = list;
     newPeakList = null;
-    processedRows = 0;
     totalRows = 0;
     this.mzCenterFunction = mzCenterFunction;
   }
@@ -116,7 +125,7 @@ public class FeatureResolverTask extends AbstractTask {
     if (groupMS2Task != null) {
       return groupMS2Task.getFinishedPercentage();
     }
-    return totalRows == 0 ? 0.0 : processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -211,42 +220,45 @@ public class FeatureResolverTask extends AbstractTask {
     final RawDataFile dataFile = originalFeatureList.getRawDataFile(0);
     final ModularFeatureList resolvedFeatureList = createNewFeatureList(originalFeatureList);
 
-    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
-        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile);
-
-    processedRows = 0;
+    processedRows.set(0);
     totalRows = originalFeatureList.getNumberOfRows();
-    int peakId = 1;
-
-    int c = 0;
 
-    while (access.hasNextFeature()) {
-      final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
-      final List<IonTimeSeries<? extends Scan>> resolvedSeries = resolver.resolve(access,
-          getMemoryMapStorage());
-
-      for (IonTimeSeries<? extends Scan> resolved : resolvedSeries) {
-        final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
-            peakId++);
-        final ModularFeature f = new ModularFeature(resolvedFeatureList,
-            originalFeature.getRawDataFile(), resolved, originalFeature.getFeatureStatus());
+    final List<FeatureListRow> rows = List.copyOf(originalFeatureList.getRows());
+    final List<List<ResolvedFeature>> chunks = resolveInChunks(resolver, originalFeatureList,
+        dataFile, rows, getNumberOfChunks(rows.size()));
+    if (isCanceled()) {
+      return;
+    }
 
-        if (originalFeature.getMobilityUnit() != null) {
-          f.set(MobilityUnitType.class, originalFeature.getMobilityUnit());
-        }
-        if (originalFeature.get(ImageType.class) != null) {
-          f.set(ImageType.class, true);
-        }
-        if(originalFeature.get(MaldiSpotType.class) != null) {
-          f.set(MaldiSpotType.class, originalFeature.get(MaldiSpotType.class));
-        }
-        newRow.addFeature(originalFeature.getRawDataFile(), f);
-        resolvedFeatureList.addRow(newRow);
-        if (resolved.getSpectra().size() <= 3) {
-          c++;
+    // add rows in the original order for deterministic row IDs
+    int peakId = 1;
+    int c = 0;
+    for (final List<ResolvedFeature> chunk : chunks) {
+      for (final ResolvedFeature resolvedFeature : chunk) {
+        final ModularFeature originalFeature = resolvedFeature.originalFeature();
+
+        for (IonTimeSeries<? extends Scan> resolved : resolvedFeature.resolvedSeries()) {
+          final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
+              peakId++);
+          final ModularFeature f = new ModularFeature(resolvedFeatureList,
+              originalFeature.getRawDataFile(), resolved, originalFeature.getFeatureStatus());
+
+          if (originalFeature.getMobilityUnit() != null) {
+            f.set(MobilityUnitType.class, originalFeature.getMobilityUnit());
+          }
+          if (originalFeature.get(ImageType.class) != null) {
+            f.set(ImageType.class, true);
+          }
+          if(originalFeature.get(MaldiSpotType.class) != null) {
+            f.set(MaldiSpotType.class, originalFeature.get(MaldiSpotType.class));
+          }
+          newRow.addFeature(originalFeature.getRawDataFile(), f);
+          resolvedFeatureList.addRow(newRow);
+          if (resolved.getSpectra().size() <= 3) {
+            c++;
+          }
         }
       }
-      processedRows++;
     }
     logger.info(c + "/" + resolvedFeatureList.getNumberOfRows()
         + " have less than 4 scans (frames for IMS data)");
@@ -259,6 +271,65 @@ public class FeatureResolverTask extends AbstractTask {
     newPeakList = resolvedFeatureList;
   }
 
+  /**
+   * @return number of chunks to resolve in parallel, 1 for small feature lists
+   */
+  private static int getNumberOfChunks(int numRows) {
+    final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    if (parallelism <= 1) {
+      return 1;
+    }
+    // a few chunks per thread to balance chromatograms of different length
+    return Math.max(1, Math.min(numRows / MIN_ROWS_PER_CHUNK, parallelism * 4));
+  }
+
+  /**
+   * Resolves chunks of rows in parallel. Each chunk uses its own resolver and data access as both
+   * keep buffers. The first chunk uses the given resolver.
+   *
+   * @param numChunks number of chunks, 1 to resolve on the calling thread
+   * @return the resolved features of each chunk, chunks and features in the original row order
+   */
+  List<List<ResolvedFeature>> resolveInChunks(Resolver resolver,
+      ModularFeatureList originalFeatureList, RawDataFile dataFile, List<FeatureListRow> rows,
+      int numChunks) {
+    if (numChunks <= 1) {
+      return List.of(resolveChunk(resolver, originalFeatureList, dataFile, rows));
+    }
+    logger.fine(() -> "Resolving " + rows.size() + " rows in " + numChunks + " chunks");
+    return IntStream.range(0, numChunks).parallel().mapToObj(i -> {
+      final Resolver chunkResolver = i == 0 ? resolver
+          : ((GeneralResolverParameters) parameters).getResolver(parameters, originalFeatureList);
+      final int from = (int) ((long) rows.size() * i / numChunks);
+      final int to = (int) ((long) rows.size() * (i + 1) / numChunks);
+      return resolveChunk(chunkResolver, originalFeatureList, dataFile, rows.subList(from, to));
+    }).toList();
+  }
+
+  /**
+   * Resolves the features of a chunk of rows. Only creates the resolved series, rows are added
+   * later in the original order.
+   */
+  private List<ResolvedFeature> resolveChunk(Resolver resolver,
+      ModularFeatureList originalFeatureList, RawDataFile dataFile,
+      List<FeatureListRow> rows) {
+    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile, rows);
+
+    final List<ResolvedFeature> resolvedFeatures = new ArrayList<>(rows.size());
+    while (access.hasNextFeature()) {
+      if (isCanceled()) {
+        return resolvedFeatures;
+      }
+      final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
+      final List<IonTimeSeries<? extends Scan>> resolvedSeries = resolver.resolve(access,
+          getMemoryMapStorage());
+      resolvedFeatures.add(new ResolvedFeature(originalFeature, resolvedSeries));
+      processedRows.incrementAndGet();
+    }
+    return resolvedFeatures;
+  }
+
   @Override
   public void cancel() {
     super.cancel();
@@ -277,7 +348,7 @@ public class FeatureResolverTask extends AbstractTask {
 
     final FeatureResolver resolver = ((GeneralResolverParameters) parameters).getResolver();
 
-    processedRows = 0;
+    processedRows.set(0);
     totalRows = originalFeatureList.getNumberOfRows();
     int peakId = 1;
     final Integer minNumDp = parameters.getValue(
@@ -308,7 +379,7 @@ public class FeatureResolverTask extends AbstractTask {
         newRow.setFeatureInformation(peak.getPeakInformation());
         resolvedFeatureList.addRow(newRow);
       }
-      processedRows++;
+      processedRows.incrementAndGet();
     }
 
     resolvedFeatureList.addDescriptionOfAppliedTask(
@@ -357,4 +428,12 @@ public class FeatureResolverTask extends AbstractTask {
 
     return resolvedFeatureList;
   }
+
+  /**
+   * The resolved series of one original feature
+   */
+  record ResolvedFeature(ModularFeature originalFeature,
+                         List<IonTimeSeries<? extends Scan>> resolvedSeries) {
+
+  }
 }
@@ -91,14 +91,39 @@ public class Gap {
     // Find top m/z peak in our range
     DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRange);
 
-    GapDataPointImpl currentDataPoint;
     if (basePeak != null) {
-      currentDataPoint = new GapDataPointImpl(scan, basePeak.getMZ(), scanRT,
-          basePeak.getIntensity());
+      offerBasePeak(scan, basePeak.getMZ(), basePeak.getIntensity());
     } else {
-      currentDataPoint = new GapDataPointImpl(scan, RangeUtils.rangeCenter(mzRange), scanRT, 0);
+      offerNoSignal(scan);
     }
+  }
+
+  /**
+   * Offer the base peak of a scan within the m/z range of this gap. The caller has to make sure
+   * that the scan is within the RT range. Used to resolve the base peaks of many gaps in one pass
+   * over a scan, see {@link #offerNextScan(Scan)} for a single gap.
+   *
+   * @param scan      the scan
+   * @param mz        base peak m/z within the m/z range
+   * @param intensity base peak intensity
+   */
+  public void offerBasePeak(Scan scan, double mz, double intensity) {
+    addDataPoint(new GapDataPointImpl(scan, mz, scan.getRetentionTime(), intensity));
+  }
+
+  /**
+   * Offer a scan without any signal in the m/z range of this gap. The caller has to make sure
+   * that the scan is within the RT range.
+   */
+  public void offerNoSignal(Scan scan) {
+    offerBasePeak(scan, RangeUtils.rangeCenter(mzRange), 0);
+  }
 
+  /**
+   * Add the next data point to the current peak or finish the current peak if the data point does
+   * not continue the peak shape
+   */
+  protected void addDataPoint(GapDataPoint currentDataPoint) {
     // If we have not yet started, just create a new peak
     if (currentPeakDataPoints == null) {
       currentPeakDataPoints = new ArrayList<>();
@@ -268,4 +293,12 @@ public class Gap {
   public FeatureListRow getFeatureListRow() {
     return featureListRow;
   }
+
+  public Range<Double> getMzRange() {
+    return mzRange;
+  }
+
+  public Range<Float> getRtRange() {
+    return rtRange;
+  }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.multithreaded;
+
+import com.google.common.collect.Range;
+import gnu.trove.list.array.TDoubleArrayList;
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
+import io.github.mzmine.datamodel.data_access.ScanDataAccess;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.util.RangeUtils;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import io.github.mzmine.util.exceptions.MissingMassListException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sweep line over the retention time of a raw data file. Gaps are sorted by the start of their RT
+ * range and are activated when the scan cursor enters their RT range and retired once it has
+ * passed. The active gaps are kept sorted by the lower end of their m/z range, so that the signals
+ * of all active gaps are found in a single pass over the sorted mass list of a scan.
+ * <p>
+ * Scans need to be offered in increasing RT order, see {@link #isSortedByRt(List)}. The result is
+ * the same as offering every scan to every gap with {@link Gap#offerNextScan(Scan)}.
+ *
+ * @param <T> the gap type
+ */
+class GapSweepScheduler<T extends Gap> {
+
+  private static final Logger logger = Logger.getLogger(GapSweepScheduler.class.getName());
+
+  private static final Comparator<Gap> byRtStart = Comparator.comparingDouble(
+      gap -> gap.getRtRange().lowerEndpoint());
+  private static final Comparator<Gap> byMzStart = Comparator.comparingDouble(
+      gap -> gap.getMzRange().lowerEndpoint());
+
+  /**
+   * all gaps sorted by RT start
+   */
+  private final List<T> pending;
+  /**
+   * active gaps sorted by m/z start
+   */
+  private List<T> active = new ArrayList<>();
+  private List<T> merged = new ArrayList<>();
+  private final List<T> entering = new ArrayList<>();
+  private int nextPending = 0;
+
+  GapSweepScheduler(@NotNull List<T> gaps) {
+    pending = new ArrayList<>(gaps);
+    pending.sort(byRtStart);
+  }
+
+  /**
+   * @return true if the scans are sorted by RT, which is required for the sweep
+   */
+  static boolean isSortedByRt(@NotNull List<? extends Scan> scans) {
+    for (int i = 1; i < scans.size(); i++) {
+      if (scans.get(i).getRetentionTime() < scans.get(i - 1).getRetentionTime()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves the sweep line to the next scan RT. Retires all gaps that end before this RT and
+   * activates all gaps that start at or before this RT.
+   *
+   * @param rt the retention time of the next scan, needs to be >= the last RT
+   * @return the active gaps sorted by m/z start. Gaps with an open RT range may still not contain
+   * the RT and need to be checked
+   */
+  @NotNull List<T> advance(final float rt) {
+    // retire gaps that were passed - keep the m/z order
+    active.removeIf(gap -> gap.getRtRange().upperEndpoint() < rt);
+
+    entering.clear();
+    while (nextPending < pending.size()
+           && pending.get(nextPending).getRtRange().lowerEndpoint() <= rt) {
+      final T gap = pending.get(nextPending++);
+      // gaps between two scans never receive a scan
+      if (gap.getRtRange().upperEndpoint() >= rt) {
+        entering.add(gap);
+      }
+    }
+    if (!entering.isEmpty()) {
+      entering.sort(byMzStart);
+      mergeEntering();
+    }
+    return active;
+  }
+
+  /**
+   * Merge the sorted entering gaps into the sorted active gaps
+   */
+  private void mergeEntering() {
+    merged.clear();
+    int a = 0;
+    int e = 0;
+    while (a < active.size() && e < entering.size()) {
+      if (byMzStart.compare(active.get(a), entering.get(e)) <= 0) {
+        merged.add(active.get(a++));
+      } else {
+        merged.add(entering.get(e++));
+      }
+    }
+    merged.addAll(active.subList(a, active.size()));
+    merged.addAll(entering.subList(e, entering.size()));
+
+    final List<T> tmp = active;
+    active = merged;
+    merged = tmp;
+  }
+
+  /**
+   * Offers the current scan to all active gaps. The base peak of each gap within its m/z range is
+   * resolved in one pass over the mass list as the gaps are sorted by m/z start.
+   *
+   * @param scan   the current scan
+   * @param active the active gaps sorted by m/z start, see {@link #advance(float)}
+   */
+  static void offerScan(@NotNull ScanDataAccess scan, @NotNull List<? extends Gap> active) {
+    final float rt = scan.getRetentionTime();
+    final int numDp = scan.getNumberOfDataPoints();
+    // same shortcut as ScanUtils.findBasePeak
+    final Double scanBasePeakMz = scan.getBasePeakMz();
+
+    int fromIndex = 0;
+    for (final Gap gap : active) {
+      if (!gap.getRtRange().contains(rt)) {
+        continue;
+      }
+      final Range<Double> mzRange = gap.getMzRange();
+      if (scanBasePeakMz != null && mzRange.contains(scanBasePeakMz)) {
+        final Double intensity = scan.getBasePeakIntensity();
+        gap.offerBasePeak(scan, scanBasePeakMz, intensity == null ? 0d : intensity);
+        continue;
+      }
+
+      // m/z starts are increasing - continue search from the last start
+      final int startIndex = fromIndex >= numDp ? -1
+          : BinarySearch.binarySearch(mzRange.lowerEndpoint(), DefaultTo.GREATER_EQUALS, fromIndex,
+              numDp, scan::getMzValue);
+      if (startIndex == -1) {
+        fromIndex = numDp;
+        gap.offerNoSignal(scan);
+        continue;
+      }
+      fromIndex = startIndex;
+
+      final double upper = mzRange.upperEndpoint();
+      boolean found = false;
+      double baseMz = 0d;
+      double baseIntensity = 0d;
+      for (int i = startIndex; i < numDp; i++) {
+        final double mz = scan.getMzValue(i);
+        if (mz > upper) {
+          break;
+        }
+        final double intensity = scan.getIntensityValue(i);
+        if (intensity > baseIntensity) {
+          found = true;
+          baseIntensity = intensity;
+          baseMz = mz;
+        }
+      }
+
+      if (found) {
+        gap.offerBasePeak(scan, baseMz, baseIntensity);
+      } else {
+        gap.offerNoSignal(scan);
+      }
+    }
+  }
+
+  /**
+   * Offers the current frame to all active gaps. Each mobility scan is visited once and the signal
+   * closest to the m/z center of each gap within its m/z and mobility range is collected in one
+   * pass over the mass list.
+   *
+   * @param access the access on the current frame
+   * @param active the active gaps sorted by m/z start, see {@link #advance(float)}
+   */
+  static void offerFrame(@NotNull MobilityScanDataAccess access,
+      @NotNull List<ImsGap> active) {
+    final float rt = access.getFrame().getRetentionTime();
+    final List<ImsGap> gaps = new ArrayList<>(active.size());
+    for (final ImsGap gap : active) {
+      if (gap.getRtRange().contains(rt)) {
+        gaps.add(gap);
+      }
+    }
+    if (gaps.isEmpty()) {
+      return;
+    }
+
+    final MobilogramBuilder[] builders = new MobilogramBuilder[gaps.size()];
+
+    access.resetMobilityScan();
+    while (access.hasNextMobilityScan()) {
+      final MobilityScan scan;
+      try {
+        scan = access.nextMobilityScan();
+      } catch (MissingMassListException e) {
+        logger.log(Level.SEVERE, e.getMessage(), e);
+        return;
+      }
+      final double mobility = scan.getMobility();
+      final int numDp = access.getNumberOfDataPoints();
+
+      int fromIndex = 0;
+      for (int g = 0; g < gaps.size() && fromIndex < numDp; g++) {
+        final ImsGap gap = gaps.get(g);
+        final Range<Float> mobilityRange = gap.getMobilityRange();
+        if (mobility < mobilityRange.lowerEndpoint() || mobility > mobilityRange.upperEndpoint()) {
+          continue;
+        }
+
+        final Range<Double> mzRange = gap.getMzRange();
+        final int startIndex = BinarySearch.binarySearch(mzRange.lowerEndpoint(),
+            DefaultTo.GREATER_EQUALS, fromIndex, numDp, access::getMzValue);
+        if (startIndex == -1) {
+          // all following gaps start at a higher m/z
+          break;
+        }
+        fromIndex = startIndex;
+
+        final double upper = mzRange.upperEndpoint();
+        final double center = RangeUtils.rangeCenter(mzRange);
+        int bestIndex = -1;
+        double bestDelta = Double.POSITIVE_INFINITY;
+        for (int i = startIndex; i < numDp; i++) {
+          final double mz = access.getMzValue(i);
+          if (mz > upper) {
+            break;
+          }
+          final double delta = Math.abs(mz - center);
+          if (delta < bestDelta) {
+            bestDelta = delta;
+            bestIndex = i;
+          }
+        }
+
+        if (bestIndex != -1) {
+          if (builders[g] == null) {
+            builders[g] = new MobilogramBuilder();
+          }
+          builders[g].add(scan, access.getMzValue(bestIndex), access.getIntensityValue(bestIndex));
+        }
+      }
+    }
+
+    for (int g = 0; g < gaps.size(); g++) {
+      if (builders[g] != null) {
+        gaps.get(g).offerMobilogram(builders[g].build());
+      }
+    }
+  }
+
+  /**
+   * Collects the signals of one gap in the mobility scans of a frame
+   */
+  private static class MobilogramBuilder {
+
+    private final List<MobilityScan> scans = new ArrayList<>();
+    private final TDoubleArrayList mzs = new TDoubleArrayList();
+    private final TDoubleArrayList intensities = new TDoubleArrayList();
+
+    private void add(MobilityScan scan, double mz, double intensity) {
+      scans.add(scan);
+      mzs.add(mz);
+      intensities.add(intensity);
+    }
+
+    private DataPointIonMobilitySeries build() {
+      return new DataPointIonMobilitySeries(null, mzs.toArray(), intensities.toArray(), scans);
+    }
+  }
+}
@@ -109,21 +109,21 @@ public class ImsGap extends Gap {
       return;
     }
 
-    if (currentPeakDataPoints == null) {
-      currentPeakDataPoints = new ArrayList<>();
-      currentPeakDataPoints.add(mobilogram);
-      return;
-    }
+    offerMobilogram(mobilogram);
+  }
 
-    // Check if this continues previous peak?
-    if (checkRTShape(mobilogram)) {
-      // Yes, continue this peak.
-      currentPeakDataPoints.add(mobilogram);
-    } else {
-      checkCurrentPeak();
-      currentPeakDataPoints = null;
-    }
+  /**
+   * Offer the mobilogram of a frame within the RT range of this gap. Used by
+   * {@link GapSweepScheduler} to resolve all gaps of a frame in one pass over its mobility scans.
+   *
+   * @param mobilogram the best signals within the m/z and mobility range of this gap
+   */
+  void offerMobilogram(@NotNull DataPointIonMobilitySeries mobilogram) {
+    addDataPoint(mobilogram);
+  }
 
+  public Range<Float> getMobilityRange() {
+    return mobilityRange;
   }
 
   private DataPointIonMobilitySeries findDataPoint(@NotNull final MobilityScanDataAccess access) {
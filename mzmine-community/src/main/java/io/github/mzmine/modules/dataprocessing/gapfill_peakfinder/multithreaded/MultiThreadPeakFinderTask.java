@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
@@ -208,10 +209,19 @@ class MultiThreadPeakFinderTask extends AbstractTask {
   }
 
   private void processFile(RawDataFile file, List<Gap> gaps) {
+    final List<? extends Scan> scans = peakList.getSeletedScans(file);
+    // sweep over RT to only offer scans to gaps within their RT range
+    final boolean sweep = GapSweepScheduler.isSortedByRt(scans);
+    if (!sweep) {
+      logger.fine(() -> "Scans of " + file.getName()
+                        + " are not sorted by RT. Offering all scans to all gaps.");
+    }
+
     if (file instanceof IMSRawDataFile imsFile && peakList.hasFeatureType(MobilityType.class)) {
       final MobilityScanDataAccess access = new MobilityScanDataAccess(imsFile,
-          MobilityScanDataType.MASS_LIST, (List<Frame>) peakList.getSeletedScans(file));
+          MobilityScanDataType.MASS_LIST, (List<Frame>) scans);
       List<ImsGap> imsGaps = (List<ImsGap>) (List<? extends Gap>) gaps;
+      final GapSweepScheduler<ImsGap> scheduler = new GapSweepScheduler<>(imsGaps);
 
       while (access.hasNextFrame()) {
         if (isCanceled()) {
@@ -219,9 +229,13 @@ class MultiThreadPeakFinderTask extends AbstractTask {
         }
 
         final Frame frame = access.nextFrame();
-        for (ImsGap gap : imsGaps) {
-          access.resetMobilityScan();
-          gap.offerNextScan(access);
+        if (sweep) {
+          GapSweepScheduler.offerFrame(access, scheduler.advance(frame.getRetentionTime()));
+        } else {
+          for (ImsGap gap : imsGaps) {
+            access.resetMobilityScan();
+            gap.offerNextScan(access);
+          }
         }
         processedScans.incrementAndGet();
       }
@@ -230,15 +244,22 @@ class MultiThreadPeakFinderTask extends AbstractTask {
       // no IMS dimension
 
       final ScanDataAccess scanAccess = EfficientDataAccess.of(file, ScanDataType.MASS_LIST,
-          peakList.getSeletedScans(file));
+          scans);
+      final GapSweepScheduler<Gap> scheduler = new GapSweepScheduler<>(gaps);
       while (scanAccess.hasNextScan()) {
         if (isCanceled()) {
           return;
         }
         scanAccess.nextScan();
-        // Feed this scan to all gaps
-        for (Gap gap : gaps) {
-          gap.offerNextScan(scanAccess);
+        if (sweep) {
+          // Feed this scan to all gaps within the RT range
+          GapSweepScheduler.offerScan(scanAccess,
+              scheduler.advance(scanAccess.getRetentionTime()));
+        } else {
+          // Feed this scan to all gaps
+          for (Gap gap : gaps) {
+            gap.offerNextScan(scanAccess);
+          }
         }
 
         processedScans.incrementAndGet();
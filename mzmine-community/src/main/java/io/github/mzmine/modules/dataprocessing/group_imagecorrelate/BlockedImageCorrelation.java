@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_imagecorrelate;
+
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Pearson or cosine co-localization of all pairs of images of one raw data file. All images share
+ * the same pixel (scan) index and are packed into float vectors. Pairs are computed as blocks of
+ * images against blocks of images, and pixels are processed in chunks that stay in the cache.
+ * <p>
+ * Without noise level, all pixels are used for all pairs. The vectors are normalized once
+ * (centered for Pearson) so that the similarity is the dot product. With a noise level, only pixels
+ * where both images are above the noise level are used. The similarity is then calculated from the
+ * sums over the joint pixels. Both give the same result as
+ * {@link SimilarityMeasure#calc(double[][])} on the joint pixels.
+ */
+final class BlockedImageCorrelation {
+
+  private static final int IMAGE_BLOCK = 32;
+  private static final int PIXEL_CHUNK = 4096;
+
+  private final float[][] images;
+  private final int pixels;
+  private final boolean masked;
+  private final SimilarityMeasure measure;
+  private final int minPixels;
+  private final double minSimilarity;
+
+  /**
+   * @param intensities   the image intensities of each feature over all scans of the raw data
+   *                      file
+   * @param noiseLevel    only use pixels above the noise level in both images
+   * @param measure       {@link SimilarityMeasure#PEARSON} or {@link SimilarityMeasure#COSINE_SIM}
+   * @param minPixels     minimum number of joint pixels
+   * @param minSimilarity only pairs with at least this similarity are reported
+   */
+  BlockedImageCorrelation(@NotNull List<double[]> intensities, double noiseLevel,
+      @NotNull SimilarityMeasure measure, int minPixels, double minSimilarity) {
+    if (!isSupported(measure)) {
+      throw new IllegalArgumentException("Unsupported similarity measure " + measure);
+    }
+    this.measure = measure;
+    this.minPixels = minPixels;
+    this.minSimilarity = minSimilarity;
+    masked = noiseLevel > 0;
+
+    final int totalPixels = intensities.stream().mapToInt(d -> d.length).max().orElse(0);
+    // pixels without any signal above the noise level do not contribute to any pair
+    final boolean[] signal = new boolean[totalPixels];
+    if (masked) {
+      intensities.parallelStream().forEach(data -> {
+        for (int k = 0; k < data.length; k++) {
+          if (data[k] >= noiseLevel) {
+            signal[k] = true;
+          }
+        }
+      });
+    }
+    final int[] usedPixels = IntStream.range(0, totalPixels).filter(k -> !masked || signal[k])
+        .toArray();
+    pixels = usedPixels.length;
+
+    images = new float[intensities.size()][];
+    IntStream.range(0, intensities.size()).parallel().forEach(i -> {
+      final double[] data = intensities.get(i);
+      final float[] image = new float[pixels];
+      for (int k = 0; k < pixels; k++) {
+        final int pixel = usedPixels[k];
+        final double value = pixel < data.length ? data[pixel] : 0;
+        image[k] = (float) (!masked || value >= noiseLevel ? value : 0);
+      }
+      if (!masked) {
+        normalize(image);
+      }
+      images[i] = image;
+    });
+  }
+
+  /**
+   * @return true if the measure can be calculated by this class
+   */
+  static boolean isSupported(@NotNull SimilarityMeasure measure) {
+    return measure == SimilarityMeasure.PEARSON || measure == SimilarityMeasure.COSINE_SIM;
+  }
+
+  /**
+   * Center (Pearson) and scale to unit length. Images without variance are set to NaN.
+   */
+  private void normalize(float[] image) {
+    double mean = 0;
+    if (measure == SimilarityMeasure.PEARSON) {
+      for (float v : image) {
+        mean += v;
+      }
+      mean /= image.length;
+    }
+    double norm = 0;
+    for (int k = 0; k < image.length; k++) {
+      image[k] = (float) (image[k] - mean);
+      norm += image[k] * (double) image[k];
+    }
+    final double scale = 1d / Math.sqrt(norm);
+    for (int k = 0; k < image.length; k++) {
+      image[k] = (float) (image[k] * scale);
+    }
+  }
+
+  /**
+   * Calculates all pairs in parallel
+   *
+   * @param consumer       receives all pairs with similarity >= minSimilarity. Called
+   *                       concurrently, a is always lower than b
+   * @param isCanceled     stops the calculation
+   * @param processedPairs counts all calculated pairs
+   */
+  void forEachSimilarPair(@NotNull SimilarPairConsumer consumer,
+      @NotNull BooleanSupplier isCanceled, @NotNull AtomicLong processedPairs) {
+    final int minJointPixels = Math.max(minPixels, measure == SimilarityMeasure.PEARSON ? 2 : 1);
+    if (pixels < minJointPixels) {
+      return;
+    }
+    final int blocks = (images.length + IMAGE_BLOCK - 1) / IMAGE_BLOCK;
+    // first and last block rows together to balance the triangular work
+    IntStream.range(0, (blocks + 1) / 2).parallel().forEach(t -> {
+      final int[] blockRows = t == blocks - 1 - t ? new int[]{t} : new int[]{t, blocks - 1 - t};
+      for (int blockA : blockRows) {
+        for (int blockB = blockA; blockB < blocks; blockB++) {
+          if (isCanceled.getAsBoolean()) {
+            return;
+          }
+          final long pairs = masked ? computeMaskedBlock(blockA, blockB, minJointPixels, consumer)
+              : computeNormalizedBlock(blockA, blockB, consumer);
+          processedPairs.addAndGet(pairs);
+        }
+      }
+    });
+  }
+
+  private long computeNormalizedBlock(int blockA, int blockB, SimilarPairConsumer consumer) {
+    final int fromA = blockA * IMAGE_BLOCK, toA = Math.min(images.length, fromA + IMAGE_BLOCK);
+    final int fromB = blockB * IMAGE_BLOCK, toB = Math.min(images.length, fromB + IMAGE_BLOCK);
+    final double[][] dot = new double[toA - fromA][toB - fromB];
+
+    for (int from = 0; from < pixels; from += PIXEL_CHUNK) {
+      final int to = Math.min(pixels, from + PIXEL_CHUNK);
+      for (int a = fromA; a < toA; a++) {
+        final float[] imageA = images[a];
+        final double[] dotA = dot[a - fromA];
+        for (int b = Math.max(fromB, a + 1); b < toB; b++) {
+          final float[] imageB = images[b];
+          float sum = 0;
+          for (int k = from; k < to; k++) {
+            sum += imageA[k] * imageB[k];
+          }
+          dotA[b - fromB] += sum;
+        }
+      }
+    }
+
+    long pairs = 0;
+    for (int a = fromA; a < toA; a++) {
+      for (int b = Math.max(fromB, a + 1); b < toB; b++) {
+        pairs++;
+        final double similarity = dot[a - fromA][b - fromB];
+        if (similarity >= minSimilarity) {
+          consumer.accept(a, b, similarity);
+        }
+      }
+    }
+    return pairs;
+  }
+
+  private long computeMaskedBlock(int blockA, int blockB, int minJointPixels,
+      SimilarPairConsumer consumer) {
+    final int fromA = blockA * IMAGE_BLOCK, toA = Math.min(images.length, fromA + IMAGE_BLOCK);
+    final int fromB = blockB * IMAGE_BLOCK, toB = Math.min(images.length, fromB + IMAGE_BLOCK);
+    final int sizeB = toB - fromB;
+    // sums over joint pixels: n, a, b, a*a, b*b, a*b
+    final double[][] sums = new double[(toA - fromA) * sizeB][6];
+
+    for (int from = 0; from < pixels; from += PIXEL_CHUNK) {
+      final int to = Math.min(pixels, from + PIXEL_CHUNK);
+      for (int a = fromA; a < toA; a++) {
+        final float[] imageA = images[a];
+        for (int b = Math.max(fromB, a + 1); b < toB; b++) {
+          final float[] imageB = images[b];
+          double n = 0, sa = 0, sb = 0, saa = 0, sbb = 0, sab = 0;
+          for (int k = from; k < to; k++) {
+            final float va = imageA[k];
+            final float vb = imageB[k];
+            // values below noise level are 0
+            if (va != 0 && vb != 0) {
+              n++;
+              sa += va;
+              sb += vb;
+              saa += va * (double) va;
+              sbb += vb * (double) vb;
+              sab += va * (double) vb;
+            }
+          }
+          final double[] s = sums[(a - fromA) * sizeB + b - fromB];
+          s[0] += n;
+          s[1] += sa;
+          s[2] += sb;
+          s[3] += saa;
+          s[4] += sbb;
+          s[5] += sab;
+        }
+      }
+    }
+
+    long pairs = 0;
+    for (int a = fromA; a < toA; a++) {
+      for (int b = Math.max(fromB, a + 1); b < toB; b++) {
+        pairs++;
+        final double[] s = sums[(a - fromA) * sizeB + b - fromB];
+        final double n = s[0];
+        if (n < minJointPixels) {
+          continue;
+        }
+        final double similarity = switch (measure) {
+          case PEARSON -> (n * s[5] - s[1] * s[2]) / Math.sqrt(
+              (n * s[3] - s[1] * s[1]) * (n * s[4] - s[2] * s[2]));
+          case COSINE_SIM -> s[5] / Math.sqrt(s[3] * s[4]);
+          default -> Double.NaN;
+        };
+        if (similarity >= minSimilarity) {
+          consumer.accept(a, b, similarity);
+        }
+      }
+    }
+    return pairs;
+  }
+
+  @FunctionalInterface
+  interface SimilarPairConsumer {
+
+    void accept(int a, int b, double similarity);
+  }
+}
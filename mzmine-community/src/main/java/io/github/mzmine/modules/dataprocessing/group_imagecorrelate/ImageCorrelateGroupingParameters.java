@@ -71,7 +71,10 @@ public class ImageCorrelateGroupingParameters extends SimpleParameterSet {
           MZmineCore.getConfiguration().getRTFormat(), 0.99, 0.0, 1.0), true);
 
   public static final ComboParameter<SimilarityMeasure> MEASURE = new ComboParameter<>(
-      "Similarity measure", "Similarity measure", SimilarityMeasure.values(),
+      "Similarity measure",
+      "Similarity measure. Pearson and cosine similarity are calculated much faster on all pairs "
+          + "of images when the median filter, percentile, and outlier filters are deactivated "
+          + "and the feature list contains one raw data file.", SimilarityMeasure.values(),
       SimilarityMeasure.PEARSON);
 
   public static final PercentParameter MIN_R = new PercentParameter("Minimum similarity",
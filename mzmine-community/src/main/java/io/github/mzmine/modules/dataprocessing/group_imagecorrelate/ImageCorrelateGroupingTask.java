@@ -34,9 +34,8 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
 import io.github.mzmine.datamodel.features.correlation.R2RSimpleSimilarityList;
-import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
+import io.github.mzmine.datamodel.features.correlation.R2RSparseGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -133,14 +132,14 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
     if (isCanceled()) {
       setStatus(TaskStatus.CANCELED);
     }
-    final R2RMap<RowsRelationship> mapImageSim = new R2RMap<>();
+    final R2RSparseGraph mapImageSim = new R2RSparseGraph(Type.MS1_FEATURE_CORR, "sim");
     checkAllFeatures(mapImageSim, rows);
     logger.info("Image similarity check on rows done.");
 
     if (featureList != null) {
       //remove old similarities of same type
       featureList.getRowMaps().removeAllRowRelationships(Type.MS1_FEATURE_CORR);
-      featureList.getRowMaps().addAllRowsRelationships(mapImageSim, Type.MS1_FEATURE_CORR);
+      featureList.getRowMaps().addAllRowsRelationships(mapImageSim);
     }
 
     if (featureList != null) {
@@ -155,10 +154,10 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
   /**
    * Parallel check of all r2r similarities
    *
-   * @param mapSimilarity map for all MS2 cosine similarity edges
+   * @param mapSimilarity graph for all image similarity edges
    * @param rows          match rows
    */
-  public void checkAllFeatures(R2RMap<RowsRelationship> mapSimilarity, List<FeatureListRow> rows)
+  public void checkAllFeatures(R2RSparseGraph mapSimilarity, List<FeatureListRow> rows)
       throws MissingMassListException {
     // prefilter rows: check feature height and sort data
     Map<Feature, FilteredRowData> mapFeatureData = new HashMap<>();
@@ -172,6 +171,11 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
       }
 
     }
+    if (isBlockedCorrelationSupported()) {
+      checkAllFeaturesBlocked(mapSimilarity, filteredRows, mapFeatureData);
+      return;
+    }
+
     int numRows = filteredRows.size();
     totalMaxPairs = Combinatorics.uniquePairs(filteredRows);
     logger.log(Level.INFO,
@@ -201,6 +205,50 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
         "Image correlation: Performed %d pairwise comparisons of rows.".formatted(comparedPairs));
   }
 
+  /**
+   * The blocked calculation only supports filters that are independent of other pixels
+   */
+  private boolean isBlockedCorrelationSupported() {
+    return featureList.getNumberOfRawDataFiles() == 1 && BlockedImageCorrelation.isSupported(
+        similarityMeasure) && !useMedianFilter && !useQuantileThreshold && !useHotspotRemoval;
+  }
+
+  /**
+   * All images are packed into one matrix and compared in blocks. Only pairs above the minimum
+   * similarity are added to the graph.
+   */
+  private void checkAllFeaturesBlocked(R2RSparseGraph mapSimilarity,
+      List<FeatureListRow> filteredRows, Map<Feature, FilteredRowData> mapFeatureData) {
+    final RawDataFile raw = featureList.getRawDataFile(0);
+    final List<FeatureListRow> imageRows = new ArrayList<>(filteredRows.size());
+    final List<double[]> images = new ArrayList<>(filteredRows.size());
+    for (FeatureListRow row : filteredRows) {
+      final Feature feature = row.getFeature(raw);
+      final FilteredRowData data = feature == null ? null : mapFeatureData.get(feature);
+      if (data != null) {
+        imageRows.add(row);
+        images.add(data.intensities());
+      }
+    }
+
+    final BlockedImageCorrelation correlation = new BlockedImageCorrelation(images, noiseLevel,
+        similarityMeasure, minimumNumberOfCorrelatedPixels, minR);
+    // the packed images replace the original data
+    images.clear();
+    mapFeatureData.clear();
+
+    totalMaxPairs = Combinatorics.uniquePairs(imageRows);
+    logger.log(Level.INFO, () -> MessageFormat.format(
+        "Checking image similarity on {0} rows as blocked matrix", imageRows.size()));
+
+    correlation.forEachSimilarPair(
+        (a, b, similarity) -> mapSimilarity.add(imageRows.get(a), imageRows.get(b), similarity),
+        this::isCanceled, processedPairs);
+
+    logger.info("Image correlation: Performed %d pairwise comparisons of rows.".formatted(
+        processedPairs.get()));
+  }
+
   private boolean prepareRows(
       @NotNull Map<Feature, ImageCorrelateGroupingTask.FilteredRowData> mapFeatureData,
       @NotNull FeatureListRow row, FeatureDataAccess featureDataAccess)
@@ -239,7 +287,7 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
   }
 
   private void checkR2RAllFeaturesImageSimilarity(Map<Feature, FilteredRowData> mapFeatureData,
-      FeatureListRow a, FeatureListRow b, final R2RMap<RowsRelationship> mapSimilarity) {
+      FeatureListRow a, FeatureListRow b, final R2RSparseGraph mapSimilarity) {
 
     R2RSimpleSimilarityList imageSimilarities = new R2RSimpleSimilarityList(a, b,
         Type.MS1_FEATURE_CORR);
@@ -263,7 +311,7 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
       imageSimilarities.addSimilarity(similarity);
     }
     if (imageSimilarities.getAverageSimilarity() >= minR) {
-      mapSimilarity.add(a, b, imageSimilarities);
+      mapSimilarity.add(a, b, imageSimilarities.getScore());
     }
   }
 
@@ -414,6 +414,220 @@ public class FeatureCorrelationUtil {
   }
 
 
+  /**
+   * Same as {@link #corrR2R(CachedFeatureDataAccess, List, FeatureListRow, FeatureListRow, boolean,
+   * int, int, int, double, double, boolean, SimilarityMeasure, double)} on precomputed feature
+   * shapes and heights.
+   *
+   * @param cache feature data of all rows, shapes need to be cached if doFShapeCorr
+   * @param rowA  index of the first row in the cache
+   * @param rowB  index of the second row in the cache
+   * @return R2R correlation, returns null if it was filtered by height correlation. Check for
+   * validity on result
+   */
+  public static R2RFullCorrelationData corrR2R(FeatureShapeCache cache, int rowA, int rowB,
+      boolean doFShapeCorr, int minCorrelatedDataPoints, int minCorrDPOnFeatureEdge,
+      int minDPFHeightCorr, double minHeight, double noiseLevelShapeCorr,
+      boolean useHeightCorrFilter, SimilarityMeasure heightSimilarity, double minHeightCorr) {
+    CorrelationData heightCorr = null;
+
+    if (useHeightCorrFilter) {
+      heightCorr = corrR2RFeatureHeight(cache, rowA, rowB, minHeight, noiseLevelShapeCorr);
+
+      // significance is alpha. 0 is perfect
+      double maxHeightCorrSlopeSignificance = 0.3;
+      double minHeightCorrFoldChange = 10;
+      if (heightCorr != null && isNegativeRegression(heightCorr, minHeightCorrFoldChange,
+          maxHeightCorrSlopeSignificance, minDPFHeightCorr, minHeightCorr, heightSimilarity)) {
+        return null;
+      }
+    }
+
+    Map<RawDataFile, CorrelationData> featureCorrMap = null;
+    if (doFShapeCorr) {
+      featureCorrMap = corrR2RFeatureShapes(cache, rowA, rowB, minCorrelatedDataPoints,
+          minCorrDPOnFeatureEdge, noiseLevelShapeCorr);
+    }
+
+    if (featureCorrMap != null && featureCorrMap.isEmpty()) {
+      featureCorrMap = null;
+    }
+
+    return new R2RFullCorrelationData(cache.getRow(rowA), cache.getRow(rowB), heightCorr,
+        featureCorrMap);
+  }
+
+  /**
+   * Correlation of feature to feature shapes in all RawDataFiles of two rows on precomputed
+   * feature shapes. Features that are not resampled to the scan grid are correlated directly.
+   *
+   * @return Map of feature shape correlation data (can be empty NON null) or null if one
+   * correlation is really bad
+   */
+  public static Map<RawDataFile, CorrelationData> corrR2RFeatureShapes(FeatureShapeCache cache,
+      int rowA, int rowB, int minCorrelatedDataPoints, int minCorrDPOnFeatureEdge,
+      double noiseLevelShapeCorr) {
+    HashMap<RawDataFile, CorrelationData> corrData = new HashMap<>();
+    final List<RawDataFile> raws = cache.getRaws();
+    for (int r = 0; r < raws.size(); r++) {
+      if (Double.isNaN(cache.getHeight(rowA, r)) || Double.isNaN(cache.getHeight(rowB, r))) {
+        continue;
+      }
+      final RawDataFile raw = raws.get(r);
+      final CorrelationData correlationData;
+      if (cache.hasShape(rowA, r) && cache.hasShape(rowB, r)) {
+        correlationData = corrFeatureShape(cache, rowA, rowB, r, minCorrelatedDataPoints,
+            minCorrDPOnFeatureEdge, noiseLevelShapeCorr);
+      } else {
+        correlationData = corrFeatureShape(null, cache.getRow(rowA).getFeature(raw),
+            cache.getRow(rowB).getFeature(raw), true, minCorrelatedDataPoints,
+            minCorrDPOnFeatureEdge, noiseLevelShapeCorr);
+      }
+
+      // if correlation is really bad return null
+      if (isNegativeRegression(correlationData, 5, 0.2, 7, 0.5, SimilarityMeasure.PEARSON)) {
+        return null;
+      }
+      // enough data points
+      if (correlationData != null && correlationData.getDPCount() >= minCorrelatedDataPoints) {
+        corrData.put(raw, correlationData);
+      }
+    }
+    return corrData;
+  }
+
+  /**
+   * Feature shape correlation of two features of the same raw data file on the scan grid. Same
+   * result as {@link #corrFeatureShape(CachedFeatureDataAccess, Feature, Feature, boolean, int,
+   * int, double)}: starts at the apex of the higher feature and adds data points to both sides while
+   * both features are on the same scans and above the noise level.
+   *
+   * @return feature shape correlation or null if not possible not enough data points for a
+   * correlation
+   */
+  private static CorrelationData corrFeatureShape(FeatureShapeCache cache, int rowA, int rowB,
+      int raw, int minCorrelatedDataPoints, int minCorrDPOnFeatureEdge,
+      double noiseLevelShapeCorr) {
+    // a should be the higher feature
+    if (cache.getHeight(rowA, raw) < cache.getHeight(rowB, raw)) {
+      int tmp = rowA;
+      rowA = rowB;
+      rowB = tmp;
+    }
+    final int[] scansA = cache.getGridIndices(rowA, raw);
+    final int[] scansB = cache.getGridIndices(rowB, raw);
+    if (scansA.length < minCorrelatedDataPoints || scansB.length < minCorrelatedDataPoints) {
+      return null;
+    }
+    final double[] intensities1 = cache.getIntensities(rowA, raw);
+    final double[] intensities2 = cache.getIntensities(rowB, raw);
+
+    final int maxIndexOfA = cache.getApexIndex(rowA, raw);
+    // -1 if the apex scan of a is not in b
+    final int maxIndexInB = Math.max(-1, Arrays.binarySearch(scansB, scansA[maxIndexOfA]));
+    // offset from index in a to index in b
+    final int offset = maxIndexInB - maxIndexOfA;
+
+    // all data points <=max
+    int i1 = maxIndexOfA;
+    while (i1 >= 0 && i1 + offset >= 0 && isSameScanAboveNoise(scansA, scansB, intensities1,
+        intensities2, i1, i1 + offset, noiseLevelShapeCorr)) {
+      i1--;
+    }
+    final int first = i1 + 1;
+    // check min data points left from apex
+    final int left = maxIndexOfA - first;
+    if (left < minCorrDPOnFeatureEdge) {
+      return null;
+    }
+
+    // all dp>max
+    i1 = maxIndexOfA + 1;
+    while (i1 < scansA.length && i1 + offset < scansB.length && isSameScanAboveNoise(scansA,
+        scansB, intensities1, intensities2, i1, i1 + offset, noiseLevelShapeCorr)) {
+      i1++;
+    }
+    final int right = i1 - maxIndexOfA - 1;
+    final int size = left + 1 + right;
+    if (size < minCorrelatedDataPoints || right < minCorrDPOnFeatureEdge) {
+      return null;
+    }
+
+    // same order as the list: apex to left edge, then right of apex to right edge
+    final double[][] corrData = new double[size][];
+    int n = 0;
+    for (int i = maxIndexOfA; i >= first; i--) {
+      corrData[n++] = new double[]{intensities1[i], intensities2[i + offset]};
+    }
+    for (int i = maxIndexOfA + 1; i < i1; i++) {
+      corrData[n++] = new double[]{intensities1[i], intensities2[i + offset]};
+    }
+    return new FullCorrelationData(corrData);
+  }
+
+  private static boolean isSameScanAboveNoise(int[] scansA, int[] scansB, double[] intensities1,
+      double[] intensities2, int i1, int i2, double noiseLevel) {
+    return scansA[i1] == scansB[i2] && intensities1[i1] >= noiseLevel
+        && intensities2[i2] >= noiseLevel;
+  }
+
+  /**
+   * Same as {@link #corrR2RFeatureHeight(List, FeatureListRow, FeatureListRow, double, double,
+   * int)} on precomputed heights
+   *
+   * @return Correlation data of i profile of max i (or null if no correlation)
+   */
+  public static CorrelationData corrR2RFeatureHeight(FeatureShapeCache cache, int rowA, int rowB,
+      double minHeight, double noiseLevel) {
+    final int numRaws = cache.getRaws().size();
+    List<double[]> data = new ArrayList<>();
+    // calc ratio
+    double ratio = 0;
+    for (int r = 0; r < numRaws; r++) {
+      double a = cache.getHeight(rowA, r);
+      double b = cache.getHeight(rowB, r);
+      // NaN for missing features is never >= min height
+      if (a >= minHeight && b >= minHeight) {
+        data.add(new double[]{a, b});
+        ratio += a / b;
+      }
+    }
+
+    ratio = ratio / data.size();
+    if (ratio != 0) {
+      // estimate missing values as noise level if > minHeight
+      for (int r = 0; r < numRaws; r++) {
+        final double heightA = cache.getHeight(rowA, r);
+        final double heightB = cache.getHeight(rowB, r);
+
+        boolean amissing = (Double.isNaN(heightA) || heightA < minHeight);
+        boolean bmissing = (Double.isNaN(heightB) || heightB < minHeight);
+        // xor
+        if (amissing ^ bmissing) {
+          double a = amissing ? heightB * ratio : heightA;
+          double b = bmissing ? heightA / ratio : heightB;
+
+          // only if both are >= min height
+          if (a >= minHeight && b >= minHeight) {
+            if (amissing) {
+              a = Math.max(noiseLevel, Double.isNaN(heightA) ? 0 : heightA);
+            }
+            if (bmissing) {
+              b = Math.max(noiseLevel, Double.isNaN(heightB) ? 0 : heightB);
+            }
+            data.add(new double[]{a, b});
+          }
+        }
+      }
+    }
+
+    if (data.size() < 2) {
+      return null;
+    } else {
+      return new FullCorrelationData(data);
+    }
+  }
+
   /**
    * Only true if this should be filtered out. Need to have a minimum fold change to be
    * significant.
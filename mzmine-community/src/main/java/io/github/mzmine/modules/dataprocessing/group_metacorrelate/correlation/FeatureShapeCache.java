@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.CachedFeatureDataAccess;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Precomputed feature data for the correlation of many row pairs. The scans of each feature are
+ * resampled once onto the scan grid of its raw data file (index in {@link RawDataFile#getScans()})
+ * so that feature shapes of two features are aligned by comparing primitive indices instead of
+ * searching scan lists for every pair. Heights are cached for all features.
+ * <p>
+ * Values are stored for each row and raw data file at index row * numRaws + raw. Features with
+ * scans that are not on the grid of their raw data file are not resampled, see
+ * {@link #hasShape(int, int)}.
+ */
+public class FeatureShapeCache {
+
+  private final FeatureListRow[] rows;
+  private final List<RawDataFile> raws;
+  private final int numRaws;
+  // NaN if there is no feature
+  private final double[] heights;
+  // null if shapes are not cached or feature is not on the grid
+  private final int[][] gridIndices;
+  private final double[][] intensities;
+  private final int[] apexIndices;
+
+  /**
+   * @param rows        the rows, referenced by their index
+   * @param raws        the raw data files, referenced by their index
+   * @param data        intensity source, null to access data directly from features
+   * @param cacheShapes resample all feature shapes to the scan grid
+   */
+  public FeatureShapeCache(@NotNull FeatureListRow[] rows, @NotNull List<RawDataFile> raws,
+      @Nullable CachedFeatureDataAccess data, boolean cacheShapes) {
+    this.rows = rows;
+    this.raws = raws;
+    numRaws = raws.size();
+    final int size = rows.length * numRaws;
+    heights = new double[size];
+    gridIndices = new int[size][];
+    intensities = new double[size][];
+    apexIndices = new int[size];
+
+    IntStream.range(0, numRaws).parallel().forEach(r -> {
+      final RawDataFile raw = raws.get(r);
+      final Reference2IntMap<Scan> scanGrid = cacheShapes ? createScanGrid(raw) : null;
+      for (int i = 0; i < rows.length; i++) {
+        final Feature feature = rows[i].getFeature(raw);
+        final int index = i * numRaws + r;
+        if (feature == null) {
+          heights[index] = Double.NaN;
+          continue;
+        }
+        heights[index] = feature.getHeight();
+        if (scanGrid != null) {
+          gridIndices[index] = toGridIndices(scanGrid, feature.getScanNumbers());
+        }
+      }
+    });
+
+    if (cacheShapes) {
+      // sequential as the data access may load lazily
+      for (int i = 0; i < size; i++) {
+        if (gridIndices[i] == null) {
+          continue;
+        }
+        final Feature feature = rows[i / numRaws].getFeature(raws.get(i % numRaws));
+        final double[] values = data == null ? feature.getFeatureData()
+            .getIntensityValues(new double[feature.getNumberOfDataPoints()])
+            : data.getIntensityValues(feature);
+        if (values.length < gridIndices[i].length) {
+          gridIndices[i] = null;
+          continue;
+        }
+        intensities[i] = values;
+        apexIndices[i] = FeatureCorrelationUtil.indexOfMax(values);
+      }
+    }
+  }
+
+  private static Reference2IntMap<Scan> createScanGrid(RawDataFile raw) {
+    final List<Scan> scans = raw.getScans();
+    final Reference2IntMap<Scan> grid = new Reference2IntOpenHashMap<>(scans.size());
+    grid.defaultReturnValue(-1);
+    for (int i = 0; i < scans.size(); i++) {
+      grid.put(scans.get(i), i);
+    }
+    return grid;
+  }
+
+  /**
+   * @return the ascending grid indices or null if a scan is not on the grid or not sorted
+   */
+  @Nullable
+  private static int[] toGridIndices(Reference2IntMap<Scan> scanGrid, List<Scan> scans) {
+    final int[] indices = new int[scans.size()];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = scanGrid.getInt(scans.get(i));
+      if (indices[i] < 0 || (i > 0 && indices[i] <= indices[i - 1])) {
+        return null;
+      }
+    }
+    return indices;
+  }
+
+  public int getNumRows() {
+    return rows.length;
+  }
+
+  public FeatureListRow getRow(int row) {
+    return rows[row];
+  }
+
+  public List<RawDataFile> getRaws() {
+    return raws;
+  }
+
+  /**
+   * @return the feature height or NaN if there is no feature
+   */
+  public double getHeight(int row, int raw) {
+    return heights[row * numRaws + raw];
+  }
+
+  /**
+   * @return true if the feature shape was resampled to the scan grid
+   */
+  public boolean hasShape(int row, int raw) {
+    return gridIndices[row * numRaws + raw] != null;
+  }
+
+  /**
+   * @return ascending indices of the feature scans in the raw data file
+   */
+  public int[] getGridIndices(int row, int raw) {
+    return gridIndices[row * numRaws + raw];
+  }
+
+  public double[] getIntensities(int row, int raw) {
+    return intensities[row * numRaws + raw];
+  }
+
+  /**
+   * @return index of the maximum intensity as in {@link FeatureCorrelationUtil#indexOfMax(double[])}
+   */
+  public int getApexIndex(int row, int raw) {
+    return apexIndices[row * numRaws + raw];
+  }
+}
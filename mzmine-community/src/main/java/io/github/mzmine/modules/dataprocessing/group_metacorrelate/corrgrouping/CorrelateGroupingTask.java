@@ -42,6 +42,7 @@ import io.github.mzmine.datamodel.features.correlation.R2RSimpleCorrelationData;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureCorrelationUtil;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCache;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCorrelationParameters;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.InterSampleHeightCorrParameters;
 import io.github.mzmine.parameters.ParameterSet;
@@ -56,6 +57,8 @@ import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.List;
@@ -67,6 +70,8 @@ import org.jetbrains.annotations.NotNull;
 public class CorrelateGroupingTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(CorrelateGroupingTask.class.getName());
+  // more blocks than threads balance the remaining differences in the cost of pairs
+  private static final int BLOCKS_PER_THREAD = 8;
 
   private final AtomicDouble stageProgress = new AtomicDouble(0);
   private final boolean keepExtendedStats;
@@ -295,34 +300,47 @@ public class CorrelateGroupingTask extends AbstractTask {
     boolean preloadIntensities =
         useTotalShapeCorrFilter || groupByFShapeCorr || calculateShapeOverlap;
     CachedFeatureDataAccess data = new CachedFeatureDataAccess(rows, false, preloadIntensities);
+    // resample all feature shapes once instead of aligning them for each pair
+    final FeatureShapeCache shapes = new FeatureShapeCache(rows, raws, data, groupByFShapeCorr);
 
-    // for all rows - do in parallel
-    long correlated = IntStream.range(0, totalRows - 1).parallel().mapToLong(i -> {
+    // each row is compared to all following rows within the RT tolerance (its RT band)
+    final float[] rts = new float[totalRows];
+    for (int i = 0; i < totalRows; i++) {
+      rts[i] = rows[i].getAverageRT();
+    }
+    final int[] bandEnd = findBandEnds(rts, rtTolerance);
+    long pairs = 0;
+    for (int i = 0; i < totalRows; i++) {
+      pairs += bandEnd[i] - i - 1;
+    }
+    final long totalPairs = pairs;
+
+    // blocks of consecutive rows with a similar number of pairs for balanced parallel work
+    final IntList blockStarts = createBlocks(bandEnd, totalPairs);
+    final double pairsPerProgress = Math.max(1, totalPairs);
+    logger.fine(() -> MessageFormat.format("Corr: Comparing {0} row pairs in {1} blocks",
+        totalPairs, blockStarts.size() - 1));
+
+    long correlated = IntStream.range(0, blockStarts.size() - 1).parallel().mapToLong(block -> {
       long addedCorrelations = 0;
-      if (!isCanceled()) {
-        try {
+      long blockPairs = 0;
+      try {
+        for (int i = blockStarts.getInt(block); i < blockStarts.getInt(block + 1); i++) {
+          if (isCanceled()) {
+            break;
+          }
           FeatureListRow row = rows[i];
-          // compare to the rest of rows
-          for (int x = i + 1; x < totalRows; x++) {
-            if (isCanceled()) {
-              break;
-            }
-
+          // compare to the rest of rows in the RT band
+          for (int x = i + 1; x < bandEnd[i]; x++) {
             FeatureListRow row2 = rows[x];
 
-            // average retention time should be in range
-            if (!rtTolerance.checkWithinTolerance(row.getAverageRT(), row2.getAverageRT())) {
-              // end second loop
-              break;
-            }
-
             // has a minimum number/% of overlapping features in all samples / in at least one
             // groups
             OverlapResult overlap = minFFilter.filterMinFeaturesOverlap(data, raws, row, row2,
                 rtTolerance, calculateShapeOverlap);
             if (overlap.equals(OverlapResult.TRUE)) {
               // correlate if in rt range
-              R2RFullCorrelationData corr = FeatureCorrelationUtil.corrR2R(data, raws, row, row2,
+              R2RFullCorrelationData corr = FeatureCorrelationUtil.corrR2R(shapes, i, x,
                   groupByFShapeCorr, minCorrelatedDataPoints, minCorrDPOnFeatureEdge,
                   minDPHeightCorr, minHeight, noiseLevelCorr, useHeightCorrFilter, heightSimMeasure,
                   minHeightCorr);
@@ -346,12 +364,13 @@ public class CorrelateGroupingTask extends AbstractTask {
               }
             }
           }
-          stageProgress.addAndGet(1d / totalRows);
-        } catch (Exception e) {
-          logger.log(Level.SEVERE, "Error in parallel R2Rcomparison: " + e.getMessage(), e);
-          throw new MSDKRuntimeException(e);
+          blockPairs += bandEnd[i] - i - 1;
         }
+      } catch (Exception e) {
+        logger.log(Level.SEVERE, "Error in parallel R2Rcomparison: " + e.getMessage(), e);
+        throw new MSDKRuntimeException(e);
       }
+      stageProgress.addAndGet(blockPairs / pairsPerProgress);
       return addedCorrelations;
     }).sum();
 
@@ -359,4 +378,53 @@ public class CorrelateGroupingTask extends AbstractTask {
     logger.info(MessageFormat.format("Added {0} correlation edges", map.size()));
   }
 
+  /**
+   * The RT band of a row contains all following rows up to the first row outside the RT tolerance,
+   * the same rows the comparison of each row with all following rows visited before.
+   *
+   * @param rts average RT of each row in ascending order
+   * @return the exclusive end of the RT band of each row
+   */
+  static int[] findBandEnds(float[] rts, RTTolerance rtTolerance) {
+    final int[] bandEnd = new int[rts.length];
+    for (int i = 0; i < rts.length; i++) {
+      int end = i + 1;
+      while (end < rts.length && rtTolerance.checkWithinTolerance(rts[i], rts[end])) {
+        end++;
+      }
+      bandEnd[i] = end;
+    }
+    return bandEnd;
+  }
+
+  private static IntList createBlocks(int[] bandEnd, long totalPairs) {
+    return createBlocks(bandEnd, totalPairs,
+        BLOCKS_PER_THREAD * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Splits the rows into blocks of consecutive rows with about the same number of pairs. Rows in
+   * dense RT regions have more pairs and end up in smaller blocks.
+   *
+   * @param bandEnd exclusive end of the RT band of each row
+   * @param blocks  the targeted number of blocks
+   * @return the start index of each block followed by the number of rows
+   */
+  static IntList createBlocks(int[] bandEnd, long totalPairs, int blocks) {
+    final int numRows = bandEnd.length;
+    final long targetPairs = Math.max(1, totalPairs / blocks);
+    final IntList blockStarts = new IntArrayList();
+    blockStarts.add(0);
+    long pairs = 0;
+    for (int i = 0; i < numRows; i++) {
+      pairs += bandEnd[i] - i - 1;
+      if (pairs >= targetPairs && i + 1 < numRows) {
+        blockStarts.add(i + 1);
+        pairs = 0;
+      }
+    }
+    blockStarts.add(numRows);
+    return blockStarts;
+  }
+
 }
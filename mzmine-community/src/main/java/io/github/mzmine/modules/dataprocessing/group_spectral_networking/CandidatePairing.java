@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+/**
+ * Options to create the candidate pairs of rows that are scored in spectral networking
+ */
+public enum CandidatePairing {
+  /**
+   * Score all pairs of rows within the precursor m/z delta
+   */
+  EXHAUSTIVE,
+  /**
+   * Only score pairs that share enough fragment signals or neutral losses to reach the minimum
+   * number of matched signals. Uses an inverted index from binned m/z to rows.
+   */
+  SHARED_SIGNAL_INDEX;
+
+  @Override
+  public String toString() {
+    return switch (this) {
+      case EXHAUSTIVE -> "Exhaustive (all pairs)";
+      case SHARED_SIGNAL_INDEX -> "Shared signal index";
+    };
+  }
+}
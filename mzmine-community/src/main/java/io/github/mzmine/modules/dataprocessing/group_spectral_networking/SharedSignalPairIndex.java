@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntConsumer;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Inverted index from binned fragment m/z and binned neutral loss (precursor m/z - fragment m/z)
+ * to the spectra that contain them. Two spectra can only match a signal directly or shifted by
+ * the precursor m/z difference (modified cosine) if they share a fragment or a neutral loss within
+ * the m/z tolerance. The bin width is at least the maximum tolerance, so matching values always
+ * fall into the same or an adjacent bin. Counting the signals of one spectrum that hit another
+ * spectrum in these bins gives an upper bound of the matched signals, which is used to skip pairs
+ * that can never reach the minimum number of matched signals.
+ * <p>
+ * Spectra are referenced by their index in the input list. The index is immutable and can be
+ * queried concurrently with one {@link Query} per thread.
+ */
+public class SharedSignalPairIndex {
+
+  private final int numSpectra;
+  private final double[][] mzs;
+  private final double[] precursorMzs;
+  private final double binWidth;
+  private final Long2ObjectMap<int[]> fragmentBins;
+  private final Long2ObjectMap<int[]> lossBins;
+
+  /**
+   * @param mzs          the fragment m/z values for each spectrum
+   * @param precursorMzs the precursor m/z for each spectrum, neutral losses are only indexed for
+   *                     values > 0 like in the modification aware alignment
+   * @param mzTol        the m/z tolerance used to match signals
+   */
+  public SharedSignalPairIndex(@NotNull List<double[]> mzs, @NotNull double[] precursorMzs,
+      @NotNull MZTolerance mzTol) {
+    numSpectra = mzs.size();
+    this.mzs = mzs.toArray(double[][]::new);
+    this.precursorMzs = precursorMzs;
+
+    // the shifted m/z in the modified cosine is at most max fragment + max precursor
+    double maxMz = 0;
+    for (int i = 0; i < numSpectra; i++) {
+      for (double mz : this.mzs[i]) {
+        maxMz = Math.max(maxMz, mz);
+      }
+      maxMz = Math.max(maxMz, precursorMzs[i]);
+    }
+    // small margin for rounding errors at the bin borders
+    binWidth = mzTol.getMzToleranceForMass(maxMz * 2) * 1.001;
+
+    final Long2ObjectMap<IntArrayList> fragments = new Long2ObjectOpenHashMap<>();
+    final Long2ObjectMap<IntArrayList> losses = new Long2ObjectOpenHashMap<>();
+    for (int i = 0; i < numSpectra; i++) {
+      final double precursorMz = precursorMzs[i];
+      for (double mz : this.mzs[i]) {
+        addPosting(fragments, bin(mz), i);
+        if (precursorMz > 0) {
+          addPosting(losses, bin(precursorMz - mz), i);
+        }
+      }
+    }
+    fragmentBins = toArrays(fragments);
+    lossBins = toArrays(losses);
+  }
+
+  private static void addPosting(Long2ObjectMap<IntArrayList> bins, long bin, int spectrum) {
+    final IntArrayList postings = bins.computeIfAbsent(bin, k -> new IntArrayList());
+    // spectra are added in ascending order, skip duplicates of the same spectrum
+    if (postings.isEmpty() || postings.getInt(postings.size() - 1) != spectrum) {
+      postings.add(spectrum);
+    }
+  }
+
+  private static Long2ObjectMap<int[]> toArrays(Long2ObjectMap<IntArrayList> bins) {
+    final Long2ObjectMap<int[]> result = new Long2ObjectOpenHashMap<>(bins.size());
+    for (var entry : bins.long2ObjectEntrySet()) {
+      result.put(entry.getLongKey(), entry.getValue().toIntArray());
+    }
+    return result;
+  }
+
+  private long bin(double value) {
+    return (long) Math.floor(value / binWidth);
+  }
+
+  /**
+   * @return a new query with its own buffers, use one per thread
+   */
+  public @NotNull Query createQuery() {
+    return new Query();
+  }
+
+  public int getNumSpectra() {
+    return numSpectra;
+  }
+
+  /**
+   * Reusable buffers to query the index. Not thread safe.
+   */
+  public class Query {
+
+    // owner spectrum of the count and last counted signal for each spectrum
+    private final int[] owner = new int[numSpectra];
+    private final int[] lastSignal = new int[numSpectra];
+    private final int[] counts = new int[numSpectra];
+    private final IntArrayList candidates = new IntArrayList();
+
+    private Query() {
+      Arrays.fill(owner, -1);
+    }
+
+    /**
+     * Find all spectra in the index range (spectrum, maxSpectrum] that share at least minShared
+     * signals with spectrum.
+     *
+     * @param spectrum    the query spectrum index
+     * @param maxSpectrum the maximum spectrum index (inclusive) to pair with
+     * @param minShared   the minimum number of shared signals
+     * @param consumer    receives the candidates in ascending order
+     * @return the number of candidates
+     */
+    public int forEachCandidate(int spectrum, int maxSpectrum, int minShared,
+        @NotNull IntConsumer consumer) {
+      if (minShared <= 0) {
+        // every pair is a candidate
+        for (int other = spectrum + 1; other <= maxSpectrum; other++) {
+          consumer.accept(other);
+        }
+        return Math.max(0, maxSpectrum - spectrum);
+      }
+      candidates.clear();
+      final double[] query = mzs[spectrum];
+      final double precursorMz = precursorMzs[spectrum];
+      for (int s = 0; s < query.length; s++) {
+        final long fragmentBin = bin(query[s]);
+        for (long b = fragmentBin - 1; b <= fragmentBin + 1; b++) {
+          count(fragmentBins.get(b), spectrum, maxSpectrum, s, minShared);
+        }
+        if (precursorMz > 0) {
+          final long lossBin = bin(precursorMz - query[s]);
+          for (long b = lossBin - 1; b <= lossBin + 1; b++) {
+            count(lossBins.get(b), spectrum, maxSpectrum, s, minShared);
+          }
+        }
+      }
+      final int[] sorted = candidates.elements();
+      IntArrays.quickSort(sorted, 0, candidates.size());
+      for (int i = 0; i < candidates.size(); i++) {
+        consumer.accept(sorted[i]);
+      }
+      return candidates.size();
+    }
+
+    private void count(int[] postings, int spectrum, int maxSpectrum, int signal,
+        int minShared) {
+      if (postings == null) {
+        return;
+      }
+      // postings are sorted, start after the query spectrum
+      int start = IntArrays.binarySearch(postings, spectrum + 1);
+      if (start < 0) {
+        start = -start - 1;
+      }
+      for (int i = start; i < postings.length; i++) {
+        final int other = postings[i];
+        if (other > maxSpectrum) {
+          return;
+        }
+        if (owner[other] != spectrum) {
+          owner[other] = spectrum;
+          lastSignal[other] = -1;
+          counts[other] = 0;
+        }
+        // count every signal of the query only once per spectrum
+        if (lastSignal[other] != signal) {
+          lastSignal[other] = signal;
+          if (++counts[other] == minShared) {
+            candidates.add(other);
+          }
+        }
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.OptionalParameter;
@@ -74,6 +75,15 @@ public class SpectralNetworkingParameters extends SimpleParameterSet {
           "Maximum allowed m/z delta between precursor ions to be tested. This can speed up the process",
           MZmineCore.getConfiguration().getMZFormat(), 500d), true);
 
+  public static final ComboParameter<CandidatePairing> CANDIDATE_PAIRING = new ComboParameter<>(
+      "Candidate pairing", """
+      Exhaustive: scores all pairs of rows within the precursor m/z delta.
+      Shared signal index: only scores pairs of rows that share at least the minimum number of \
+      matched signals as fragment m/z or neutral loss to the precursor. Results in the same \
+      network but is much faster for large feature lists. Only used for the best MS2 scan \
+      without neutral loss similarity, otherwise all pairs are scored.
+      """, CandidatePairing.values(), CandidatePairing.SHARED_SIGNAL_INDEX);
+
   public static final ParameterSetParameter<SignalFiltersParameters> signalFilters = new ParameterSetParameter<>(
       "Signal filters", """
       Signal filters to limit the number of signals etc.
@@ -81,7 +91,7 @@ public class SpectralNetworkingParameters extends SimpleParameterSet {
 
   public SpectralNetworkingParameters() {
     super(FEATURE_LISTS, MZ_TOLERANCE, ONLY_BEST_MS2_SCAN, MAX_MZ_DELTA, MIN_MATCH,
-        MIN_COSINE_SIMILARITY, CHECK_NEUTRAL_LOSS_SIMILARITY, signalFilters);
+        MIN_COSINE_SIMILARITY, CHECK_NEUTRAL_LOSS_SIMILARITY, CANDIDATE_PAIRING, signalFilters);
   }
 
 }
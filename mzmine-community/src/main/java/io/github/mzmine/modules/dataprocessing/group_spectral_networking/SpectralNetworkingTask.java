@@ -36,11 +36,9 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
 import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
-import io.github.mzmine.datamodel.features.correlation.R2RSpectralSimilarity;
+import io.github.mzmine.datamodel.features.correlation.R2RSparseGraph;
 import io.github.mzmine.datamodel.features.correlation.R2RSpectralSimilarityList;
-import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.datamodel.features.correlation.SpectralSimilarity;
 import io.github.mzmine.datamodel.features.types.networking.NetworkStats;
@@ -59,7 +57,9 @@ import io.github.mzmine.util.maths.Combinatorics;
 import io.github.mzmine.util.maths.similarity.Similarity;
 import io.github.mzmine.util.scans.ScanAlignment;
 import io.github.mzmine.util.scans.ScanMZDiffConverter;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
 import io.github.mzmine.util.scans.similarity.Weights;
+import io.github.mzmine.util.scans.similarity.impl.cosine.CosineScoringKernel;
 import it.unimi.dsi.fastutil.Pair;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import java.text.MessageFormat;
@@ -97,6 +97,8 @@ public class SpectralNetworkingTask extends AbstractTask {
   private final boolean checkNeutralLoss;
   private final SpectralSignalFilter signalFilter;
   private final double maxMzDelta;
+  private final CandidatePairing candidatePairing;
+  private final AtomicLong prunedPairs = new AtomicLong(0);
   private List<FeatureListRow> rows;
   private long totalMaxPairs = 0;
 
@@ -121,6 +123,7 @@ public class SpectralNetworkingTask extends AbstractTask {
     } else {
       maxDPForDiff = 0;
     }
+    candidatePairing = params.getValue(SpectralNetworkingParameters.CANDIDATE_PAIRING);
     // embedded signal filters
     signalFilter = params.getValue(SpectralNetworkingParameters.signalFilters).createFilter();
   }
@@ -222,6 +225,14 @@ public class SpectralNetworkingTask extends AbstractTask {
       DataPoint[] sortedA, DataPoint[] sortedB, double minMatch,
       Function<List<DataPoint[]>, Integer> overlapFunction, double precursorMzA,
       double precursorMzB) {
+    if (overlapFunction == SIZE_OVERLAP) {
+      // same alignment without creating the aligned data points
+      final CosineScoringKernel kernel = CosineScoringKernel.get();
+      final double cosine = kernel.score(sortedB, sortedA, mzTol, weights,
+          HandleUnmatchedSignalOptions.KEEP_ALL_AND_MATCH_TO_ZERO, (int) Math.ceil(minMatch),
+          precursorMzB, precursorMzA);
+      return createSpectralSimilarity(kernel, cosine);
+    }
     // align
     final List<DataPoint[]> aligned = alignDataPoints(precursorMzA, precursorMzB, mzTol, sortedB,
         sortedA);
@@ -329,6 +340,21 @@ public class SpectralNetworkingTask extends AbstractTask {
     return null;
   }
 
+  /**
+   * @param kernel the kernel after scoring
+   * @param cosine the score or NaN if the minimum number of signals was not matched
+   * @return the spectral similarity if number of overlapping signals >= minimum, else null
+   */
+  @Nullable
+  private static SpectralSimilarity createSpectralSimilarity(CosineScoringKernel kernel,
+      double cosine) {
+    if (Double.isNaN(cosine)) {
+      return null;
+    }
+    return new SpectralSimilarity(cosine, kernel.getOverlap(), kernel.getSizeA(),
+        kernel.getSizeB(), kernel.getExplainedIntensityA(), kernel.getExplainedIntensityB());
+  }
+
   @NotNull
   private static List<DataPoint[]> alignDataPoints(double precursorMzA, double precursorMzB,
       MZTolerance mzTol, DataPoint[] sortedB, DataPoint[] sortedA) {
@@ -357,8 +383,8 @@ public class SpectralNetworkingTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    final R2RMap<RowsRelationship> mapCosineSim = new R2RMap<>();
-    final R2RMap<RowsRelationship> mapNeutralLoss = new R2RMap<>();
+    final R2RSparseGraph mapCosineSim = new R2RSparseGraph(Type.MS2_COSINE_SIM, "cos");
+    final R2RSparseGraph mapNeutralLoss = new R2RSparseGraph(Type.MS2_NEUTRAL_LOSS_SIM, "cos");
     try {
       if (onlyBestMS2Scan) {
         checkRowsBestMs2(mapCosineSim, mapNeutralLoss, rows);
@@ -371,8 +397,8 @@ public class SpectralNetworkingTask extends AbstractTask {
 
       if (featureList != null) {
         R2RNetworkingMaps rowMaps = featureList.getRowMaps();
-        rowMaps.addAllRowsRelationships(mapCosineSim, Type.MS2_COSINE_SIM);
-        rowMaps.addAllRowsRelationships(mapNeutralLoss, Type.MS2_NEUTRAL_LOSS_SIM);
+        rowMaps.addAllRowsRelationships(mapCosineSim);
+        rowMaps.addAllRowsRelationships(mapNeutralLoss);
 
         addNetworkStatisticsToRows();
       }
@@ -404,8 +430,8 @@ public class SpectralNetworkingTask extends AbstractTask {
     // set community and cluster_index
     FeatureNetworkGenerator generator = new FeatureNetworkGenerator();
     R2RNetworkingMaps onlyCosineMap = new R2RNetworkingMaps();
-    onlyCosineMap.addAllRowsRelationships(featureList.getMs2SimilarityMap().get(),
-        Type.MS2_COSINE_SIM);
+    featureList.getRowMaps().getGraph(Type.MS2_COSINE_SIM.toString())
+        .ifPresent(onlyCosineMap::addAllRowsRelationships);
     var graph = generator.createNewGraph(featureList.getRows(), false, true, onlyCosineMap, false);
     GraphStreamUtils.detectCommunities(graph);
 
@@ -433,17 +459,21 @@ public class SpectralNetworkingTask extends AbstractTask {
   /**
    * Parallel check of all r2r similarities
    *
-   * @param mapSimilarity  map for all MS2 cosine similarity edges
-   * @param mapNeutralLoss map for all neutral loss MS2 edges
+   * @param mapSimilarity  graph for all MS2 cosine similarity edges
+   * @param mapNeutralLoss graph for all neutral loss MS2 edges
    * @param rows           match rows
    */
-  public void checkRowsBestMs2(R2RMap<RowsRelationship> mapSimilarity,
-      R2RMap<RowsRelationship> mapNeutralLoss, List<FeatureListRow> rows)
-      throws MissingMassListException {
+  public void checkRowsBestMs2(R2RSparseGraph mapSimilarity, R2RSparseGraph mapNeutralLoss,
+      List<FeatureListRow> rows) throws MissingMassListException {
     List<FilteredRowData> filteredRows = prepareRowBestSpectrum(rows);
     final int numRows = filteredRows.size();
-    totalMaxPairs = Combinatorics.uniquePairs(filteredRows);
     logger.log(Level.INFO, MessageFormat.format("Checking MS2 similarity on {0} rows", numRows));
+    if (candidatePairing == CandidatePairing.SHARED_SIGNAL_INDEX && !checkNeutralLoss) {
+      checkRowsBestMs2Indexed(mapSimilarity, mapNeutralLoss, filteredRows);
+      return;
+    }
+
+    totalMaxPairs = Combinatorics.uniquePairs(filteredRows);
     // try map multi for all pairs
     long comparedPairs = IntStream.range(0, numRows - 1).boxed()
         .<Pair<FilteredRowData, FilteredRowData>>mapMulti((i, consumer) -> {
@@ -472,9 +502,63 @@ public class SpectralNetworkingTask extends AbstractTask {
     logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
   }
 
+  /**
+   * Only scores pairs of rows that share enough fragment signals or neutral losses to reach the
+   * minimum number of matched signals. Results are the same as in
+   * {@link #checkRowsBestMs2(R2RSparseGraph, R2RSparseGraph, List)} with exhaustive pairing.
+   *
+   * @param filteredRows rows sorted by m/z
+   */
+  private void checkRowsBestMs2Indexed(R2RSparseGraph mapSimilarity,
+      R2RSparseGraph mapNeutralLoss, List<FilteredRowData> filteredRows) {
+    final int numRows = filteredRows.size();
+    final double[] precursorMzs = new double[numRows];
+    final List<double[]> mzs = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      precursorMzs[i] = filteredRows.get(i).row().getAverageMZ();
+      mzs.add(filteredRows.get(i).mzs());
+    }
+    // last row within the max precursor m/z delta
+    final int[] lastRow = new int[numRows];
+    long possiblePairs = 0;
+    for (int i = 0, last = 0; i < numRows; i++) {
+      last = Math.max(last, i);
+      while (last + 1 < numRows && precursorMzs[last + 1] - precursorMzs[i] <= maxMzDelta) {
+        last++;
+      }
+      lastRow[i] = last;
+      possiblePairs += last - i;
+    }
+    totalMaxPairs = possiblePairs;
+
+    final SharedSignalPairIndex index = new SharedSignalPairIndex(mzs, precursorMzs, mzTolerance);
+    final ThreadLocal<SharedSignalPairIndex.Query> queries = ThreadLocal.withInitial(
+        index::createQuery);
+
+    final long comparedPairs = IntStream.range(0, numRows - 1).parallel().mapToLong(i -> {
+      if (isCanceled()) {
+        return 0;
+      }
+      final FilteredRowData a = filteredRows.get(i);
+      final int scored = queries.get().forEachCandidate(i, lastRow[i], minMatch,
+          j -> checkSpectralPair(a, filteredRows.get(j), mapSimilarity, mapNeutralLoss));
+      final int pairs = lastRow[i] - i;
+      prunedPairs.addAndGet(pairs - scored);
+      processedPairs.addAndGet(pairs);
+      return scored;
+    }).sum();
+
+    logger.info("Spectral networking: Performed %d pairwise comparisons, pruned %d of %d pairs"
+        .formatted(comparedPairs, prunedPairs.get(), possiblePairs));
+  }
+
   private void checkSpectralPair(final FilteredRowData a, final FilteredRowData b,
-      final R2RMap<RowsRelationship> mapSimilarity, final R2RMap<RowsRelationship> mapNeutralLoss) {
-    checkR2RMs2Similarity(mapSimilarity, a.row(), b.row(), a.data(), b.data(), Type.MS2_COSINE_SIM);
+      final R2RSparseGraph mapSimilarity, final R2RSparseGraph mapNeutralLoss) {
+    final SpectralSimilarity cosineSim = createMS2SimModificationAware(a, b,
+        a.row().getAverageMZ(), b.row().getAverageMZ());
+    if (cosineSim != null && cosineSim.cosine() >= minCosineSimilarity) {
+      mapSimilarity.add(a.row(), b.row(), cosineSim.cosine());
+    }
 
     // check neutral loss similarity
     if (checkNeutralLoss) {
@@ -509,13 +593,12 @@ public class SpectralNetworkingTask extends AbstractTask {
   /**
    * Parallel check of all r2r similarities
    *
-   * @param mapSimilarity  map for all MS2 cosine similarity edges
-   * @param mapNeutralLoss map for all neutral loss MS2 edges
+   * @param mapSimilarity  graph for all MS2 cosine similarity edges
+   * @param mapNeutralLoss graph for all neutral loss MS2 edges
    * @param rows           match rows
    */
-  public void checkAllFeatures(R2RMap<RowsRelationship> mapSimilarity,
-      R2RMap<RowsRelationship> mapNeutralLoss, List<FeatureListRow> rows)
-      throws MissingMassListException {
+  public void checkAllFeatures(R2RSparseGraph mapSimilarity, R2RSparseGraph mapNeutralLoss,
+      List<FeatureListRow> rows) throws MissingMassListException {
     // prefilter rows: has MS2 and in case only best MS2 is considered - check minDP
     // and prepare data points
     Map<Feature, FilteredRowData> mapFeatureData = new HashMap<>();
@@ -562,8 +645,8 @@ public class SpectralNetworkingTask extends AbstractTask {
   }
 
   private void checkR2RAllFeaturesMs2Similarity(Map<Feature, FilteredRowData> mapFeatureData,
-      FeatureListRow a, FeatureListRow b, final R2RMap<RowsRelationship> mapSimilarity,
-      final R2RMap<RowsRelationship> mapNeutralLoss) {
+      FeatureListRow a, FeatureListRow b, final R2RSparseGraph mapSimilarity,
+      final R2RSparseGraph mapNeutralLoss) {
 
     R2RSpectralSimilarityList cosineSim = new R2RSpectralSimilarityList(a, b, Type.MS2_COSINE_SIM);
     R2RSpectralSimilarityList neutralLossSim =
@@ -573,19 +656,21 @@ public class SpectralNetworkingTask extends AbstractTask {
     DataPoint[] massDiffB = null;
 
     for (Feature fa : a.getFeatures()) {
-      DataPoint[] dpa = mapFeatureData.get(fa).data();
-      if (dpa != null) {
+      FilteredRowData dataA = mapFeatureData.get(fa);
+      if (dataA != null) {
+        DataPoint[] dpa = dataA.data();
         // create mass diff array
         if (checkNeutralLoss) {
           massDiffA = ScanMZDiffConverter.getAllMZDiff(dpa, mzTolerance, -1, maxDPForDiff);
           Arrays.sort(massDiffA, DataPointSorter.DEFAULT_INTENSITY);
         }
         for (Feature fb : b.getFeatures()) {
-          DataPoint[] dpb = mapFeatureData.get(fb).data();
-          if (dpb != null) {
+          FilteredRowData dataB = mapFeatureData.get(fb);
+          if (dataB != null) {
+            DataPoint[] dpb = dataB.data();
             // align and check spectra
-            SpectralSimilarity spectralSim = createMS2SimModificationAware(mzTolerance, dpa, dpb,
-                minMatch, SIZE_OVERLAP, fa.getMZ(), fb.getMZ());
+            SpectralSimilarity spectralSim = createMS2SimModificationAware(dataA, dataB,
+                fa.getMZ(), fb.getMZ());
             if (spectralSim != null && spectralSim.cosine() >= minCosineSimilarity) {
               cosineSim.addSpectralSim(spectralSim);
             }
@@ -607,13 +692,32 @@ public class SpectralNetworkingTask extends AbstractTask {
     }
 
     if (checkNeutralLoss && neutralLossSim.size() > 0) {
-      mapNeutralLoss.add(a, b, neutralLossSim);
+      mapNeutralLoss.add(a, b, neutralLossSim.getScore());
     }
     if (cosineSim.size() > 0) {
-      mapSimilarity.add(a, b, cosineSim);
+      mapSimilarity.add(a, b, cosineSim.getScore());
     }
   }
 
+  /**
+   * Modified cosine on the pre-sorted arrays of the filtered data. Same result as
+   * {@link #createMS2SimModificationAware(MZTolerance, DataPoint[], DataPoint[], double, Function,
+   * double, double)} without sorting and aligning data points for every pair.
+   *
+   * @return the spectral similarity if number of overlapping signals >= minimum, else null
+   */
+  @Nullable
+  private SpectralSimilarity createMS2SimModificationAware(FilteredRowData a, FilteredRowData b,
+      double precursorMzA, double precursorMzB) {
+    final CosineScoringKernel kernel = CosineScoringKernel.get();
+    // same orientation as alignDataPoints: signals of b are matched to a
+    final double cosine = kernel.score(b.mzs(), b.intensities(), b.mzs().length, a.mzs(),
+        a.intensities(), a.mzs().length, mzTolerance, Weights.SQRT,
+        HandleUnmatchedSignalOptions.KEEP_ALL_AND_MATCH_TO_ZERO, minMatch, precursorMzB,
+        precursorMzA);
+    return createSpectralSimilarity(kernel, cosine);
+  }
+
   /**
    * Checks the minimum requirements for a row to be matched by MS2 similarity (minimum number of
    * data points and MS2 data availability)
@@ -632,7 +736,7 @@ public class SpectralNetworkingTask extends AbstractTask {
     }
     // remove precursor signals
     DataPoint[] dps = signalFilter.applyFilterAndSortByIntensity(ms2, precursorMz, minDP);
-    return dps != null ? new FilteredRowData(row, dps) : null;
+    return dps != null ? FilteredRowData.create(row, dps) : null;
   }
 
 
@@ -664,12 +768,12 @@ public class SpectralNetworkingTask extends AbstractTask {
   }
 
   /**
-   * @param mapSimilarity map to add new MS2 cosine similarity edges to
+   * @param mapSimilarity graph to add new MS2 cosine similarity edges to
    * @param a             row a
    * @param b             row b
    * @param simType       similarity type
    */
-  public void checkR2RMs2Similarity(R2RMap<RowsRelationship> mapSimilarity, FeatureListRow a,
+  public void checkR2RMs2Similarity(R2RSparseGraph mapSimilarity, FeatureListRow a,
       FeatureListRow b, DataPoint[] sortedA, DataPoint[] sortedB, Type simType) {
     // align and check spectra
     SpectralSimilarity spectralSim =
@@ -679,8 +783,7 @@ public class SpectralNetworkingTask extends AbstractTask {
                 a.getAverageMZ(), b.getAverageMZ());
 
     if (spectralSim != null && spectralSim.cosine() >= minCosineSimilarity) {
-      var r2r = new R2RSpectralSimilarity(a, b, simType, spectralSim);
-      mapSimilarity.add(a, b, r2r);
+      mapSimilarity.add(a, b, spectralSim.cosine());
     }
   }
 
@@ -697,7 +800,23 @@ public class SpectralNetworkingTask extends AbstractTask {
   /**
    * the filtered data of the best MS2 scan from row
    */
-  private record FilteredRowData(FeatureListRow row, DataPoint[] data) {
-
+  private record FilteredRowData(FeatureListRow row, DataPoint[] data, double[] mzs,
+                                 double[] intensities) {
+
+    /**
+     * @param data data points sorted by intensity, additionally kept as m/z sorted arrays for the
+     *             {@link CosineScoringKernel}
+     */
+    private static FilteredRowData create(FeatureListRow row, DataPoint[] data) {
+      final DataPoint[] sorted = data.clone();
+      Arrays.sort(sorted, DataPointSorter.DEFAULT_MZ_ASCENDING);
+      final double[] mzs = new double[sorted.length];
+      final double[] intensities = new double[sorted.length];
+      for (int i = 0; i < sorted.length; i++) {
+        mzs[i] = sorted[i].getMZ();
+        intensities[i] = sorted[i].getIntensity();
+      }
+      return new FilteredRowData(row, data, mzs, intensities);
+    }
   }
 }
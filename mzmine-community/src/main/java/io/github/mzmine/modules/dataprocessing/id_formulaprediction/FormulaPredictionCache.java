@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulaprediction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.impl.SimpleIsotopePattern;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.util.FormulaUtils;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import org.jetbrains.annotations.NotNull;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * Shared cache for formula prediction tasks that predict formulas for many rows. Candidate
+ * formulas are enumerated once per mass window and element range. The cache is bounded and shared
+ * between all tasks, so rows with overlapping mass windows (isomers, all ions of one ion identity
+ * network, repeated single row predictions) do not run the formula generator again. Predicted
+ * isotope patterns are cached by {@link IsotopePatternCalculator}.
+ * <p>
+ * Mass windows are aligned to a grid of width w (0.001 * 2^k Da, at least the width of the
+ * requested mass range) and span 2w, so that every requested range is covered by exactly one
+ * window. Candidates are stored compactly as element counts and materialized for each request.
+ * One instance is bound to one element range and may be used by multiple threads. Instances are
+ * cheap; the cached candidates live in a static cache.
+ */
+public final class FormulaPredictionCache {
+
+  /**
+   * Mass ranges wider than this are enumerated directly and not cached
+   */
+  private static final double MAX_CACHED_RANGE_WIDTH = 0.5;
+  private static final double MIN_WINDOW_WIDTH = 0.001;
+  /**
+   * Margin on the generator mass range to not lose formulas on the window borders due to rounding
+   */
+  private static final double GENERATOR_MARGIN = 1E-6;
+  /**
+   * Isotope patterns are predicted and cached down to this relative abundance, independent of the
+   * minimum abundance of each row
+   */
+  private static final double MIN_PATTERN_ABUNDANCE = 1E-5;
+  /**
+   * Total number of cached candidate formulas over all windows
+   */
+  private static final long MAX_CACHED_CANDIDATES = 1_000_000;
+
+  private static final Cache<WindowKey, CandidateWindow> candidateCache = CacheBuilder.newBuilder()
+      .maximumWeight(MAX_CACHED_CANDIDATES)
+      .weigher((WindowKey key, CandidateWindow window) -> window.size() + 1).build();
+
+  private final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+  private final MolecularFormulaRange elements;
+  private final IIsotope[] isotopes;
+  private final double[] isotopeMasses;
+  private final String elementsKey;
+  private final Set<MolecularFormulaGenerator> runningGenerators = ConcurrentHashMap.newKeySet();
+  private volatile boolean canceled = false;
+
+  public FormulaPredictionCache(@NotNull MolecularFormulaRange elements) {
+    this.elements = elements;
+    isotopes = StreamSupport.stream(elements.isotopes().spliterator(), false)
+        .toArray(IIsotope[]::new);
+    isotopeMasses = new double[isotopes.length];
+    for (int i = 0; i < isotopes.length; i++) {
+      final Double exactMass = isotopes[i].getExactMass();
+      isotopeMasses[i] = exactMass != null && exactMass > 0 ? exactMass
+          : FormulaUtils.getElementMass(isotopes[i].getSymbol());
+    }
+    elementsKey = Arrays.stream(isotopes).map(
+            iso -> iso.getSymbol() + iso.getMassNumber() + "[" + elements.getIsotopeCountMin(iso)
+                   + "-" + elements.getIsotopeCountMax(iso) + "]").sorted()
+        .collect(Collectors.joining());
+  }
+
+  /**
+   * All candidate formulas of the element range with a neutral monoisotopic mass within the mass
+   * range. The formulas are new instances for each call and may be modified by the caller.
+   *
+   * @return the candidates sorted by mass or an empty list if this cache was canceled
+   */
+  public List<IMolecularFormula> getCandidates(@NotNull Range<Double> neutralMassRange) {
+    final double lower = neutralMassRange.lowerEndpoint();
+    final double upper = neutralMassRange.upperEndpoint();
+    final double rangeWidth = upper - lower;
+    if (rangeWidth > MAX_CACHED_RANGE_WIDTH) {
+      final CandidateWindow direct = enumerate(lower, upper);
+      return direct == null ? List.of() : materialize(direct, lower, upper);
+    }
+
+    double width = MIN_WINDOW_WIDTH;
+    while (width < rangeWidth) {
+      width *= 2;
+    }
+    final long window = (long) Math.floor(lower / width);
+    final WindowKey key = new WindowKey(elementsKey, width, window);
+    final double windowStart = window * width;
+
+    while (!canceled) {
+      try {
+        final CandidateWindow candidates = candidateCache.get(key, () -> {
+          final CandidateWindow enumerated = enumerate(windowStart, windowStart + 2 * width);
+          if (enumerated == null) {
+            // do not cache incomplete windows
+            throw new CancellationException();
+          }
+          return enumerated;
+        });
+        return materialize(candidates, lower, upper);
+      } catch (UncheckedExecutionException e) {
+        // another task that enumerates the same window may have been canceled - retry
+        if (!(e.getCause() instanceof CancellationException)) {
+          throw e;
+        }
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Cannot enumerate formulas: " + e.getCause(),
+            e.getCause());
+      }
+    }
+    return List.of();
+  }
+
+  /**
+   * @return all formulas in the mass range or null if canceled
+   */
+  private CandidateWindow enumerate(double lower, double upper) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(builder,
+        Math.max(0, lower - GENERATOR_MARGIN), upper + GENERATOR_MARGIN, elements);
+    runningGenerators.add(generator);
+    try {
+      if (canceled) {
+        return null;
+      }
+      final IntArrayList counts = new IntArrayList();
+      final DoubleArrayList masses = new DoubleArrayList();
+      IMolecularFormula formula;
+      while ((formula = generator.getNextFormula()) != null) {
+        double mass = 0;
+        for (int i = 0; i < isotopes.length; i++) {
+          final int count = formula.getIsotopeCount(isotopes[i]);
+          counts.add(count);
+          mass += count * isotopeMasses[i];
+        }
+        masses.add(mass);
+      }
+      if (canceled) {
+        return null;
+      }
+      return CandidateWindow.sorted(isotopes.length, counts.toIntArray(), masses.toDoubleArray());
+    } finally {
+      runningGenerators.remove(generator);
+    }
+  }
+
+  private List<IMolecularFormula> materialize(CandidateWindow window, double lower,
+      double upper) {
+    final double[] masses = window.masses();
+    final int[] counts = window.counts();
+    int index = Arrays.binarySearch(masses, lower);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    // binary search does not necessarily find the first of equal masses
+    while (index > 0 && masses[index - 1] >= lower) {
+      index--;
+    }
+
+    final List<IMolecularFormula> formulas = new ArrayList<>();
+    for (; index < masses.length && masses[index] <= upper; index++) {
+      final IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+      final int offset = index * isotopes.length;
+      for (int i = 0; i < isotopes.length; i++) {
+        if (counts[offset + i] > 0) {
+          formula.addIsotope(isotopes[i], counts[offset + i]);
+        }
+      }
+      formulas.add(formula);
+    }
+    return formulas;
+  }
+
+  /**
+   * Cancels all running formula generators of this instance. Afterward, this instance returns no
+   * candidates.
+   */
+  public void cancel() {
+    canceled = true;
+    runningGenerators.forEach(MolecularFormulaGenerator::cancel);
+  }
+
+  /**
+   * Predicted isotope pattern of an ion formula with all isotopes of at least the relative
+   * abundance. The minimum abundance depends on the detected pattern height of each row, so the
+   * pattern is predicted and cached at {@link #MIN_PATTERN_ABUNDANCE} and trimmed for each row.
+   * Rows requesting a lower abundance get the pattern down to {@link #MIN_PATTERN_ABUNDANCE}.
+   *
+   * @param ionFormula   the ionized formula
+   * @param minAbundance minimum abundance relative to the most abundant isotope
+   */
+  public static @NotNull IsotopePattern getIsotopePattern(@NotNull IMolecularFormula ionFormula,
+      double minAbundance, int charge, @NotNull PolarityType polarity) {
+    final IsotopePattern pattern = IsotopePatternCalculator.calculateIsotopePattern(ionFormula,
+        MIN_PATTERN_ABUNDANCE, charge, polarity);
+    final Double basePeakIntensity = pattern.getBasePeakIntensity();
+    if (basePeakIntensity == null || minAbundance <= MIN_PATTERN_ABUNDANCE) {
+      return pattern;
+    }
+
+    final double minIntensity = minAbundance * basePeakIntensity;
+    final int size = pattern.getNumberOfDataPoints();
+    final DoubleArrayList mzs = new DoubleArrayList(size);
+    final DoubleArrayList intensities = new DoubleArrayList(size);
+    for (int i = 0; i < size; i++) {
+      final double intensity = pattern.getIntensityValue(i);
+      if (intensity >= minIntensity) {
+        mzs.add(pattern.getMzValue(i));
+        intensities.add(intensity);
+      }
+    }
+    if (mzs.size() == size) {
+      return pattern;
+    }
+    return new SimpleIsotopePattern(mzs.toDoubleArray(), intensities.toDoubleArray(),
+        pattern.getCharge(), pattern.getStatus(), pattern.getDescription());
+  }
+
+  private record WindowKey(String elements, double width, long window) {
+
+  }
+
+  /**
+   * Candidates sorted by mass with counts[i * numIsotopes + isotope]
+   */
+  private record CandidateWindow(int numIsotopes, int[] counts, double[] masses) {
+
+    private static CandidateWindow sorted(int numIsotopes, int[] counts, double[] masses) {
+      final Integer[] order = new Integer[masses.length];
+      Arrays.setAll(order, i -> i);
+      Arrays.sort(order, Comparator.comparingDouble(i -> masses[i]));
+
+      final int[] sortedCounts = new int[counts.length];
+      final double[] sortedMasses = new double[masses.length];
+      for (int i = 0; i < order.length; i++) {
+        sortedMasses[i] = masses[order[i]];
+        System.arraycopy(counts, order[i] * numIsotopes, sortedCounts, i * numIsotopes,
+            numIsotopes);
+      }
+      return new CandidateWindow(numIsotopes, sortedCounts, sortedMasses);
+    }
+
+    int size() {
+      return masses.length;
+    }
+  }
+}
@@ -53,15 +53,13 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FormulaUtils;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 import javafx.application.Platform;
 import org.jetbrains.annotations.NotNull;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 public class SingleRowPredictionTask extends AbstractTask {
 
@@ -90,8 +88,10 @@ public class SingleRowPredictionTask extends AbstractTask {
   private Double msmsMinScore;
   private int topNmsmsSignals;
   private MZTolerance msmsMzTolerance;
-  private MolecularFormulaGenerator generator;
+  private final FormulaPredictionCache formulaCache;
   private int foundFormulas = 0;
+  private volatile int totalCandidates = 0;
+  private volatile int checkedCandidates = 0;
 
 
   SingleRowPredictionTask(ParameterSet parameters, FeatureListRow peakListRow,
@@ -108,6 +108,7 @@ public class SingleRowPredictionTask extends AbstractTask {
         .getValue();
     massRange = mzTolerance.getToleranceRange(searchedMass);
     elementCounts = parameters.getParameter(FormulaPredictionParameters.elements).getValue();
+    formulaCache = new FormulaPredictionCache(elementCounts);
 
     checkIsotopes = parameters.getParameter(FormulaPredictionParameters.isotopeFilter).getValue();
     final ParameterSet isoParam = parameters.getParameter(FormulaPredictionParameters.isotopeFilter)
@@ -156,10 +157,10 @@ public class SingleRowPredictionTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    if (generator == null) {
+    if (totalCandidates == 0) {
       return 0;
     }
-    return generator.getFinishedPercentage();
+    return checkedCandidates / (double) totalCandidates;
   }
 
   @Override
@@ -192,13 +193,10 @@ public class SingleRowPredictionTask extends AbstractTask {
 
     try {
 
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+      final List<IMolecularFormula> candidates = formulaCache.getCandidates(massRange);
+      totalCandidates = candidates.size();
 
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
-
-      IMolecularFormula cdkFormula;
-      while ((cdkFormula = generator.getNextFormula()) != null) {
+      for (IMolecularFormula cdkFormula : candidates) {
 
         if (isCanceled()) {
           return;
@@ -206,7 +204,7 @@ public class SingleRowPredictionTask extends AbstractTask {
 
         // Mass is ok, so test other constraints
         checkConstraints(cdkFormula);
-
+        checkedCandidates++;
 
       }
 
@@ -329,9 +327,7 @@ public class SingleRowPredictionTask extends AbstractTask {
 
     // We need to cancel the formula generator, because searching for next
     // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
+    formulaCache.cancel();
   }
 
 }
@@ -39,6 +39,7 @@ import io.github.mzmine.datamodel.identities.iontype.IonNetworkLogic;
 import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortParameters;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortTask;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.FormulaPredictionCache;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.ResultFormula;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicParameters;
@@ -47,7 +48,6 @@ import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions
 import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.formula.createavgformulas.CreateAvgNetworkFormulasTask;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreCalculator;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreParameters;
-import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScore;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreCalculator;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreParameters;
@@ -60,7 +60,6 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -69,11 +68,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 public class FormulaPredictionIonNetworkTask extends AbstractTask {
@@ -97,9 +93,8 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
   private final boolean sortResults;
   private final CreateAvgNetworkFormulasTask netFormulaMerger;
   private final OptionForValues handleHigherMz;
-  private final HashMap<IMolecularFormula, IsotopePattern> predictedPattern = new HashMap<>(1000);
-  private MolecularFormulaGenerator generator;
-  private String message;
+  private final FormulaPredictionCache formulaCache;
+  private volatile String message;
   private int totalRows;
   private FormulaSortTask sorter;
   private Range<Double> rdbeRange;
@@ -117,6 +112,7 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
     this.featureList = featureList;
     mzTolerance = parameters.getValue(FormulaPredictionIonNetworkParameters.mzTolerance);
     elementCounts = parameters.getValue(FormulaPredictionIonNetworkParameters.elements);
+    formulaCache = new FormulaPredictionCache(elementCounts);
     ppmOffset = parameters.getValue(FormulaPredictionIonNetworkParameters.ppmOffset);
 
     handleHigherMz = parameters.getValue(FormulaPredictionIonNetworkParameters.handleHigherMz);
@@ -212,8 +208,8 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
       return;
     }
 
-    // parallel
-    nets.forEach(net -> {
+    // networks are independent, all ions of a network share the candidates of the neutral mass
+    nets.parallelStream().forEach(net -> {
       message = "Formula prediction on network " + net.getID();
       if (!isCanceled()) {
         predictFormulasForNetwork(net);
@@ -269,12 +265,7 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
 
     Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
 
-    IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-    generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-        massRange.upperEndpoint(), elementCounts);
-
-    IMolecularFormula cdkFormula;
-    while ((cdkFormula = generator.getNextFormula()) != null) {
+    for (IMolecularFormula cdkFormula : formulaCache.getCandidates(massRange)) {
       try {
         // ionized formula
         IMolecularFormula cdkFormulaIon = ion.addToFormula(cdkFormula);
@@ -312,12 +303,7 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
 
     Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
 
-    IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-    generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-        massRange.upperEndpoint(), elementCounts);
-
-    IMolecularFormula cdkFormula;
-    while ((cdkFormula = generator.getNextFormula()) != null) {
+    for (IMolecularFormula cdkFormula : formulaCache.getCandidates(massRange)) {
       for (int i = 0; i < net.size(); i++) {
         try {
           final FeatureListRow row = entries.get(i).getKey();
@@ -390,9 +376,8 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
       final double detectedPatternHeight = detectedPattern.getBasePeakIntensity();
       final double minPredictedAbundance = isotopeNoiseLevel / detectedPatternHeight;
 
-      predictedIsotopePattern = predictedPattern.computeIfAbsent(cdkFormulaIon,
-          key -> IsotopePatternCalculator.calculateIsotopePattern(cdkFormulaIon,
-              minPredictedAbundance, charge, ionType.getPolarity()));
+      predictedIsotopePattern = FormulaPredictionCache.getIsotopePattern(cdkFormulaIon,
+          minPredictedAbundance, charge, ionType.getPolarity());
 
       isotopeScore = IsotopePatternScoreCalculator.getSimilarityScore(detectedPattern,
           predictedIsotopePattern, isotopeMZTolerance, isotopeNoiseLevel);
@@ -451,11 +436,9 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
   public void cancel() {
     super.cancel();
 
-    // We need to cancel the formula generator, because searching for next
+    // We need to cancel the formula generators, because searching for next
     // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
+    formulaCache.cancel();
 
   }
 }
@@ -260,6 +260,36 @@ public class DatabaseIsotopeRefinerScanBased {
     }
   }
 
+  /**
+   * Predicts the isotope patterns that are matched to this annotation in
+   * {@link #refineAnnotationsByIsotopesDifferentResolutions(List, MZTolerance, double, double)}.
+   * Patterns are cached by the {@link IsotopePatternCalculator}, this is used to predict them
+   * before the refinement.
+   *
+   * @param annotation   annotation with formula and ion
+   * @param minIntensity minimum isotope intensity for prediction
+   * @return the number of predicted patterns, 0 if the annotation has no formula or ion
+   */
+  public static int predictIsotopePatterns(final CompoundDBAnnotation annotation,
+      final double minIntensity) {
+    var adductType = annotation.getAdductType();
+    if (annotation.getFormula() == null || adductType == null) {
+      return 0;
+    }
+    IMolecularFormula ionFormula = FormulaUtils.getIonizedFormula(annotation);
+    if (ionFormula == null) {
+      return 0;
+    }
+    return predictIsotopePatternsForResolutions(ionFormula, adductType, minIntensity).size();
+  }
+
+  private static Map<Double, IsotopePattern> predictIsotopePatternsForResolutions(
+      final IMolecularFormula ionFormula, final IonType adductType, final double minIntensity) {
+    return IsotopePatternCalculator.calculateIsotopePatternForResolutions(ionFormula, minIntensity,
+        MZTolerance.getDefaultResolutions(), adductType.getCharge(), adductType.getPolarity(),
+        false);
+  }
+
   private static double calculateIsotopeScoreDifferentResolutions(final CompoundDBAnnotation annotation,
       final DataPoint[] measuredIsotopes, final double minIntensity,
       final Map<IMolecularFormula, Map <Double,IsotopePattern>> ionIsotopePatternMap) {
@@ -272,8 +302,8 @@ public class DatabaseIsotopeRefinerScanBased {
     assert ionFormula != null;
     // cache the ionformula to IsotopePattern to reuse isotope patterns for the same formula
     float finalScore = 0;
-    ionIsotopePatternMap.computeIfAbsent(ionFormula, key -> IsotopePatternCalculator.calculateIsotopePatternForResolutions(ionFormula, minIntensity,
-        MZTolerance.getDefaultResolutions(), adductType.getCharge(), adductType.getPolarity(), false));
+    ionIsotopePatternMap.computeIfAbsent(ionFormula,
+        key -> predictIsotopePatternsForResolutions(ionFormula, adductType, minIntensity));
     for (MZTolerance mzTol : MZTolerance.getDefaultResolutions()) {
       try {
         IsotopePattern predictedIsotopePattern = ionIsotopePatternMap.get(ionFormula).get(mzTol.getMzTolerance());
@@ -28,6 +28,7 @@ package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.parameters.parametertypes.PercentParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZToleranceParameter;
@@ -48,7 +49,14 @@ public class IsotopePatternMatcherParameters extends SimpleParameterSet {
       "Minimum isotope pattern score that the detected isotope pattern must have in order to apply to the database hits",
       MZmineCore.getConfiguration().getScoreFormat(), 0.0);
 
+  public static final BooleanParameter preWarmCache = new BooleanParameter(
+      "Predict patterns at batch start", """
+      Predicts the isotope patterns of the database entries and ion types in a background task \
+      when a batch starts, so that they are ready when this step runs. Predicts at most as many \
+      patterns as the isotope pattern cache holds. Speeds up the isotope matching of large feature \
+      lists but predicts patterns for entries without matches, too.""", false);
+
   public IsotopePatternMatcherParameters() {
-    super(new Parameter[]{isotopeMzTolerance, minIntensity, minIsotopeScore});
+    super(new Parameter[]{isotopeMzTolerance, minIntensity, minIsotopeScore, preWarmCache});
   }
 }
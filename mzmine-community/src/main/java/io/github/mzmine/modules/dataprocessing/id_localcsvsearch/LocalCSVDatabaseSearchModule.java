@@ -35,6 +35,7 @@ import io.github.mzmine.util.ExitCode;
 import java.time.Instant;
 import java.util.Collection;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class LocalCSVDatabaseSearchModule implements MZmineProcessingModule {
 
@@ -69,6 +70,20 @@ public class LocalCSVDatabaseSearchModule implements MZmineProcessingModule {
 
   }
 
+  /**
+   * Creates a task that predicts the isotope patterns of all database entries if selected in the
+   * isotope pattern matcher. Started at the beginning of a batch so that the patterns are cached
+   * when this step runs.
+   *
+   * @return the task or null if the prediction is not selected
+   */
+  public static @Nullable Task createIsotopePatternPredictionTask(
+      @NotNull ParameterSet parameters) {
+    // clone to not change the import types of the batch step
+    return LocalCSVDatabaseSearchTask.createIsotopePatternPredictionTask(
+        parameters.cloneParameterSet(), Instant.now());
+  }
+
   @Override
   public @NotNull MZmineModuleCategory getModuleCategory() {
     return MZmineModuleCategory.ANNOTATION;
@@ -55,6 +55,7 @@ import io.github.mzmine.javafx.concurrent.threading.FxThread;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking.IonNetworkLibrary;
 import io.github.mzmine.modules.dataprocessing.id_onlinecompounddb.OnlineDatabases;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.ImportType;
 import io.github.mzmine.parameters.parametertypes.ionidentity.IonLibraryParameterSet;
@@ -132,6 +133,10 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   private final Boolean filterSamples;
   private final String sampleHeader;
   private final List<RawDataFile> allRawDataFiles;
+  /**
+   * Only predict the isotope patterns of the database, no annotation
+   */
+  private final boolean preWarmOnly;
   private IonNetworkLibrary ionNetworkLibrary;
 
   private List<String[]> databaseValues;
@@ -140,10 +145,16 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   LocalCSVDatabaseSearchTask(FeatureList[] featureLists, ParameterSet parameters,
       @NotNull Instant moduleCallDate) {
+    this(featureLists, parameters, moduleCallDate, false);
+  }
+
+  private LocalCSVDatabaseSearchTask(FeatureList[] featureLists, ParameterSet parameters,
+      @NotNull Instant moduleCallDate, boolean preWarmOnly) {
     super(null, moduleCallDate); // no new data stored -> null
 
     this.featureLists = featureLists;
     this.parameters = parameters;
+    this.preWarmOnly = preWarmOnly;
 
     dataBaseFile = parameters.getParameter(LocalCSVDatabaseSearchParameters.dataBaseFile)
         .getValue();
@@ -187,6 +198,25 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
     }
   }
 
+  /**
+   * A task that reads the database and predicts the isotope patterns of all entries and ion types
+   * for the isotope pattern matcher. The patterns are cached by the
+   * {@link IsotopePatternCalculator} for the actual search. Does not annotate any rows.
+   *
+   * @return the task or null if the isotope pattern matcher or its prediction at batch start is
+   * not selected
+   */
+  @Nullable
+  static LocalCSVDatabaseSearchTask createIsotopePatternPredictionTask(
+      @NotNull ParameterSet parameters, @NotNull Instant moduleCallDate) {
+    if (!parameters.getValue(LocalCSVDatabaseSearchParameters.isotopePatternMatcher)
+        || !parameters.getParameter(LocalCSVDatabaseSearchParameters.isotopePatternMatcher)
+        .getEmbeddedParameters().getValue(IsotopePatternMatcherParameters.preWarmCache)) {
+      return null;
+    }
+    return new LocalCSVDatabaseSearchTask(new FeatureList[0], parameters, moduleCallDate, true);
+  }
+
   @Nullable
   private static Float replaceWildcardLowerEq0WithNull(final DataType<Float> type,
       final Map<DataType<?>, String> map) {
@@ -204,12 +234,19 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   @Override
   public String getTaskDescription() {
+    if (preWarmOnly) {
+      return "Predicting isotope patterns of database " + dataBaseFile;
+    }
     return "Local CSV identification using database " + dataBaseFile;
   }
 
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
+    if (preWarmOnly) {
+      predictIsotopePatterns();
+      return;
+    }
 
     try {
       // read database contents in memory
@@ -314,6 +351,64 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   }
 
+  /**
+   * Predicts the isotope patterns of all database entries and ion types until the isotope pattern
+   * cache is full. Sets the final task status.
+   */
+  private void predictIsotopePatterns() {
+    try {
+      databaseValues = CSVParsingUtils.readData(dataBaseFile, fieldSeparator);
+      ionNetworkLibrary =
+          ionLibraryParameterSet != null ? new IonNetworkLibrary(ionLibraryParameterSet,
+              mzTolerance) : null;
+
+      final StringProperty error = new SimpleStringProperty();
+      final List<ImportType> lineIds = CSVParsingUtils.findLineIds(importTypes,
+          databaseValues.getFirst(), error);
+      if (lineIds == null) {
+        setErrorMessage(error.get());
+        setStatus(TaskStatus.ERROR);
+        return;
+      }
+
+      // more patterns would only evict the first ones from the cache
+      final long maxPatterns = IsotopePatternCalculator.getMaxCachedPatterns();
+      long patterns = 0;
+      for (String[] currentLine : databaseValues) {
+        if (finishedLines == 0) {
+          finishedLines++;
+          continue; // skip header
+        }
+        if (isCanceled()) {
+          logger.info("Canceled the isotope pattern prediction of database %s after %d patterns"
+              .formatted(dataBaseFile, patterns));
+          return;
+        }
+        if (patterns >= maxPatterns) {
+          break;
+        }
+        try {
+          for (CompoundDBAnnotation annotation : getCompoundDBAnnotations(currentLine, lineIds,
+              List.of())) {
+            patterns += DatabaseIsotopeRefinerScanBased.predictIsotopePatterns(annotation,
+                minRelativeIsotopeIntensity);
+          }
+        } catch (Exception e) {
+          logger.log(Level.FINE,
+              "Cannot predict isotope patterns for csv line " + finishedLines, e);
+        }
+        finishedLines++;
+      }
+      logger.info("Predicted %d isotope patterns of database %s".formatted(patterns, dataBaseFile));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot predict isotope patterns of database " + dataBaseFile, e);
+      setErrorMessage(e.getMessage());
+      setStatus(TaskStatus.ERROR);
+      return;
+    }
+    setStatus(TaskStatus.FINISHED);
+  }
+
   private void refineAnnotationsByIsotopes(FeatureList flist) {
     DatabaseIsotopeRefinerScanBased.refineAnnotationsByIsotopesDifferentResolutions(flist.getRows(),
         isotopeMzTolerance, minRelativeIsotopeIntensity, minIsotopeScore);
@@ -288,29 +288,27 @@ public class RowsSpectralMatchTask extends AbstractTask {
 
   @Override
   public void run() {
-
-    // combine libraries
-    List<SpectralLibraryEntry> entries = new ArrayList<>();
-    for (var lib : libraries) {
-      entries.addAll(lib.getEntries());
-    }
+    final int totalEntries = libraries.stream().mapToInt(SpectralLibrary::size).sum();
+    // only combine libraries for a full scan if the precursor filter is disabled
+    // otherwise candidates are retrieved from the precursor index of each library
+    final List<SpectralLibraryEntry> entries = usePrecursorIndex() ? null : combineLibraries();
 
     // run on spectra
     if (scan != null) {
       logger.info(
-          () -> String.format("Comparing %d library spectra to scan: %s", entries.size(), scan));
+          () -> String.format("Comparing %d library spectra to scan: %s", totalEntries, scan));
 
       matchScan(entries, scan);
 
       logger.info(
           () -> String.format("library matches=%d (Errors:%d); library entries=%d; for scan: %s",
-              getCount(), getErrorCount(), entries.size(), scan));
+              getCount(), getErrorCount(), totalEntries, scan));
     }
 
     // run in parallel
     if (rows != null) {
       logger.info(() -> String.format("Comparing %d library spectra to %d feature list rows",
-          entries.size(), totalRows));
+          totalEntries, totalRows));
       // cannot use parallel.forEach with side effects - this thread will continue without waiting for
       // stream to finish
       var totalMatches = rows.stream().filter(FeatureListRow::hasMs2Fragmentation).parallel()
@@ -324,17 +322,62 @@ public class RowsSpectralMatchTask extends AbstractTask {
           }).sum();
       logger.info("Total spectral library matches " + totalMatches);
       logger.info(() -> String.format("library matches=%d (Errors:%d); rows=%d; library entries=%d",
-          getCount(), getErrorCount(), totalRows, entries.size()));
+          getCount(), getErrorCount(), totalRows, totalEntries));
+    }
+  }
+
+  /**
+   * @return true if the precursor m/z filter is active and candidates can be retrieved from the
+   * {@link SpectralLibrary#getPrecursorIndex()}
+   */
+  private boolean usePrecursorIndex() {
+    return mzTolerancePrecursor != null && !msLevelFilter.isMs1Only();
+  }
+
+  @NotNull
+  private List<SpectralLibraryEntry> combineLibraries() {
+    List<SpectralLibraryEntry> entries = new ArrayList<>();
+    for (var lib : libraries) {
+      entries.addAll(lib.getEntries());
     }
+    return entries;
+  }
+
+  /**
+   * Candidates from the precursor index of all libraries. The final precursor, CCS, and polarity
+   * checks are still applied during matching.
+   *
+   * @param entries     all entries for a full scan or null to use the precursor index
+   * @param precursorMz query precursor m/z
+   * @param polarity    query polarity or null if undefined or mixed
+   * @param ccs         query CCS, only used if the CCS filter is active
+   * @return the entries or candidates from the precursor index
+   */
+  @NotNull
+  private List<SpectralLibraryEntry> getCandidates(@Nullable List<SpectralLibraryEntry> entries,
+      double precursorMz, @Nullable PolarityType polarity, @Nullable Float ccs) {
+    if (entries != null) {
+      return entries;
+    }
+    if (libraries.size() == 1) {
+      return libraries.getFirst().getPrecursorIndex()
+          .getCandidates(precursorMz, mzTolerancePrecursor, polarity, ccs, ccsTolerance);
+    }
+    List<SpectralLibraryEntry> candidates = new ArrayList<>();
+    for (var lib : libraries) {
+      candidates.addAll(lib.getPrecursorIndex()
+          .getCandidates(precursorMz, mzTolerancePrecursor, polarity, ccs, ccsTolerance));
+    }
+    return candidates;
   }
 
   /**
    * Match row against all entries, add matches, sort them by score
    *
-   * @param entries combined library entries
+   * @param entries combined library entries or null to use the precursor index of each library
    * @param scan    target scan
    */
-  public void matchScan(List<SpectralLibraryEntry> entries, Scan scan) {
+  public void matchScan(@Nullable List<SpectralLibraryEntry> entries, Scan scan) {
     try {
       // get mass list and perform deisotoping if active
       DataPoint[] masses = getDataPoints(scan, scan.getPrecursorMz());
@@ -342,7 +385,10 @@ public class RowsSpectralMatchTask extends AbstractTask {
       // get a ccs for the precursor of this scan
       final Float precursorCCS = getPrecursorCCSFromMsMs(scan);
 
-      for (var entry : entries) {
+      // single scans are matched without polarity check
+      final List<SpectralLibraryEntry> candidates = getCandidates(entries, scanPrecursorMZ, null,
+          precursorCCS);
+      for (var entry : candidates) {
         float rt = scan.getRetentionTime();
         final SpectralSimilarity sim = matchSpectrum(rt, scanPrecursorMZ,
             precursorCCS, masses, entry);
@@ -397,10 +443,11 @@ public class RowsSpectralMatchTask extends AbstractTask {
   /**
    * Match row against all entries, add matches, sort them by score
    *
-   * @param entries combined library entries
+   * @param entries combined library entries or null to use the precursor index of each library
    * @param row     target row
    */
-  public int matchRowToLibraries(List<SpectralLibraryEntry> entries, FeatureListRow row) {
+  public int matchRowToLibraries(@Nullable List<SpectralLibraryEntry> entries,
+      FeatureListRow row) {
     try {
       // All MS2 or only best MS2 scan
       // best MS1 scan
@@ -418,9 +465,11 @@ public class RowsSpectralMatchTask extends AbstractTask {
       }
 
       final Float rowCCS = row.getAverageCCS();
+      final List<SpectralLibraryEntry> candidates = getCandidates(entries, row.getAverageMZ(),
+          getCommonPolarity(scans), rowCCS);
       List<SpectralDBAnnotation> ids = null;
       // match against all library entries
-      for (SpectralLibraryEntry ident : entries) {
+      for (SpectralLibraryEntry ident : candidates) {
 
         final String entryPolarity = ident.getOrElse(DBEntryField.POLARITY, null);
 
@@ -471,6 +520,23 @@ public class RowsSpectralMatchTask extends AbstractTask {
     return 0;
   }
 
+  /**
+   * @return the polarity shared by all scans or null if mixed or undefined
+   */
+  @Nullable
+  private static PolarityType getCommonPolarity(List<Scan> scans) {
+    PolarityType polarity = null;
+    for (final Scan scan : scans) {
+      final PolarityType scanPolarity = scan.getPolarity();
+      if (scanPolarity == null || !scanPolarity.isDefined() || (polarity != null
+                                                                 && polarity != scanPolarity)) {
+        return null;
+      }
+      polarity = scanPolarity;
+    }
+    return polarity;
+  }
+
   /**
    * Remove 13C isotopes from masslist
    */
@@ -51,6 +51,8 @@ public class CSVExportModularParameters extends SimpleParameterSet {
   public static final ComboParameter<FeatureListRowsFilter> filter = new ComboParameter<>(
       "Filter rows", "Limit the exported rows to those with MS/MS data (or annotated rows)",
       FeatureListRowsFilter.values(), FeatureListRowsFilter.ALL);
+  public static final BooleanParameter compress = new BooleanParameter("Compress (gzip)",
+      "Writes a gzip compressed file and appends .gz to the file name", false);
   private static final List<ExtensionFilter> extensions = List.of( //
       new ExtensionFilter("comma-separated values", "*.csv"), //
       new ExtensionFilter("All files", "*.*") //
@@ -65,7 +67,7 @@ public class CSVExportModularParameters extends SimpleParameterSet {
 
   public CSVExportModularParameters() {
     super(new Parameter[]{featureLists, filename, fieldSeparator, idSeparator, omitEmptyColumns,
-        filter});
+        filter, compress});
   }
 
   @Override
@@ -37,6 +37,8 @@ import io.github.mzmine.datamodel.features.types.LinkedGraphicalType;
 import io.github.mzmine.datamodel.features.types.modifiers.NoTextColumn;
 import io.github.mzmine.datamodel.features.types.modifiers.NullColumnType;
 import io.github.mzmine.datamodel.features.types.modifiers.SubColumnsFactory;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.NumberRangeType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.NumberType;
 import io.github.mzmine.modules.io.export_features_gnps.fbmn.FeatureListRowsFilter;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -45,18 +47,18 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.io.CSVUtils;
-import java.io.BufferedWriter;
+import io.github.mzmine.util.io.ParallelBlockWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.MessageFormat;
+import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -69,6 +71,8 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
   public static final String DATAFILE_PREFIX = "datafile";
   private static final Logger logger = Logger.getLogger(CSVExportModularTask.class.getName());
+  // the data types format values with the shared number formats, which are not thread safe
+  private static final Object sharedFormatsLock = new Object();
   private final ModularFeatureList[] featureLists;
   // parameter values
   private final File fileName;
@@ -80,7 +84,8 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   private final ParameterSet parameters;
   // track number of exported items
   private final AtomicInteger exportedRows = new AtomicInteger(0);
-  private int processedTypes = 0, totalTypes = 0;
+  private final boolean compress;
+  private int totalRows = 0;
 
   public CSVExportModularTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -91,6 +96,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
     idSeparator = parameters.getParameter(CSVExportModularParameters.idSeparator).getValue();
     this.rowFilter = parameters.getParameter(CSVExportModularParameters.filter).getValue();
     removeEmptyCols = parameters.getValue(CSVExportModularParameters.omitEmptyColumns);
+    compress = parameters.getValue(CSVExportModularParameters.compress);
     this.parameters = parameters;
   }
 
@@ -115,6 +121,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
     this.idSeparator = idSeparator;
     this.rowFilter = rowFilter;
     this.removeEmptyCols = removeEmptyCols;
+    this.compress = false;
     parameters = null;
   }
 
@@ -125,10 +132,10 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
   @Override
   public double getFinishedPercentage() {
-    if (totalTypes == 0) {
+    if (totalRows == 0) {
       return 0;
     }
-    return (double) processedTypes / (double) totalTypes;
+    return (double) exportedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -156,7 +163,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
     // Total number of rows
     for (ModularFeatureList featureList : featureLists) {
-      totalTypes += featureList.getNumberOfRows();
+      totalRows += featureList.getNumberOfRows();
     }
 
     // Process feature lists
@@ -181,11 +188,12 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
         curFile = new File(newFilename);
       }
       curFile = FileAndPathUtil.getRealFilePath(curFile, "csv");
+      if (compress) {
+        curFile = new File(curFile.getPath() + "." + ParallelBlockWriter.GZIP_EXTENSION);
+      }
 
       // Open file
-
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (ParallelBlockWriter writer = ParallelBlockWriter.open(curFile, compress)) {
         exportFeatureList(featureList, writer);
 
       } catch (IOException e) {
@@ -218,7 +226,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   }
 
   @SuppressWarnings("rawtypes")
-  private void exportFeatureList(ModularFeatureList flist, BufferedWriter writer)
+  private void exportFeatureList(ModularFeatureList flist, ParallelBlockWriter writer)
       throws IOException {
     final List<FeatureListRow> rows = flist.getRows().stream().filter(rowFilter::accept)
         .sorted(FeatureListRowSorter.DEFAULT_ID).toList();
@@ -239,66 +247,70 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
           getJoinedHeader(featureTypes, DATAFILE_PREFIX + headerSeparator + raw.getName(), rows,
               true));
     }
+    header.append(System.lineSeparator());
+    writer.write(header);
 
-    writer.append(header.toString());
-    writer.newLine();
-
-    // write data
-    totalTypes = rowTypes.size() + featureTypes.size() * rawDataFiles.size();
-
-    List<String[]> formattedCols = new ArrayList<>(totalTypes);
-
-    // list string values for each type and sub type
+    // formatter for each type and sub type
+    final List<Supplier<ColumnFormatter>> columns = new ArrayList<>();
     for (DataType rowType : rowTypes) {
-      if (isCanceled()) {
-        return;
-      }
-
-      addFormattedColumnsRecursively(formattedCols, rows, null, rowType);
-
-      processedTypes++;
+      addColumnFormatters(columns, rows, null, rowType);
     }
-
     // add feature types for each raw data file
     for (RawDataFile raw : rawDataFiles) {
       for (DataType featureType : featureTypes) {
-        if (isCanceled()) {
-          return;
-        }
-
-        addFormattedColumnsRecursively(formattedCols, rows, raw, featureType);
-        processedTypes++;
+        addColumnFormatters(columns, rows, raw, featureType);
       }
     }
 
-    for (int i = 0; i < rows.size(); i++) {
-      // Cancel?
-      if (isCanceled()) {
-        return;
-      }
-
-      final int row = i;
-      writer.append(
-          formattedCols.stream().map(col -> col[row]).collect(Collectors.joining(fieldSeparator)));
-      writer.newLine();
-
-      exportedRows.incrementAndGet();
-      processedTypes++;
-    }
+    // rows are formatted in parallel, each thread creates its own column formatters
+    writer.writeAll(rows, () -> {
+      final ColumnFormatter[] formatters = columns.stream().map(Supplier::get)
+          .toArray(ColumnFormatter[]::new);
+      return (row, line) -> {
+        for (int c = 0; c < formatters.length; c++) {
+          if (c > 0) {
+            line.append(fieldSeparator);
+          }
+          line.append(formatters[c].format(row));
+        }
+        line.append(System.lineSeparator());
+        exportedRows.incrementAndGet();
+      };
+    }, this);
   }
 
   /**
-   * Adds columns of formatted values for each column / sub column. missing values are replaced by
-   * empty strings or default values
+   * Adds a formatter factory for each column / sub column. missing values are replaced by empty
+   * strings or default values. Number columns are formatted with a copy of the export format of the
+   * type for each formatter. All other types may use the shared number formats and are formatted
+   * by one thread at a time.
    *
-   * @param formattedCols the target list
-   * @param rows          the data
-   * @param raw           defines the feature
-   * @param type          the feature data type to be added (and its sub columns)
+   * @param columns the target list
+   * @param rows    the data to check for empty columns
+   * @param raw     defines the feature
+   * @param type    the feature data type to be added (and its sub columns)
    */
-  private void addFormattedColumnsRecursively(List<String[]> formattedCols,
+  private void addColumnFormatters(List<Supplier<ColumnFormatter>> columns,
       List<FeatureListRow> rows, @Nullable RawDataFile raw, DataType type) {
-    if (type instanceof SubColumnsFactory subFactory) {
+    if (type instanceof NumberRangeType<?> rangeType) {
+      for (int s = 0; s < rangeType.getNumberOfSubColumns(); s++) {
+        if (!filterType(rangeType.getType(s)) || (removeEmptyCols && !typeContainData(type, rows,
+            raw != null, s))) {
+          continue;
+        }
+        final int subIndex = s;
+        columns.add(() -> {
+          final NumberFormat format = ParallelBlockWriter.copyFormat(rangeType.getExportFormat());
+          return row -> getFormattedRangeValue(getData(row, raw), rangeType, subIndex, format);
+        });
+      }
+    } else if (type instanceof NumberType<?> numberType
+               && !(type instanceof SubColumnsFactory)) {
+      columns.add(() -> {
+        final NumberFormat format = ParallelBlockWriter.copyFormat(numberType.getExportFormat());
+        return row -> getFormattedValue(getData(row, raw), numberType, format);
+      });
+    } else if (type instanceof SubColumnsFactory subFactory) {
       int subCols = subFactory.getNumberOfSubColumns();
       for (int s = 0; s < subCols; s++) {
         // filter sub column - maybe excluded, no text, empty
@@ -307,19 +319,35 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
             s))) {
           continue;
         }
-        // collect column data
         final int subIndex = s;
-        String[] column = getDataStream(rows, raw, false).map(
-            data -> getFormattedValue(data, subFactory, subIndex)).toArray(String[]::new);
-        formattedCols.add(column);
+        columns.add(() -> row -> {
+          synchronized (sharedFormatsLock) {
+            return getFormattedValue(getData(row, raw), subFactory, subIndex);
+          }
+        });
       }
     } else {
-      String[] column = getDataStream(rows, raw, false).map(data -> getFormattedValue(data, type))
-          .toArray(String[]::new);
-      formattedCols.add(column);
+      columns.add(() -> row -> {
+        synchronized (sharedFormatsLock) {
+          return getFormattedValue(getData(row, raw), type);
+        }
+      });
     }
   }
 
+  /**
+   * @return the row or the feature of raw
+   */
+  private static @Nullable ModularDataModel getData(FeatureListRow row, @Nullable RawDataFile raw) {
+    return raw == null ? row : (ModularFeature) row.getFeature(raw);
+  }
+
+  @FunctionalInterface
+  private interface ColumnFormatter {
+
+    String format(FeatureListRow row);
+  }
+
   /**
    * Data stream for rows or all features
    *
@@ -349,6 +377,36 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
     return csvEscape(subColFactory.getFormattedSubColExportValue(col, value));
   }
 
+  /**
+   * Same as {@link NumberType#getFormattedExportString(Object)} with an own format
+   */
+  private String getFormattedValue(@Nullable ModularDataModel data, NumberType<?> type,
+      NumberFormat format) {
+    Object value = data == null ? null : data.get(type);
+    if (value == null) {
+      value = type.getDefaultValue();
+    }
+    try {
+      return value == null ? "" : csvEscape(format.format(value));
+    } catch (Exception e) {
+      logger.log(Level.FINEST,
+          "Cannot format value of type " + type.getClass().getName() + " value: " + value, e);
+      return "";
+    }
+  }
+
+  /**
+   * Same as {@link NumberRangeType#getFormattedSubColExportValue(int, Object)} with an own format
+   */
+  private String getFormattedRangeValue(@Nullable ModularDataModel data,
+      NumberRangeType<?> type, int subIndex, NumberFormat format) {
+    final Object value = data == null ? null : data.get(type);
+    if (!(type.getSubColValue(subIndex, value) instanceof Number endpoint)) {
+      return "";
+    }
+    return csvEscape(format.format(endpoint));
+  }
+
   private String getFormattedValue(@Nullable ModularDataModel data, DataType type) {
     Object value = data == null ? null : data.get(type);
     if (value == null) {
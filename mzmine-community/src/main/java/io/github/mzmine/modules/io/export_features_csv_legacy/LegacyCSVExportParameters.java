@@ -72,9 +72,12 @@ public class LegacyCSVExportParameters extends SimpleParameterSet {
       "Filter rows", "Limit the exported rows to those with MS/MS data (or annotated rows)",
       FeatureListRowsFilter.values(), FeatureListRowsFilter.ALL);
 
+  public static final BooleanParameter compress = new BooleanParameter("Compress (gzip)",
+      "Writes a gzip compressed file and appends .gz to the file name", false);
+
   public LegacyCSVExportParameters() {
     super(featureLists, filename, fieldSeparator, exportCommonItems, exportDataFileItems,
-        exportAllFeatureInfo, idSeparator, filter);
+        exportAllFeatureInfo, idSeparator, filter, compress);
   }
 
 }
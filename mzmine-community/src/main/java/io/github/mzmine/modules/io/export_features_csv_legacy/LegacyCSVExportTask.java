@@ -43,11 +43,9 @@ import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.RangeUtils;
-import java.io.BufferedWriter;
+import io.github.mzmine.util.io.ParallelBlockWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -81,7 +79,9 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
 
   private final NumberFormats formats = MZmineCore.getConfiguration().getExportFormats();
   private LegacyExportRowCommonElement[] commonElements;
-  private int processedRows = 0, totalRows = 0;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private final boolean compress;
+  private int totalRows = 0;
 
   public LegacyCSVExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -97,6 +97,7 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
         .getValue();
     idSeparator = parameters.getParameter(LegacyCSVExportParameters.idSeparator).getValue();
     this.filter = parameters.getParameter(LegacyCSVExportParameters.filter).getValue();
+    compress = parameters.getValue(LegacyCSVExportParameters.compress);
     refineCommonElements();
   }
 
@@ -123,6 +124,7 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
     this.exportAllFeatureInfo = exportAllFeatureInfo;
     this.idSeparator = idSeparator;
     this.filter = filter;
+    this.compress = false;
   }
 
   @Override
@@ -154,7 +156,7 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
     if (totalRows == 0) {
       return 0;
     }
-    return (double) processedRows / (double) totalRows;
+    return (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -194,11 +196,12 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
             .replaceAll(Pattern.quote(plNamePattern), cleanPlName);
         curFile = new File(newFilename);
       }
+      if (compress) {
+        curFile = new File(curFile.getPath() + "." + ParallelBlockWriter.GZIP_EXTENSION);
+      }
 
       // Open file
-      // Open file
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (ParallelBlockWriter writer = ParallelBlockWriter.open(curFile, compress)) {
 
         exportFeatureList(featureList, writer);
 
@@ -224,7 +227,7 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
 
   }
 
-  private void exportFeatureList(FeatureList featureList, BufferedWriter writer)
+  private void exportFeatureList(FeatureList featureList, ParallelBlockWriter writer)
       throws IOException {
     final NumberFormat mzForm = formats.mzFormat();
     RawDataFile[] rawDataFiles = featureList.getRawDataFiles().toArray(RawDataFile[]::new);
@@ -297,55 +300,48 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
     writer.write(line.toString());
 
     // Write data rows
-    for (FeatureListRow featureListRow : rows) {
-
-      if (!filter.accept(featureListRow)) {
-        processedRows++;
-        continue;
-      }
-
-      // Cancel?
-      if (isCanceled()) {
-        return;
-      }
-
-      // Reset the buffer
-      line.setLength(0);
-
-      try {
-
-        // Common elements
-        addCommonElementsToLine(mzForm, line, commonElements.length, featureListRow);
-
-        // feature Information
-        if (exportAllFeatureInfo) {
-          if (featureListRow.getFeatureInformation() != null) {
-            Map<String, String> allPropertiesMap = featureListRow.getFeatureInformation()
-                .getAllProperties();
-
-            for (String key : featureInformationFields) {
-              String value = allPropertiesMap.get(key);
-              if (value == null) {
-                value = "";
+    final List<FeatureListRow> exportRows = rows.stream().filter(filter::accept).toList();
+    processedRows.addAndGet(numRows - exportRows.size());
+
+    // rows are formatted in parallel and NumberFormat is not thread safe
+    writer.writeAll(exportRows, () -> {
+      final NumberFormat threadMzForm = ParallelBlockWriter.copyFormat(mzForm);
+      return (featureListRow, rowLine) -> {
+        try {
+
+          // Common elements
+          addCommonElementsToLine(threadMzForm, rowLine, commonElements.length, featureListRow);
+
+          // feature Information
+          if (exportAllFeatureInfo) {
+            if (featureListRow.getFeatureInformation() != null) {
+              Map<String, String> allPropertiesMap = featureListRow.getFeatureInformation()
+                  .getAllProperties();
+
+              for (String key : featureInformationFields) {
+                String value = allPropertiesMap.get(key);
+                if (value == null) {
+                  value = "";
+                }
+                rowLine.append(value).append(fieldSeparator);
               }
-              line.append(value).append(fieldSeparator);
             }
           }
-        }
 
-        // Data file elements
-        addDataFileElementsToLine(rawDataFiles, line, dataFileElements.length, featureListRow);
-        line.append("\n");
+          // Data file elements
+          addDataFileElementsToLine(rawDataFiles, rowLine, dataFileElements.length,
+              featureListRow);
+          rowLine.append("\n");
 
-      } catch (Exception ex) {
-        logger.log(Level.WARNING, "Error during line export in legacy CSV: " + ex.getMessage(), ex);
-      }
-      // write data row to file
-      writer.write(line.toString());
+        } catch (Exception ex) {
+          logger.log(Level.WARNING, "Error during line export in legacy CSV: " + ex.getMessage(),
+              ex);
+        }
 
-      exportedRows.incrementAndGet();
-      processedRows++;
-    }
+        exportedRows.incrementAndGet();
+        processedRows.incrementAndGet();
+      };
+    }, this);
 
     // check that nothing has changed during processing
     checkConcurrentModification(featureList, rows, numRows, numFeatures, numMS2, numFiltered);
@@ -359,8 +355,12 @@ public class LegacyCSVExportTask extends AbstractTask implements ProcessedItemsC
         if (feature != null) {
           switch (dataFileElements[i]) {
             case FEATURE_STATUS -> line.append(feature.getFeatureStatus()).append(fieldSeparator);
-            case FEATURE_NAME ->
+            case FEATURE_NAME -> {
+              // uses the shared number formats
+              synchronized (FeatureUtils.class) {
                 line.append(FeatureUtils.featureToString(feature)).append(fieldSeparator);
+              }
+            }
             case FEATURE_MZ -> line.append(feature.getMZ()).append(fieldSeparator);
             case FEATURE_RT -> append(line, feature.getRT());
             case FEATURE_ION_MOBILITY -> append(line, feature.getMobility());
@@ -33,7 +33,10 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.impl.BuildingMobilityScan;
 import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
 import io.github.mzmine.datamodel.impl.MSnInfoImpl;
+import io.github.mzmine.datamodel.impl.ScanDataLoader;
 import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.SourceBackedScan;
+import io.github.mzmine.datamodel.impl.SourceBackedScan.DataSummary;
 import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
 import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
@@ -50,6 +53,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class ConversionUtils {
 
@@ -120,6 +124,14 @@ public class ConversionUtils {
 
   public static Scan mzmlScanToSimpleScan(final RawDataFile dataFile, final BuildingMzMLMsScan scan,
       final MassSpectrumType spectrumType) {
+    final ScanDataLoader loader = scan.getDataLoader();
+    final DataSummary summary = scan.getDataSummary();
+    if (loader != null && summary != null) {
+      return new SourceBackedScan(dataFile, scan.getScanNumber(), scan.getMSLevel(),
+          scan.getRetentionTime(), extractMsMsInfo(scan), summary, loader, spectrumType,
+          scan.getPolarity(), scan.getScanDefinition(), scan.getScanningMZRange(),
+          scan.getInjectionTime());
+    }
     return mzmlScanToSimpleScan(dataFile, scan, scan.getDoubleBufferMzValues(),
         scan.getDoubleBufferIntensityValues(), spectrumType);
   }
@@ -135,6 +147,19 @@ public class ConversionUtils {
    */
   public static Scan mzmlScanToSimpleScan(RawDataFile rawDataFile, BuildingMzMLMsScan scan,
       DoubleBuffer mzs, DoubleBuffer intensities, MassSpectrumType spectrumType) {
+    DDAMsMsInfo info = extractMsMsInfo(scan);
+
+    Float injTime = scan.getInjectionTime();
+
+    final SimpleScan newScan = new SimpleScan(rawDataFile, scan.getScanNumber(), scan.getMSLevel(),
+        scan.getRetentionTime(), info, mzs, intensities, spectrumType, scan.getPolarity(),
+        scan.getScanDefinition(), scan.getScanningMZRange(), injTime);
+
+    return newScan;
+  }
+
+  @Nullable
+  private static DDAMsMsInfo extractMsMsInfo(BuildingMzMLMsScan scan) {
     DDAMsMsInfo info = null;
     if (scan.getPrecursorList() != null) {
       final var precursorElements = scan.getPrecursorList().getPrecursorElements();
@@ -144,14 +169,7 @@ public class ConversionUtils {
         info = MSnInfoImpl.fromMzML(precursorElements, scan.getMSLevel());
       }
     }
-
-    Float injTime = scan.getInjectionTime();
-
-    final SimpleScan newScan = new SimpleScan(rawDataFile, scan.getScanNumber(), scan.getMSLevel(),
-        scan.getRetentionTime(), info, mzs, intensities, spectrumType, scan.getPolarity(),
-        scan.getScanDefinition(), scan.getScanningMZRange(), injTime);
-
-    return newScan;
+    return info;
   }
 
   public static BuildingMobilityScan mzmlScanToMobilityScan(int scannum, BuildingMzMLMsScan scan) {
@@ -46,6 +46,7 @@ import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImp
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.MzMLFileImportMethod;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMzMLMsScan;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLRawDataFile;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLSpectrumSource;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.impl.IMSRawDataFileImpl;
 import io.github.mzmine.project.impl.RawDataFileImpl;
@@ -183,10 +184,12 @@ public class MSDKmzMLImportTask extends AbstractTask {
       MzMLRawDataFile msdkTaskRes = msdkTask.parseMzMl();
 
       if (isCanceled()) {
+        closeSpectrumSource();
         return null;
       }
 
       if (msdkTaskRes == null) {
+        closeSpectrumSource();
         setStatus(TaskStatus.ERROR);
         setErrorMessage("MSDK returned null");
         return null;
@@ -204,7 +207,13 @@ public class MSDKmzMLImportTask extends AbstractTask {
       } else {
         newMZmineFile = buildLCMSFile(msdkTaskRes);
       }
+      if (isCanceled()) {
+        closeSpectrumSource();
+        return null;
+      }
       newMZmineFile.setStartTimeStamp(startTimeStamp);
+      // source backed scans read from the mzML until the file is closed
+      newMZmineFile.setScanDataSource(msdkTask.getSpectrumSource());
       logger.info("Finished parsing " + file + ", parsed " + convertedScansAfterFilter + " scans");
 
       if (totalScansAfterFilter == 0) {
@@ -220,6 +229,7 @@ public class MSDKmzMLImportTask extends AbstractTask {
 
       return newMZmineFile;
     } catch (Throwable e) {
+      closeSpectrumSource();
       logger.log(Level.WARNING, "Error during mzML read: " + e.getMessage(), e);
       setStatus(TaskStatus.ERROR);
       setErrorMessage("Error parsing mzML: " + ExceptionUtils.exceptionToString(e));
@@ -228,6 +238,18 @@ public class MSDKmzMLImportTask extends AbstractTask {
   }
 
 
+  private void closeSpectrumSource() {
+    final MzMLSpectrumSource source = msdkTask == null ? null : msdkTask.getSpectrumSource();
+    if (source == null) {
+      return;
+    }
+    try {
+      source.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot close mzML file " + file + ": " + e.getMessage(), e);
+    }
+  }
+
   @Override
   public void cancel() {
     if (msdkTask != null) {
@@ -26,13 +26,19 @@
 package io.github.mzmine.modules.io.import_rawdata_mzml.msdk;
 
 import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.google.common.collect.Range;
 import io.github.msdk.MSDKException;
+import io.github.mzmine.datamodel.impl.ScanDataCache;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLIndex;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLParser;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLRawDataFile;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLSpectrumSource;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLTags;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -62,6 +68,8 @@ public class MzMLFileImportMethod extends AbstractTask {
   private final File mzMLFile;
   private final InputStream inputStream;
   private MzMLParser parser;
+  // set if scans are read from the file on access
+  private @Nullable MzMLSpectrumSource spectrumSource;
 
   private MzMLRawDataFile newRawFile;
   private final @NotNull ScanImportProcessorConfig scanProcessorConfig;
@@ -112,6 +120,14 @@ public class MzMLFileImportMethod extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * @return the source of the scans that read their data on access or null if all scans keep their
+   * data. Needs to be closed with the raw data file.
+   */
+  public @Nullable MzMLSpectrumSource getSpectrumSource() {
+    return spectrumSource;
+  }
+
   /**
    * Parse the MzML data and return the parsed data
    *
@@ -134,13 +150,37 @@ public class MzMLFileImportMethod extends AbstractTask {
 
       if (inputStream != null) {
         logger.finest("Began parsing file from stream");
-        try (Reader reader = new InputStreamReader(inputStream)) {
-          // buffered reader had no performance gains. most likely because the XMLStreamReader already buffers
-//        BufferedReader br = new BufferedReader(reader, 8192*4);
-          XMLStreamReader xmlStreamReader = factory.createXMLStreamReader(reader);
+        // aalto decodes the bytes directly, faster than a reader with the default charset
+        try (InputStream in = inputStream) {
+          XMLStreamReader xmlStreamReader = factory.createXMLStreamReader(in);
           return parseMzMlInternal(xmlStreamReader);
         }
       } else if (mzMLFile != null) {
+        final boolean selective = scanProcessorConfig.scanFilter().getScanNumberRange() != null;
+        // scans with mass detection are small and need to be processed only once
+        final boolean sourceBacked = ScanDataCache.isLazyScanLoading()
+                                     && !scanProcessorConfig.processor().containsMassDetection();
+        final MzMLIndex index =
+            selective || sourceBacked ? MzMLIndex.open(mzMLFile, true) : null;
+        if (index != null && sourceBacked) {
+          // index stays open to read the spectra on access
+          spectrumSource = new MzMLSpectrumSource(index, scanProcessorConfig);
+          logger.finest("Scans are backed by the source file: " + mzMLFile.getAbsolutePath());
+        }
+        if (index != null && selective) {
+          // selective import seeks to the selected spectra
+          try {
+            logger.finest("Began indexed parsing of file: " + mzMLFile.getAbsolutePath());
+            return parseMzMlIndexed(factory, index);
+          } finally {
+            if (spectrumSource == null) {
+              index.close();
+            }
+          }
+        }
+        if (index != null && spectrumSource == null) {
+          index.close();
+        }
         logger.finest("Began parsing file: " + mzMLFile.getAbsolutePath());
         // buffered reader had no performance gains. most likely because the XMLStreamReader already buffers
 //        try (BufferedReader br = Files.newBufferedReader(mzMLFile.toPath(),
@@ -160,6 +200,7 @@ public class MzMLFileImportMethod extends AbstractTask {
   private MzMLRawDataFile parseMzMlInternal(XMLStreamReader xmlStreamReader) throws MSDKException {
     try {
       this.parser = new MzMLParser(this, storage, scanProcessorConfig);
+      parser.setSpectrumSource(spectrumSource);
       this.newRawFile = parser.getMzMLRawFile();
 
       int eventType;
@@ -190,6 +231,7 @@ public class MzMLFileImportMethod extends AbstractTask {
           }
 
         } while (eventType != XMLStreamConstants.END_DOCUMENT);
+        parser.finishPendingScans();
 
       } catch (DataFormatException | XMLStreamException e) {
         throw new RuntimeException(e);
@@ -203,6 +245,69 @@ public class MzMLFileImportMethod extends AbstractTask {
   }
 
 
+  /**
+   * Parses the header and only the spectra within the scan number range of the scan filter. Other
+   * filters need the spectrum metadata and are applied after parsing each spectrum.
+   */
+  private MzMLRawDataFile parseMzMlIndexed(InputFactoryImpl factory, MzMLIndex index)
+      throws MSDKException {
+    this.parser = new MzMLParser(this, storage, scanProcessorConfig);
+    parser.setSpectrumSource(spectrumSource);
+    this.newRawFile = parser.getMzMLRawFile();
+    final Range<Integer> scanNumbers = scanProcessorConfig.scanFilter().getScanNumberRange();
+    try {
+      // run, referenceable param groups, and the opening spectrumList element
+      parseFragment(factory, index.readHeader(), MzMLTags.TAG_SPECTRUM_LIST, true);
+
+      for (int i = 0; i < index.getNumberOfSpectra(); i++) {
+        if (isCanceled()) {
+          return null;
+        }
+        final int scanNumber = parser.getScanNumber(index.getSpectrumId(i)).orElse(i + 1);
+        if (!scanNumbers.contains(scanNumber)) {
+          parser.skipSpectrum();
+          continue;
+        }
+        parseFragment(factory, index.readSpectrum(i), MzMLTags.TAG_SPECTRUM, false);
+      }
+      parser.finishPendingScans();
+      logger.finest("Parsing Complete");
+    } catch (IOException | DataFormatException | XMLStreamException e) {
+      logger.log(Level.WARNING, "Error while loading mzML file " + e.getMessage(), e);
+      throw (new MSDKException(e));
+    }
+    return newRawFile;
+  }
+
+  /**
+   * Parses a fragment of the mzML file until the stop element is opened or closed
+   */
+  private void parseFragment(InputFactoryImpl factory, byte[] fragment, String stopElement,
+      boolean stopOnOpening) throws XMLStreamException, IOException, DataFormatException {
+    final XMLStreamReader reader = factory.createXMLStreamReader(
+        new ByteArrayInputStream(fragment));
+    try {
+      while (reader.hasNext()) {
+        final int eventType = reader.next();
+        if (eventType == XMLStreamConstants.START_ELEMENT) {
+          final String openingTagName = reader.getLocalName();
+          parser.processOpeningTag(reader, openingTagName);
+          if (stopOnOpening && openingTagName.equals(stopElement)) {
+            return;
+          }
+        } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+          final String closingTagName = reader.getLocalName();
+          parser.processClosingTag(reader, closingTagName);
+          if (!stopOnOpening && closingTagName.equals(stopElement)) {
+            return;
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
   @Override
   public String getTaskDescription() {
     return newRawFile == null ? "" : "Parsing mzML file from " + newRawFile.getName();
@@ -42,12 +42,15 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.ScanDataLoader;
+import io.github.mzmine.datamodel.impl.SourceBackedScan.DataSummary;
 import io.github.mzmine.datamodel.msms.ActivationMethod;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.scans.ScanUtils;
 import java.io.IOException;
 import java.nio.DoubleBuffer;
 import java.util.ArrayList;
@@ -96,6 +99,12 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
   // mobility scans are memory mapped later
   private @Nullable SimpleSpectralArrays mobilityScanSimpleSpectralData;
 
+  // index attribute of the spectrum in the spectrumList
+  private int spectrumIndex = -1;
+  // only set if the data is read from the source file on access instead of memory mapping
+  private @Nullable ScanDataLoader dataLoader;
+  private @Nullable DataSummary dataSummary;
+
 
   /**
    * @param id              the Scan ID
@@ -617,6 +626,42 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
     return true;
   }
 
+  /**
+   * Called when spectrum end is read instead of
+   * {@link #loadProcessMemMapData(MemoryMapStorage, ScanImportProcessorConfig)}. Loads and
+   * processes the data once to compute the summary values but only keeps the position of the
+   * binary arrays in the source file. Only for scans without mobility and without mass detection.
+   *
+   * @return false if there is no data or the spectrum does not match the index of the source
+   */
+  public boolean loadProcessSourceBackedData(final @NotNull MzMLSpectrumSource source,
+      final @NotNull ScanImportProcessorConfig config) {
+    final MzMLBinaryDataInfo mzInfo = mzBinaryDataInfo;
+    final MzMLBinaryDataInfo intensityInfo = intensityBinaryDataInfo;
+    try {
+      SimpleSpectralArrays specData = loadData();
+      if (specData == null) {
+        return false;
+      }
+      specData = config.processor().processScan(this, specData);
+      specData = DataPointUtils.ensureSortingMzAscendingDefault(specData);
+      if (getSpectrumType() == null) {
+        // detect now, the data is not available later
+        spectrumType = ScanUtils.detectSpectrumType(specData.mzs(), specData.intensities());
+      }
+
+      // the text content is read again from the file on access
+      mzInfo.setTextContent(null);
+      intensityInfo.setTextContent(null);
+      dataLoader = source.createLoader(spectrumIndex, mzInfo, intensityInfo);
+      dataSummary = DataSummary.of(specData);
+    } catch (MSDKException | IOException e) {
+      logger.warning("Could not load data of scan #%d".formatted(getScanNumber()));
+      return false;
+    }
+    return true;
+  }
+
   /**
    * Decode and load data from binary arrays
    *
@@ -646,6 +691,28 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
     intensityBinaryDataInfo = null;
   }
 
+  public int getSpectrumIndex() {
+    return spectrumIndex;
+  }
+
+  public void setSpectrumIndex(final int spectrumIndex) {
+    this.spectrumIndex = spectrumIndex;
+  }
+
+  /**
+   * @return the loader if the data is read from the source file on access, otherwise null
+   */
+  public @Nullable ScanDataLoader getDataLoader() {
+    return dataLoader;
+  }
+
+  /**
+   * @return summary of the processed data if the data is read from the source file on access
+   */
+  public @Nullable DataSummary getDataSummary() {
+    return dataSummary;
+  }
+
   /**
    * Only mobility scans have their data still in memory as they are memory mapped all at once
    */
@@ -38,6 +38,8 @@ public class MzMLBinaryDataInfo {
   private @NotNull MzMLCompressionType compressionType;
   private MzMLBitLength bitLength;
   private MzMLArrayType arrayType;
+  // index of the binaryDataArray in its spectrum
+  private int arrayIndex = -1;
   // the binary text content
   private String xmlBinaryContent;
 
@@ -208,4 +210,15 @@ public class MzMLBinaryDataInfo {
   public String getXmlBinaryContent() {
     return xmlBinaryContent;
   }
+
+  /**
+   * @return the index of this binary data array in the binaryDataArrayList of its spectrum or -1
+   */
+  public int getArrayIndex() {
+    return arrayIndex;
+  }
+
+  public void setArrayIndex(final int arrayIndex) {
+    this.arrayIndex = arrayIndex;
+  }
 }
@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data;
+
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.google.common.io.ByteStreams;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Byte offsets of all spectra and chromatograms in an mzML file for random access. The offsets are
+ * read from the indexList of indexedmzML files. Otherwise, the offsets can be found by a fast byte
+ * scan over the file, which is cached in a sidecar file next to the mzML file, if the directory is
+ * writable.
+ * <p>
+ * Reading of spectra and chromatograms uses positional reads on a shared {@link FileChannel} and is
+ * thread safe. Close the index to release the file.
+ */
+public class MzMLIndex implements Closeable {
+
+  public static final String SIDECAR_SUFFIX = ".mzmine-index";
+  private static final Logger logger = Logger.getLogger(MzMLIndex.class.getName());
+  private static final int SIDECAR_MAGIC = 0x4D5A4958; // MZIX
+  private static final int SIDECAR_VERSION = 1;
+  private static final int TAIL_SIZE = 1024;
+  private static final int SCAN_BUFFER_SIZE = 1 << 20;
+  private static final Pattern INDEX_LIST_OFFSET_PATTERN = Pattern.compile(
+      "<" + MzMLTags.TAG_INDEX_LIST_OFFSET + ">\\s*(\\d+)\\s*</" + MzMLTags.TAG_INDEX_LIST_OFFSET
+      + ">");
+  private static final Pattern ID_PATTERN = Pattern.compile("\\sid\\s*=\\s*\"([^\"]*)\"");
+  private static final byte[] SPECTRUM_TAG = ("<" + MzMLTags.TAG_SPECTRUM).getBytes(
+      StandardCharsets.US_ASCII);
+  private static final byte[] CHROMATOGRAM_TAG = ("<" + MzMLTags.TAG_CHROMATOGRAM).getBytes(
+      StandardCharsets.US_ASCII);
+  private static final byte[] SPECTRUM_LIST_END_TAG = ("</" + MzMLTags.TAG_SPECTRUM_LIST).getBytes(
+      StandardCharsets.US_ASCII);
+
+  private final FileChannel channel;
+  private final List<String> spectrumIds;
+  private final long[] spectrumOffsets;
+  private final List<String> chromatogramIds;
+  private final long[] chromatogramOffsets;
+  /**
+   * the end of the last spectrum
+   */
+  private final long spectraEnd;
+
+  private MzMLIndex(FileChannel channel, Offsets offsets) throws IOException {
+    this.channel = channel;
+    this.spectrumIds = offsets.spectrumIds;
+    this.spectrumOffsets = offsets.spectrumOffsets.toLongArray();
+    this.chromatogramIds = offsets.chromatogramIds;
+    this.chromatogramOffsets = offsets.chromatogramOffsets.toLongArray();
+    this.spectraEnd = offsets.spectraEnd > 0 ? offsets.spectraEnd : channel.size();
+  }
+
+  /**
+   * Opens the index of an mzML file
+   *
+   * @param file           the mzML file
+   * @param buildIfMissing scan the file for offsets if it has no index list and no sidecar index
+   * @return the index or null if no index is available or the file is not valid
+   */
+  public static @Nullable MzMLIndex open(@NotNull File file, boolean buildIfMissing) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      Offsets offsets = readIndexList(channel);
+      if (offsets == null) {
+        offsets = readSidecar(file, channel.size());
+      }
+      if (offsets == null && buildIfMissing) {
+        offsets = scanOffsets(channel);
+        writeSidecar(file, channel.size(), offsets);
+      }
+      if (offsets == null || offsets.spectrumOffsets.isEmpty() || !startsWith(channel,
+          offsets.spectrumOffsets.getLong(0), SPECTRUM_TAG)) {
+        channel.close();
+        return null;
+      }
+      return new MzMLIndex(channel, offsets);
+    } catch (IOException | XMLStreamException | RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot read index of mzML file " + file.getAbsolutePath(), e);
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ex) {
+          // already failed
+        }
+      }
+      return null;
+    }
+  }
+
+  public int getNumberOfSpectra() {
+    return spectrumOffsets.length;
+  }
+
+  public String getSpectrumId(int index) {
+    return spectrumIds.get(index);
+  }
+
+  public long getSpectrumOffset(int index) {
+    return spectrumOffsets[index];
+  }
+
+  public int getNumberOfChromatograms() {
+    return chromatogramOffsets.length;
+  }
+
+  public String getChromatogramId(int index) {
+    return chromatogramIds.get(index);
+  }
+
+  /**
+   * @return all bytes before the first spectrum, contains the header, the run and the opening
+   * spectrumList element
+   */
+  public byte[] readHeader() throws IOException {
+    return read(0, spectrumOffsets[0]);
+  }
+
+  /**
+   * @return the bytes of the spectrum element, may contain trailing bytes after the spectrum
+   */
+  public byte[] readSpectrum(int index) throws IOException {
+    final long start = spectrumOffsets[index];
+    final long end = index + 1 < spectrumOffsets.length ? spectrumOffsets[index + 1] : spectraEnd;
+    return read(start, end);
+  }
+
+  /**
+   * @return the bytes of the chromatogram element, may contain trailing bytes after the
+   * chromatogram
+   */
+  public byte[] readChromatogram(int index) throws IOException {
+    final long start = chromatogramOffsets[index];
+    final long end = index + 1 < chromatogramOffsets.length ? chromatogramOffsets[index + 1]
+        : channel.size();
+    return read(start, end);
+  }
+
+  private byte[] read(long start, long end) throws IOException {
+    if (end <= start || end - start > Integer.MAX_VALUE) {
+      throw new IOException("Invalid mzML index offsets " + start + " - " + end);
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, start + buffer.position()) < 0) {
+        break;
+      }
+    }
+    return buffer.array();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private static boolean startsWith(FileChannel channel, long offset, byte[] prefix)
+      throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(prefix.length + 1);
+    channel.read(buffer, offset);
+    if (buffer.position() < buffer.capacity()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(i) != prefix[i]) {
+        return false;
+      }
+    }
+    return isTagNameEnd(buffer.get(prefix.length));
+  }
+
+  private static boolean isTagNameEnd(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '>';
+  }
+
+  /**
+   * Reads the offsets from the indexList at the end of indexedmzML files
+   *
+   * @return the offsets or null if there is no index list
+   */
+  private static @Nullable Offsets readIndexList(FileChannel channel)
+      throws IOException, XMLStreamException {
+    final long size = channel.size();
+    final ByteBuffer tail = ByteBuffer.allocate((int) Math.min(TAIL_SIZE, size));
+    channel.read(tail, size - tail.capacity());
+    final Matcher matcher = INDEX_LIST_OFFSET_PATTERN.matcher(
+        new String(tail.array(), 0, tail.position(), StandardCharsets.ISO_8859_1));
+    if (!matcher.find()) {
+      return null;
+    }
+    final long indexListOffset = Long.parseLong(matcher.group(1));
+    if (indexListOffset <= 0 || indexListOffset >= size) {
+      return null;
+    }
+
+    final Offsets offsets = new Offsets();
+    final InputStream in = ByteStreams.limit(
+        Channels.newInputStream(channel.position(indexListOffset)), size - indexListOffset);
+    final InputFactoryImpl factory = new InputFactoryImpl();
+    final XMLStreamReader reader = factory.createXMLStreamReader(new BufferedInputStream(in));
+    try {
+      String indexName = null;
+      while (reader.hasNext()) {
+        final int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          final String name = reader.getLocalName();
+          if (name.equals(MzMLTags.TAG_INDEX)) {
+            indexName = reader.getAttributeValue(null, MzMLTags.ATTR_NAME);
+          } else if (name.equals(MzMLTags.TAG_OFFSET)) {
+            final String id = reader.getAttributeValue(null, MzMLTags.ATTR_ID_REF);
+            final long offset = Long.parseLong(reader.getElementText().trim());
+            if (MzMLTags.TAG_SPECTRUM.equals(indexName)) {
+              offsets.spectrumIds.add(id);
+              offsets.spectrumOffsets.add(offset);
+            } else if (MzMLTags.TAG_CHROMATOGRAM.equals(indexName)) {
+              offsets.chromatogramIds.add(id);
+              offsets.chromatogramOffsets.add(offset);
+            }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName()
+            .equals(MzMLTags.TAG_INDEX_LIST)) {
+          break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    // the spectra end before the chromatograms or the index list
+    offsets.spectraEnd = indexListOffset;
+    if (!offsets.spectrumOffsets.isEmpty()) {
+      final long lastSpectrum = offsets.spectrumOffsets.getLong(offsets.spectrumOffsets.size() - 1);
+      for (int i = 0; i < offsets.chromatogramOffsets.size(); i++) {
+        final long chrom = offsets.chromatogramOffsets.getLong(i);
+        if (chrom > lastSpectrum && chrom < offsets.spectraEnd) {
+          offsets.spectraEnd = chrom;
+        }
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Finds the offsets of all spectrum and chromatogram elements by scanning the bytes of the file.
+   * Much faster than parsing the xml.
+   */
+  private static Offsets scanOffsets(FileChannel channel) throws IOException {
+    final Offsets offsets = new Offsets();
+    final InputStream in = Channels.newInputStream(channel.position(0));
+    byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+    int length = 0;
+    long bufferStart = 0;
+
+    while (true) {
+      final int read = in.read(buffer, length, buffer.length - length);
+      final boolean eof = read < 0;
+      if (!eof) {
+        length += read;
+        if (length < buffer.length) {
+          continue;
+        }
+      }
+
+      // tags are only evaluated if they are complete within the buffer, otherwise kept for next
+      int keepFrom = length;
+      for (int i = 0; i < length; i++) {
+        if (buffer[i] != '<') {
+          continue;
+        }
+        final byte[] tag;
+        if (matches(buffer, i, length, SPECTRUM_TAG)) {
+          tag = SPECTRUM_TAG;
+        } else if (matches(buffer, i, length, CHROMATOGRAM_TAG)) {
+          tag = CHROMATOGRAM_TAG;
+        } else if (matches(buffer, i, length, SPECTRUM_LIST_END_TAG)) {
+          offsets.spectraEnd = bufferStart + i;
+          continue;
+        } else {
+          if (!eof && length - i < CHROMATOGRAM_TAG.length + 1) {
+            keepFrom = i;
+            break;
+          }
+          continue;
+        }
+        if (i + tag.length >= length) {
+          keepFrom = i;
+          break;
+        }
+        if (!isTagNameEnd(buffer[i + tag.length])) {
+          continue;
+        }
+        final int end = indexOf(buffer, (byte) '>', i, length);
+        if (end < 0) {
+          keepFrom = i;
+          break;
+        }
+        final Matcher matcher = ID_PATTERN.matcher(
+            new String(buffer, i, end - i, StandardCharsets.UTF_8));
+        final String id = matcher.find() ? unescape(matcher.group(1)) : "";
+        if (tag == SPECTRUM_TAG) {
+          offsets.spectrumIds.add(id);
+          offsets.spectrumOffsets.add(bufferStart + i);
+        } else {
+          offsets.chromatogramIds.add(id);
+          offsets.chromatogramOffsets.add(bufferStart + i);
+        }
+        i = end;
+      }
+
+      if (eof) {
+        break;
+      }
+      if (keepFrom == 0) {
+        // a single tag larger than the buffer
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        continue;
+      }
+      System.arraycopy(buffer, keepFrom, buffer, 0, length - keepFrom);
+      bufferStart += keepFrom;
+      length -= keepFrom;
+    }
+    return offsets;
+  }
+
+  private static boolean matches(byte[] buffer, int from, int length, byte[] tag) {
+    if (from + tag.length > length) {
+      return false;
+    }
+    for (int i = 0; i < tag.length; i++) {
+      if (buffer[from + i] != tag[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(byte[] buffer, byte value, int from, int length) {
+    for (int i = from; i < length; i++) {
+      if (buffer[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String unescape(String value) {
+    if (value.indexOf('&') < 0) {
+      return value;
+    }
+    return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+        .replace("&apos;", "'").replace("&amp;", "&");
+  }
+
+  private static File getSidecarFile(File file) {
+    return new File(file.getPath() + SIDECAR_SUFFIX);
+  }
+
+  private static @Nullable Offsets readSidecar(File file, long fileSize) {
+    final File sidecar = getSidecarFile(file);
+    if (!sidecar.isFile()) {
+      return null;
+    }
+    try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)))) {
+      if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION
+          || in.readLong() != fileSize || in.readLong() != file.lastModified()) {
+        return null;
+      }
+      final Offsets offsets = new Offsets();
+      offsets.spectraEnd = in.readLong();
+      final int numSpectra = in.readInt();
+      for (int i = 0; i < numSpectra; i++) {
+        offsets.spectrumIds.add(in.readUTF());
+        offsets.spectrumOffsets.add(in.readLong());
+      }
+      final int numChromatograms = in.readInt();
+      for (int i = 0; i < numChromatograms; i++) {
+        offsets.chromatogramIds.add(in.readUTF());
+        offsets.chromatogramOffsets.add(in.readLong());
+      }
+      return offsets;
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Cannot read mzML sidecar index " + sidecar.getAbsolutePath(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the offsets next to the mzML file. Failures are ignored, e.g., for read only
+   * directories.
+   */
+  private static void writeSidecar(File file, long fileSize, Offsets offsets) {
+    final File sidecar = getSidecarFile(file);
+    if (offsets.spectrumOffsets.isEmpty() || sidecar.getParentFile() == null
+        || !sidecar.getParentFile().canWrite()) {
+      return;
+    }
+    try (var out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(sidecar)))) {
+      out.writeInt(SIDECAR_MAGIC);
+      out.writeInt(SIDECAR_VERSION);
+      out.writeLong(fileSize);
+      out.writeLong(file.lastModified());
+      out.writeLong(offsets.spectraEnd);
+      out.writeInt(offsets.spectrumIds.size());
+      for (int i = 0; i < offsets.spectrumIds.size(); i++) {
+        out.writeUTF(offsets.spectrumIds.get(i));
+        out.writeLong(offsets.spectrumOffsets.getLong(i));
+      }
+      out.writeInt(offsets.chromatogramIds.size());
+      for (int i = 0; i < offsets.chromatogramIds.size(); i++) {
+        out.writeUTF(offsets.chromatogramIds.get(i));
+        out.writeLong(offsets.chromatogramOffsets.getLong(i));
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, "Cannot write mzML sidecar index " + sidecar.getAbsolutePath(), e);
+      sidecar.delete();
+    }
+  }
+
+  private static class Offsets {
+
+    private final List<String> spectrumIds = new ArrayList<>();
+    private final LongArrayList spectrumOffsets = new LongArrayList();
+    private final List<String> chromatogramIds = new ArrayList<>();
+    private final LongArrayList chromatogramOffsets = new LongArrayList();
+    private long spectraEnd = -1;
+  }
+}
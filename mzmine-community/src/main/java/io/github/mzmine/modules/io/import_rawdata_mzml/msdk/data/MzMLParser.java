@@ -32,11 +32,15 @@ import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.TagTracker;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -46,6 +50,7 @@ import java.util.zip.DataFormatException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * <p>
@@ -75,6 +80,16 @@ public class MzMLParser {
   private final Map<String, MzMLArrayType> arrayTypeMap = Arrays.stream(MzMLArrayType.values())
       .collect(Collectors.toMap(MzMLArrayType::getAccession, Function.identity()));
 
+  /**
+   * Spectra are decoded and processed by the common pool while the xml stream is parsed. The
+   * number of pending spectra is limited to bound the memory of the encoded arrays. Spectra are
+   * added in the order of the file.
+   */
+  private final boolean decodeInParallel = ForkJoinPool.getCommonPoolParallelism() > 1;
+  private final int maxPendingScans = ForkJoinPool.getCommonPoolParallelism() * 4;
+  private final ArrayDeque<PendingScan> pendingScans = new ArrayDeque<>();
+  private @Nullable MzMLSpectrumSource spectrumSource;
+
 
   public MzMLParser(MzMLFileImportMethod importer, MemoryMapStorage storage,
       @NotNull ScanImportProcessorConfig scanProcessorConfig) {
@@ -158,6 +173,8 @@ public class MzMLParser {
         Integer scanNumber = getScanNumber(id).orElse(index + 1);
         //        vars.spectrum = new BuildingMzMLMsScan(newRawFile, id, scanNumber, vars.defaultArrayLength);
         vars.spectrum = new BuildingMzMLMsScan(id, scanNumber, vars.defaultArrayLength);
+        vars.spectrum.setSpectrumIndex(index);
+        vars.binaryDataArrayCount = 0;
 
 
       } else if (openingTagName.contentEquals(MzMLTags.TAG_BINARY_DATA_ARRAY)) {
@@ -171,6 +188,7 @@ public class MzMLParser {
         } else {
           vars.binaryDataInfo = new MzMLBinaryDataInfo(encodedLength, vars.defaultArrayLength);
         }
+        vars.binaryDataInfo.setArrayIndex(vars.binaryDataArrayCount++);
 
       } else if (openingTagName.contentEquals(MzMLTags.TAG_SCAN)) {
         vars.scan = new MzMLScan();
@@ -526,17 +544,75 @@ public class MzMLParser {
 
   /**
    * Called when spectrum end is read. Check if spectrum is filtered - skip this scan if not in
-   * filter. Then process data points and memory map resulting data to disk to save RAM.
+   * filter. Then decode and process data points and memory map resulting data to disk to save RAM.
+   * Decoding runs in parallel, the spectrum is added once it and all previous spectra are done.
    */
   private void filterProcessFinalizeScan() {
-    var spectrum = vars.spectrum;
-//    logger.info(STR."Finalizing scan \{spectrum.getScanNumber()}");
-    if (scanProcessorConfig.scanFilter().matches(spectrum)) {
-      if (spectrum.loadProcessMemMapData(storage, scanProcessorConfig)) {
+    final BuildingMzMLMsScan spectrum = vars.spectrum;
+    vars.spectrum = null;
+    if (!scanProcessorConfig.scanFilter().matches(spectrum)) {
+      return;
+    }
+    if (!decodeInParallel) {
+      if (loadSpectrumData(spectrum)) {
         vars.spectrumList.add(spectrum);
       }
+      return;
     }
-    vars.spectrum = null;
+
+    pendingScans.add(new PendingScan(spectrum, CompletableFuture.supplyAsync(
+        () -> loadSpectrumData(spectrum))));
+    while (!pendingScans.isEmpty() && (pendingScans.size() > maxPendingScans
+                                       || pendingScans.peekFirst().loaded().isDone())) {
+      addPendingScan(pendingScans.removeFirst());
+    }
+  }
+
+  /**
+   * Memory maps the processed data or only keeps the position in the source file if a spectrum
+   * source is set. Mobility scans are always kept in memory and built into frames later.
+   */
+  private boolean loadSpectrumData(BuildingMzMLMsScan spectrum) {
+    if (spectrumSource != null && spectrum.getMobility() == null && spectrumSource.matchesIndex(
+        spectrum.getSpectrumIndex(), spectrum.getId())) {
+      return spectrum.loadProcessSourceBackedData(spectrumSource, scanProcessorConfig);
+    }
+    return spectrum.loadProcessMemMapData(storage, scanProcessorConfig);
+  }
+
+  /**
+   * Spectra parsed after this call are backed by the source file instead of memory mapping
+   * their data
+   */
+  public void setSpectrumSource(@Nullable MzMLSpectrumSource spectrumSource) {
+    this.spectrumSource = spectrumSource;
+  }
+
+  /**
+   * Waits for all spectra that are still decoded and adds them to the spectrum list. Needs to be
+   * called after the xml stream was parsed.
+   */
+  public void finishPendingScans() {
+    while (!pendingScans.isEmpty()) {
+      addPendingScan(pendingScans.removeFirst());
+    }
+  }
+
+  private void addPendingScan(PendingScan pending) {
+    try {
+      if (pending.loaded().join()) {
+        vars.spectrumList.add(pending.spectrum());
+      }
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    }
+  }
+
+  private record PendingScan(BuildingMzMLMsScan spectrum, CompletableFuture<Boolean> loaded) {
+
   }
 
   /**
@@ -698,6 +774,7 @@ public class MzMLParser {
   private static class Vars {
 
     int defaultArrayLength;
+    int binaryDataArrayCount;
     boolean skipBinaryDataArray;
     BuildingMzMLMsScan spectrum;
     MzMLChromatogram chromatogram;
@@ -719,6 +796,7 @@ public class MzMLParser {
 
     Vars() {
       defaultArrayLength = 0;
+      binaryDataArrayCount = 0;
       skipBinaryDataArray = false;
       spectrum = null;
       chromatogram = null;
@@ -744,6 +822,13 @@ public class MzMLParser {
     return totalScans;
   }
 
+  /**
+   * Counts a spectrum that was skipped without parsing, e.g., by an indexed reader
+   */
+  public void skipSpectrum() {
+    parsedScans++;
+  }
+
   public int getParsedScans() {
     return parsedScans;
   }
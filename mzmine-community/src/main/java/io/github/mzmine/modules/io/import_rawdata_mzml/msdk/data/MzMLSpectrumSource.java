@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data;
+
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.ScanDataLoader;
+import io.github.mzmine.datamodel.impl.SourceBackedScan;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.util.DataPointUtils;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Source of {@link SourceBackedScan}s imported from an indexed mzML file. Spectra are read by their
+ * offset in the {@link MzMLIndex}, decoded, and processed by the same processors as during import.
+ * The index stays open for the lifetime of the scans and is closed with the source, e.g., when the
+ * raw data file is closed.
+ */
+public class MzMLSpectrumSource implements Closeable {
+
+  private final @NotNull MzMLIndex index;
+  private final @NotNull ScanImportProcessorConfig config;
+  private final InputFactoryImpl factory;
+
+  public MzMLSpectrumSource(@NotNull MzMLIndex index, @NotNull ScanImportProcessorConfig config) {
+    this.index = index;
+    this.config = config;
+    factory = new InputFactoryImpl();
+    factory.configureForSpeed();
+  }
+
+  /**
+   * @return true if the spectrum index of the parsed spectrum matches the file index
+   */
+  public boolean matchesIndex(int spectrumIndex, @NotNull String spectrumId) {
+    return spectrumIndex >= 0 && spectrumIndex < index.getNumberOfSpectra() && spectrumId.equals(
+        index.getSpectrumId(spectrumIndex));
+  }
+
+  /**
+   * @param mzInfo        binary data info of the m/z array without its text content
+   * @param intensityInfo binary data info of the intensity array without its text content
+   * @return a loader that reads the spectrum from the file
+   */
+  public @NotNull ScanDataLoader createLoader(int spectrumIndex,
+      @NotNull MzMLBinaryDataInfo mzInfo, @NotNull MzMLBinaryDataInfo intensityInfo) {
+    return new SpectrumLoader(this, spectrumIndex, mzInfo, intensityInfo);
+  }
+
+  private @NotNull SimpleSpectralArrays loadSpectrum(@NotNull Scan scan, int spectrumIndex,
+      @NotNull MzMLBinaryDataInfo mzInfo, @NotNull MzMLBinaryDataInfo intensityInfo)
+      throws IOException {
+    final String[] contents = readBinaryContents(index.readSpectrum(spectrumIndex),
+        Math.max(mzInfo.getArrayIndex(), intensityInfo.getArrayIndex()) + 1);
+    final String mzContent = contents[mzInfo.getArrayIndex()];
+    final String intensityContent = contents[intensityInfo.getArrayIndex()];
+    if (mzContent == null || intensityContent == null) {
+      throw new IOException(
+          "Binary data arrays of spectrum %d not found".formatted(scan.getScanNumber()));
+    }
+
+    final double[] mzs = MzMLPeaksDecoder.decodeToDouble(withContent(mzInfo, mzContent));
+    final double[] intensities = MzMLPeaksDecoder.decodeToDouble(
+        withContent(intensityInfo, intensityContent));
+    final SimpleSpectralArrays data = config.processor()
+        .processScan(scan, new SimpleSpectralArrays(mzs, intensities));
+    return DataPointUtils.ensureSortingMzAscendingDefault(data);
+  }
+
+  /**
+   * Reads the text of the binary elements of the first binary data arrays of a spectrum
+   */
+  private String[] readBinaryContents(byte[] spectrum, int numArrays) throws IOException {
+    final String[] contents = new String[numArrays];
+    int arrayIndex = -1;
+    try {
+      final XMLStreamReader reader = factory.createXMLStreamReader(
+          new ByteArrayInputStream(spectrum));
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            continue;
+          }
+          final String name = reader.getLocalName();
+          if (name.equals(MzMLTags.TAG_BINARY_DATA_ARRAY)) {
+            arrayIndex++;
+          } else if (name.equals(MzMLTags.TAG_BINARY) && arrayIndex >= 0
+                     && arrayIndex < numArrays) {
+            contents[arrayIndex] = reader.getElementText();
+            if (arrayIndex == numArrays - 1) {
+              break;
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+    return contents;
+  }
+
+  /**
+   * The binary data infos are shared by all loads of a spectrum, decode a copy
+   */
+  private static MzMLBinaryDataInfo withContent(@NotNull MzMLBinaryDataInfo info,
+      @NotNull String content) {
+    final MzMLBinaryDataInfo copy = new MzMLBinaryDataInfo(info.getEncodedLength(),
+        info.getArrayLength());
+    copy.setCompressionType(info.getCompressionType());
+    copy.setBitLength(info.getBitLength());
+    copy.setArrayType(info.getArrayType());
+    copy.setArrayIndex(info.getArrayIndex());
+    copy.setTextContent(content);
+    return copy;
+  }
+
+  /**
+   * Closes the index. Scans that are not cached cannot be loaded afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    index.close();
+  }
+
+  private record SpectrumLoader(@NotNull MzMLSpectrumSource source, int spectrumIndex,
+                                @NotNull MzMLBinaryDataInfo mzInfo,
+                                @NotNull MzMLBinaryDataInfo intensityInfo) implements
+      ScanDataLoader {
+
+    @Override
+    public @NotNull SimpleSpectralArrays loadData(@NotNull Scan scan) throws IOException {
+      return source.loadSpectrum(scan, spectrumIndex, mzInfo, intensityInfo);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_thermo_raw;
+
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.MZmineCore;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits the number of concurrently running converter processes. Each converter occupies about
+ * one core and its output is parsed by the import task and decoded by the common pool, so running
+ * one converter per task thread oversubscribes the cores. The limit is a share of the number of
+ * threads, see {@link MZminePreferences#rawConverterShare}.
+ */
+final class ConverterProcessLimiter {
+
+  private static int running = 0;
+
+  private ConverterProcessLimiter() {
+  }
+
+  /**
+   * @return the maximum number of concurrent converter processes, at least 1
+   */
+  static int getMaxProcesses() {
+    final var config = MZmineCore.getConfiguration();
+    if (config == null) {
+      return 1;
+    }
+    final Double share = config.getPreferences().getValue(MZminePreferences.rawConverterShare);
+    final int threads = config.getNumOfThreads();
+    return Math.max(1, (int) Math.round(threads * (share == null ? 1d : share)));
+  }
+
+  /**
+   * Waits until a converter may be started
+   *
+   * @param isCanceled stops waiting if true
+   * @return true if a permit was acquired and needs to be released
+   */
+  static synchronized boolean acquire(BooleanSupplier isCanceled) throws InterruptedException {
+    while (running >= getMaxProcesses()) {
+      if (isCanceled.getAsBoolean()) {
+        return false;
+      }
+      ConverterProcessLimiter.class.wait(500);
+    }
+    running++;
+    return true;
+  }
+
+  static synchronized void release() {
+    running--;
+    ConverterProcessLimiter.class.notifyAll();
+  }
+}
@@ -37,6 +37,8 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.exceptions.ExceptionUtils;
 import io.github.mzmine.util.ZipUtils;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.ReadAheadInputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -54,6 +56,9 @@ import org.jetbrains.annotations.NotNull;
 public class ThermoRawImportTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(ThermoRawImportTask.class.getName());
+  // up to 16 MB of converter output are read ahead
+  private static final int PIPE_CHUNK_SIZE = 1 << 20;
+  private static final int PIPE_MAX_CHUNKS = 16;
 
   private final File fileToOpen;
   private final MZmineProject project;
@@ -97,6 +102,7 @@ public class ThermoRawImportTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
     logger.info("Opening file " + fileToOpen);
 
+    boolean hasConverterPermit = false;
     // Unzip ThermoRawFileParser
     try {
       final File thermoRawFileParserDir = unzipThermoRawFileParser();
@@ -127,15 +133,24 @@ public class ThermoRawImportTask extends AbstractTask {
           fileToOpen.getPath() // input RAW file name
       };
 
+      // limit the number of converters that run in parallel to the other import threads
+      taskDescription = "Waiting for a free converter to open " + fileToOpen;
+      hasConverterPermit = ConverterProcessLimiter.acquire(this::isCanceled);
+      if (!hasConverterPermit) {
+        return;
+      }
+      taskDescription = "Opening file " + fileToOpen;
+
       // Create a separate process and execute ThermoRawFileParser.
       // Use thermoRawFileParserDir as working directory; this is essential, otherwise the process will fail.
-      dumper = Runtime.getRuntime().exec(cmdLine, null, thermoRawFileParserDir);
+      dumper = new ProcessBuilder(cmdLine).directory(thermoRawFileParserDir).start();
+      logErrorStream(dumper);
 
       // Get the stdout of ThermoRawFileParser process as InputStream
+      // read ahead so that the converter is not blocked by the pipe while scans are parsed
       RawDataFile dataFile = null;
-      try (InputStream mzMLStream = dumper.getInputStream()) //
-//          BufferedInputStream bufStream = new BufferedInputStream(mzMLStream))//
-      {
+      try (InputStream mzMLStream = new ReadAheadInputStream(dumper.getInputStream(),
+          PIPE_CHUNK_SIZE, PIPE_MAX_CHUNKS, "ThermoRawFileParser output " + fileToOpen.getName())) {
 
         msdkTask = new MSDKmzMLImportTask(project, fileToOpen, mzMLStream, scanProcessorConfig,
             module, parameters, moduleCallDate, storage);
@@ -180,6 +195,10 @@ public class ThermoRawImportTask extends AbstractTask {
       }
 
       return;
+    } finally {
+      if (hasConverterPermit) {
+        ConverterProcessLimiter.release();
+      }
     }
 
     logger.info(
@@ -188,6 +207,24 @@ public class ThermoRawImportTask extends AbstractTask {
 
   }
 
+  /**
+   * Consumes the error output of the converter so that it never blocks on a full pipe
+   */
+  private void logErrorStream(Process process) {
+    final Thread errorReader = new Thread(() -> {
+      try (BufferedReader reader = process.errorReader()) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          logger.finest("ThermoRawFileParser: " + line);
+        }
+      } catch (IOException e) {
+        // process was destroyed
+      }
+    }, "ThermoRawFileParser errors " + fileToOpen.getName());
+    errorReader.setDaemon(true);
+    errorReader.start();
+  }
+
   @Override
   public String getTaskDescription() {
     return taskDescription;
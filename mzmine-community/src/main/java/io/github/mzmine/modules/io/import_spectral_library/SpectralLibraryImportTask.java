@@ -26,9 +26,12 @@
 package io.github.mzmine.modules.io.import_spectral_library;
 
 import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.spectraldb.cache.SpectralLibraryCache;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.parser.AutoLibraryParser;
@@ -75,8 +78,20 @@ public class SpectralLibraryImportTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
 
     try {
-      // will block until all library spectra are added to entries list
-      SpectralLibrary library = parseFile(dataBaseFile);
+      final boolean useCache = MZmineCore.getConfiguration().getPreferences()
+          .getValue(MZminePreferences.cacheSpectralLibraries);
+      final SpectralLibraryCache cache = useCache ? SpectralLibraryCache.createDefault() : null;
+
+      SpectralLibrary library = cache != null ? cache.load(dataBaseFile) : null;
+      if (library != null) {
+        logger.info(() -> "Loaded spectral library %s from cache".formatted(dataBaseFile));
+      } else {
+        // will block until all library spectra are added to entries list
+        library = parseFile(dataBaseFile);
+        if (cache != null && !isCanceled() && library.size() > 0) {
+          cache.save(library);
+        }
+      }
       final List<SpectralLibraryEntry> entries = library.getEntries();
       if (entries.size() > 0) {
         project.addSpectralLibrary(library);
@@ -103,8 +118,9 @@ public class SpectralLibraryImportTask extends AbstractTask {
    */
   private SpectralLibrary parseFile(File dataBaseFile)
       throws UnsupportedFormatException, IOException {
-    //
-    SpectralLibrary library = new SpectralLibrary(MemoryMapStorage.forMassList(), dataBaseFile);
+    // packed library stores all spectra of each parsed block in contiguous columns
+    SpectralLibrary library = SpectralLibrary.createPacked(MemoryMapStorage.forMassList(),
+        dataBaseFile);
     parser = new AutoLibraryParser(1000, (list, alreadyProcessed) -> library.addEntries(list));
     // return tasks
     parser.parse(this, dataBaseFile, library);
@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectload;
+
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.MAGIC;
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.MASS_LIST_NONE;
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.MASS_LIST_SCAN_POINTER;
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.MSMS_DDA;
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.MSMS_NONE;
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.TYPE_IMS;
+import static io.github.mzmine.modules.io.projectsave.RawDataContainerWriter.VERSION;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.MobilityType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.BuildingMobilityScan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.PasefMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleFrame;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
+import io.github.mzmine.modules.dataprocessing.id_ccscalibration.CCSCalibration;
+import io.github.mzmine.modules.io.projectsave.RawDataContainerWriter;
+import io.github.mzmine.project.impl.IMSRawDataFileImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javafx.scene.paint.Color;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads a raw data file from a container written by {@link RawDataContainerWriter}. The data
+ * section is memory mapped in windows of up to {@link #MAX_WINDOW_SIZE} bytes and the spectral
+ * data of LC-MS scans is used directly from the mapped container without copying. Arrays larger
+ * than a window are copied from consecutive windows. Frames and
+ * mobility scans are copied to the storage of the new raw data file, because the mobility scan
+ * storage keeps its own buffers.
+ * <p>
+ * The container file must not be modified or deleted while the raw data file is in use.
+ */
+public class RawDataContainerReader {
+
+  private static final long MAX_WINDOW_SIZE = 1L << 30;
+  private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES;
+
+  private final FileChannel channel;
+  private final long dataEnd;
+  private final List<RawDataFile> projectFiles;
+  private final long maxWindowSize;
+
+  private MappedByteBuffer window;
+  private long windowStart = 0;
+  private long windowEnd = 0;
+
+  private RawDataContainerReader(FileChannel channel, long dataEnd,
+      List<RawDataFile> projectFiles, long maxWindowSize) {
+    this.channel = channel;
+    this.dataEnd = dataEnd;
+    this.projectFiles = projectFiles;
+    this.maxWindowSize = maxWindowSize;
+  }
+
+  /**
+   * Reads a raw data file from a container. The file is not added to the project.
+   *
+   * @param container    the container file
+   * @param projectFiles all raw data files of the project to resolve MS/MS information
+   * @return the new raw data file
+   */
+  public static @NotNull RawDataFile read(@NotNull File container,
+      @NotNull List<RawDataFile> projectFiles) throws IOException {
+    return read(container, projectFiles, MAX_WINDOW_SIZE);
+  }
+
+  /**
+   * @param maxWindowSize maximum size of a mapped window in bytes, a multiple of 8. Smaller windows
+   *                      are only used in tests.
+   */
+  static @NotNull RawDataFile read(@NotNull File container,
+      @NotNull List<RawDataFile> projectFiles, long maxWindowSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(container.toPath(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < 2 * Integer.BYTES + FOOTER_SIZE) {
+        throw new IOException("Invalid raw data container " + container);
+      }
+      final ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+      channel.read(header, 0);
+      header.flip();
+      if (header.getInt() != MAGIC) {
+        throw new IOException("Invalid raw data container " + container);
+      }
+      final int version = header.getInt();
+      if (version > VERSION) {
+        throw new IOException(
+            "Raw data container version " + version + " is not supported by this mzmine version.");
+      }
+
+      final ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+      channel.read(footer, size - FOOTER_SIZE);
+      footer.flip();
+      final long recordsOffset = footer.getLong();
+      if (footer.getInt() != MAGIC) {
+        throw new IOException("Raw data container " + container + " is incomplete.");
+      }
+
+      // mapped buffers stay valid after the channel is closed
+      final var reader = new RawDataContainerReader(channel, recordsOffset, projectFiles,
+          maxWindowSize);
+      try (DataInputStream records = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel.position(recordsOffset)),
+              1 << 16))) {
+        return reader.readFile(records);
+      }
+    }
+  }
+
+  private RawDataFile readFile(DataInputStream in) throws IOException {
+    final int type = in.readInt();
+    final String name = in.readUTF();
+    final String path = readNullableString(in);
+    final Color color = Color.web(in.readUTF());
+    final String startTimeStamp = readNullableString(in);
+    final byte[] metadata = new byte[in.readInt()];
+    in.readFully(metadata);
+    final int numScans = in.readInt();
+
+    final MemoryMapStorage storage = MemoryMapStorage.forRawDataFile();
+    final RawDataFileImpl file =
+        type == TYPE_IMS ? new IMSRawDataFileImpl(name, path, storage, color)
+            : new RawDataFileImpl(name, path, storage, color);
+    if (startTimeStamp != null) {
+      file.setStartTimeStamp(LocalDateTime.parse(startTimeStamp));
+    }
+    readMetadata(file, metadata);
+
+    // MS/MS information references other scans and is set once all scans are available
+    final List<Scan> scans = new ArrayList<>(numScans);
+    final List<Object> msmsRecords = new ArrayList<>(numScans);
+    for (int i = 0; i < numScans; i++) {
+      final Scan scan;
+      if (type == TYPE_IMS) {
+        final List<PasefRecord> pasef = new ArrayList<>();
+        scan = readFrame(in, file, pasef);
+        msmsRecords.add(pasef);
+      } else {
+        scan = readScan(in, file, msmsRecords);
+      }
+      scans.add(scan);
+      file.addScan(scan);
+    }
+
+    for (int i = 0; i < numScans; i++) {
+      final Object msms = msmsRecords.get(i);
+      if (scans.get(i) instanceof SimpleFrame frame) {
+        @SuppressWarnings("unchecked") final List<PasefRecord> pasef = (List<PasefRecord>) msms;
+        if (!pasef.isEmpty()) {
+          final Set<PasefMsMsInfo> infos = new HashSet<>();
+          for (PasefRecord info : pasef) {
+            infos.add(info.create(scans));
+          }
+          frame.setPrecursorInfos(infos);
+        }
+      } else if (msms instanceof DdaRecord dda) {
+        ((SimpleScan) scans.get(i)).setMsMsInfo(dda.create(scans));
+      } else if (msms instanceof String xml) {
+        ((SimpleScan) scans.get(i)).setMsMsInfo(parseMsMsInfo(xml, file));
+      }
+    }
+    return file;
+  }
+
+  private Scan readScan(DataInputStream in, RawDataFile file, List<Object> msmsRecords)
+      throws IOException {
+    final ScanHeader header = readScanHeader(in);
+    final long offset = in.readLong();
+    final int numDp = in.readInt();
+    final SimpleScan scan = new SimpleScan(file, header.scanNumber, header.msLevel, header.rt, null,
+        mapDoubles(offset, numDp), mapDoubles(offset + (long) numDp * Double.BYTES, numDp),
+        header.spectrumType, header.polarity, header.scanDefinition, header.scanningRange(),
+        header.injectionTime);
+
+    final byte massList = in.readByte();
+    if (massList == MASS_LIST_SCAN_POINTER) {
+      scan.addMassList(new ScanPointerMassList(scan));
+    } else if (massList != MASS_LIST_NONE) {
+      final long massListOffset = in.readLong();
+      final int numMassListDp = in.readInt();
+      scan.addMassList(new SimpleMassList(mapDoubles(massListOffset, numMassListDp),
+          mapDoubles(massListOffset + (long) numMassListDp * Double.BYTES, numMassListDp)));
+    }
+
+    final byte msms = in.readByte();
+    if (msms == MSMS_DDA) {
+      msmsRecords.add(
+          new DdaRecord(in.readDouble(), readNullableInt(in), readNullableFloat(in), in.readInt(),
+              in.readInt(), ActivationMethod.valueOf(in.readUTF()), readNullableRange(in)));
+    } else if (msms != MSMS_NONE) {
+      final byte[] xml = new byte[in.readInt()];
+      in.readFully(xml);
+      msmsRecords.add(new String(xml, StandardCharsets.UTF_8));
+    } else {
+      msmsRecords.add(null);
+    }
+    return scan;
+  }
+
+  private Frame readFrame(DataInputStream in, RawDataFile file, List<PasefRecord> pasef)
+      throws IOException {
+    final ScanHeader header = readScanHeader(in);
+    final MobilityType mobilityType = MobilityType.valueOf(in.readUTF());
+    long position = in.readLong();
+
+    final int numDp = in.readInt();
+    final double[] mzs = readDoubles(position, numDp);
+    position += (long) numDp * Double.BYTES;
+    final double[] intensities = readDoubles(position, numDp);
+    position += (long) numDp * Double.BYTES;
+
+    final SimpleFrame frame = new SimpleFrame(file, header.scanNumber, header.msLevel, header.rt,
+        mzs, intensities, header.spectrumType, header.polarity, header.scanDefinition,
+        header.nonNullScanningRange(), mobilityType, null, header.injectionTime);
+
+    if (in.readByte() != MASS_LIST_NONE) {
+      final int numMassListDp = in.readInt();
+      final double[] massListMzs = readDoubles(position, numMassListDp);
+      position += (long) numMassListDp * Double.BYTES;
+      final double[] massListIntensities = readDoubles(position, numMassListDp);
+      position += (long) numMassListDp * Double.BYTES;
+      frame.addMassList(
+          new SimpleMassList(file.getMemoryMapStorage(), massListMzs, massListIntensities));
+    }
+
+    final int numMobilities = in.readInt();
+    final double[] mobilities = readDoubles(position, numMobilities);
+    position += (long) numMobilities * Double.BYTES;
+    if (numMobilities > 0) {
+      frame.setMobilities(mobilities);
+    }
+
+    final int numMobilityScans = in.readInt();
+    final int[] rawLengths = readInts(position, numMobilityScans);
+    position += paddedIntBytes(numMobilityScans);
+    final int rawTotal = in.readInt();
+    final double[] rawMzs = readDoubles(position, rawTotal);
+    position += (long) rawTotal * Double.BYTES;
+    final double[] rawIntensities = readDoubles(position, rawTotal);
+    position += (long) rawTotal * Double.BYTES;
+
+    final List<BuildingMobilityScan> mobilityScans = new ArrayList<>(numMobilityScans);
+    int start = 0;
+    for (int i = 0; i < numMobilityScans; i++) {
+      final int end = start + rawLengths[i];
+      mobilityScans.add(new BuildingMobilityScan(i, Arrays.copyOfRange(rawMzs, start, end),
+          Arrays.copyOfRange(rawIntensities, start, end)));
+      start = end;
+    }
+    if (numMobilityScans > 0) {
+      frame.setMobilityScans(mobilityScans, false);
+    }
+
+    if (in.readBoolean()) {
+      final int[] massListLengths = readInts(position, numMobilityScans);
+      position += paddedIntBytes(numMobilityScans);
+      final int massListTotal = in.readInt();
+      final double[] massListMzs = readDoubles(position, massListTotal);
+      position += (long) massListTotal * Double.BYTES;
+      final double[] massListIntensities = readDoubles(position, massListTotal);
+
+      final List<double[][]> massLists = new ArrayList<>(numMobilityScans);
+      start = 0;
+      for (int i = 0; i < numMobilityScans; i++) {
+        final int end = start + massListLengths[i];
+        massLists.add(new double[][]{Arrays.copyOfRange(massListMzs, start, end),
+            Arrays.copyOfRange(massListIntensities, start, end)});
+        start = end;
+      }
+      frame.getMobilityScanStorage().setMassLists(file.getMemoryMapStorage(), massLists);
+    }
+
+    final int numPasef = in.readInt();
+    for (int i = 0; i < numPasef; i++) {
+      pasef.add(new PasefRecord(in.readDouble(), in.readInt(), in.readInt(), readNullableFloat(in),
+          readNullableInt(in), in.readInt(), in.readInt(), readNullableRange(in)));
+    }
+    return frame;
+  }
+
+  private ScanHeader readScanHeader(DataInputStream in) throws IOException {
+    return new ScanHeader(in.readInt(), in.readInt(), in.readFloat(),
+        MassSpectrumType.valueOf(in.readUTF()), PolarityType.valueOf(in.readUTF()),
+        readNullableString(in), readNullableRange(in), readNullableFloat(in));
+  }
+
+  /**
+   * @return a buffer over the requested bytes of the data section. Maps a new window of up to
+   * {@link #maxWindowSize} bytes if the bytes are not within the current window. Scans are written
+   * in order, so windows only move forward.
+   */
+  private ByteBuffer map(long offset, long length) throws IOException {
+    if (length > maxWindowSize) {
+      throw new IllegalArgumentException(
+          "Cannot map " + length + " bytes, the maximum is " + maxWindowSize);
+    }
+    if (offset < windowStart || offset + length > windowEnd) {
+      if (offset + length > dataEnd) {
+        throw new IOException("Raw data container is corrupt, data exceeds the data section.");
+      }
+      final long size = Math.min(maxWindowSize, dataEnd - offset);
+      window = channel.map(MapMode.READ_ONLY, offset, size);
+      windowStart = offset;
+      windowEnd = offset + size;
+    }
+    // both are smaller than the window size
+    return window.slice((int) (offset - windowStart), (int) length);
+  }
+
+  /**
+   * @return the doubles mapped from the container or copied if they exceed the window size
+   */
+  private DoubleBuffer mapDoubles(long offset, int length) throws IOException {
+    final long bytes = (long) length * Double.BYTES;
+    if (bytes <= maxWindowSize) {
+      return map(offset, bytes).asDoubleBuffer();
+    }
+    return DoubleBuffer.wrap(readDoubles(offset, length));
+  }
+
+  /**
+   * Reads doubles that may span multiple windows
+   */
+  private double[] readDoubles(long offset, int length) throws IOException {
+    final double[] values = new double[length];
+    final int maxPerWindow = (int) Math.min(Integer.MAX_VALUE, maxWindowSize / Double.BYTES);
+    for (int read = 0; read < length; ) {
+      final int n = Math.min(length - read, maxPerWindow);
+      map(offset + (long) read * Double.BYTES, (long) n * Double.BYTES).asDoubleBuffer()
+          .get(values, read, n);
+      read += n;
+    }
+    return values;
+  }
+
+  /**
+   * Reads ints that may span multiple windows
+   */
+  private int[] readInts(long offset, int length) throws IOException {
+    final int[] values = new int[length];
+    final int maxPerWindow = (int) Math.min(Integer.MAX_VALUE, maxWindowSize / Integer.BYTES);
+    for (int read = 0; read < length; ) {
+      final int n = Math.min(length - read, maxPerWindow);
+      map(offset + (long) read * Integer.BYTES, (long) n * Integer.BYTES).asIntBuffer()
+          .get(values, read, n);
+      read += n;
+    }
+    return values;
+  }
+
+  private static long paddedIntBytes(int numValues) {
+    return (long) (numValues + numValues % 2) * Integer.BYTES;
+  }
+
+  private void readMetadata(RawDataFileImpl file, byte[] metadata) throws IOException {
+    try {
+      final Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .parse(new ByteArrayInputStream(metadata)).getDocumentElement();
+      final NodeList children = root.getChildNodes();
+      for (int i = 0; i < children.getLength(); i++) {
+        final Node node = children.item(i);
+        if (!(node instanceof Element element)) {
+          continue;
+        }
+        if (element.getTagName().equals(RawDataContainerWriter.METADATA_APPLIED_METHOD_ELEMENT)) {
+          file.getAppliedMethods().add(SimpleFeatureListAppliedMethod.loadValueFromXML(element));
+        } else if (element.getTagName().equals(CCSCalibration.XML_ELEMENT)
+                   && file instanceof IMSRawDataFileImpl ims) {
+          ims.setCCSCalibration(CCSCalibration.loadFromXML(element));
+        }
+      }
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException("Cannot read metadata of raw data file " + file.getName(), e);
+    }
+  }
+
+  private MsMsInfo parseMsMsInfo(String xml, RawDataFile file) throws IOException {
+    try {
+      final XMLStreamReader reader = XMLInputFactory.newInstance()
+          .createXMLStreamReader(new StringReader(xml));
+      reader.nextTag();
+      final List<RawDataFile> allFiles = new ArrayList<>(projectFiles);
+      allFiles.add(file);
+      return MsMsInfo.loadFromXML(reader, file, allFiles);
+    } catch (XMLStreamException e) {
+      throw new IOException("Cannot read MS/MS info of raw data file " + file.getName(), e);
+    }
+  }
+
+  private static @Nullable String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static @Nullable Float readNullableFloat(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readFloat() : null;
+  }
+
+  private static @Nullable Integer readNullableInt(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  private static @Nullable Range<Double> readNullableRange(DataInputStream in) throws IOException {
+    return in.readBoolean() ? Range.closed(in.readDouble(), in.readDouble()) : null;
+  }
+
+  private static @Nullable Scan getScan(List<Scan> scans, int index) {
+    return index >= 0 && index < scans.size() ? scans.get(index) : null;
+  }
+
+  private record ScanHeader(int scanNumber, int msLevel, float rt, MassSpectrumType spectrumType,
+                            PolarityType polarity, String scanDefinition,
+                            @Nullable Range<Double> scanningRange, @Nullable Float injectionTime) {
+
+    private @NotNull Range<Double> nonNullScanningRange() {
+      return scanningRange != null ? scanningRange : Range.singleton(0d);
+    }
+  }
+
+  private record DdaRecord(double isolationMz, @Nullable Integer charge, @Nullable Float energy,
+                           int parentIndex, int msLevel, ActivationMethod activationMethod,
+                           @Nullable Range<Double> isolationWindow) {
+
+    private MsMsInfo create(List<Scan> scans) {
+      return new DDAMsMsInfoImpl(isolationMz, charge, energy, null, getScan(scans, parentIndex),
+          msLevel, activationMethod, isolationWindow);
+    }
+  }
+
+  private record PasefRecord(double precursorMz, int lowerSpectrum, int upperSpectrum,
+                             @Nullable Float energy, @Nullable Integer charge, int parentIndex,
+                             int fragmentIndex, @Nullable Range<Double> isolationWindow) {
+
+    private PasefMsMsInfo create(List<Scan> scans) {
+      return new PasefMsMsInfoImpl(precursorMz, Range.closed(lowerSpectrum, upperSpectrum), energy,
+          charge, (Frame) getScan(scans, parentIndex), (Frame) getScan(scans, fragmentIndex),
+          isolationWindow);
+    }
+  }
+}
@@ -26,12 +26,14 @@
 package io.github.mzmine.modules.io.projectload.version_3_0;
 
 import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.batchmode.BatchModeModule;
 import io.github.mzmine.modules.batchmode.BatchModeParameters;
 import io.github.mzmine.modules.batchmode.BatchQueue;
+import io.github.mzmine.modules.io.projectload.RawDataContainerReader;
 import io.github.mzmine.modules.io.projectload.RawDataFileOpenHandler;
 import io.github.mzmine.modules.io.projectsave.RawDataFileSaveHandler;
 import io.github.mzmine.parameters.Parameter;
@@ -55,11 +57,13 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -192,16 +196,57 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
     return queues;
   }
 
+  /**
+   * Restores all raw data files that were stored as data containers in the project. The containers
+   * are extracted to temporary files, which are memory mapped by the new raw data files.
+   *
+   * @return false if a container could not be read
+   */
+  private boolean loadDataContainers(List<ZipEntry> containers) {
+    for (ZipEntry entry : containers) {
+      if (isCanceled()) {
+        return false;
+      }
+      try {
+        final File tempFile = FileAndPathUtil.createTempFile(
+            RawDataFileSaveHandler.TEMP_CONTAINER_FILE_NAME, ".tmp");
+        tempFile.deleteOnExit();
+        try (InputStream in = zipFile.getInputStream(entry);
+            FileOutputStream out = new FileOutputStream(tempFile)) {
+          new StreamCopy().copy(in, out);
+        }
+        final RawDataFile file = RawDataContainerReader.read(tempFile,
+            List.of(project.getDataFiles()));
+        project.addFile(file);
+        logger.finest(() -> "Restored raw data file " + file.getName() + " from data container.");
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Cannot load data container " + entry.getName(), e);
+        setErrorMessage("Cannot load data container " + entry.getName() + " from project.");
+        return false;
+      }
+      processedSteps++;
+    }
+    return true;
+  }
+
+  private List<ZipEntry> findDataContainers() {
+    if (zipFile == null) {
+      return List.of();
+    }
+    return Collections.list(zipFile.entries()).stream()
+        .filter(entry -> entry.getName().startsWith(RawDataFileSaveHandler.DATA_CONTAINER_FOLDER))
+        .map(ZipEntry.class::cast).toList();
+  }
+
   @Override
   public String getTaskDescription() {
-    return "Importing raw data files from project. Processing import batch step " + (processedSteps
-                                                                                     + 1) + "/"
-           + numSteps + ".";
+    return "Importing raw data files from project. Processing import step " + (processedSteps + 1)
+           + "/" + numSteps + ".";
   }
 
   @Override
   public double getFinishedPercentage() {
-    return currentTask != null ? (double) (processedSteps) / numSteps : 0d;
+    return (double) (processedSteps) / numSteps;
   }
 
   public boolean loadRawDataFiles() throws InterruptedException {
@@ -210,8 +255,13 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
     }
 
     try {
+      final List<ZipEntry> containers = findDataContainers();
       List<BatchQueue> batchQueues = loadBatchQueues();
-      numSteps = batchQueues.size();
+      numSteps = Math.max(1, containers.size() + batchQueues.size());
+
+      if (!loadDataContainers(containers)) {
+        return false;
+      }
 
       Path tempDir = FileAndPathUtil.createTempDirectory(TEMP_RAW_DATA_FOLDER);
 
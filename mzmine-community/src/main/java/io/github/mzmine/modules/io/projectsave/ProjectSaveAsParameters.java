@@ -34,6 +34,7 @@ import io.github.mzmine.javafx.components.factories.FxTextFlows;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.dialogs.ParameterSetupDialog;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
@@ -66,10 +67,17 @@ public class ProjectSaveAsParameters extends SimpleParameterSet {
       ProjectSaveOption.REFERENCING);
   public static final FileNameParameter projectFile = new FileNameParameter("Project file",
       "File name of project to be saved", extensions, FileSelectionType.SAVE);
+  public static final BooleanParameter storeMsData = new BooleanParameter("Store imported MS data",
+      """
+          Stores the imported scans, mass lists, frames, and mobility scans as binary data \
+          containers in the project. Opening the project maps the data directly instead of \
+          importing the original MS data files and running mass detection again. Creates larger \
+          projects. Files that cannot be stored this way (e.g., imaging) are still imported from \
+          the original files.""", false);
   private static final Logger logger = Logger.getLogger(ProjectSaveAsParameters.class.getName());
 
   public ProjectSaveAsParameters() {
-    super(new Parameter[]{projectFile, option});
+    super(new Parameter[]{projectFile, option, storeMsData});
   }
 
   @Override
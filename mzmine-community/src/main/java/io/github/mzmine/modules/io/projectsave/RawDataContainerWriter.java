@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import com.google.common.collect.Range;
+import com.google.common.io.CountingOutputStream;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.MobilityScanStorage;
+import io.github.mzmine.datamodel.impl.PasefMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleFrame;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.modules.dataprocessing.id_ccscalibration.CCSCalibration;
+import io.github.mzmine.project.impl.IMSRawDataFileImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Writes the imported scans, mass lists, frames and mobility scans of a raw data file into a
+ * binary container, so that a project can be opened without importing the original MS data files
+ * again. See {@link io.github.mzmine.modules.io.projectload.RawDataContainerReader}.
+ * <p>
+ * Layout: magic and version, followed by the data section with all spectral arrays as big endian
+ * doubles (8 byte aligned), the scan records and a footer with the offset of the scan records. The
+ * data section is written first, so the container is written in one pass. LC-MS scans map their
+ * data directly from the data section when the container is read.
+ */
+public class RawDataContainerWriter {
+
+  public static final int MAGIC = 0x4D5A5244; // MZRD
+  public static final int VERSION = 1;
+  public static final int TYPE_LCMS = 0;
+  public static final int TYPE_IMS = 1;
+
+  public static final byte MASS_LIST_NONE = 0;
+  public static final byte MASS_LIST_STORED = 1;
+  public static final byte MASS_LIST_SCAN_POINTER = 2;
+
+  public static final byte MSMS_NONE = 0;
+  public static final byte MSMS_DDA = 1;
+  public static final byte MSMS_XML = 2;
+
+  public static final String METADATA_ROOT_ELEMENT = "rawdatafile";
+  public static final String METADATA_APPLIED_METHOD_ELEMENT = "appliedmethod";
+
+  private final RawDataFile file;
+  private final Map<Scan, Integer> scanIndices;
+  private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+  private double[] mzs = new double[0];
+  private double[] intensities = new double[0];
+
+  private CountingOutputStream dataCounter;
+  private DataOutputStream data;
+
+  private RawDataContainerWriter(@NotNull RawDataFile file) {
+    this.file = file;
+    final List<Scan> scans = file.getScans();
+    scanIndices = new IdentityHashMap<>(scans.size());
+    for (int i = 0; i < scans.size(); i++) {
+      scanIndices.put(scans.get(i), i);
+    }
+  }
+
+  /**
+   * @return true if the file and all its scans can be stored in a container. Other files are
+   * imported from the original files when the project is opened.
+   */
+  public static boolean isSupported(@NotNull RawDataFile file) {
+    final Class<? extends Scan> scanClass;
+    if (file.getClass() == RawDataFileImpl.class) {
+      scanClass = SimpleScan.class;
+    } else if (file.getClass() == IMSRawDataFileImpl.class) {
+      scanClass = SimpleFrame.class;
+    } else {
+      return false;
+    }
+    for (Scan scan : file.getScans()) {
+      if (scan.getClass() != scanClass) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the container of a raw data file.
+   *
+   * @param file   the raw data file, see {@link #isSupported(RawDataFile)}
+   * @param target the container file
+   * @return the CRC32 checksum of the container
+   */
+  public static long write(@NotNull RawDataFile file, @NotNull File target) throws IOException {
+    if (!isSupported(file)) {
+      throw new IllegalArgumentException(
+          "Raw data file " + file.getName() + " cannot be stored in a data container.");
+    }
+    return new RawDataContainerWriter(file).write(target);
+  }
+
+  private long write(@NotNull File target) throws IOException {
+    final CRC32 crc = new CRC32();
+    try (var fileOut = new CheckedOutputStream(
+        new BufferedOutputStream(new FileOutputStream(target), 1 << 20), crc)) {
+      dataCounter = new CountingOutputStream(fileOut);
+      data = new DataOutputStream(dataCounter);
+      data.writeInt(MAGIC);
+      data.writeInt(VERSION);
+
+      final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+      final DataOutputStream records = new DataOutputStream(recordBytes);
+      writeFileHeader(records);
+      for (Scan scan : file.getScans()) {
+        if (scan instanceof SimpleFrame frame) {
+          writeFrame(records, frame);
+        } else {
+          writeScan(records, (SimpleScan) scan);
+        }
+      }
+      records.flush();
+
+      final long recordsOffset = dataCounter.getCount();
+      recordBytes.writeTo(data);
+      data.writeLong(recordsOffset);
+      data.writeInt(MAGIC);
+      data.flush();
+    }
+    return crc.getValue();
+  }
+
+  private void writeFileHeader(DataOutputStream records) throws IOException {
+    records.writeInt(file instanceof IMSRawDataFileImpl ? TYPE_IMS : TYPE_LCMS);
+    records.writeUTF(file.getName());
+    writeNullableString(records, file.getAbsolutePath());
+    records.writeUTF(file.getColor().toString());
+    writeNullableString(records,
+        file.getStartTimeStamp() != null ? file.getStartTimeStamp().toString() : null);
+
+    final byte[] metadata = createMetadataXml();
+    records.writeInt(metadata.length);
+    records.write(metadata);
+
+    records.writeInt(file.getNumOfScans());
+  }
+
+  /**
+   * Applied methods and the CCS calibration are stored in the same xml format as in the feature
+   * lists
+   */
+  private byte[] createMetadataXml() throws IOException {
+    try {
+      final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+      final Element root = doc.createElement(METADATA_ROOT_ELEMENT);
+      doc.appendChild(root);
+      for (FeatureListAppliedMethod method : file.getAppliedMethods()) {
+        final Element element = doc.createElement(METADATA_APPLIED_METHOD_ELEMENT);
+        method.saveValueToXML(element);
+        root.appendChild(element);
+      }
+      if (file instanceof IMSRawDataFileImpl ims && ims.getCCSCalibration() != null) {
+        final CCSCalibration calibration = ims.getCCSCalibration();
+        final Element element = doc.createElement(CCSCalibration.XML_ELEMENT);
+        calibration.saveToXML(element);
+        root.appendChild(element);
+      }
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      TransformerFactory.newInstance().newTransformer()
+          .transform(new DOMSource(doc), new StreamResult(out));
+      return out.toByteArray();
+    } catch (ParserConfigurationException | TransformerException e) {
+      throw new IOException("Cannot write metadata of raw data file " + file.getName(), e);
+    }
+  }
+
+  private void writeScan(DataOutputStream records, SimpleScan scan) throws IOException {
+    writeScanHeader(records, scan);
+
+    records.writeLong(dataCounter.getCount());
+    final int numDp = scan.getNumberOfDataPoints();
+    records.writeInt(numDp);
+    writeSpectrum(scan.getMzValues(mzs(numDp)), scan.getIntensityValues(intensities(numDp)),
+        numDp);
+
+    final MassList massList = scan.getMassList();
+    if (massList == null) {
+      records.writeByte(MASS_LIST_NONE);
+    } else if (massList instanceof ScanPointerMassList) {
+      records.writeByte(MASS_LIST_SCAN_POINTER);
+    } else {
+      records.writeByte(MASS_LIST_STORED);
+      records.writeLong(dataCounter.getCount());
+      final int numMassListDp = massList.getNumberOfDataPoints();
+      records.writeInt(numMassListDp);
+      writeSpectrum(massList.getMzValues(mzs(numMassListDp)),
+          massList.getIntensityValues(intensities(numMassListDp)), numMassListDp);
+    }
+
+    writeMsMsInfo(records, scan.getMsMsInfo());
+  }
+
+  private void writeFrame(DataOutputStream records, SimpleFrame frame) throws IOException {
+    writeScanHeader(records, frame);
+    records.writeUTF(frame.getMobilityType().name());
+
+    // all data of a frame is stored in one block
+    records.writeLong(dataCounter.getCount());
+
+    final int numDp = frame.getNumberOfDataPoints();
+    records.writeInt(numDp);
+    writeSpectrum(frame.getMzValues(mzs(numDp)), frame.getIntensityValues(intensities(numDp)),
+        numDp);
+
+    final MassList massList = frame.getMassList();
+    if (massList == null) {
+      records.writeByte(MASS_LIST_NONE);
+    } else {
+      records.writeByte(MASS_LIST_STORED);
+      final int numMassListDp = massList.getNumberOfDataPoints();
+      records.writeInt(numMassListDp);
+      writeSpectrum(massList.getMzValues(mzs(numMassListDp)),
+          massList.getIntensityValues(intensities(numMassListDp)), numMassListDp);
+    }
+
+    final double[] mobilities = frame.getMobilities() != null ? frame.getMobilities()
+        .toDoubleArray() : new double[0];
+    records.writeInt(mobilities.length);
+    writeDoubles(mobilities, mobilities.length);
+
+    final MobilityScanStorage storage = frame.getMobilityScanStorage();
+    final int numMobilityScans = storage != null ? storage.getNumberOfMobilityScans() : 0;
+    records.writeInt(numMobilityScans);
+    if (numMobilityScans == 0) {
+      records.writeInt(0);
+      records.writeBoolean(false);
+      writePasefInfos(records, frame);
+      return;
+    }
+
+    final int[] rawLengths = new int[numMobilityScans];
+    for (int i = 0; i < numMobilityScans; i++) {
+      rawLengths[i] = storage.getNumberOfRawDatapoints(i);
+    }
+    writeInts(rawLengths);
+    final int rawTotal = storage.getRawTotalNumPoints();
+    records.writeInt(rawTotal);
+    storage.getAllRawMobilityScanMzValues(mzs(rawTotal));
+    storage.getAllRawMobilityScanIntensityValues(intensities(rawTotal));
+    writeSpectrum(mzs, intensities, rawTotal);
+
+    final boolean hasMassLists = numMobilityScans > 0 && storage.getMassList(0) != null;
+    records.writeBoolean(hasMassLists);
+    if (hasMassLists) {
+      final int[] massListLengths = new int[numMobilityScans];
+      for (int i = 0; i < numMobilityScans; i++) {
+        massListLengths[i] = storage.getNumberOfMassListDatapoints(i);
+      }
+      writeInts(massListLengths);
+      final int massListTotal = storage.getMassListTotalNumPoints();
+      records.writeInt(massListTotal);
+      storage.getAllMassListMzValues(mzs(massListTotal));
+      storage.getAllMassListIntensityValues(intensities(massListTotal));
+      writeSpectrum(mzs, intensities, massListTotal);
+    }
+
+    writePasefInfos(records, frame);
+  }
+
+  private void writePasefInfos(DataOutputStream records, SimpleFrame frame) throws IOException {
+    final List<PasefMsMsInfoImpl> infos = frame.getImsMsMsInfos().stream()
+        .filter(info -> info.getClass() == PasefMsMsInfoImpl.class)
+        .map(PasefMsMsInfoImpl.class::cast).toList();
+    records.writeInt(infos.size());
+    for (PasefMsMsInfoImpl info : infos) {
+      records.writeDouble(info.getIsolationMz());
+      records.writeInt(info.getSpectrumNumberRange().lowerEndpoint());
+      records.writeInt(info.getSpectrumNumberRange().upperEndpoint());
+      writeNullableFloat(records, info.getActivationEnergy());
+      writeNullableInt(records, info.getPrecursorCharge());
+      records.writeInt(getScanIndex(info.getParentFrame()));
+      records.writeInt(getScanIndex(info.getMsMsFrame()));
+      writeNullableRange(records, info.getIsolationWindow());
+    }
+  }
+
+  private void writeScanHeader(DataOutputStream records, Scan scan) throws IOException {
+    records.writeInt(scan.getScanNumber());
+    records.writeInt(scan.getMSLevel());
+    records.writeFloat(scan.getRetentionTime());
+    records.writeUTF(scan.getSpectrumType().name());
+    records.writeUTF(scan.getPolarity().name());
+    writeNullableString(records, scan.getScanDefinition());
+    writeNullableRange(records, scan.getScanningMZRange());
+    writeNullableFloat(records, scan.getInjectionTime());
+  }
+
+  private void writeMsMsInfo(DataOutputStream records, @Nullable MsMsInfo info) throws IOException {
+    if (info == null) {
+      records.writeByte(MSMS_NONE);
+    } else if (info.getClass() == DDAMsMsInfoImpl.class) {
+      final DDAMsMsInfoImpl dda = (DDAMsMsInfoImpl) info;
+      records.writeByte(MSMS_DDA);
+      records.writeDouble(dda.getIsolationMz());
+      writeNullableInt(records, dda.getPrecursorCharge());
+      writeNullableFloat(records, dda.getActivationEnergy());
+      records.writeInt(getScanIndex(dda.getParentScan()));
+      records.writeInt(dda.getMsLevel());
+      records.writeUTF(dda.getActivationMethod().name());
+      writeNullableRange(records, dda.getIsolationWindow());
+    } else {
+      // rare types like MSn trees use the xml format of the feature lists
+      try {
+        final StringWriter xml = new StringWriter();
+        final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(xml);
+        info.writeToXML(writer);
+        writer.flush();
+        writer.close();
+        records.writeByte(MSMS_XML);
+        final byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+        records.writeInt(bytes.length);
+        records.write(bytes);
+      } catch (XMLStreamException e) {
+        throw new IOException("Cannot write MS/MS info of raw data file " + file.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * @return index of the scan in this file or -1
+   */
+  private int getScanIndex(@Nullable Scan scan) {
+    if (scan == null || scan.getDataFile() != file) {
+      return -1;
+    }
+    return scanIndices.getOrDefault(scan, -1);
+  }
+
+  private void writeSpectrum(double[] mzs, double[] intensities, int numDp) throws IOException {
+    writeDoubles(mzs, numDp);
+    writeDoubles(intensities, numDp);
+  }
+
+  private void writeDoubles(double[] values, int numValues) throws IOException {
+    final int perChunk = buffer.capacity() / Double.BYTES;
+    for (int start = 0; start < numValues; start += perChunk) {
+      final int n = Math.min(perChunk, numValues - start);
+      buffer.clear();
+      buffer.asDoubleBuffer().put(values, start, n);
+      data.write(buffer.array(), 0, n * Double.BYTES);
+    }
+  }
+
+  /**
+   * Writes the int values and pads the data section to keep doubles 8 byte aligned
+   */
+  private void writeInts(int[] values) throws IOException {
+    for (int value : values) {
+      data.writeInt(value);
+    }
+    if (values.length % 2 != 0) {
+      data.writeInt(0);
+    }
+  }
+
+  private double[] mzs(int numDp) {
+    if (mzs.length < numDp) {
+      mzs = new double[numDp];
+    }
+    return mzs;
+  }
+
+  private double[] intensities(int numDp) {
+    if (intensities.length < numDp) {
+      intensities = new double[numDp];
+    }
+    return intensities;
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static void writeNullableFloat(DataOutputStream out, @Nullable Float value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeFloat(value);
+    }
+  }
+
+  private static void writeNullableInt(DataOutputStream out, @Nullable Integer value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  private static void writeNullableRange(DataOutputStream out,
+      @Nullable Range<? extends Number> range) throws IOException {
+    out.writeBoolean(range != null);
+    if (range != null) {
+      out.writeDouble(range.lowerEndpoint().doubleValue());
+      out.writeDouble(range.upperEndpoint().doubleValue());
+    }
+  }
+}
@@ -79,11 +79,21 @@ public class RawDataFileSaveHandler extends AbstractTask {
   public static final String DATA_FILES_PREFIX = "$$";
   public static final String DATA_FILES_SUFFIX = DATA_FILES_PREFIX;
   public static final Pattern DATA_FILE_PATTERN = Pattern.compile("(\\$\\$)([^\\n]+)(\\$\\$)");
+  public static final String DATA_CONTAINER_FOLDER = "msdatacontainers/";
+  public static final String DATA_CONTAINER_SUFFIX = ".mzmsdata";
+  public static final String TEMP_CONTAINER_FILE_NAME = "mzmine_project_msdatacontainer";
 
   private final MZmineProject project;
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final ZipOutputStream zipStream;
+  /**
+   * files that are imported by the raw data import batch
+   */
   private final List<RawDataFile> files;
+  /**
+   * files that are stored as data containers
+   */
+  private final List<RawDataFile> containerFiles;
   private final boolean saveFilesInProject;
   private final String prefix = "Saving raw data files: ";
   private final int numSteps;
@@ -92,14 +102,17 @@ public class RawDataFileSaveHandler extends AbstractTask {
   private String description;
 
   public RawDataFileSaveHandler(MZmineProject project, ZipOutputStream zipOutputStream,
-      boolean saveFilesInProject, @NotNull Instant moduleCallDate) {
+      boolean saveFilesInProject, boolean storeMsData, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.project = project;
     this.zipStream = zipOutputStream;
     this.saveFilesInProject = saveFilesInProject;
-    files = List.of(project.getDataFiles());
-    numSteps = 1 /*dissect + merge */ + (saveFilesInProject ? files.size() : 0) /*save files*/
-        + 1 /*save batch file*/;
+    final List<RawDataFile> allFiles = List.of(project.getDataFiles());
+    containerFiles = storeMsData ? allFiles.stream().filter(RawDataContainerWriter::isSupported)
+        .toList() : List.of();
+    files = allFiles.stream().filter(file -> !containerFiles.contains(file)).toList();
+    numSteps = containerFiles.size() /*save containers*/ + 1 /*dissect + merge */
+        + (saveFilesInProject ? files.size() : 0) /*save files*/ + 1 /*save batch file*/;
     stepProgress = 1 / (double) numSteps;
   }
 
@@ -124,6 +137,14 @@ public class RawDataFileSaveHandler extends AbstractTask {
     return getZipPath(file, null, null);
   }
 
+  /**
+   * @param index index of the container in the project
+   * @return the path of a data container in the project zip
+   */
+  public static String getContainerZipPath(int index) {
+    return DATA_CONTAINER_FOLDER + "file_" + index + DATA_CONTAINER_SUFFIX;
+  }
+
   @Override
   public TaskPriority getTaskPriority() {
     return TaskPriority.HIGH;
@@ -131,6 +152,8 @@ public class RawDataFileSaveHandler extends AbstractTask {
 
   public boolean saveRawDataFilesAsBatch() throws IOException, ParserConfigurationException {
 
+    saveDataContainers();
+
     List<BatchQueue> cleanedBatchQueues = List.of(RawDataSavingUtils.makeBatchQueue(files));
     progress += stepProgress;
 
@@ -178,6 +201,36 @@ public class RawDataFileSaveHandler extends AbstractTask {
     return true;
   }
 
+  /**
+   * Writes the imported data of all container files into the project. The containers are stored
+   * uncompressed so that they can be extracted and mapped quickly on import.
+   */
+  private void saveDataContainers() throws IOException {
+    for (int i = 0; i < containerFiles.size(); i++) {
+      final RawDataFile file = containerFiles.get(i);
+      description = prefix + "Storing imported data of " + file.getName() + " in project file.";
+      logger.finest(() -> "Storing imported data of " + file.getName() + " in project file.");
+
+      final File tmpFile = FileAndPathUtil.createTempFile(TEMP_CONTAINER_FILE_NAME, ".tmp");
+      try {
+        final long crc = RawDataContainerWriter.write(file, tmpFile);
+        final ZipEntry entry = new ZipEntry(getContainerZipPath(i));
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(tmpFile.length());
+        entry.setCompressedSize(tmpFile.length());
+        entry.setCrc(crc);
+        zipStream.putNextEntry(entry);
+        try (FileInputStream inputStream = new FileInputStream(tmpFile)) {
+          new StreamCopy().copy(inputStream, zipStream);
+        }
+        zipStream.closeEntry();
+      } finally {
+        tmpFile.delete();
+      }
+      progress += stepProgress;
+    }
+  }
+
   /**
    * Copies the raw data files to the zip folder (MZmine project file).
    *
@@ -79,6 +79,7 @@ import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.F
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.InterSampleHeightCorrParameters;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.corrgrouping.CorrelateGroupingModule;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.corrgrouping.CorrelateGroupingParameters;
+import io.github.mzmine.modules.dataprocessing.group_spectral_networking.CandidatePairing;
 import io.github.mzmine.modules.dataprocessing.group_spectral_networking.SpectralNetworkingModule;
 import io.github.mzmine.modules.dataprocessing.group_spectral_networking.SpectralNetworkingParameters;
 import io.github.mzmine.modules.dataprocessing.group_spectral_networking.SpectralSignalFilter;
@@ -562,6 +563,7 @@ public abstract class BaseWizardBatchBuilder extends WizardBatchBuilder {
     param.setParameter(JoinAlignerParameters.SameIDRequired, false);
     param.setParameter(JoinAlignerParameters.compareIsotopePattern, false);
     param.setParameter(JoinAlignerParameters.compareSpectraSimilarity, false);
+    param.setParameter(JoinAlignerParameters.hierarchical, false);
     param.setParameter(JoinAlignerParameters.handleOriginal, handleOriginalFeatureLists);
 
     q.add(new MZmineProcessingStepImpl<>(MZmineCore.getModuleInstance(JoinAlignerModule.class),
@@ -1138,6 +1140,8 @@ public abstract class BaseWizardBatchBuilder extends WizardBatchBuilder {
     param.setParameter(SpectralNetworkingParameters.CHECK_NEUTRAL_LOSS_SIMILARITY, false);
     param.setParameter(SpectralNetworkingParameters.MIN_COSINE_SIMILARITY, 0.7);
     param.setParameter(SpectralNetworkingParameters.ONLY_BEST_MS2_SCAN, true);
+    param.setParameter(SpectralNetworkingParameters.CANDIDATE_PAIRING,
+        CandidatePairing.SHARED_SIGNAL_INDEX);
     param.setParameter(SpectralNetworkingParameters.MZ_TOLERANCE, mzTolScans);
 
     param.getParameter(SpectralNetworkingParameters.signalFilters).getEmbeddedParameters()
@@ -25,6 +25,12 @@
 
 package io.github.mzmine.modules.tools.isotopeprediction;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.IsotopePattern;
 import io.github.mzmine.datamodel.IsotopePattern.IsotopePatternStatus;
@@ -42,6 +48,8 @@ import java.awt.Window;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.formula.IsotopeContainer;
 import org.openscience.cdk.formula.IsotopePatternGenerator;
@@ -56,7 +64,17 @@ import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
  */
 public class IsotopePatternCalculator implements MZmineModule {
 
+  private static final Logger logger = Logger.getLogger(IsotopePatternCalculator.class.getName());
   private static final double ELECTRON_MASS = 5.4857990943E-4;
+  private static final long MAX_CACHED_PATTERNS = 100_000;
+
+  /**
+   * Patterns are immutable and only depend on the formula and parameters. Formula prediction,
+   * database searches and the isotope peak scanner request the same patterns many times.
+   */
+  private static final Cache<PatternKey, IsotopePattern> patternCache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_PATTERNS).recordStats().build();
+  private static volatile CacheStats statsOffset = new CacheStats(0, 0, 0, 0, 0, 0);
 
   private static final String MODULE_NAME = "Isotope pattern prediction.";
 
@@ -93,9 +111,63 @@ public class IsotopePatternCalculator implements MZmineModule {
     return calculateIsotopePattern(cdkFormula, minAbundance, 0.00005f, charge, polarity, false);
   }
 
+  /**
+   * Predicted isotope pattern of a formula. Results are cached process-wide by the formula string
+   * (with mass numbers) and all parameters, the same pattern instance is returned for equal
+   * requests.
+   */
   public static IsotopePattern calculateIsotopePattern(IMolecularFormula cdkFormula,
       double minAbundance, double mergeWidth, int charge, PolarityType polarity,
       boolean storeFormula) {
+    final PatternKey key = new PatternKey(
+        MolecularFormulaManipulator.getString(cdkFormula, false, true), minAbundance, mergeWidth,
+        Math.abs(charge), polarity, storeFormula);
+    try {
+      return patternCache.get(key,
+          () -> predictIsotopePattern(cdkFormula, minAbundance, mergeWidth, charge, polarity,
+              storeFormula));
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      // keep the exceptions of the direct calculation
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Hit, miss and eviction counts of the isotope pattern cache since the start or last
+   * {@link #clearCache()}
+   */
+  public static CacheStats getCacheStats() {
+    return patternCache.stats().minus(statsOffset);
+  }
+
+  public static long getCacheSize() {
+    return patternCache.size();
+  }
+
+  /**
+   * @return the maximum number of cached patterns, older patterns are evicted
+   */
+  public static long getMaxCachedPatterns() {
+    return MAX_CACHED_PATTERNS;
+  }
+
+  public static void logCacheStats() {
+    final CacheStats stats = getCacheStats();
+    logger.info(
+        "Isotope pattern cache: %d patterns, %d hits, %d misses (hit rate %.1f %%), %d evictions".formatted(
+            getCacheSize(), stats.hitCount(), stats.missCount(), stats.hitRate() * 100,
+            stats.evictionCount()));
+  }
+
+  public static void clearCache() {
+    patternCache.invalidateAll();
+    statsOffset = patternCache.stats();
+  }
+
+  private static IsotopePattern predictIsotopePattern(IMolecularFormula cdkFormula,
+      double minAbundance, double mergeWidth, int charge, PolarityType polarity,
+      boolean storeFormula) {
     // TODO: check if the formula is not too big (>100 of a single atom?).
     // if so, just cancel the prediction
 
@@ -285,4 +357,9 @@ public class IsotopePatternCalculator implements MZmineModule {
   public @NotNull Class<? extends ParameterSet> getParameterSetClass() {
     return IsotopePatternCalculatorParameters.class;
   }
+
+  private record PatternKey(String formula, double minAbundance, double mergeWidth, int charge,
+                            PolarityType polarity, boolean storeFormula) {
+
+  }
 }
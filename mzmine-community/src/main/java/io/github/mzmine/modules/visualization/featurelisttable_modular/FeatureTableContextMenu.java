@@ -40,12 +40,11 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.compoundannotations.FeatureAnnotation;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
-import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.datamodel.features.types.DataType;
 import io.github.mzmine.datamodel.features.types.DataTypes;
@@ -544,23 +543,10 @@ public class FeatureTableContextMenu extends ContextMenu {
   }
 
   private boolean selectedRowHasCorrelationData() {
-    final Optional<R2RMap<RowsRelationship>> rowMapOptional = selectedRow.getFeatureList()
-        .getRowMap(Type.MS1_FEATURE_CORR);
-    if (rowMapOptional.isEmpty()) {
-      return false;
-    }
-    R2RMap<RowsRelationship> rowsRelationshipR2RMap = rowMapOptional.get();
-
-    List<FeatureListRow> allRows = selectedRow.getFeatureList().getRows();
-    for (FeatureListRow row : allRows) {
-      if (row != selectedRow && rowsRelationshipR2RMap.get(selectedRow, row) != null) {
-        if (rowsRelationshipR2RMap.get(selectedRow, row).getScore() > 0) {
-          return true;
-        }
-      }
-    }
-
-    return false;
+    final FeatureList flist = selectedRow.getFeatureList();
+    return flist.getRowMaps()
+        .streamAllRelationships(Type.MS1_FEATURE_CORR.toString(), selectedRow, flist.getRows())
+        .anyMatch(rel -> rel.getScore() > 0);
   }
 
   private boolean hasMs2(final List<ModularFeatureListRow> selectedRows) {
@@ -34,7 +34,7 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
-import io.github.mzmine.datamodel.features.correlation.R2RMap;
+import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
@@ -123,9 +123,11 @@ public class ColocatedImageVisualizerPane extends AbstractFeatureListRowsPane {
     imageSpectrumPane.getItems().clear();
     selectedWrapper.getChildren().remove(noContentLabel);
     final FeatureList flist = selectedRow.getFeatureList();
-    var opt = flist.getRowMap(Type.MS1_FEATURE_CORR);
+    final R2RNetworkingMaps rowMaps = flist.getRowMaps();
+    final String type = Type.MS1_FEATURE_CORR.toString();
 
-    if (optBestFeature.isEmpty() || opt.isEmpty()) {
+    if (optBestFeature.isEmpty() || (rowMaps.getRowsMaps().get(type) == null
+        && rowMaps.getGraph(type).isEmpty())) {
       selectedWrapper.getChildren().add(noContentLabel);
       colocatedImagePane.updateContent(null, null, null);
       return;
@@ -133,8 +135,7 @@ public class ColocatedImageVisualizerPane extends AbstractFeatureListRowsPane {
 
     final ModularFeature bestFeature = optBestFeature.get();
 
-    final R2RMap<RowsRelationship> rowsRelationshipR2RMap = opt.get();
-    final List<RowsRelationship> sortedRelationships = rowsRelationshipR2RMap.streamAllCorrelatedRows(
+    final List<RowsRelationship> sortedRelationships = rowMaps.streamAllRelationships(type,
             selectedRow, flist.getRows())
         .sorted(Comparator.comparingDouble(RowsRelationship::getScore).reversed()).toList();
 
@@ -29,6 +29,7 @@ import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.correlation.R2RMap;
 import io.github.mzmine.datamodel.features.correlation.R2RNetworkingMaps;
+import io.github.mzmine.datamodel.features.correlation.R2RSparseGraph;
 import io.github.mzmine.datamodel.features.correlation.RowsRelationship;
 import io.github.mzmine.datamodel.features.types.annotations.GNPSSpectralLibraryMatchesType;
 import io.github.mzmine.datamodel.identities.MolecularFormulaIdentity;
@@ -315,6 +316,11 @@ public class FeatureNetworkGenerator {
         }
       }
     }
+    // relationship views are created one at a time
+    for (R2RSparseGraph r2rGraph : relationsMaps.getGraphs().values()) {
+      r2rGraph.streamRelationships()
+          .forEach(rel -> addMS2SimEdges(rel.getRowA(), rel.getRowB(), rel));
+    }
   }
 
   private void addMS2SimEdges(FeatureListRow ra, FeatureListRow rb, RowsRelationship sim) {
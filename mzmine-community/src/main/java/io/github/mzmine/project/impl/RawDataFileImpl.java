@@ -33,16 +33,19 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanDataCache;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.javafx.util.FxColorUtil;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import java.io.Closeable;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javafx.beans.property.ObjectProperty;
@@ -77,6 +80,9 @@ public class RawDataFileImpl implements RawDataFile {
   private final Int2DoubleOpenHashMap dataMaxTIC = new Int2DoubleOpenHashMap(2);
   // Temporary file for scan data storage
   private final MemoryMapStorage storageMemoryMap;
+  // source of scans that read their data on access, closed with this file
+  @Nullable
+  private Closeable scanDataSource;
   private final ObjectProperty<Color> color = new SimpleObjectProperty<>();
   // maximum number of data points and centroid data points in all scans
   protected int maxRawDataPoints = -1;
@@ -360,9 +366,26 @@ public class RawDataFileImpl implements RawDataFile {
     return color;
   }
 
+  /**
+   * @param scanDataSource source of scans that read their data on access. Closed together with this
+   *                       file.
+   */
+  public synchronized void setScanDataSource(@Nullable Closeable scanDataSource) {
+    this.scanDataSource = scanDataSource;
+  }
+
   @Override
   public synchronized void close() {
-
+    if (scanDataSource == null) {
+      return;
+    }
+    ScanDataCache.getInstance().removeAll(this);
+    try {
+      scanDataSource.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot close the source of " + name + ": " + e.getMessage(), e);
+    }
+    scanDataSource = null;
   }
 
   @Override
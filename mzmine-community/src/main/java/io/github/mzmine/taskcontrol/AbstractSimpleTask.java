@@ -29,8 +29,10 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.batchmode.timing.StepProfiler;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.util.MemoryMapStorage;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
@@ -75,7 +77,10 @@ public abstract class AbstractSimpleTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
+    final long start = System.nanoTime();
     process();
+    // report into the batch step profile, if a batch is running
+    StepProfiler.reportTask(Duration.ofNanos(System.nanoTime() - start));
 
     if (!isCanceled()) {
       addAppliedMethod();
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import io.github.mzmine.taskcontrol.Task;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.NumberFormat;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes large text files, like feature tables, with bounded memory. Blocks of items are formatted
+ * to text in parallel on a bounded thread pool. Each formatting thread uses its own formatter, as
+ * number formats are not thread safe. Encoding, compression, and writing run on a single writer
+ * thread, which keeps the original order. Only a limited number of blocks is kept in memory. Blocks
+ * are copied through a reused direct buffer to the file channel.
+ * <p>
+ * Different from {@link ParallelTextWriterTask}, which appends text in the order it arrives.
+ */
+public class ParallelBlockWriter implements AutoCloseable {
+
+  public static final String GZIP_EXTENSION = "gz";
+  private static final int DEFAULT_BLOCK_SIZE = 256;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int FORMAT_THREADS = Math.max(1,
+      Math.min(8, Runtime.getRuntime().availableProcessors() - 1));
+  // blocks that are formatted or waiting to be written
+  private static final int MAX_BLOCKS_IN_FLIGHT = 2 * FORMAT_THREADS;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final ExecutorService formatExecutor = Executors.newFixedThreadPool(FORMAT_THREADS,
+      daemonThreads("Block formatter"));
+  // single thread keeps the order of the blocks
+  private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(
+      daemonThreads("Block writer"));
+
+  private ParallelBlockWriter(WritableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return r -> {
+      final Thread thread = new Thread(r, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Opens the file for writing and replaces existing files
+   *
+   * @param file     the output file
+   * @param compress compress with gzip. Does not change the file name
+   */
+  public static ParallelBlockWriter open(@NotNull File file, boolean compress) throws IOException {
+    final FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    if (!compress) {
+      return new ParallelBlockWriter(fileChannel);
+    }
+    final OutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(fileChannel),
+        BUFFER_SIZE);
+    return new ParallelBlockWriter(Channels.newChannel(gzip));
+  }
+
+  /**
+   * Write text directly, e.g., the header
+   */
+  public void write(@NotNull CharSequence text) throws IOException {
+    write(text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Formats all items in parallel blocks and writes them in order
+   *
+   * @param items      the items to write
+   * @param formatters creates one formatter for each formatting thread
+   * @param task       stops writing if the task is canceled
+   * @return the number of written items
+   */
+  public <T> long writeAll(@NotNull List<T> items,
+      @NotNull Supplier<ItemFormatter<T>> formatters, @Nullable Task task) throws IOException {
+    return writeAll(items, DEFAULT_BLOCK_SIZE, formatters, task);
+  }
+
+  /**
+   * Formats all items in parallel blocks and writes them in order. All blocks are written when
+   * this method returns.
+   *
+   * @param items      the items to write
+   * @param blockSize  number of items formatted together
+   * @param formatters creates one formatter for each formatting thread. The formatters may hold
+   *                   their own number formats
+   * @param task       stops writing if the task is canceled
+   * @return the number of written items
+   */
+  public <T> long writeAll(@NotNull List<T> items, int blockSize,
+      @NotNull Supplier<ItemFormatter<T>> formatters, @Nullable Task task) throws IOException {
+    // one formatter per thread and call
+    final ThreadLocal<ItemFormatter<T>> threadFormatter = ThreadLocal.withInitial(formatters);
+    final ArrayDeque<Future<String>> formatting = new ArrayDeque<>(MAX_BLOCKS_IN_FLIGHT);
+    final ArrayDeque<Future<?>> writing = new ArrayDeque<>(MAX_BLOCKS_IN_FLIGHT);
+    long written = 0;
+    try {
+      for (int from = 0; from < items.size(); from += blockSize) {
+        if (task != null && task.isCanceled()) {
+          break;
+        }
+        // keep a limited number of blocks in memory
+        if (writing.size() >= MAX_BLOCKS_IN_FLIGHT) {
+          formatting.removeFirst();
+          writing.removeFirst().get();
+        }
+        final int blockFrom = from;
+        final int to = Math.min(items.size(), from + blockSize);
+        final Future<String> block = formatExecutor.submit(
+            () -> formatBlock(items, blockFrom, to, threadFormatter.get()));
+        formatting.add(block);
+        // the writer thread waits for the blocks in the order they were submitted
+        writing.add(ioExecutor.submit(() -> {
+          write(getFormatted(block).getBytes(StandardCharsets.UTF_8));
+          return null;
+        }));
+        written += to - from;
+      }
+      while (!writing.isEmpty()) {
+        writing.removeFirst().get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Error while writing text: " + e.getCause().getMessage(),
+          e.getCause());
+    } finally {
+      formatting.forEach(f -> f.cancel(true));
+      writing.forEach(f -> f.cancel(false));
+    }
+    return written;
+  }
+
+  /**
+   * Independent copy of a number format for one formatting thread. Clones of a used
+   * {@link java.text.DecimalFormat} still share an internal digit buffer with the original and
+   * produce wrong digits when used concurrently.
+   *
+   * @return a deep copy or a clone if the format cannot be serialized
+   */
+  public static @NotNull NumberFormat copyFormat(@NotNull NumberFormat format) {
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(format);
+      }
+      try (ObjectInputStream in = new ObjectInputStream(
+          new ByteArrayInputStream(bytes.toByteArray()))) {
+        return (NumberFormat) in.readObject();
+      }
+    } catch (IOException | ClassNotFoundException e) {
+      return (NumberFormat) format.clone();
+    }
+  }
+
+  private static String getFormatted(Future<String> block) throws IOException,
+      InterruptedException {
+    try {
+      return block.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Error while formatting text: " + e.getCause().getMessage(),
+          e.getCause());
+    }
+  }
+
+  private static <T> String formatBlock(List<T> items, int from, int to,
+      ItemFormatter<T> formatter) throws IOException {
+    final StringBuilder text = new StringBuilder((to - from) * 128);
+    try {
+      for (int i = from; i < to; i++) {
+        formatter.format(items.get(i), text);
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("Error while formatting text: " + e.getMessage(), e);
+    }
+    return text.toString();
+  }
+
+  private void write(byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      final int length = Math.min(buffer.capacity(), bytes.length - offset);
+      buffer.clear();
+      buffer.put(bytes, offset, length);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      offset += length;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    formatExecutor.shutdownNow();
+    ioExecutor.shutdown();
+    try {
+      // canceled blocks might still be written
+      ioExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Appends the text of one item. Each formatting thread uses its own instance.
+   */
+  @FunctionalInterface
+  public interface ItemFormatter<T> {
+
+    void format(T item, StringBuilder text);
+  }
+}
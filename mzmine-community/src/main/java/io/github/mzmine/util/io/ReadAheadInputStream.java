@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads a source stream ahead in a separate thread into a bounded queue of chunks. Decouples a
+ * producer like the standard output of a converter process from the consumer, so that the
+ * producer is not blocked whenever the small pipe buffer of the operating system is full. The
+ * memory is limited to the number of chunks times the chunk size.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+  private static final Chunk END = new Chunk(new byte[0], 0);
+
+  private final InputStream source;
+  private final BlockingQueue<Chunk> chunks;
+  private volatile IOException readError;
+  private volatile boolean closed;
+
+  private Chunk current;
+  private int position;
+  private boolean endOfStream;
+
+  /**
+   * @param chunkSize bytes per chunk, only the last chunk may be smaller
+   * @param maxChunks maximum number of chunks that are read ahead
+   * @param name      name of the reader thread
+   */
+  public ReadAheadInputStream(@NotNull InputStream source, int chunkSize, int maxChunks,
+      @NotNull String name) {
+    this.source = source;
+    this.chunks = new ArrayBlockingQueue<>(maxChunks);
+    final Thread reader = new Thread(() -> readAhead(chunkSize), name);
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  private void readAhead(int chunkSize) {
+    try {
+      while (!closed) {
+        // fill the whole chunk, pipes return only a few bytes per read
+        final byte[] buffer = new byte[chunkSize];
+        final int n = source.readNBytes(buffer, 0, chunkSize);
+        if (n > 0 && !offer(new Chunk(buffer, n))) {
+          return;
+        }
+        if (n < chunkSize) {
+          // end of stream
+          break;
+        }
+      }
+    } catch (IOException e) {
+      readError = e;
+    }
+    offer(END);
+  }
+
+  /**
+   * @return false if the stream was closed while waiting for space
+   */
+  private boolean offer(Chunk chunk) {
+    try {
+      while (!closed) {
+        if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * @return false at the end of the stream
+   */
+  private boolean nextChunk() throws IOException {
+    if (endOfStream) {
+      return false;
+    }
+    while (current == null || position >= current.length()) {
+      try {
+        current = chunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for data");
+      }
+      position = 0;
+      if (current == END) {
+        endOfStream = true;
+        if (readError != null) {
+          throw readError;
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextChunk()) {
+      return -1;
+    }
+    return current.data()[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte @NotNull [] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextChunk()) {
+      return -1;
+    }
+    final int n = Math.min(len, current.length() - position);
+    System.arraycopy(current.data(), position, b, off, n);
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return current == null || current == END ? 0 : current.length() - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    chunks.clear();
+    source.close();
+  }
+
+  private record Chunk(byte[] data, int length) {
+
+  }
+}
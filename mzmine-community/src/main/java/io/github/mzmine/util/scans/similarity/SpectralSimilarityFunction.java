@@ -35,6 +35,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.scans.ScanAlignment;
 import io.github.mzmine.util.scans.similarity.impl.composite.CompositeCosineSpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.FastWeightedCosineSpectralSimilarity;
 import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarity;
 
 /**
@@ -48,11 +49,13 @@ public abstract class SpectralSimilarityFunction implements MZmineModule {
       .getModuleInstance(WeightedCosineSpectralSimilarity.class);
   public static final CompositeCosineSpectralSimilarity compositeCosine = MZmineCore
       .getModuleInstance(CompositeCosineSpectralSimilarity.class);
+  public static final FastWeightedCosineSpectralSimilarity fastWeightedCosine = MZmineCore
+      .getModuleInstance(FastWeightedCosineSpectralSimilarity.class);
   /**
    * The collection of SpectralSImilarityFunctions
    */
   public static SpectralSimilarityFunction[] FUNCTIONS = new SpectralSimilarityFunction[]{
-      weightedCosine, compositeCosine};
+      weightedCosine, compositeCosine, fastWeightedCosine};
 
   /**
    * @param parameters
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.similarity.impl.cosine;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
+import io.github.mzmine.util.scans.similarity.Weights;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Allocation free scoring kernel for the weighted cosine similarity. Works on primitive m/z and
+ * intensity arrays sorted by ascending m/z. Candidate signal pairs are collected by a two-pointer
+ * merge and then greedily matched in descending intensity order, which results in the same
+ * alignment as {@link io.github.mzmine.util.scans.ScanAlignment#alignOfSorted} and
+ * {@link io.github.mzmine.util.scans.ScanAlignment#alignOfSortedModAware} without creating
+ * DataPoint pairs and intensity matrices.
+ * <p>
+ * All buffers are reused between calls. A kernel is not thread safe, use {@link #get()} to obtain
+ * the instance of the current thread. The results of the last call are available through the
+ * getters until the next call on the same kernel.
+ */
+public final class CosineScoringKernel {
+
+  private static final ThreadLocal<CosineScoringKernel> LOCAL = ThreadLocal.withInitial(
+      CosineScoringKernel::new);
+
+  private final IntComparator candidateOrder = this::compareCandidates;
+
+  // input, only set during a call
+  private double[] mzsA;
+  private double[] intensitiesA;
+  private double[] mzsB;
+  private double[] intensitiesB;
+
+  // scratch buffers for DataPoint input, sorted by m/z
+  private double[] loadedMzsA = new double[0];
+  private double[] loadedIntensitiesA = new double[0];
+  private double[] loadedMzsB = new double[0];
+  private double[] loadedIntensitiesB = new double[0];
+  private int[] sourceIndexA = new int[0];
+  private int[] sourceIndexB = new int[0];
+
+  private double[] weightedA = new double[0];
+  private double[] weightedB = new double[0];
+  private int[] matchOfA = new int[0];
+  private int[] matchOfB = new int[0];
+  private int[] candidateA = new int[0];
+  private int[] candidateB = new int[0];
+  private int[] candidateSort = new int[0];
+  private int numCandidates;
+
+  // results of the last call
+  private int numA;
+  private int numB;
+  private int overlap;
+  private double cosine;
+  private double explainedIntensityA;
+  private double explainedIntensityB;
+
+  /**
+   * @return the kernel of the current thread
+   */
+  public static @NotNull CosineScoringKernel get() {
+    return LOCAL.get();
+  }
+
+  /**
+   * Score two spectra given as data points in any order. The data points are copied into reusable
+   * buffers and sorted by m/z. Use {@link #createAligned(DataPoint[], DataPoint[])} afterwards to
+   * create the aligned data points of both arrays.
+   *
+   * @return the cosine similarity or NaN if less than minMatch signals were matched
+   * @see #score(double[], double[], int, double[], double[], int, MZTolerance, Weights,
+   * HandleUnmatchedSignalOptions, int, double, double)
+   */
+  public double score(@NotNull DataPoint[] a, @NotNull DataPoint[] b,
+      @NotNull MZTolerance mzTol, @NotNull Weights weights,
+      @NotNull HandleUnmatchedSignalOptions handleUnmatched, int minMatch, double precursorMzA,
+      double precursorMzB) {
+    loadA(a);
+    loadB(b);
+    return score(loadedMzsA, loadedIntensitiesA, a.length, loadedMzsB, loadedIntensitiesB,
+        b.length, mzTol, weights, handleUnmatched, minMatch, precursorMzA, precursorMzB);
+  }
+
+  /**
+   * Score two spectra. Signals of a are matched to the most intense signal of b within the m/z
+   * tolerance, starting with the most intense signal of a. The m/z tolerance is centered on the m/z
+   * of a, like in {@link io.github.mzmine.util.scans.ScanAlignment}. Signals of a may also match
+   * signals in b that are shifted by the precursor m/z difference (modified cosine), if both
+   * precursor m/z values are greater than 0.
+   *
+   * @param mzsA            m/z values of a sorted ascending
+   * @param intensitiesA    intensity values of a
+   * @param numA            number of signals in a
+   * @param mzsB            m/z values of b sorted ascending
+   * @param intensitiesB    intensity values of b
+   * @param numB            number of signals in b
+   * @param handleUnmatched defines if unmatched signals add to the norms, a is the library and b
+   *                        the query
+   * @param minMatch        minimum number of matched signals
+   * @param precursorMzA    precursor m/z of a or a value <= 0 to deactivate modified matching
+   * @param precursorMzB    precursor m/z of b or a value <= 0 to deactivate modified matching
+   * @return the cosine similarity or NaN if less than minMatch signals were matched
+   */
+  public double score(double[] mzsA, double[] intensitiesA, int numA, double[] mzsB,
+      double[] intensitiesB, int numB, @NotNull MZTolerance mzTol, @NotNull Weights weights,
+      @NotNull HandleUnmatchedSignalOptions handleUnmatched, int minMatch, double precursorMzA,
+      double precursorMzB) {
+    this.mzsA = mzsA;
+    this.intensitiesA = intensitiesA;
+    this.mzsB = mzsB;
+    this.intensitiesB = intensitiesB;
+    this.numA = numA;
+    this.numB = numB;
+    try {
+      return calcScore(mzTol, weights, handleUnmatched, minMatch, precursorMzA, precursorMzB);
+    } finally {
+      // do not keep references to the input
+      this.mzsA = null;
+      this.intensitiesA = null;
+      this.mzsB = null;
+      this.intensitiesB = null;
+    }
+  }
+
+  private double calcScore(MZTolerance mzTol, Weights weights,
+      HandleUnmatchedSignalOptions handleUnmatched, int minMatch, double precursorMzA,
+      double precursorMzB) {
+    overlap = 0;
+    cosine = Double.NaN;
+    explainedIntensityA = 0;
+    explainedIntensityB = 0;
+
+    matchOfA = ensureCapacity(matchOfA, numA);
+    matchOfB = ensureCapacity(matchOfB, numB);
+    Arrays.fill(matchOfA, 0, numA, -1);
+    Arrays.fill(matchOfB, 0, numB, -1);
+
+    numCandidates = 0;
+    collectCandidates(mzTol, 0d);
+    if (precursorMzA > 0 && precursorMzB > 0) {
+      collectCandidates(mzTol, precursorMzB - precursorMzA);
+    }
+    if (numCandidates < minMatch) {
+      return Double.NaN;
+    }
+
+    // greedy matching in descending intensity order
+    candidateSort = ensureCapacity(candidateSort, numCandidates);
+    for (int i = 0; i < numCandidates; i++) {
+      candidateSort[i] = i;
+    }
+    IntArrays.quickSort(candidateSort, 0, numCandidates, candidateOrder);
+    for (int i = 0; i < numCandidates; i++) {
+      final int c = candidateSort[i];
+      final int a = candidateA[c];
+      final int b = candidateB[c];
+      if (matchOfA[a] == -1 && matchOfB[b] == -1) {
+        matchOfA[a] = b;
+        matchOfB[b] = a;
+        overlap++;
+      }
+    }
+    if (overlap < minMatch) {
+      return Double.NaN;
+    }
+
+    weightedA = ensureCapacity(weightedA, numA);
+    weightedB = ensureCapacity(weightedB, numB);
+    applyWeights(mzsA, intensitiesA, numA, weights, weightedA);
+    applyWeights(mzsB, intensitiesB, numB, weights, weightedB);
+
+    final boolean keepUnmatchedA = keepsUnmatchedA(handleUnmatched);
+    final boolean keepUnmatchedB = keepsUnmatchedB(handleUnmatched);
+
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    double totalA = 0;
+    double totalB = 0;
+    for (int a = 0; a < numA; a++) {
+      final int b = matchOfA[a];
+      final double wa = weightedA[a];
+      totalA += intensitiesA[a];
+      if (b != -1) {
+        final double wb = weightedB[b];
+        dot += wa * wb;
+        normA += wa * wa;
+        normB += wb * wb;
+        explainedIntensityA += intensitiesA[a];
+        explainedIntensityB += intensitiesB[b];
+      } else if (keepUnmatchedA) {
+        normA += wa * wa;
+      }
+    }
+    for (int b = 0; b < numB; b++) {
+      totalB += intensitiesB[b];
+      if (keepUnmatchedB && matchOfB[b] == -1) {
+        normB += weightedB[b] * weightedB[b];
+      }
+    }
+    explainedIntensityA /= totalA;
+    explainedIntensityB /= totalB;
+
+    cosine = dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    return cosine;
+  }
+
+  /**
+   * Two-pointer merge over both m/z sorted arrays. Adds all pairs where mz(b) is within the
+   * tolerance of mz(a) + shift. The lower bound of the tolerance window increases with m/z, so the
+   * start of the window in b only moves forward.
+   */
+  private void collectCandidates(MZTolerance mzTol, double shift) {
+    int start = 0;
+    for (int a = 0; a < numA && start < numB; a++) {
+      final double mz = mzsA[a] + shift;
+      final double tol = mzTol.getMzToleranceForMass(mz);
+      final double lower = mz - tol;
+      final double upper = mz + tol;
+      while (start < numB && mzsB[start] < lower) {
+        start++;
+      }
+      for (int b = start; b < numB && mzsB[b] <= upper; b++) {
+        addCandidate(a, b);
+      }
+    }
+  }
+
+  private void addCandidate(int a, int b) {
+    if (numCandidates == candidateA.length) {
+      final int capacity = Math.max(16, numCandidates * 2);
+      candidateA = Arrays.copyOf(candidateA, capacity);
+      candidateB = Arrays.copyOf(candidateB, capacity);
+    }
+    candidateA[numCandidates] = a;
+    candidateB[numCandidates] = b;
+    numCandidates++;
+  }
+
+  /**
+   * Same order as {@link io.github.mzmine.util.DataPointSorter#DEFAULT_INTENSITY} first for a,
+   * then for b
+   */
+  private int compareCandidates(int c1, int c2) {
+    final int a1 = candidateA[c1];
+    final int a2 = candidateA[c2];
+    if (a1 != a2) {
+      int result = Double.compare(intensitiesA[a2], intensitiesA[a1]);
+      return result != 0 ? result : Double.compare(mzsA[a2], mzsA[a1]);
+    }
+    final int b1 = candidateB[c1];
+    final int b2 = candidateB[c2];
+    int result = Double.compare(intensitiesB[b2], intensitiesB[b1]);
+    return result != 0 ? result : Double.compare(mzsB[b2], mzsB[b1]);
+  }
+
+  /**
+   * Intensity^weightI * m/z^weightMZ. Common exponents are resolved to simple loops that the JIT
+   * can vectorize instead of calling {@link Math#pow(double, double)} for every value.
+   */
+  private static void applyWeights(double[] mzs, double[] intensities, int n, Weights weights,
+      double[] target) {
+    final double wi = weights.getIntensity();
+    if (wi == 1d) {
+      System.arraycopy(intensities, 0, target, 0, n);
+    } else if (wi == 0.5d) {
+      for (int i = 0; i < n; i++) {
+        target[i] = Math.sqrt(intensities[i]);
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        target[i] = Math.pow(intensities[i], wi);
+      }
+    }
+
+    final double wmz = weights.getMz();
+    if (wmz == 0d) {
+      return;
+    }
+    if (wmz == 1d) {
+      for (int i = 0; i < n; i++) {
+        target[i] *= mzs[i];
+      }
+    } else if (wmz == 2d) {
+      for (int i = 0; i < n; i++) {
+        target[i] *= mzs[i] * mzs[i];
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        target[i] *= Math.pow(mzs[i], wmz);
+      }
+    }
+  }
+
+  /**
+   * Creates the aligned data points like {@link HandleUnmatchedSignalOptions#handleUnmatched(List)}
+   * after a call to {@link #score(DataPoint[], DataPoint[], MZTolerance, Weights,
+   * HandleUnmatchedSignalOptions, int, double, double)} with the same arrays.
+   *
+   * @return list of aligned data points [a, b], unmatched signals are paired with null
+   */
+  public @NotNull List<DataPoint[]> createAligned(@NotNull DataPoint[] a, @NotNull DataPoint[] b,
+      @NotNull HandleUnmatchedSignalOptions handleUnmatched) {
+    final boolean keepUnmatchedA = keepsUnmatchedA(handleUnmatched);
+    final boolean keepUnmatchedB = keepsUnmatchedB(handleUnmatched);
+    final List<DataPoint[]> aligned = new ArrayList<>(numA + numB);
+    for (int i = 0; i < numA; i++) {
+      final int match = matchOfA[i];
+      if (match != -1) {
+        aligned.add(new DataPoint[]{a[sourceIndexA[i]], b[sourceIndexB[match]]});
+      } else if (keepUnmatchedA) {
+        aligned.add(new DataPoint[]{a[sourceIndexA[i]], null});
+      }
+    }
+    if (keepUnmatchedB) {
+      for (int i = 0; i < numB; i++) {
+        if (matchOfB[i] == -1) {
+          aligned.add(new DataPoint[]{null, b[sourceIndexB[i]]});
+        }
+      }
+    }
+    return aligned;
+  }
+
+  /**
+   * @return true if unmatched signals of a (library) are kept and matched to zero
+   */
+  private static boolean keepsUnmatchedA(HandleUnmatchedSignalOptions handleUnmatched) {
+    return handleUnmatched == HandleUnmatchedSignalOptions.KEEP_ALL_AND_MATCH_TO_ZERO
+           || handleUnmatched == HandleUnmatchedSignalOptions.KEEP_LIBRARY_SIGNALS;
+  }
+
+  /**
+   * @return true if unmatched signals of b (query) are kept and matched to zero
+   */
+  private static boolean keepsUnmatchedB(HandleUnmatchedSignalOptions handleUnmatched) {
+    return handleUnmatched == HandleUnmatchedSignalOptions.KEEP_ALL_AND_MATCH_TO_ZERO
+           || handleUnmatched == HandleUnmatchedSignalOptions.KEEP_EXPERIMENTAL_SIGNALS;
+  }
+
+  private void loadA(DataPoint[] dps) {
+    sourceIndexA = sortByMz(dps, ensureCapacity(sourceIndexA, dps.length));
+    loadedMzsA = ensureCapacity(loadedMzsA, dps.length);
+    loadedIntensitiesA = ensureCapacity(loadedIntensitiesA, dps.length);
+    copy(dps, sourceIndexA, loadedMzsA, loadedIntensitiesA);
+  }
+
+  private void loadB(DataPoint[] dps) {
+    sourceIndexB = sortByMz(dps, ensureCapacity(sourceIndexB, dps.length));
+    loadedMzsB = ensureCapacity(loadedMzsB, dps.length);
+    loadedIntensitiesB = ensureCapacity(loadedIntensitiesB, dps.length);
+    copy(dps, sourceIndexB, loadedMzsB, loadedIntensitiesB);
+  }
+
+  private static int[] sortByMz(DataPoint[] dps, int[] order) {
+    boolean sorted = true;
+    for (int i = 0; i < dps.length; i++) {
+      order[i] = i;
+      if (i > 0 && dps[i - 1].getMZ() > dps[i].getMZ()) {
+        sorted = false;
+      }
+    }
+    if (!sorted) {
+      IntArrays.quickSort(order, 0, dps.length,
+          (i, j) -> Double.compare(dps[i].getMZ(), dps[j].getMZ()));
+    }
+    return order;
+  }
+
+  private static void copy(DataPoint[] dps, int[] order, double[] mzs, double[] intensities) {
+    for (int i = 0; i < dps.length; i++) {
+      final DataPoint dp = dps[order[i]];
+      mzs[i] = dp.getMZ();
+      intensities[i] = dp.getIntensity();
+    }
+  }
+
+  private static double[] ensureCapacity(double[] array, int size) {
+    return array.length >= size ? array : new double[Math.max(size, array.length * 2)];
+  }
+
+  private static int[] ensureCapacity(int[] array, int size) {
+    return array.length >= size ? array : new int[Math.max(size, array.length * 2)];
+  }
+
+  /**
+   * @return cosine similarity of the last call or NaN if less than the minimum signals matched
+   */
+  public double getCosine() {
+    return cosine;
+  }
+
+  /**
+   * @return number of matched signals of the last call. Scoring stops early if less than the
+   * minimum number of signals can be matched, the overlap is then lower than the actual overlap.
+   */
+  public int getOverlap() {
+    return overlap;
+  }
+
+  /**
+   * @return number of signals in a of the last call
+   */
+  public int getSizeA() {
+    return numA;
+  }
+
+  /**
+   * @return number of signals in b of the last call
+   */
+  public int getSizeB() {
+    return numB;
+  }
+
+  /**
+   * @return fraction of the total intensity of a that was matched, only set if the minimum number
+   * of signals was matched
+   */
+  public double getExplainedIntensityA() {
+    return explainedIntensityA;
+  }
+
+  /**
+   * @return fraction of the total intensity of b that was matched, only set if the minimum number
+   * of signals was matched
+   */
+  public double getExplainedIntensityB() {
+    return explainedIntensityB;
+  }
+}
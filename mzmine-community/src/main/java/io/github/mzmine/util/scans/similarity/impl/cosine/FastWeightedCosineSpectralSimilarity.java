@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.similarity.impl.cosine;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
+import io.github.mzmine.util.scans.similarity.Weights;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Weighted cosine similarity on the allocation free {@link CosineScoringKernel}. Results are the
+ * same as {@link WeightedCosineSpectralSimilarity} but the aligned data points are only created for
+ * spectra that pass the minimum cosine.
+ */
+public class FastWeightedCosineSpectralSimilarity extends SpectralSimilarityFunction {
+
+  @Override
+  public @Nullable SpectralSimilarity getSimilarity(ParameterSet parameters, MZTolerance mzTol,
+      int minMatch, DataPoint[] library, DataPoint[] query) {
+    final Weights weights = parameters.getValue(WeightedCosineSpectralSimilarityParameters.weight);
+    final double minCos = parameters.getValue(WeightedCosineSpectralSimilarityParameters.minCosine);
+    final HandleUnmatchedSignalOptions handleUnmatched = parameters.getValue(
+        WeightedCosineSpectralSimilarityParameters.handleUnmatched);
+
+    final CosineScoringKernel kernel = CosineScoringKernel.get();
+    final double cosine = kernel.score(library, query, mzTol, weights, handleUnmatched, minMatch,
+        -1d, -1d);
+    if (Double.isNaN(cosine) || cosine < minCos) {
+      return null;
+    }
+    return new SpectralSimilarity(getName(), cosine, kernel.getOverlap(), library, query,
+        kernel.createAligned(library, query, handleUnmatched));
+  }
+
+  @Override
+  public @NotNull String getName() {
+    return "Weighted cosine similarity (fast)";
+  }
+
+  @Override
+  public @Nullable Class<? extends ParameterSet> getParameterSetClass() {
+    return WeightedCosineSpectralSimilarityParameters.class;
+  }
+}
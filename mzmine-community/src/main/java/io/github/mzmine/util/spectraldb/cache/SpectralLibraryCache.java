@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.cache;
+
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.parser.mzmine.SpectralQuality;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Binary cache of imported spectral libraries. The first import of a library file writes all
+ * spectra and metadata into a cache file, later imports memory map the spectra columns of this file
+ * instead of parsing the text format again. A cache file is only used if the path, size, and last
+ * modified time of the source file still match.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * header:    int magic, int version, long source size, long source last modified,
+ *            int number of entries, int total number of data points
+ * columns:   double[total] m/z values, double[total] intensity values (memory mapped on load)
+ * entries:   int[entries] number of data points per entry
+ * source:    source file path
+ * fields:    int number of field names, then all {@link DBEntryField} names in ordinal order
+ * metadata:  per entry: short number of fields, then per field: short ordinal, byte type, value
+ * </pre>
+ * Libraries with field values of other types than the ones below are not cached.
+ */
+public class SpectralLibraryCache {
+
+  private static final Logger logger = Logger.getLogger(SpectralLibraryCache.class.getName());
+
+  private static final int MAGIC = 0x4D5A4C42; // MZLB
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 32;
+  private static final String FILE_SUFFIX = ".mzlibcache";
+
+  // value types in metadata
+  private static final byte TYPE_STRING = 0;
+  private static final byte TYPE_DOUBLE = 1;
+  private static final byte TYPE_FLOAT = 2;
+  private static final byte TYPE_INTEGER = 3;
+  private static final byte TYPE_LONG = 4;
+  private static final byte TYPE_BOOLEAN = 5;
+  private static final byte TYPE_DOUBLE_ARRAY = 6;
+  private static final byte TYPE_FLOAT_ARRAY = 7;
+  private static final byte TYPE_STRING_ARRAY = 8;
+  private static final byte TYPE_STRING_LIST = 9;
+  private static final byte TYPE_SPECTRAL_QUALITY = 10;
+
+  private final @NotNull File cacheDir;
+
+  public SpectralLibraryCache(@NotNull File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * @return cache in the user mzmine directory
+   */
+  public static SpectralLibraryCache createDefault() {
+    return new SpectralLibraryCache(FileAndPathUtil.resolveInMzmineDir("library_cache"));
+  }
+
+  /**
+   * @param source the library source file
+   * @return the cache file for a library source, which may not exist
+   */
+  @NotNull
+  public File getCacheFile(@NotNull File source) {
+    final String path = source.getAbsolutePath();
+    final String name = FileAndPathUtil.safePathEncode(source.getName());
+    return new File(cacheDir, "%s_%08x%s".formatted(name, path.hashCode(), FILE_SUFFIX));
+  }
+
+  /**
+   * Loads a cached library if the cache is still valid for the source file. Spectral data is
+   * memory mapped from the cache file.
+   *
+   * @param source the library source file
+   * @return a packed library or null if there is no valid cache
+   */
+  @Nullable
+  public SpectralLibrary load(@NotNull File source) {
+    final File cacheFile = getCacheFile(source);
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      final var header = channel.map(MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION
+          || header.getLong() != source.length() || header.getLong() != source.lastModified()) {
+        logger.fine(() -> "Spectral library cache is outdated for " + source);
+        return null;
+      }
+      final int numEntries = header.getInt();
+      final int totalDp = header.getInt();
+      final long columnBytes = (long) totalDp * Double.BYTES;
+
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(
+          Channels.newInputStream(channel.position(HEADER_BYTES + 2 * columnBytes))));
+      final int[] numDataPoints = new int[numEntries];
+      for (int i = 0; i < numEntries; i++) {
+        numDataPoints[i] = in.readInt();
+      }
+      if (!source.getAbsolutePath().equals(readString(in))) {
+        // hash collision of two paths
+        return null;
+      }
+      final DBEntryField[] fieldsByOrdinal = new DBEntryField[in.readInt()];
+      for (int i = 0; i < fieldsByOrdinal.length; i++) {
+        fieldsByOrdinal[i] = parseField(readString(in));
+      }
+      final List<Map<DBEntryField, Object>> fields = new ArrayList<>(numEntries);
+      for (int i = 0; i < numEntries; i++) {
+        fields.add(readFields(in, fieldsByOrdinal));
+      }
+
+      // the mapping stays valid after the channel is closed
+      final DoubleBuffer mzs = channel.map(MapMode.READ_ONLY, HEADER_BYTES, columnBytes)
+          .asDoubleBuffer();
+      final DoubleBuffer intensities = channel.map(MapMode.READ_ONLY,
+          HEADER_BYTES + columnBytes, columnBytes).asDoubleBuffer();
+
+      final SpectralLibrary library = SpectralLibrary.createPacked(null, source);
+      library.addPackedEntries(mzs, intensities, numDataPoints, fields);
+      return library;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING,
+          "Cannot read spectral library cache %s. Will parse %s instead. %s".formatted(cacheFile,
+              source, e.getMessage()), e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the library to the cache. The file is written to a temporary file first and moved to
+   * replace any existing cache.
+   *
+   * @param library the library to cache
+   * @return true if the cache was written
+   */
+  public boolean save(@NotNull SpectralLibrary library) {
+    final File source = library.getPath();
+    final List<SpectralLibraryEntry> entries = library.getEntries();
+    long totalDp = 0;
+    for (final SpectralLibraryEntry entry : entries) {
+      totalDp += entry.getNumberOfDataPoints();
+    }
+    if (totalDp * Double.BYTES > Integer.MAX_VALUE) {
+      logger.info(() -> "Library %s is too large for the library cache".formatted(source));
+      return false;
+    }
+
+    final File cacheFile = getCacheFile(source);
+    Path tmp = null;
+    try {
+      Files.createDirectories(cacheDir.toPath());
+      tmp = Files.createTempFile(cacheDir.toPath(), cacheFile.getName(), ".tmp");
+      try (var out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(source.length());
+        out.writeLong(source.lastModified());
+        out.writeInt(entries.size());
+        out.writeInt((int) totalDp);
+
+        // columns
+        double[] buffer = new double[0];
+        for (final SpectralLibraryEntry entry : entries) {
+          buffer = entry.getMzValues(buffer);
+          for (int i = 0; i < entry.getNumberOfDataPoints(); i++) {
+            out.writeDouble(buffer[i]);
+          }
+        }
+        for (final SpectralLibraryEntry entry : entries) {
+          buffer = entry.getIntensityValues(buffer);
+          for (int i = 0; i < entry.getNumberOfDataPoints(); i++) {
+            out.writeDouble(buffer[i]);
+          }
+        }
+        for (final SpectralLibraryEntry entry : entries) {
+          out.writeInt(entry.getNumberOfDataPoints());
+        }
+
+        writeString(out, source.getAbsolutePath());
+        // field names make the cache independent of changes in the field order
+        final DBEntryField[] fieldValues = DBEntryField.values();
+        out.writeInt(fieldValues.length);
+        for (final DBEntryField field : fieldValues) {
+          writeString(out, field.name());
+        }
+        for (final SpectralLibraryEntry entry : entries) {
+          writeFields(out, entry.getFields());
+        }
+      }
+      Files.move(tmp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      tmp = null;
+      logger.fine(() -> "Wrote spectral library cache " + cacheFile);
+      return true;
+    } catch (UnsupportedValueException e) {
+      logger.info(() -> "Library %s is not cached: %s".formatted(source, e.getMessage()));
+      return false;
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot write spectral library cache " + cacheFile, e);
+      return false;
+    } finally {
+      // do not leave partially written files in the cache directory
+      if (tmp != null) {
+        try {
+          Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+          logger.log(Level.FINE, "Cannot delete temporary cache file " + tmp, e);
+        }
+      }
+    }
+  }
+
+  private static void writeFields(DataOutputStream out, Map<DBEntryField, Object> fields)
+      throws IOException {
+    int n = 0;
+    for (Object value : fields.values()) {
+      if (value != null) {
+        n++;
+      }
+    }
+    out.writeShort(n);
+    for (final var field : fields.entrySet()) {
+      final Object value = field.getValue();
+      if (value == null) {
+        continue;
+      }
+      out.writeShort(field.getKey().ordinal());
+      switch (value) {
+        case Double d -> {
+          out.writeByte(TYPE_DOUBLE);
+          out.writeDouble(d);
+        }
+        case Float f -> {
+          out.writeByte(TYPE_FLOAT);
+          out.writeFloat(f);
+        }
+        case Integer i -> {
+          out.writeByte(TYPE_INTEGER);
+          out.writeInt(i);
+        }
+        case Long l -> {
+          out.writeByte(TYPE_LONG);
+          out.writeLong(l);
+        }
+        case Boolean b -> {
+          out.writeByte(TYPE_BOOLEAN);
+          out.writeBoolean(b);
+        }
+        case String str -> {
+          out.writeByte(TYPE_STRING);
+          writeString(out, str);
+        }
+        case double[] values -> {
+          out.writeByte(TYPE_DOUBLE_ARRAY);
+          out.writeInt(values.length);
+          for (double v : values) {
+            out.writeDouble(v);
+          }
+        }
+        case float[] values -> {
+          out.writeByte(TYPE_FLOAT_ARRAY);
+          out.writeInt(values.length);
+          for (float v : values) {
+            out.writeFloat(v);
+          }
+        }
+        case String[] values -> {
+          out.writeByte(TYPE_STRING_ARRAY);
+          writeStrings(out, field.getKey(), List.of(values));
+        }
+        case List<?> values -> {
+          out.writeByte(TYPE_STRING_LIST);
+          writeStrings(out, field.getKey(), values);
+        }
+        case SpectralQuality quality -> {
+          out.writeByte(TYPE_SPECTRAL_QUALITY);
+          writeNullableFloat(out, quality.explainedIntensity());
+          writeNullableFloat(out, quality.explainedSignals());
+          writeNullableString(out, quality.chimeric());
+          writeNullableFloat(out, quality.spectralEntropy());
+          writeNullableFloat(out, quality.normalizedSpectralEntropy());
+        }
+        // a string would not be converted back to the original object on load
+        default -> throw new UnsupportedValueException(field.getKey(), value);
+      }
+    }
+  }
+
+  /**
+   * @return the field or null if the field was removed
+   */
+  @Nullable
+  private static DBEntryField parseField(String name) {
+    try {
+      return DBEntryField.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param fieldsByOrdinal maps the ordinals in the cache to the current fields
+   */
+  private static Map<DBEntryField, Object> readFields(DataInputStream in,
+      DBEntryField[] fieldsByOrdinal) throws IOException {
+    final int n = in.readShort();
+    final Map<DBEntryField, Object> fields = new EnumMap<>(DBEntryField.class);
+    for (int i = 0; i < n; i++) {
+      final DBEntryField field = fieldsByOrdinal[in.readShort()];
+      final byte type = in.readByte();
+      final Object value = switch (type) {
+        case TYPE_DOUBLE -> in.readDouble();
+        case TYPE_FLOAT -> in.readFloat();
+        case TYPE_INTEGER -> in.readInt();
+        case TYPE_LONG -> in.readLong();
+        case TYPE_BOOLEAN -> in.readBoolean();
+        case TYPE_STRING -> readString(in);
+        case TYPE_DOUBLE_ARRAY -> {
+          final double[] values = new double[in.readInt()];
+          for (int j = 0; j < values.length; j++) {
+            values[j] = in.readDouble();
+          }
+          yield values;
+        }
+        case TYPE_FLOAT_ARRAY -> {
+          final float[] values = new float[in.readInt()];
+          for (int j = 0; j < values.length; j++) {
+            values[j] = in.readFloat();
+          }
+          yield values;
+        }
+        case TYPE_STRING_ARRAY -> readStrings(in).toArray(String[]::new);
+        case TYPE_STRING_LIST -> readStrings(in);
+        case TYPE_SPECTRAL_QUALITY ->
+            new SpectralQuality(readNullableFloat(in), readNullableFloat(in),
+                readNullableString(in), readNullableFloat(in), readNullableFloat(in));
+        default -> throw new IOException("Unknown value type " + type);
+      };
+      if (field != null) {
+        fields.put(field, value);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Strings may exceed the limit of {@link DataOutputStream#writeUTF(String)}
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param values only strings, null elements are not supported
+   */
+  private static void writeStrings(DataOutputStream out, DBEntryField field, List<?> values)
+      throws IOException {
+    for (Object value : values) {
+      if (!(value instanceof String)) {
+        throw new UnsupportedValueException(field, value);
+      }
+    }
+    out.writeInt(values.size());
+    for (Object value : values) {
+      writeString(out, (String) value);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    final int n = in.readInt();
+    final List<String> values = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      values.add(readString(in));
+    }
+    return values;
+  }
+
+  private static void writeNullableFloat(DataOutputStream out, @Nullable Float value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeFloat(value);
+    }
+  }
+
+  @Nullable
+  private static Float readNullableFloat(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readFloat() : null;
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @Nullable
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  /**
+   * A field value that cannot be written to and restored from the cache. The library is not cached.
+   */
+  private static class UnsupportedValueException extends IOException {
+
+    private UnsupportedValueException(DBEntryField field, @Nullable Object value) {
+      super("Unsupported value type %s of field %s".formatted(
+          value == null ? null : value.getClass().getSimpleName(), field));
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Packed columnar storage of library spectra. Entries are added in blocks (usually the buffered
+ * entries of a {@link io.github.mzmine.util.spectraldb.parser.SpectralDBParser}) and all m/z and
+ * intensity values of a block are written into one contiguous buffer each, memory mapped if a
+ * {@link MemoryMapStorage} is provided. Each entry is a view on its offset and length in these
+ * columns, so there is no per entry buffer in the storage. Metadata values are interned, as
+ * libraries repeat the same instrument, ion type, polarity, or PI values for most entries.
+ * <p>
+ * Parsers create entries with {@link SpectralLibrary#getEntryStorage()}, which keeps them in memory
+ * for packed libraries until they are copied to the columns.
+ */
+public class PackedSpectralLibraryData {
+
+  @Nullable
+  private final MemoryMapStorage storage;
+  // interned metadata values
+  private final Map<Object, Object> valuePool = new HashMap<>();
+  private long totalDataPoints = 0;
+  private int blocks = 0;
+
+  public PackedSpectralLibraryData(@Nullable MemoryMapStorage storage) {
+    this.storage = storage;
+  }
+
+  /**
+   * Copies all entries into one new block of the packed columns
+   *
+   * @param library the library of the new entries
+   * @param entries the entries to pack
+   * @return list of packed entries in the same order
+   */
+  @NotNull
+  public synchronized List<SpectralLibraryEntry> pack(@Nullable SpectralLibrary library,
+      @NotNull Collection<? extends SpectralLibraryEntry> entries) {
+    if (entries.isEmpty()) {
+      return List.of();
+    }
+
+    final int[] offsets = new int[entries.size()];
+    int numDp = 0;
+    int i = 0;
+    for (final SpectralLibraryEntry entry : entries) {
+      offsets[i++] = numDp;
+      numDp += entry.getNumberOfDataPoints();
+    }
+
+    // one contiguous array per column
+    final double[] mzs = new double[numDp];
+    final double[] intensities = new double[numDp];
+    double[] buffer = new double[0];
+    i = 0;
+    for (final SpectralLibraryEntry entry : entries) {
+      final int n = entry.getNumberOfDataPoints();
+      buffer = entry.getMzValues(buffer);
+      System.arraycopy(buffer, 0, mzs, offsets[i], n);
+      buffer = entry.getIntensityValues(buffer);
+      System.arraycopy(buffer, 0, intensities, offsets[i], n);
+      i++;
+    }
+
+    final DoubleBuffer mzColumn = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
+    final DoubleBuffer intensityColumn = StorageUtils.storeValuesToDoubleBuffer(storage,
+        intensities);
+
+    final List<SpectralLibraryEntry> packed = new ArrayList<>(entries.size());
+    i = 0;
+    for (final SpectralLibraryEntry entry : entries) {
+      final int n = entry.getNumberOfDataPoints();
+      final DoubleBuffer entryMzs = mzColumn.slice(offsets[i], n);
+      final DoubleBuffer entryIntensities = intensityColumn.slice(offsets[i], n);
+      packed.add(new SpectralDBEntry(entryMzs, entryIntensities, internFields(entry.getFields()),
+          library));
+      i++;
+    }
+
+    totalDataPoints += numDp;
+    blocks++;
+    return packed;
+  }
+
+  /**
+   * Adds a block that was already packed, e.g., memory mapped from a cache file. Entry i uses the
+   * next numDataPoints[i] values of both columns.
+   *
+   * @param library         the library of the new entries
+   * @param mzColumn        all m/z values
+   * @param intensityColumn all intensity values
+   * @param numDataPoints   number of data points per entry
+   * @param fields          metadata per entry
+   * @return list of packed entries
+   */
+  @NotNull
+  public synchronized List<SpectralLibraryEntry> wrap(@Nullable SpectralLibrary library,
+      @NotNull DoubleBuffer mzColumn, @NotNull DoubleBuffer intensityColumn,
+      @NotNull int[] numDataPoints, @NotNull List<Map<DBEntryField, Object>> fields) {
+    assert numDataPoints.length == fields.size();
+    final List<SpectralLibraryEntry> packed = new ArrayList<>(numDataPoints.length);
+    int offset = 0;
+    for (int i = 0; i < numDataPoints.length; i++) {
+      final int n = numDataPoints[i];
+      packed.add(new SpectralDBEntry(mzColumn.slice(offset, n), intensityColumn.slice(offset, n),
+          internFields(fields.get(i)), library));
+      offset += n;
+    }
+    totalDataPoints += offset;
+    blocks++;
+    return packed;
+  }
+
+  /**
+   * Replaces all values by equal instances from the pool. Numbers are not interned as they are
+   * mostly unique like the precursor m/z.
+   */
+  private Map<DBEntryField, Object> internFields(Map<DBEntryField, Object> fields) {
+    final Map<DBEntryField, Object> interned = new EnumMap<>(DBEntryField.class);
+    for (final var field : fields.entrySet()) {
+      final Object value = field.getValue();
+      if (value == null) {
+        continue;
+      }
+      interned.put(field.getKey(),
+          value instanceof Number ? value : valuePool.computeIfAbsent(value, v -> v));
+    }
+    return interned;
+  }
+
+  /**
+   * @return total number of data points in all blocks
+   */
+  public synchronized long getTotalDataPoints() {
+    return totalDataPoints;
+  }
+
+  /**
+   * @return number of contiguous blocks
+   */
+  public synchronized int getNumBlocks() {
+    return blocks;
+  }
+
+  /**
+   * @return number of distinct interned metadata values
+   */
+  public synchronized int getNumInternedValues() {
+    return valuePool.size();
+  }
+}
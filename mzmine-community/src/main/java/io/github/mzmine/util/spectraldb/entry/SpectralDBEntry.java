@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.structures.StructureParser;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
+import java.nio.DoubleBuffer;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
@@ -67,6 +68,18 @@ public class SpectralDBEntry extends SimpleMassList implements SpectralLibraryEn
     this.library = library;
   }
 
+  /**
+   * Entry that uses the buffers directly, e.g., views into the packed columns of a
+   * {@link PackedSpectralLibraryData}. Values must be sorted by m/z. The fields map is used
+   * directly and not copied.
+   */
+  public SpectralDBEntry(@NotNull DoubleBuffer mzValues, @NotNull DoubleBuffer intensityValues,
+      @Nullable Map<DBEntryField, Object> fields, @Nullable SpectralLibrary library) {
+    super(mzValues, intensityValues);
+    this.fields = fields != null ? fields : new HashMap<>();
+    this.library = library;
+  }
+
   public SpectralDBEntry(@Nullable MemoryMapStorage storage, @NotNull double[] mzValues,
       @NotNull double[] intensityValues, @Nullable Map<DBEntryField, Object> fields) {
     this(storage, mzValues, intensityValues, fields, null);
@@ -28,12 +28,14 @@ package io.github.mzmine.util.spectraldb.entry;
 import io.github.mzmine.datamodel.features.types.DataType;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.File;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
@@ -54,6 +56,12 @@ public class SpectralLibrary {
   @Nullable
   private final MemoryMapStorage storage;
   private final ObservableSet<DataType> types = FXCollections.observableSet(new LinkedHashSet<>());
+  // lazily created on first access and reset when entries change
+  @Nullable
+  private volatile SpectralLibraryPrecursorIndex precursorIndex;
+  // packed columnar storage of all spectra or null if each entry stores its own data
+  @Nullable
+  private final PackedSpectralLibraryData packedData;
 
   public SpectralLibrary(@Nullable MemoryMapStorage storage, @NotNull File path) {
     this(storage, path.getName(), path);
@@ -61,9 +69,27 @@ public class SpectralLibrary {
 
   public SpectralLibrary(@Nullable MemoryMapStorage storage, @NotNull String name,
       @NotNull File path) {
+    this(storage, name, path, false);
+  }
+
+  /**
+   * @param packed store all spectra in packed columns, see {@link PackedSpectralLibraryData}.
+   *               Added entries are replaced by packed views.
+   */
+  public SpectralLibrary(@Nullable MemoryMapStorage storage, @NotNull String name,
+      @NotNull File path, boolean packed) {
     this.storage = storage;
     this.path = path;
     this.name = name;
+    this.packedData = packed ? new PackedSpectralLibraryData(storage) : null;
+  }
+
+  /**
+   * Packed library that stores all spectra in contiguous columns
+   */
+  public static SpectralLibrary createPacked(@Nullable MemoryMapStorage storage,
+      @NotNull File path) {
+    return new SpectralLibrary(storage, path.getName(), path, true);
   }
 
   @NotNull
@@ -72,14 +98,68 @@ public class SpectralLibrary {
   }
 
   public void addEntry(SpectralLibraryEntry entry) {
+    if (packedData != null) {
+      addEntries(List.of(entry));
+      return;
+    }
     entry.setLibrary(this);
     entries.add(entry);
+    precursorIndex = null;
   }
 
+  /**
+   * Add entries. Packed libraries copy all entries into one new block of their columns.
+   */
   public void addEntries(Collection<SpectralLibraryEntry> entries) {
+    if (packedData != null) {
+      this.entries.addAll(packedData.pack(this, entries));
+      precursorIndex = null;
+      return;
+    }
     entries.forEach(this::addEntry);
   }
 
+  /**
+   * Add a block of entries that is already packed into columns, see
+   * {@link PackedSpectralLibraryData#wrap(SpectralLibrary, DoubleBuffer, DoubleBuffer, int[], List)}.
+   * Only supported by packed libraries.
+   */
+  public void addPackedEntries(@NotNull DoubleBuffer mzColumn,
+      @NotNull DoubleBuffer intensityColumn, @NotNull int[] numDataPoints,
+      @NotNull List<Map<DBEntryField, Object>> fields) {
+    if (packedData == null) {
+      throw new IllegalStateException("Library is not packed");
+    }
+    this.entries.addAll(
+        packedData.wrap(this, mzColumn, intensityColumn, numDataPoints, fields));
+    precursorIndex = null;
+  }
+
+  /**
+   * Parsers should use this storage to create entries before they are added to this library.
+   *
+   * @return the storage for single entries. Null for packed libraries, which keep parsed entries in
+   * memory until they are copied to the packed columns in {@link #addEntries(Collection)}.
+   */
+  @Nullable
+  public MemoryMapStorage getEntryStorage() {
+    return packedData != null ? null : storage;
+  }
+
+  /**
+   * @return true if spectra are stored in packed columns
+   */
+  public boolean isPacked() {
+    return packedData != null;
+  }
+
+  /**
+   * @return the packed columnar data or null if this library is not packed
+   */
+  public @Nullable PackedSpectralLibraryData getPackedData() {
+    return packedData;
+  }
+
   @NotNull
   public File getPath() {
     return path;
@@ -121,6 +201,26 @@ public class SpectralLibrary {
     return lib != null && lib.getPath().equals(this.getPath());
   }
 
+  /**
+   * The precursor index is created once on first access and cached until entries are added.
+   *
+   * @return a sorted index of all entries by precursor m/z
+   */
+  @NotNull
+  public SpectralLibraryPrecursorIndex getPrecursorIndex() {
+    var index = precursorIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = precursorIndex;
+        if (index == null) {
+          index = SpectralLibraryPrecursorIndex.create(entries);
+          precursorIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
   public int getNumEntries() {
     return getEntries().size();
   }
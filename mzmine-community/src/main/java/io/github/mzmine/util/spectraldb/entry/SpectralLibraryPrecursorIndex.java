@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.PercentTolerance;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sorted precursor m/z index over the entries of a {@link SpectralLibrary}. Entries are split into
+ * polarity partitions (positive, negative, undefined) and each partition keeps its precursor m/z
+ * values in a sorted primitive array, so that all candidates within a precursor tolerance are
+ * found by binary search instead of a full scan over the library. CCS values are kept in a parallel
+ * array to optionally filter candidates on ion mobility. Entries without a precursor m/z are not
+ * indexed, as they can never pass the precursor filter.
+ * <p>
+ * The index is immutable and therefore thread safe. Use {@link SpectralLibrary#getPrecursorIndex()}
+ * to obtain the cached index of a library.
+ */
+public class SpectralLibraryPrecursorIndex {
+
+  private final Partition positive;
+  private final Partition negative;
+  private final Partition undefined;
+
+  private SpectralLibraryPrecursorIndex(final Partition positive, final Partition negative,
+      final Partition undefined) {
+    this.positive = positive;
+    this.negative = negative;
+    this.undefined = undefined;
+  }
+
+  /**
+   * @param entries the entries to index
+   * @return a new index over all entries that define a precursor m/z
+   */
+  public static @NotNull SpectralLibraryPrecursorIndex create(
+      @NotNull Collection<SpectralLibraryEntry> entries) {
+    List<SpectralLibraryEntry> pos = new ArrayList<>();
+    List<SpectralLibraryEntry> neg = new ArrayList<>();
+    List<SpectralLibraryEntry> undef = new ArrayList<>();
+    for (final SpectralLibraryEntry entry : entries) {
+      if (entry.getPrecursorMZ() == null) {
+        continue;
+      }
+      switch (entry.getPolarity()) {
+        case POSITIVE -> pos.add(entry);
+        case NEGATIVE -> neg.add(entry);
+        default -> undef.add(entry);
+      }
+    }
+    return new SpectralLibraryPrecursorIndex(Partition.create(pos), Partition.create(neg),
+        Partition.create(undef));
+  }
+
+  /**
+   * Find all candidates within the precursor m/z tolerance. The polarity check is weak, like in
+   * the library matching: entries without a defined polarity are always included and an undefined
+   * query polarity matches all entries.
+   *
+   * @param precursorMz    the query precursor m/z
+   * @param mzTolerance    the precursor tolerance
+   * @param polarity       the query polarity or null to search all partitions
+   * @param ccs            the query CCS, only used if ccsTolerance is not null
+   * @param ccsTolerance   filter candidates by CCS if not null. Entries without CCS or a query
+   *                       without CCS will not match if this filter is active.
+   * @return list of candidates, may be empty
+   */
+  public @NotNull List<SpectralLibraryEntry> getCandidates(final double precursorMz,
+      @NotNull final MZTolerance mzTolerance, @Nullable final PolarityType polarity,
+      @Nullable final Float ccs, @Nullable final PercentTolerance ccsTolerance) {
+    if (ccsTolerance != null && ccs == null) {
+      return List.of();
+    }
+    // the tolerance is checked relative to the library precursor m/z - widen the search window
+    // by the tolerance at the upper bound to not miss any entry. Exact checks happen later.
+    double tolerance = mzTolerance.getMzToleranceForMass(precursorMz);
+    tolerance = mzTolerance.getMzToleranceForMass(precursorMz + tolerance);
+    final double lower = precursorMz - tolerance;
+    final double upper = precursorMz + tolerance;
+
+    final double minCCS;
+    final double maxCCS;
+    if (ccsTolerance != null) {
+      var ccsRange = ccsTolerance.getToleranceRange(ccs);
+      minCCS = ccsRange.lowerEndpoint();
+      maxCCS = ccsRange.upperEndpoint();
+    } else {
+      minCCS = Double.NEGATIVE_INFINITY;
+      maxCCS = Double.POSITIVE_INFINITY;
+    }
+
+    final List<SpectralLibraryEntry> candidates = new ArrayList<>();
+    final boolean defined = polarity != null && polarity.isDefined();
+    if (!defined || polarity == PolarityType.POSITIVE) {
+      positive.addCandidates(candidates, lower, upper, ccsTolerance != null, minCCS, maxCCS);
+    }
+    if (!defined || polarity == PolarityType.NEGATIVE) {
+      negative.addCandidates(candidates, lower, upper, ccsTolerance != null, minCCS, maxCCS);
+    }
+    undefined.addCandidates(candidates, lower, upper, ccsTolerance != null, minCCS, maxCCS);
+    return candidates;
+  }
+
+  /**
+   * @return number of indexed entries
+   */
+  public int size() {
+    return positive.size() + negative.size() + undefined.size();
+  }
+
+  /**
+   * Entries of one polarity sorted by precursor m/z
+   *
+   * @param precursorMzs sorted precursor m/z values
+   * @param ccs          CCS values in the same order, NaN if the entry has no CCS
+   * @param entries      entries in the same order
+   */
+  private record Partition(double[] precursorMzs, float[] ccs, SpectralLibraryEntry[] entries) {
+
+    private static Partition create(List<SpectralLibraryEntry> unsorted) {
+      final int n = unsorted.size();
+      final double[] mzs = new double[n];
+      for (int i = 0; i < n; i++) {
+        mzs[i] = unsorted.get(i).getPrecursorMZ();
+      }
+      // sort a permutation to keep the arrays aligned
+      final int[] order = new int[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      IntArrays.quickSort(order, (a, b) -> Double.compare(mzs[a], mzs[b]));
+
+      final double[] sortedMzs = new double[n];
+      final float[] ccs = new float[n];
+      final SpectralLibraryEntry[] entries = new SpectralLibraryEntry[n];
+      for (int i = 0; i < n; i++) {
+        final SpectralLibraryEntry entry = unsorted.get(order[i]);
+        sortedMzs[i] = mzs[order[i]];
+        entries[i] = entry;
+        ccs[i] = entry.getAsFloat(DBEntryField.CCS).orElse(Float.NaN);
+      }
+      return new Partition(sortedMzs, ccs, entries);
+    }
+
+    private void addCandidates(List<SpectralLibraryEntry> candidates, double lower, double upper,
+        boolean filterCCS, double minCCS, double maxCCS) {
+      final IndexRange range = BinarySearch.indexRange(precursorMzs, lower, upper);
+      if (range.isEmpty()) {
+        return;
+      }
+      for (int i = range.min(); i < range.maxExclusive(); i++) {
+        // NaN fails both comparisons
+        if (!filterCCS || (ccs[i] >= minCCS && ccs[i] <= maxCCS)) {
+          candidates.add(entries[i]);
+        }
+      }
+    }
+
+    private int size() {
+      return entries.length;
+    }
+  }
+}
@@ -108,8 +108,8 @@ public class JdxParser extends SpectralDBTextParser {
           if (l.contains("END")) {
             // row with END
             // add entry and reset
-            SpectralLibraryEntry entry = SpectralLibraryEntry.create(library.getStorage(), fields,
-                dps.toArray(new DataPoint[dps.size()]));
+            SpectralLibraryEntry entry = SpectralLibraryEntry.create(library.getEntryStorage(),
+                fields, dps.toArray(new DataPoint[dps.size()]));
             fields = new EnumMap<>(fields);
             dps.clear();
             addLibraryEntry(entry);
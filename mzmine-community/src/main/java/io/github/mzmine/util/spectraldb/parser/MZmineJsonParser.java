@@ -183,7 +183,7 @@ public class MZmineJsonParser extends SpectralDBTextParser {
       }
     }
 
-    return SpectralLibraryEntry.create(library.getStorage(), map, dps);
+    return SpectralLibraryEntry.create(library.getEntryStorage(), map, dps);
   }
 
   public static DataPoint[] getDataPointsFromJsonArray(JsonArray data) {
@@ -94,8 +94,8 @@ public class NistMspParser extends SpectralDBTextParser {
             if (isData) {
               // empty row after data
               // add entry and reset
-              SpectralLibraryEntry entry = SpectralLibraryEntry.create(library.getStorage(), fields,
-                  dps.toArray(new DataPoint[dps.size()]));
+              SpectralLibraryEntry entry = SpectralLibraryEntry.create(library.getEntryStorage(),
+                  fields, dps.toArray(new DataPoint[dps.size()]));
               // add and push
               addLibraryEntry(entry);
               // reset
@@ -56,7 +56,7 @@ record GnpsLibraryEntry(
     @JsonProperty("PI") String principalInvestigator) {
 
   public SpectralLibraryEntry toSpectralLibraryEntry(@Nullable SpectralLibrary library) {
-    MemoryMapStorage storage = library == null ? null : library.getStorage();
+    MemoryMapStorage storage = library == null ? null : library.getEntryStorage();
     SpectralDBEntry entry = new SpectralDBEntry(storage, spectrum[0], spectrum[1]);
     entry.putIfNotNull(DBEntryField.ENTRY_ID, spectrum_id);
     entry.putIfNotNull(DBEntryField.GNPS_ID, spectrum_id);
@@ -243,7 +243,7 @@ public class MZmineJsonLibraryEntry {
   }
 
   public SpectralLibraryEntry toSpectralLibraryEntry(@Nullable SpectralLibrary library) {
-    MemoryMapStorage storage = library == null ? null : library.getStorage();
+    MemoryMapStorage storage = library == null ? null : library.getEntryStorage();
     SpectralDBEntry entry = new SpectralDBEntry(storage, signals[0], signals[1]);
     for (var field : DBEntryField.values()) {
       entry.putIfNotNull(field, get(field));
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StorageUtilsTest {
+
+  private final double[] intensities = {0d, 1.5d, 1234567.891d, 3.3E9, 17d};
+
+  @AfterEach
+  void reset() {
+    StorageUtils.setStoreIntensitiesAsFloat(false);
+  }
+
+  @Test
+  void testDoubleIntensities() {
+    StorageUtils.setStoreIntensitiesAsFloat(false);
+    final Buffer buffer = StorageUtils.storeIntensityValues(null, intensities);
+    Assertions.assertInstanceOf(DoubleBuffer.class, buffer);
+    Assertions.assertSame(buffer, StorageUtils.asDoubleBuffer(buffer));
+
+    final double[] dst = new double[intensities.length];
+    StorageUtils.getIntensities(buffer, dst, dst.length);
+    Assertions.assertArrayEquals(intensities, dst);
+    for (int i = 0; i < intensities.length; i++) {
+      Assertions.assertEquals(intensities[i], StorageUtils.getIntensity(buffer, i));
+    }
+  }
+
+  @Test
+  void testFloatIntensities() {
+    StorageUtils.setStoreIntensitiesAsFloat(true);
+    final Buffer buffer = StorageUtils.storeIntensityValues(null, intensities);
+    Assertions.assertInstanceOf(FloatBuffer.class, buffer);
+    Assertions.assertEquals(intensities.length, buffer.limit());
+
+    final double[] dst = new double[intensities.length];
+    StorageUtils.getIntensities(buffer, dst, dst.length);
+    final DoubleBuffer doubles = StorageUtils.asDoubleBuffer(buffer);
+    for (int i = 0; i < intensities.length; i++) {
+      final double expected = (float) intensities[i];
+      Assertions.assertEquals(expected, StorageUtils.getIntensity(buffer, i));
+      Assertions.assertEquals(expected, dst[i]);
+      Assertions.assertEquals(expected, doubles.get(i));
+      Assertions.assertEquals(intensities[i], dst[i], Math.abs(intensities[i]) * 1E-7);
+    }
+  }
+}
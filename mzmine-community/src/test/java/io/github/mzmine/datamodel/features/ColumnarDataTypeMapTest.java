@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features;
+
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.IDType;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.CCSType;
+import io.github.mzmine.datamodel.features.types.numbers.ChargeType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("rawtypes")
+class ColumnarDataTypeMapTest {
+
+  private final List<DataType> types = List.of(DataTypes.get(MZType.class),
+      DataTypes.get(RTType.class), DataTypes.get(HeightType.class), DataTypes.get(AreaType.class),
+      DataTypes.get(MobilityType.class), DataTypes.get(CCSType.class),
+      DataTypes.get(ChargeType.class), DataTypes.get(IDType.class));
+
+  @Test
+  void testColumns() {
+    for (final DataType type : types) {
+      final int column = ModularDataColumns.columnOf(type);
+      if (type instanceof IDType) {
+        Assertions.assertEquals(-1, column);
+      } else {
+        Assertions.assertEquals(type, ModularDataColumns.typeOf(column));
+      }
+    }
+  }
+
+  @Test
+  void testSameAsHashMap() {
+    final ModularDataColumns columns = new ModularDataColumns();
+    final Random rand = new Random(42);
+    // more maps than one page
+    final int n = ModularDataColumns.PAGE_SIZE + 100;
+    final ColumnarDataTypeMap[] maps = new ColumnarDataTypeMap[n];
+    final Map[] expected = new Map[n];
+    for (int i = 0; i < n; i++) {
+      maps[i] = new ColumnarDataTypeMap(columns);
+      expected[i] = new HashMap<>();
+    }
+    Assertions.assertEquals(n, columns.size());
+
+    for (int op = 0; op < 200_000; op++) {
+      final int i = rand.nextInt(n);
+      final DataType type = types.get(rand.nextInt(types.size()));
+      if (rand.nextInt(5) == 0) {
+        Assertions.assertEquals(expected[i].remove(type), maps[i].remove(type));
+      } else {
+        final Object value = randomValue(rand, type);
+        Assertions.assertEquals(expected[i].put(type, value), maps[i].put(type, value));
+      }
+    }
+
+    for (int i = 0; i < n; i++) {
+      Assertions.assertEquals(expected[i], maps[i]);
+      Assertions.assertEquals(expected[i].size(), maps[i].size());
+      Assertions.assertEquals(expected[i].hashCode(), maps[i].hashCode());
+      for (final DataType type : types) {
+        Assertions.assertEquals(expected[i].containsKey(type), maps[i].containsKey(type));
+        Assertions.assertEquals(expected[i].get(type), maps[i].get(type));
+      }
+    }
+
+    // remove by iterator
+    final ColumnarDataTypeMap map = maps[0];
+    map.entrySet().removeIf(e -> e.getKey() instanceof MZType || e.getKey() instanceof IDType);
+    Assertions.assertFalse(map.containsKey(DataTypes.get(MZType.class)));
+    Assertions.assertFalse(map.containsKey(DataTypes.get(IDType.class)));
+    map.clear();
+    Assertions.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  void testMoveToOtherColumns() {
+    final ModularDataColumns oldColumns = new ModularDataColumns();
+    final ModularDataColumns newColumns = new ModularDataColumns();
+    final Random rand = new Random(42);
+
+    final ColumnarDataTypeMap map = new ColumnarDataTypeMap(oldColumns);
+    final Map<DataType, Object> expected = new HashMap<>();
+    for (final DataType type : types) {
+      final Object value = randomValue(rand, type);
+      map.put(type, value);
+      expected.put(type, value);
+    }
+    // occupy the first slot of the new columns to move to a different slot index
+    new ColumnarDataTypeMap(newColumns).put(DataTypes.get(MZType.class), 1d);
+
+    map.moveTo(newColumns);
+    Assertions.assertEquals(expected, map);
+    Assertions.assertEquals(2, newColumns.size());
+
+    // the released slot is reused and does not expose the old values
+    final ColumnarDataTypeMap reused = new ColumnarDataTypeMap(oldColumns);
+    Assertions.assertEquals(1, oldColumns.size());
+    Assertions.assertTrue(reused.isEmpty());
+    reused.put(DataTypes.get(MZType.class), 5d);
+    Assertions.assertEquals(expected, map);
+
+    // changes after the move go to the new columns
+    map.put(DataTypes.get(RTType.class), 2f);
+    Assertions.assertEquals(2f, map.get(DataTypes.get(RTType.class)));
+    Assertions.assertEquals(5d, reused.get(DataTypes.get(MZType.class)));
+  }
+
+  private static Object randomValue(final Random rand, final DataType type) {
+    if (rand.nextInt(10) == 0) {
+      return null;
+    }
+    if (type instanceof MZType) {
+      return rand.nextDouble() * 1000;
+    }
+    if (type instanceof ChargeType || type instanceof IDType) {
+      return rand.nextInt(5);
+    }
+    return rand.nextFloat() * 100;
+  }
+}
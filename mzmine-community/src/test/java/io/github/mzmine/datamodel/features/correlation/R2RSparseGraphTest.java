@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.correlation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class R2RSparseGraphTest {
+
+  private static List<FeatureListRow> createRows(int n) {
+    final List<FeatureListRow> rows = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final FeatureListRow row = Mockito.mock(FeatureListRow.class);
+      Mockito.when(row.getID()).thenReturn(i * 3);
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Test
+  void sameEdgesAsMap() {
+    final List<FeatureListRow> rows = createRows(300);
+    final Random random = new Random(42);
+    final int[][] pairs = new int[20000][2];
+    final float[] scores = new float[pairs.length];
+    final Map<Long, Float> expected = new HashMap<>();
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i][0] = random.nextInt(rows.size());
+      pairs[i][1] = random.nextInt(rows.size());
+      while (pairs[i][1] == pairs[i][0]) {
+        pairs[i][1] = random.nextInt(rows.size());
+      }
+      scores[i] = random.nextFloat();
+      // duplicates keep the higher score
+      final long key = R2RSparseGraph.toKey(rows.get(pairs[i][0]).getID(),
+          rows.get(pairs[i][1]).getID());
+      expected.merge(key, scores[i], Math::max);
+    }
+
+    final R2RSparseGraph graph = new R2RSparseGraph(Type.MS2_COSINE_SIM, "cos");
+    // add in two parallel rounds with a read in between to merge with compacted edges
+    final int half = pairs.length / 2;
+    IntStream.range(0, half).parallel().forEach(
+        i -> graph.add(rows.get(pairs[i][0]), rows.get(pairs[i][1]), scores[i]));
+    assertTrue(graph.size() > 0);
+    IntStream.range(half, pairs.length).parallel().forEach(
+        i -> graph.add(rows.get(pairs[i][1]), rows.get(pairs[i][0]), scores[i]));
+
+    assertEquals(expected.size(), graph.size());
+    for (int i = 0; i < pairs.length; i++) {
+      final FeatureListRow a = rows.get(pairs[i][0]);
+      final FeatureListRow b = rows.get(pairs[i][1]);
+      final float score = expected.get(R2RSparseGraph.toKey(a.getID(), b.getID()));
+      assertEquals(score, graph.getScore(a, b));
+      assertEquals(score, graph.getScore(b, a));
+      assertEquals(score, graph.get(b, a).getScore(), 1E-6);
+    }
+
+    // neighbors of each row
+    for (FeatureListRow row : rows) {
+      final long numExpected = expected.keySet().stream().filter(
+          key -> (int) (key >>> 32) == row.getID() || key.intValue() == row.getID()).count();
+      assertEquals(numExpected, graph.getDegree(row));
+      final List<RowsRelationship> relationships = graph.streamRelationships(row).toList();
+      assertEquals(numExpected, relationships.size());
+      for (RowsRelationship rel : relationships) {
+        final FeatureListRow other = rel.getOtherRow(row);
+        assertEquals(graph.getScore(row, other), rel.getScore(), 1E-6);
+      }
+    }
+
+    // materialized map contains the same edges
+    final R2RMap<RowsRelationship> map = graph.asR2RMap();
+    assertEquals(expected.size(), map.size());
+    assertEquals(graph.getScore(rows.get(pairs[0][0]), rows.get(pairs[0][1])),
+        map.get(rows.get(pairs[0][0]), rows.get(pairs[0][1])).getScore(), 1E-6);
+  }
+
+  @Test
+  void missingEdges() {
+    final List<FeatureListRow> rows = createRows(4);
+    final R2RSparseGraph graph = new R2RSparseGraph(Type.MS1_FEATURE_CORR, "sim");
+    assertTrue(graph.isEmpty());
+    graph.add(rows.get(0), rows.get(1), 0.5);
+
+    assertTrue(graph.contains(rows.get(1), rows.get(0)));
+    assertFalse(graph.contains(rows.get(0), rows.get(2)));
+    assertTrue(Float.isNaN(graph.getScore(rows.get(2), rows.get(3))));
+    assertNull(graph.get(rows.get(2), rows.get(3)));
+    assertEquals(0, graph.streamRelationships(rows.get(3)).count());
+
+    final R2RSparseGraph copy = new R2RSparseGraph(Type.MS1_FEATURE_CORR, "sim");
+    copy.add(rows.get(2), rows.get(3), 0.7);
+    copy.addAll(graph);
+    assertEquals(2, copy.size());
+    assertEquals(1, graph.size());
+  }
+}
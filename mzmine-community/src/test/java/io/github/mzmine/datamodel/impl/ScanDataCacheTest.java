@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ScanDataCacheTest {
+
+  private final RawDataFile raw = new RawDataFileImpl("lazy.mzML", null, null);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private SourceBackedScan createScan(int scanNumber, SimpleSpectralArrays data) {
+    return new SourceBackedScan(raw, scanNumber, 1, scanNumber, null,
+        SourceBackedScan.DataSummary.of(data), scan -> {
+      loads.incrementAndGet();
+      return data;
+    }, MassSpectrumType.PROFILE, PolarityType.POSITIVE, "", Range.closed(0d, 1000d), null);
+  }
+
+  @Test
+  void testSummaryWithoutLoading() {
+    final SimpleSpectralArrays data = new SimpleSpectralArrays(new double[]{100, 200, 300},
+        new double[]{5, 20, 10});
+    final SourceBackedScan scan = createScan(1, data);
+
+    assertEquals(3, scan.getNumberOfDataPoints());
+    assertEquals(35d, (double) scan.getTIC());
+    assertEquals(200d, (double) scan.getBasePeakMz());
+    assertEquals(Range.closed(100d, 300d), scan.getDataPointMZRange());
+    // base peak m/z is the only value read from the data
+    assertEquals(1, loads.get());
+    assertArrayEquals(data.mzs(), scan.getMzValues(new double[0]));
+  }
+
+  @Test
+  void testLeastRecentlyUsedEviction() {
+    final ScanDataCache cache = new ScanDataCache(10);
+    final SimpleSpectralArrays data = new SimpleSpectralArrays(new double[]{1, 2, 3, 4},
+        new double[]{1, 1, 1, 1});
+    final SourceBackedScan a = createScan(1, data);
+    final SourceBackedScan b = createScan(2, data);
+    final SourceBackedScan c = createScan(3, data);
+    final ScanDataLoader loader = scan -> {
+      loads.incrementAndGet();
+      return data;
+    };
+
+    cache.getData(a, loader);
+    cache.getData(b, loader);
+    cache.getData(a, loader); // a is now more recent than b
+    cache.getData(c, loader); // evicts b
+    assertEquals(8, cache.getCachedDataPoints());
+    assertEquals(3, loads.get());
+
+    cache.getData(a, loader);
+    assertEquals(3, loads.get());
+    cache.getData(b, loader);
+    assertEquals(4, loads.get());
+    assertEquals(2, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  void testIndexAccessUsesCacheOnce() {
+    final SimpleSpectralArrays data = new SimpleSpectralArrays(new double[]{100, 200, 300},
+        new double[]{5, 20, 10});
+    final SourceBackedScan scan = createScan(1, data);
+    final ScanDataCache cache = ScanDataCache.getInstance();
+    final long accesses = cache.getHits() + cache.getMisses();
+
+    for (int repeat = 0; repeat < 10; repeat++) {
+      for (int i = 0; i < scan.getNumberOfDataPoints(); i++) {
+        assertEquals(data.mzs()[i], scan.getMzValue(i));
+        assertEquals(data.intensities()[i], scan.getIntensityValue(i));
+      }
+    }
+    assertEquals(1, loads.get());
+    assertEquals(accesses + 1, cache.getHits() + cache.getMisses());
+  }
+
+  @Test
+  void testCloseRawDataFile() {
+    final RawDataFileImpl file = new RawDataFileImpl("lazy.mzML", null, null);
+    final AtomicBoolean closed = new AtomicBoolean();
+    final SimpleSpectralArrays data = new SimpleSpectralArrays(new double[]{1, 2, 3, 4},
+        new double[]{1, 1, 1, 1});
+    final SourceBackedScan scan = new SourceBackedScan(file, 1, 1, 1, null,
+        SourceBackedScan.DataSummary.of(data), s -> data, MassSpectrumType.PROFILE,
+        PolarityType.POSITIVE, "", Range.closed(0d, 1000d), null);
+    file.setScanDataSource(() -> closed.set(true));
+
+    final ScanDataCache cache = ScanDataCache.getInstance();
+    final long cached = cache.getCachedDataPoints();
+    scan.getMzValues(new double[0]);
+    assertEquals(cached + 4, cache.getCachedDataPoints());
+
+    file.close();
+    assertTrue(closed.get());
+    assertEquals(cached, cache.getCachedDataPoints());
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.timing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mzmine.modules.batchmode.timing.StepProfiler.HeapPeakSource;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StepProfilerTest {
+
+  private final FakeHeap heap = new FakeHeap();
+
+  @BeforeEach
+  void setUp() {
+    StepProfiler.setHeapPeakSource(heap);
+  }
+
+  @AfterEach
+  void tearDown() {
+    StepProfiler.resetHeapPeakSource();
+  }
+
+  @Test
+  void testTaskAggregation() {
+    final StepProfiler step = StepProfiler.start(3, "step", List.of());
+    StepProfiler.reportTask(Duration.ofMillis(200));
+    StepProfiler.reportTask(Duration.ofMillis(300));
+    final StepProfile profile = step.stop(List.of());
+
+    // not active anymore
+    StepProfiler.reportTask(Duration.ofMillis(400));
+
+    Assertions.assertEquals(3, profile.stepNumber());
+    Assertions.assertEquals("step", profile.name());
+    Assertions.assertEquals(2, profile.tasks());
+    Assertions.assertEquals(0.5, profile.taskSeconds(), 1E-9);
+    Assertions.assertTrue(profile.wallSeconds() >= 0);
+    Assertions.assertEquals(0, profile.rowsIn());
+    Assertions.assertEquals(0, profile.rowsOut());
+  }
+
+  @Test
+  void testTasksReportIntoLastStartedStep() {
+    final StepProfiler batch = StepProfiler.startBatch("batch");
+    final StepProfiler first = StepProfiler.start(0, "first", List.of());
+    StepProfiler.reportTask(Duration.ofSeconds(1));
+    final StepProfile firstProfile = first.stop(List.of());
+    final StepProfiler second = StepProfiler.start(1, "second", List.of());
+    StepProfiler.reportTask(Duration.ofSeconds(2));
+    StepProfiler.reportTask(Duration.ofSeconds(2));
+    final StepProfile secondProfile = second.stop(List.of());
+    final StepProfile batchProfile = batch.stop(List.of());
+
+    Assertions.assertEquals(1, firstProfile.tasks());
+    Assertions.assertEquals(2, secondProfile.tasks());
+    Assertions.assertEquals(4d, secondProfile.taskSeconds(), 1E-9);
+    // the batch profiler is never active
+    Assertions.assertEquals(0, batchProfile.tasks());
+    Assertions.assertEquals(-1, batchProfile.stepNumber());
+  }
+
+  @Test
+  void testPeakHeapPerStepAndBatch() {
+    final StepProfiler batch = StepProfiler.startBatch("batch");
+    // peak before the first step is only part of the batch
+    heap.use(1000);
+    heap.use(100);
+
+    final StepProfiler first = StepProfiler.start(0, "first", List.of());
+    heap.use(300);
+    heap.use(50);
+    final StepProfile firstProfile = first.stop(List.of());
+
+    final StepProfiler second = StepProfiler.start(1, "second", List.of());
+    heap.use(200);
+    final StepProfile secondProfile = second.stop(List.of());
+
+    final StepProfile batchProfile = batch.stop(List.of());
+
+    Assertions.assertEquals(300, firstProfile.peakHeapBytes());
+    Assertions.assertEquals(200, secondProfile.peakHeapBytes());
+    Assertions.assertEquals(1000, batchProfile.peakHeapBytes());
+  }
+
+  @Test
+  void testBatchPeakDuringStep() {
+    final StepProfiler batch = StepProfiler.startBatch("batch");
+    heap.use(100);
+    final StepProfiler step = StepProfiler.start(0, "step", List.of());
+    heap.use(5000);
+    heap.use(10);
+    final StepProfile stepProfile = step.stop(List.of());
+    final StepProfile batchProfile = batch.stop(List.of());
+
+    Assertions.assertEquals(5000, stepProfile.peakHeapBytes());
+    Assertions.assertEquals(5000, batchProfile.peakHeapBytes());
+  }
+
+  @Test
+  void testWriteReport(@TempDir File dir) throws IOException {
+    final List<StepProfile> profiles = List.of(
+        new StepProfile(-1, "batch", 10, 20, 0.5, 0, 0, 1000, 2000, 0, 0, 0, 5, 10),
+        new StepProfile(0, "step", 10, 20, 0.5, 2, 9.5, 1000, 2000, 100, 0, 0, 5, 10));
+
+    Assertions.assertTrue(BatchProfilingReport.write(new File(dir, "batch.mzbatch"), profiles));
+
+    final File json = new File(dir, "batch" + BatchProfilingReport.SUFFIX + ".json");
+    final File csv = new File(dir, "batch" + BatchProfilingReport.SUFFIX + ".csv");
+    Assertions.assertTrue(csv.exists());
+    final StepProfile[] read = new ObjectMapper().readValue(json, StepProfile[].class);
+    Assertions.assertEquals(profiles, List.of(read));
+  }
+
+  /**
+   * Heap usage that is set by the test
+   */
+  private static class FakeHeap implements HeapPeakSource {
+
+    private long current;
+    private long peak;
+
+    void use(final long bytes) {
+      current = bytes;
+      peak = Math.max(peak, bytes);
+    }
+
+    @Override
+    public long getPeak() {
+      return peak;
+    }
+
+    @Override
+    public void reset() {
+      peak = current;
+    }
+  }
+}
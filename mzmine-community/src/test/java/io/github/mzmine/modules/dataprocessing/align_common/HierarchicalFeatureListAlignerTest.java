@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import static io.github.mzmine.util.FeatureListRowSorter.MZ_ASCENDING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.modules.dataprocessing.align_common.FeatureCloner.SimpleFeatureCloner;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerParameters;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinRowAlignScorer;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.taskcontrol.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class HierarchicalFeatureListAlignerTest {
+
+  private static final int COMPOUNDS = 30;
+
+  /**
+   * One list per sample with well separated compounds, each sample misses some compounds
+   */
+  private static List<FeatureList> createFeatureLists(int samples) {
+    final Random random = new Random(42);
+    final List<FeatureList> lists = new ArrayList<>();
+    for (int sample = 0; sample < samples; sample++) {
+      final RawDataFile raw = Mockito.mock(RawDataFile.class);
+      final ModularFeatureList flist = new ModularFeatureList("Sample " + sample, null, raw);
+      int id = 1;
+      for (int compound = 0; compound < COMPOUNDS; compound++) {
+        if ((compound + sample) % 5 == 0) {
+          continue;
+        }
+        final ModularFeature f = new ModularFeature(flist);
+        f.set(RawFileType.class, raw);
+        f.set(MZType.class, 100 + compound * 7.3 + (random.nextDouble() - 0.5) * 0.002);
+        f.set(RTType.class, 0.5f + compound * 0.4f + (random.nextFloat() - 0.5f) * 0.04f);
+        f.set(HeightType.class, 1000f + random.nextFloat() * 1E5f);
+        f.set(DetectionType.class, FeatureStatus.DETECTED);
+        flist.addRow(new ModularFeatureListRow(flist, id++, f));
+      }
+      lists.add(flist);
+    }
+    return lists;
+  }
+
+  private static ParameterSet createParameters() {
+    final ParameterSet param = new JoinAlignerParameters().cloneParameterSet();
+    param.setParameter(JoinAlignerParameters.MZTolerance, new MZTolerance(0.005, 10));
+    param.setParameter(JoinAlignerParameters.MZWeight, 3d);
+    param.setParameter(JoinAlignerParameters.RTTolerance,
+        new RTTolerance(0.1f, RTTolerance.Unit.MINUTES));
+    param.setParameter(JoinAlignerParameters.RTWeight, 1d);
+    param.setParameter(JoinAlignerParameters.mobilityTolerance, false);
+    param.setParameter(JoinAlignerParameters.SameChargeRequired, false);
+    param.setParameter(JoinAlignerParameters.SameIDRequired, false);
+    param.setParameter(JoinAlignerParameters.compareIsotopePattern, false);
+    param.setParameter(JoinAlignerParameters.compareSpectraSimilarity, false);
+    return param;
+  }
+
+  @Test
+  void sameRowsAsSequentialAlignment() {
+    final Task task = Mockito.mock(Task.class);
+    // odd number of lists and batches to merge a remaining list in a later round
+    final List<FeatureList> lists = createFeatureLists(7);
+    final JoinRowAlignScorer scorer = new JoinRowAlignScorer(createParameters());
+
+    final ModularFeatureList sequential = new BaseFeatureListAligner(task, lists, "Aligned", null,
+        scorer, new SimpleFeatureCloner(), MZ_ASCENDING).alignFeatureLists();
+    assertNotNull(sequential);
+    assertEquals(COMPOUNDS, sequential.getNumberOfRows());
+
+    for (int batchSize : new int[]{2, 3, 7}) {
+      final ModularFeatureList hierarchical = new HierarchicalFeatureListAligner(task, lists,
+          "Aligned", null, scorer, new SimpleFeatureCloner(), MZ_ASCENDING,
+          batchSize).alignFeatureLists();
+      assertNotNull(hierarchical);
+
+      final AlignmentComparison comparison = AlignmentComparison.compare(sequential,
+          hierarchical);
+      assertEquals(COMPOUNDS, comparison.otherRows());
+      assertEquals(COMPOUNDS, comparison.identicalRows());
+      assertEquals(0, comparison.movedFeatures());
+      assertEquals(sequential.getRawDataFiles().size(), hierarchical.getRawDataFiles().size());
+    }
+  }
+}
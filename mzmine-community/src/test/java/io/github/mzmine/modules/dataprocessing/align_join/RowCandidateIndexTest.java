@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_join;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.util.FeatureListUtils;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class RowCandidateIndexTest {
+
+  @Test
+  void sameCandidatesAsListSearch() {
+    final RawDataFile raw = Mockito.mock(RawDataFile.class);
+    final ModularFeatureList flist = new ModularFeatureList("List", null, raw);
+    final Random random = new Random(42);
+    final List<FeatureListRow> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      ModularFeature f = new ModularFeature(flist);
+      f.set(RawFileType.class, raw);
+      f.set(MZType.class, 100 + random.nextDouble() * 50);
+      // some rows without RT and mobility match all ranges
+      if (i % 10 != 0) {
+        f.set(RTType.class, random.nextFloat() * 20f);
+        f.set(MobilityType.class, random.nextFloat());
+      }
+      f.set(DetectionType.class, FeatureStatus.DETECTED);
+      rows.add(new ModularFeatureListRow(flist, i, f));
+    }
+
+    final RowCandidateIndex index = new RowCandidateIndex(rows, false);
+    for (int i = 0; i < 200; i++) {
+      final double mz = 100 + random.nextDouble() * 50;
+      final float rt = random.nextFloat() * 20f;
+      final Range<Double> mzRange = Range.closed(mz - 2, mz + 2);
+      final Range<Float> rtRange = i % 3 == 0 ? Range.all() : Range.closed(rt - 1, rt + 1);
+      final Range<Float> mobilityRange = i % 2 == 0 ? Range.all() : Range.closed(0.2f, 0.6f);
+
+      final var expected = new HashSet<>(
+          FeatureListUtils.getCandidatesWithinRanges(mzRange, rtRange, mobilityRange, rows,
+              false));
+      final var actual = index.getCandidatesWithinRanges(mzRange, rtRange, mobilityRange);
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected, new HashSet<>(actual));
+    }
+    assertEquals(200, index.getQueries());
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import java.util.Map.Entry;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MzRangeIntervalsTest {
+
+  @Test
+  void testSameAsRangeMap() {
+    Random random = new Random(11);
+    double tolerance = 0.005;
+    MzRangeIntervals intervals = new MzRangeIntervals(100, 200, 2 * tolerance);
+    RangeMap<Double, Integer> rangeMap = TreeRangeMap.create();
+
+    for (int i = 0; i < 20000; i++) {
+      double mz = 100 + random.nextInt(100_000) * 0.001;
+      Entry<Range<Double>, Integer> expected = rangeMap.getEntry(mz);
+      int found = intervals.find(mz);
+      assertEquals(expected == null ? -1 : expected.getValue(), found);
+      if (found != -1) {
+        continue;
+      }
+      // same limits as in the chromatogram builder
+      Entry<Range<Double>, Integer> minus = rangeMap.getEntry(mz - tolerance);
+      Entry<Range<Double>, Integer> plus = rangeMap.getEntry(mz + tolerance);
+      double lower = minus == null ? mz - tolerance : minus.getKey().upperEndpoint();
+      double upper = plus == null ? mz + tolerance : plus.getKey().lowerEndpoint();
+      if (lower < upper) {
+        int id = intervals.add(lower, upper);
+        rangeMap.put(Range.closedOpen(lower, upper), id);
+      }
+    }
+
+    int[] expectedOrder = rangeMap.asMapOfRanges().values().stream().mapToInt(Integer::intValue)
+        .toArray();
+    assertArrayEquals(expectedOrder, intervals.getIdsSortedByMz());
+  }
+
+  @Test
+  void testOutsideOfDataRange() {
+    MzRangeIntervals intervals = new MzRangeIntervals(100, 100, 0.01);
+    int id = intervals.add(99.995, 100.005);
+    assertEquals(id, intervals.find(99.995));
+    assertEquals(id, intervals.find(100.004));
+    assertEquals(-1, intervals.find(100.005));
+    assertEquals(-1, intervals.find(99.99));
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.FeatureDataType;
+import io.github.mzmine.datamodel.data_access.FeatureDataAccess;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.FeatureResolverTask.ResolvedFeature;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolverParameters;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.maths.CenterFunction;
+import io.github.mzmine.util.maths.CenterMeasure;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+/**
+ * Resolving chunks of rows in parallel needs to give the same result as resolving all rows with a
+ * single resolver and data access, like before the rows were split into chunks.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class FeatureResolverTaskTest {
+
+  private static final int NUM_SCANS = 300;
+  private static final int NUM_ROWS = 250;
+
+  private RawDataFile file;
+  private ModularFeatureList flist;
+  private MinimumSearchFeatureResolverParameters parameters;
+
+  @BeforeAll
+  void init() throws IOException {
+    final Random rand = new Random(42);
+    file = new RawDataFileImpl("test", null, null);
+    final List<Scan> scans = new ArrayList<>();
+    for (int i = 0; i < NUM_SCANS; i++) {
+      final SimpleScan scan = new SimpleScan(file, i, 1, i * 0.02f, null, new double[]{200d},
+          new double[]{1E4}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "test",
+          Range.closed(100d, 1000d));
+      file.addScan(scan);
+      scans.add(scan);
+    }
+
+    flist = new ModularFeatureList("test", null, file);
+    flist.setSelectedScans(file, scans);
+    for (int r = 0; r < NUM_ROWS; r++) {
+      flist.addRow(new ModularFeatureListRow(flist, r + 1, makeFeature(rand, scans)));
+    }
+
+    parameters = new MinimumSearchFeatureResolverParameters();
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.dimension,
+        ResolvingDimension.RETENTION_TIME);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.CHROMATOGRAPHIC_THRESHOLD_LEVEL,
+        0.5);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_ABSOLUTE_HEIGHT, 1E3);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_NUMBER_OF_DATAPOINTS, 4);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_RATIO, 1.5);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_RELATIVE_HEIGHT, 0d);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.PEAK_DURATION,
+        Range.closed(0d, 5d));
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.SEARCH_RT_RANGE, 0.1);
+  }
+
+  /**
+   * Chromatogram with one to three peaks and noise on a random range of scans
+   */
+  private ModularFeature makeFeature(final Random rand, final List<Scan> scans) {
+    final int start = rand.nextInt(NUM_SCANS / 2);
+    final int end = start + 20 + rand.nextInt(NUM_SCANS / 2 - 20);
+    final List<Scan> subset = scans.subList(start, end);
+    final int numPeaks = 1 + rand.nextInt(3);
+    final float[] peakRts = new float[numPeaks];
+    for (int p = 0; p < numPeaks; p++) {
+      peakRts[p] = subset.get(rand.nextInt(subset.size())).getRetentionTime();
+    }
+
+    final double mz = 100 + rand.nextDouble() * 900;
+    final double[] mzs = new double[subset.size()];
+    final double[] intensities = new double[subset.size()];
+    for (int i = 0; i < subset.size(); i++) {
+      mzs[i] = mz + rand.nextGaussian() * 0.001;
+      intensities[i] = rand.nextDouble() * 500;
+      for (final float peakRt : peakRts) {
+        final double delta = (subset.get(i).getRetentionTime() - peakRt) / 0.05;
+        intensities[i] += 1E5 * Math.exp(-delta * delta);
+      }
+    }
+    final SimpleIonTimeSeries series = new SimpleIonTimeSeries(null, mzs, intensities, subset);
+    return new ModularFeature(flist, file, series, FeatureStatus.DETECTED);
+  }
+
+  @Test
+  void testChunksSameAsSingleAccess() {
+    // previous implementation: one resolver and one access over all rows
+    final Resolver singleResolver = parameters.getResolver(parameters, flist);
+    final FeatureDataAccess access = EfficientDataAccess.of(flist,
+        FeatureDataType.INCLUDE_ZEROS, file);
+    final List<ModularFeature> expectedFeatures = new ArrayList<>();
+    final List<List<IonTimeSeries<? extends Scan>>> expectedSeries = new ArrayList<>();
+    while (access.hasNextFeature()) {
+      expectedFeatures.add((ModularFeature) access.nextFeature());
+      final List<IonTimeSeries<? extends Scan>> resolved = singleResolver.resolve(access, null);
+      expectedSeries.add(resolved);
+    }
+    final int totalResolved = expectedSeries.stream().mapToInt(List::size).sum();
+    Assertions.assertTrue(totalResolved > NUM_ROWS, "Only " + totalResolved + " resolved");
+
+    final FeatureResolverTask task = new FeatureResolverTask(null, null, flist, parameters,
+        new CenterFunction(CenterMeasure.MEDIAN), Instant.now());
+    final List<FeatureListRow> rows = List.copyOf(flist.getRows());
+    // uneven chunk sizes and more chunks than threads
+    for (final int numChunks : new int[]{1, 3, 7, 64}) {
+      final Resolver resolver = parameters.getResolver(parameters, flist);
+      final List<ResolvedFeature> actual = task.resolveInChunks(resolver, flist, file, rows,
+          numChunks).stream().flatMap(List::stream).toList();
+
+      Assertions.assertEquals(expectedFeatures.size(), actual.size(), numChunks + " chunks");
+      for (int i = 0; i < actual.size(); i++) {
+        Assertions.assertSame(expectedFeatures.get(i), actual.get(i).originalFeature());
+        assertSameSeries(expectedSeries.get(i), actual.get(i).resolvedSeries());
+      }
+    }
+  }
+
+  private static void assertSameSeries(final List<IonTimeSeries<? extends Scan>> expected,
+      final List<IonTimeSeries<? extends Scan>> actual) {
+    Assertions.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final IonTimeSeries<? extends Scan> e = expected.get(i);
+      final IonTimeSeries<? extends Scan> a = actual.get(i);
+      Assertions.assertEquals(e.getSpectra(), a.getSpectra());
+      Assertions.assertArrayEquals(e.getMzValues(new double[0]), a.getMzValues(new double[0]));
+      Assertions.assertArrayEquals(e.getIntensityValues(new double[0]),
+          a.getIntensityValues(new double[0]));
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.multithreaded;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.data_access.ScanDataAccess;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapDataPoint;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The sweep over RT needs to fill the same features as offering every scan to every gap
+ */
+class GapSweepSchedulerTest {
+
+  private static final int NUM_SCANS = 200;
+  private static final float RT_STEP = 0.1f;
+
+  @Test
+  void testSameAsSequential() throws IOException {
+    final Random rand = new Random(42);
+    final RawDataFile file = new RawDataFileImpl("test", null, null);
+    final List<Scan> scans = makeScans(file, rand);
+
+    final List<Range<Double>> mzRanges = new ArrayList<>();
+    final List<Range<Float>> rtRanges = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      final double mz = 100 + rand.nextDouble() * 500;
+      mzRanges.add(Range.closed(mz, mz + 0.005 + rand.nextDouble() * 2));
+      // also gaps before the first and after the last scan and gaps between two scans
+      final float rt = -1f + rand.nextFloat() * (NUM_SCANS * RT_STEP + 2);
+      rtRanges.add(Range.closed(rt, rt + rand.nextFloat() * (rand.nextBoolean() ? 0.05f : 3f)));
+    }
+    // gaps on the exact RT of scans
+    mzRanges.add(Range.closed(100d, 600d));
+    rtRanges.add(Range.closed(scans.get(10).getRetentionTime(), scans.get(20).getRetentionTime()));
+    mzRanges.add(Range.closed(300d, 301d));
+    rtRanges.add(Range.singleton(scans.get(50).getRetentionTime()));
+
+    final List<RecordingGap> sequential = makeGaps(file, mzRanges, rtRanges);
+    final ScanDataAccess sequentialAccess = EfficientDataAccess.of(file, ScanDataType.RAW, scans);
+    while (sequentialAccess.hasNextScan()) {
+      sequentialAccess.nextScan();
+      for (final Gap gap : sequential) {
+        gap.offerNextScan(sequentialAccess);
+      }
+    }
+
+    Assertions.assertTrue(GapSweepScheduler.isSortedByRt(scans));
+    final List<RecordingGap> swept = makeGaps(file, mzRanges, rtRanges);
+    final GapSweepScheduler<RecordingGap> scheduler = new GapSweepScheduler<>(swept);
+    final ScanDataAccess sweepAccess = EfficientDataAccess.of(file, ScanDataType.RAW, scans);
+    while (sweepAccess.hasNextScan()) {
+      sweepAccess.nextScan();
+      GapSweepScheduler.offerScan(sweepAccess,
+          scheduler.advance(sweepAccess.getRetentionTime()));
+    }
+
+    int filled = 0;
+    for (int i = 0; i < sequential.size(); i++) {
+      final RecordingGap expected = sequential.get(i);
+      final RecordingGap actual = swept.get(i);
+      Assertions.assertEquals(expected.offers, actual.offers, "Offered data points of gap " + i);
+
+      final boolean expectedFilled = expected.noMoreOffers();
+      Assertions.assertEquals(expectedFilled, actual.noMoreOffers(), "Gap " + i + " filled");
+      Assertions.assertEquals(expected.filled, actual.filled, "Filled feature of gap " + i);
+      filled += expectedFilled ? 1 : 0;
+    }
+    // make sure the test data fills gaps at all
+    Assertions.assertTrue(filled > 10, "Only " + filled + " gaps were filled");
+  }
+
+  @Test
+  void testIsSortedByRt() throws IOException {
+    final RawDataFile file = new RawDataFileImpl("test", null, null);
+    final List<Scan> scans = new ArrayList<>(makeScans(file, new Random(1)));
+    Assertions.assertTrue(GapSweepScheduler.isSortedByRt(scans));
+    scans.add(scans.getFirst());
+    Assertions.assertFalse(GapSweepScheduler.isSortedByRt(scans));
+  }
+
+  /**
+   * Scans with random noise and a few chromatographic peaks
+   */
+  private static List<Scan> makeScans(final RawDataFile file, final Random rand)
+      throws IOException {
+    final double[] peakMzs = new double[40];
+    final float[] peakRts = new float[peakMzs.length];
+    for (int i = 0; i < peakMzs.length; i++) {
+      peakMzs[i] = 100 + rand.nextDouble() * 500;
+      peakRts[i] = rand.nextFloat() * NUM_SCANS * RT_STEP;
+    }
+
+    final List<Scan> scans = new ArrayList<>();
+    for (int s = 0; s < NUM_SCANS; s++) {
+      final float rt = s * RT_STEP;
+      final int numNoise = 20 + rand.nextInt(60);
+      final double[] mzs = new double[numNoise + peakMzs.length];
+      final double[] intensities = new double[mzs.length];
+      for (int i = 0; i < numNoise; i++) {
+        mzs[i] = 100 + rand.nextDouble() * 500;
+      }
+      for (int i = 0; i < peakMzs.length; i++) {
+        mzs[numNoise + i] = peakMzs[i] + rand.nextGaussian() * 0.001;
+      }
+      Arrays.sort(mzs);
+      for (int i = 0; i < mzs.length; i++) {
+        intensities[i] = 1 + rand.nextDouble() * 100;
+        for (int p = 0; p < peakMzs.length; p++) {
+          if (Math.abs(mzs[i] - peakMzs[p]) < 0.01) {
+            final double delta = (rt - peakRts[p]) / 0.3;
+            intensities[i] += 1E5 * Math.exp(-delta * delta);
+          }
+        }
+      }
+
+      final SimpleScan scan = new SimpleScan(file, s, 1, rt, null, mzs, intensities,
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "test", Range.closed(100d, 600d));
+      file.addScan(scan);
+      scans.add(scan);
+    }
+    return scans;
+  }
+
+  private static List<RecordingGap> makeGaps(final RawDataFile file,
+      final List<Range<Double>> mzRanges, final List<Range<Float>> rtRanges) {
+    final List<RecordingGap> gaps = new ArrayList<>();
+    for (int i = 0; i < mzRanges.size(); i++) {
+      gaps.add(new RecordingGap(file, mzRanges.get(i), rtRanges.get(i)));
+    }
+    return gaps;
+  }
+
+  private record Offer(int scanNumber, double mz, double rt, double intensity) {
+
+    private static Offer of(final GapDataPoint dp) {
+      return new Offer(dp.getScan().getScanNumber(), dp.getMZ(), dp.getRT(), dp.getIntensity());
+    }
+  }
+
+  /**
+   * Records all offered data points and the filled feature instead of adding it to a row
+   */
+  private static class RecordingGap extends Gap {
+
+    private final List<Offer> offers = new ArrayList<>();
+    private List<Offer> filled = List.of();
+
+    private RecordingGap(final RawDataFile file, final Range<Double> mzRange,
+        final Range<Float> rtRange) {
+      super(null, file, mzRange, rtRange, 0.3);
+    }
+
+    @Override
+    protected void addDataPoint(final GapDataPoint currentDataPoint) {
+      offers.add(Offer.of(currentDataPoint));
+      super.addDataPoint(currentDataPoint);
+    }
+
+    @Override
+    protected boolean addFeatureToRow() {
+      filled = bestPeakDataPoints.stream().map(Offer::of).toList();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_imagecorrelate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class BlockedImageCorrelationTest {
+
+  private static final int IMAGES = 70;
+  private static final double MIN_SIMILARITY = 0.3;
+
+  private final List<double[]> images = createImages();
+
+  private static List<double[]> createImages() {
+    final Random random = new Random(42);
+    final double[] base = new double[2000];
+    for (int k = 0; k < base.length; k++) {
+      base[k] = random.nextDouble() < 0.3 ? random.nextDouble() * 1000 : 0;
+    }
+    final List<double[]> images = new ArrayList<>();
+    for (int i = 0; i < IMAGES; i++) {
+      final double weight = random.nextDouble();
+      final double[] image = new double[base.length];
+      for (int k = 0; k < image.length; k++) {
+        image[k] = base[k] * weight + random.nextDouble() * 200 * (1 - weight);
+      }
+      images.add(image);
+    }
+    return images;
+  }
+
+  @Test
+  void pearsonWithoutNoiseLevel() {
+    assertSameAsPairwise(SimilarityMeasure.PEARSON, 0);
+  }
+
+  @Test
+  void pearsonWithNoiseLevel() {
+    assertSameAsPairwise(SimilarityMeasure.PEARSON, 100);
+  }
+
+  @Test
+  void cosineWithNoiseLevel() {
+    assertSameAsPairwise(SimilarityMeasure.COSINE_SIM, 100);
+  }
+
+  private void assertSameAsPairwise(SimilarityMeasure measure, double noiseLevel) {
+    final Map<Integer, Double> results = new ConcurrentHashMap<>();
+    final AtomicLong pairs = new AtomicLong();
+    new BlockedImageCorrelation(images, noiseLevel, measure, 5, MIN_SIMILARITY).forEachSimilarPair(
+        (a, b, similarity) -> results.put(a * IMAGES + b, similarity), () -> false, pairs);
+    assertEquals(IMAGES * (IMAGES - 1) / 2, pairs.get());
+
+    for (int a = 0; a < IMAGES; a++) {
+      for (int b = a + 1; b < IMAGES; b++) {
+        final double expected = pairwise(images.get(a), images.get(b), measure, noiseLevel);
+        final Double actual = results.get(a * IMAGES + b);
+        // skip values at the threshold
+        if (expected > MIN_SIMILARITY + 1e-4) {
+          assertNotNull(actual);
+          assertEquals(expected, actual, 1e-4);
+        } else if (expected < MIN_SIMILARITY - 1e-4) {
+          assertNull(actual);
+        }
+      }
+    }
+  }
+
+  private static double pairwise(double[] a, double[] b, SimilarityMeasure measure,
+      double noiseLevel) {
+    final List<double[]> data = new ArrayList<>();
+    for (int k = 0; k < a.length; k++) {
+      if (a[k] >= noiseLevel && b[k] >= noiseLevel) {
+        data.add(new double[]{a[k], b[k]});
+      }
+    }
+    return measure.calc(data.toArray(double[][]::new));
+  }
+}
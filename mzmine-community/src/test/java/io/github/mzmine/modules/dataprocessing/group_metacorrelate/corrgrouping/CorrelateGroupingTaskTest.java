@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_metacorrelate.corrgrouping;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.CachedFeatureDataAccess;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.CorrelationData;
+import io.github.mzmine.datamodel.features.correlation.R2RFullCorrelationData;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureCorrelationUtil;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureShapeCache;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The RT bands and the feature shape cache need to compare the same row pairs with the same result
+ * as the comparison of each row with all following rows
+ */
+class CorrelateGroupingTaskTest {
+
+  private static final RTTolerance RT_TOLERANCE = new RTTolerance(0.25f, Unit.MINUTES);
+  private static final int NUM_SCANS = 200;
+  private static final float SCAN_RT_STEP = 0.02f;
+
+  /**
+   * @return all pairs of the comparison of each row with all following rows until the first row
+   * outside the RT tolerance
+   */
+  private static Set<Long> sequentialPairs(float[] rts) {
+    final Set<Long> pairs = new HashSet<>();
+    for (int i = 0; i < rts.length - 1; i++) {
+      for (int x = i + 1; x < rts.length; x++) {
+        if (!RT_TOLERANCE.checkWithinTolerance(rts[i], rts[x])) {
+          break;
+        }
+        pairs.add((long) i * rts.length + x);
+      }
+    }
+    return pairs;
+  }
+
+  /**
+   * @return all pairs of the blocks of RT bands, each pair only once
+   */
+  private static Set<Long> bandPairs(float[] rts, int blocks) {
+    final int[] bandEnd = CorrelateGroupingTask.findBandEnds(rts, RT_TOLERANCE);
+    long totalPairs = 0;
+    for (int i = 0; i < rts.length; i++) {
+      totalPairs += bandEnd[i] - i - 1;
+    }
+    final IntList blockStarts = CorrelateGroupingTask.createBlocks(bandEnd, totalPairs, blocks);
+    assertEquals(0, blockStarts.getInt(0));
+    assertEquals(rts.length, blockStarts.getInt(blockStarts.size() - 1));
+
+    final Set<Long> pairs = new HashSet<>();
+    for (int block = 0; block < blockStarts.size() - 1; block++) {
+      assertTrue(blockStarts.getInt(block) < blockStarts.getInt(block + 1) || rts.length == 0);
+      for (int i = blockStarts.getInt(block); i < blockStarts.getInt(block + 1); i++) {
+        for (int x = i + 1; x < bandEnd[i]; x++) {
+          assertTrue(pairs.add((long) i * rts.length + x));
+        }
+      }
+    }
+    assertEquals(totalPairs, pairs.size());
+    return pairs;
+  }
+
+  @Test
+  void testBandsMatchSequentialComparison() {
+    final Random random = new Random(42);
+    final float[] rts = new float[2000];
+    for (int i = 0; i < rts.length; i++) {
+      rts[i] = random.nextFloat() * 20f;
+    }
+    // rows exactly at and next to the edge of the RT band, dense regions, and identical RTs
+    for (int i = 0; i < 100; i++) {
+      rts[i] = 5f + i * 0.25f;
+      rts[100 + i] = Math.nextUp(5f + i * 0.25f);
+      rts[200 + i] = 12f + i * 0.001f;
+      rts[300 + i] = 15f;
+    }
+    Arrays.sort(rts);
+
+    final Set<Long> expected = sequentialPairs(rts);
+    for (int blocks : new int[]{1, 7, 64, 10_000}) {
+      assertEquals(expected, bandPairs(rts, blocks));
+    }
+  }
+
+  @Test
+  void testBandsOfSmallInputs() {
+    assertEquals(Set.of(), bandPairs(new float[0], 8));
+    assertEquals(Set.of(), bandPairs(new float[]{1f}, 8));
+    final float[] rts = {1f, 1.25f, 1.5f, 1.75f, 3f};
+    assertEquals(sequentialPairs(rts), bandPairs(rts, 8));
+  }
+
+  @Test
+  void testCachedShapesMatchFeatureCorrelation() throws IOException {
+    final Random random = new Random(7);
+    final List<RawDataFile> raws = new ArrayList<>();
+    for (int r = 0; r < 3; r++) {
+      final RawDataFileImpl raw = new RawDataFileImpl("raw" + r, null, null, Color.BLACK);
+      for (int i = 0; i < NUM_SCANS; i++) {
+        raw.addScan(new SimpleScan(raw, i + 1, 1, i * SCAN_RT_STEP, null, new double[]{200},
+            new double[]{1000}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+            Range.closed(50d, 1000d)));
+      }
+      raws.add(raw);
+    }
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, raws);
+
+    final List<FeatureListRow> rowList = new ArrayList<>();
+    for (int id = 1; id <= 120; id++) {
+      // a few apex positions so that many rows co-elute with similar shapes
+      final int apex = 10 + random.nextInt(18) * 10 + random.nextInt(3);
+      final int width = 3 + random.nextInt(8);
+      ModularFeatureListRow row = null;
+      for (RawDataFile raw : raws) {
+        if (random.nextInt(6) == 0) {
+          continue; // missing feature
+        }
+        final int start = Math.max(0, apex - width + random.nextInt(2));
+        final int end = Math.min(NUM_SCANS, apex + width + random.nextInt(2));
+        final double height = 1E4 + random.nextDouble() * 1E6;
+        final double[] mzs = new double[end - start];
+        final double[] intensities = new double[end - start];
+        for (int i = start; i < end; i++) {
+          final double d = (i - apex) / (double) width;
+          mzs[i - start] = 100 + id;
+          intensities[i - start] =
+              height * Math.exp(-2 * d * d) * (0.9 + random.nextDouble() * 0.2);
+        }
+        final List<Scan> scans = raw.getScans().subList(start, end);
+        final ModularFeature feature = new ModularFeature(flist, raw,
+            new SimpleIonTimeSeries(null, mzs, intensities, scans), FeatureStatus.DETECTED);
+        if (row == null) {
+          row = new ModularFeatureListRow(flist, id, feature);
+        } else {
+          row.addFeature(raw, feature);
+        }
+      }
+      if (row != null) {
+        rowList.add(row);
+      }
+    }
+    final FeatureListRow[] rows = rowList.stream()
+        .sorted(Comparator.comparing(FeatureListRow::getAverageRT)).toArray(FeatureListRow[]::new);
+    final float[] rts = new float[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      rts[i] = rows[i].getAverageRT();
+    }
+
+    final CachedFeatureDataAccess data = new CachedFeatureDataAccess(rows, false, true);
+    final FeatureShapeCache cache = new FeatureShapeCache(rows, raws, data, true);
+
+    int correlated = 0;
+    for (long pair : bandPairs(rts, 16)) {
+      final int i = (int) (pair / rows.length);
+      final int x = (int) (pair % rows.length);
+      final R2RFullCorrelationData expected = FeatureCorrelationUtil.corrR2R(data, raws, rows[i],
+          rows[x], true, 5, 2, 2, 0, 0, true, SimilarityMeasure.PEARSON, 0.5);
+      final R2RFullCorrelationData actual = FeatureCorrelationUtil.corrR2R(cache, i, x, true, 5, 2,
+          2, 0, 0, true, SimilarityMeasure.PEARSON, 0.5);
+      if (expected == null) {
+        assertNull(actual);
+        continue;
+      }
+      assertNotNull(actual);
+      assertCorrelationEquals(expected.getHeightCorr(), actual.getHeightCorr());
+      assertEquals(expected.hasFeatureShapeCorrelation(), actual.hasFeatureShapeCorrelation());
+      for (RawDataFile raw : raws) {
+        assertCorrelationEquals(expected.getCorrFeatureShape(raw), actual.getCorrFeatureShape(raw));
+      }
+      if (expected.hasFeatureShapeCorrelation()) {
+        correlated++;
+      }
+    }
+    // the fixture needs to contain correlated pairs
+    assertTrue(correlated > 0);
+  }
+
+  private static void assertCorrelationEquals(CorrelationData expected, CorrelationData actual) {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    assertNotNull(actual);
+    assertEquals(expected.getDPCount(), actual.getDPCount());
+    assertArrayEquals(expected.getData(), actual.getData());
+    assertEquals(expected.getPearsonR(), actual.getPearsonR());
+  }
+}
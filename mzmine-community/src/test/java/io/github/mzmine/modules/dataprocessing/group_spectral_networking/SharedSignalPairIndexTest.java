@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
+import io.github.mzmine.util.scans.similarity.Weights;
+import io.github.mzmine.util.scans.similarity.impl.cosine.CosineScoringKernel;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SharedSignalPairIndexTest {
+
+  private final MZTolerance tolerance = new MZTolerance(0.003, 10);
+
+  @Test
+  void testNoMissedPairs() {
+    Random random = new Random(7);
+    int numSpectra = 150;
+    int minMatch = 3;
+    List<double[]> mzs = new ArrayList<>();
+    List<double[]> intensities = new ArrayList<>();
+    double[] precursorMzs = new double[numSpectra];
+    for (int i = 0; i < numSpectra; i++) {
+      precursorMzs[i] = 150 + random.nextInt(200) * 0.5;
+    }
+    Arrays.sort(precursorMzs);
+    for (int i = 0; i < numSpectra; i++) {
+      double[] spectrum = new double[3 + random.nextInt(20)];
+      for (int s = 0; s < spectrum.length; s++) {
+        spectrum[s] = random.nextBoolean() ? 50 + random.nextInt(100) * 0.5
+            : precursorMzs[i] - random.nextInt(60) * 0.5 - 0.002;
+      }
+      Arrays.sort(spectrum);
+      double[] intensity = new double[spectrum.length];
+      Arrays.fill(intensity, 1d);
+      mzs.add(spectrum);
+      intensities.add(intensity);
+    }
+
+    SharedSignalPairIndex index = new SharedSignalPairIndex(mzs, precursorMzs, tolerance);
+    SharedSignalPairIndex.Query query = index.createQuery();
+    CosineScoringKernel kernel = CosineScoringKernel.get();
+    long pruned = 0;
+    for (int a = 0; a < numSpectra - 1; a++) {
+      IntArrayList candidates = new IntArrayList();
+      int numCandidates = query.forEachCandidate(a, numSpectra - 1, minMatch, candidates::add);
+      assertEquals(candidates.size(), numCandidates);
+      for (int b = a + 1; b < numSpectra; b++) {
+        double cosine = kernel.score(mzs.get(b), intensities.get(b), mzs.get(b).length, mzs.get(a),
+            intensities.get(a), mzs.get(a).length, tolerance, Weights.SQRT,
+            HandleUnmatchedSignalOptions.KEEP_ALL_AND_MATCH_TO_ZERO, minMatch, precursorMzs[b],
+            precursorMzs[a]);
+        if (!Double.isNaN(cosine)) {
+          assertTrue(candidates.contains(b), "Missed pair %d %d".formatted(a, b));
+        }
+        if (!candidates.contains(b)) {
+          pruned++;
+        }
+      }
+    }
+    assertTrue(pruned > 0);
+  }
+
+  @Test
+  void testMaxSpectrum() {
+    List<double[]> mzs = List.of(new double[]{100, 200}, new double[]{100, 200},
+        new double[]{100, 200});
+    SharedSignalPairIndex index = new SharedSignalPairIndex(mzs, new double[]{300, 300, 300},
+        tolerance);
+    IntArrayList candidates = new IntArrayList();
+    index.createQuery().forEachCandidate(0, 1, 2, candidates::add);
+    assertEquals(IntArrayList.of(1), candidates);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulaprediction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+class FormulaPredictionCacheTest {
+
+  private static MolecularFormulaRange createElements() throws IOException {
+    final IsotopeFactory iFac = Isotopes.getInstance();
+    final MolecularFormulaRange elements = new MolecularFormulaRange();
+    elements.addIsotope(iFac.getMajorIsotope("C"), 0, 50);
+    elements.addIsotope(iFac.getMajorIsotope("H"), 0, 80);
+    elements.addIsotope(iFac.getMajorIsotope("N"), 0, 10);
+    elements.addIsotope(iFac.getMajorIsotope("O"), 0, 15);
+    elements.addIsotope(iFac.getMajorIsotope("S"), 0, 2);
+    return elements;
+  }
+
+  private static Set<String> generate(MolecularFormulaRange elements, Range<Double> range) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), range.lowerEndpoint(), range.upperEndpoint(),
+        elements);
+    final Set<String> formulas = new HashSet<>();
+    IMolecularFormula formula;
+    while ((formula = generator.getNextFormula()) != null) {
+      formulas.add(MolecularFormulaManipulator.getString(formula));
+    }
+    return formulas;
+  }
+
+  @Test
+  void sameCandidatesAsGenerator() throws IOException {
+    final MolecularFormulaRange elements = createElements();
+    final FormulaPredictionCache cache = new FormulaPredictionCache(elements);
+
+    // overlapping and nested ranges, second call of each range is served by the cache
+    for (int i = 0; i < 2; i++) {
+      for (Range<Double> range : List.of(Range.closed(180.060, 180.066),
+          Range.closed(180.062, 180.070), Range.closed(302.995, 303.005),
+          Range.closed(420.10, 420.14))) {
+        final Set<String> candidates = cache.getCandidates(range).stream()
+            .map(MolecularFormulaManipulator::getString).collect(Collectors.toSet());
+        assertEquals(generate(elements, range), candidates, range.toString());
+      }
+    }
+  }
+
+  @Test
+  void canceledCacheReturnsNoCandidates() throws IOException {
+    final FormulaPredictionCache cache = new FormulaPredictionCache(createElements());
+    cache.cancel();
+    assertTrue(cache.getCandidates(Range.closed(250.05, 250.06)).isEmpty());
+  }
+
+  @Test
+  void isotopePatternIsSharedBetweenAbundances() {
+    final IMolecularFormula formula = MolecularFormulaManipulator.getMolecularFormula(
+        "C20H26N2O4SCl", SilentChemObjectBuilder.getInstance());
+    IsotopePatternCalculator.clearCache();
+
+    final IsotopePattern full = FormulaPredictionCache.getIsotopePattern(formula, 1E-6, 1,
+        PolarityType.POSITIVE);
+    for (double minAbundance : new double[]{0.0003, 0.001, 0.0123, 0.05}) {
+      final IsotopePattern trimmed = FormulaPredictionCache.getIsotopePattern(formula,
+          minAbundance, 1, PolarityType.POSITIVE);
+      final double minIntensity = minAbundance * full.getBasePeakIntensity();
+      int expected = 0;
+      for (int i = 0; i < full.getNumberOfDataPoints(); i++) {
+        if (full.getIntensityValue(i) >= minIntensity) {
+          assertEquals(full.getMzValue(i), trimmed.getMzValue(expected));
+          assertEquals(full.getIntensityValue(i), trimmed.getIntensityValue(expected));
+          expected++;
+        }
+      }
+      assertEquals(expected, trimmed.getNumberOfDataPoints());
+      assertTrue(expected < full.getNumberOfDataPoints());
+    }
+    // one prediction for all abundances
+    assertEquals(1, IsotopePatternCalculator.getCacheStats().missCount());
+    assertEquals(4, IsotopePatternCalculator.getCacheStats().hitCount());
+  }
+}
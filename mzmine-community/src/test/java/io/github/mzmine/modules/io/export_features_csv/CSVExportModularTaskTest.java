@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.modules.io.export_features_gnps.fbmn.FeatureListRowsFilter;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CSVExportModularTaskTest {
+
+  private static final int ROWS = 20_000;
+
+  @TempDir
+  File dir;
+
+  @Test
+  void largeListMatchesSequentialFormatting() throws IOException {
+    final RawDataFileImpl raw = new RawDataFileImpl("sample", null, null, Color.BLACK);
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, raw);
+    final Random random = new Random(42);
+    for (int i = 0; i < ROWS; i++) {
+      final ModularFeature f = new ModularFeature(flist);
+      f.set(RawFileType.class, raw);
+      f.set(MZType.class, 100 + random.nextDouble() * 900);
+      f.set(RTType.class, random.nextFloat() * 30f);
+      f.set(HeightType.class, random.nextFloat() * 1E6f);
+      f.set(DetectionType.class, FeatureStatus.DETECTED);
+      flist.addRow(new ModularFeatureListRow(flist, i + 1, f));
+    }
+
+    final File file = new File(dir, "export.csv");
+    final var task = new CSVExportModularTask(new ModularFeatureList[]{flist}, file, ",", ";",
+        FeatureListRowsFilter.ALL, true, Instant.now());
+    task.run();
+    assertEquals(TaskStatus.FINISHED, task.getStatus());
+
+    final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    assertEquals(ROWS + 1, lines.size());
+    final List<String> header = Arrays.asList(lines.getFirst().split(",", -1));
+    final int idCol = header.indexOf("id");
+    final int mzCol = header.indexOf("mz");
+    final int rtCol = header.indexOf("rt");
+    final int heightCol = header.indexOf("datafile:sample:height");
+    assertTrue(idCol >= 0 && mzCol >= 0 && rtCol >= 0 && heightCol >= 0);
+
+    // formatted sequentially with the shared number formats
+    final IDType idType = DataTypes.get(IDType.class);
+    final MZType mzType = DataTypes.get(MZType.class);
+    final RTType rtType = DataTypes.get(RTType.class);
+    final HeightType heightType = DataTypes.get(HeightType.class);
+    for (int i = 0; i < ROWS; i++) {
+      final FeatureListRow row = flist.getRows().get(i);
+      final String[] cells = lines.get(row.getID()).split(",", -1);
+      assertEquals(header.size(), cells.length);
+      assertEquals(idType.getFormattedExportString(row.getID()), cells[idCol]);
+      assertEquals(mzType.getFormattedExportString(row.getAverageMZ()), cells[mzCol]);
+      assertEquals(rtType.getFormattedExportString(row.getAverageRT()), cells[rtCol]);
+      assertEquals(heightType.getFormattedExportString(row.getFeature(raw).getHeight()),
+          cells[heightCol]);
+    }
+  }
+}
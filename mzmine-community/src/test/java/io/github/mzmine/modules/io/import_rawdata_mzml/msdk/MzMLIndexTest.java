@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.msdk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLIndex;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MzMLIndexTest {
+
+  private static final String FILE = "rawdatafiles/additional/gc_orbi_profile_21scans.mzML";
+
+  @TempDir
+  Path tempDir;
+
+  private File getIndexedFile() throws URISyntaxException {
+    return new File(getClass().getClassLoader().getResource(FILE).toURI());
+  }
+
+  @Test
+  void testIndexList() throws Exception {
+    try (MzMLIndex index = MzMLIndex.open(getIndexedFile(), false)) {
+      assertNotNull(index);
+      assertEquals(21, index.getNumberOfSpectra());
+      assertEquals(1, index.getNumberOfChromatograms());
+      assertEquals("controllerType=0 controllerNumber=1 scan=5940", index.getSpectrumId(20));
+
+      final String header = new String(index.readHeader(), StandardCharsets.UTF_8);
+      assertTrue(header.contains("<spectrumList"));
+      for (int i = 0; i < index.getNumberOfSpectra(); i++) {
+        final String spectrum = new String(index.readSpectrum(i), StandardCharsets.UTF_8);
+        assertTrue(spectrum.startsWith("<spectrum "));
+        assertTrue(spectrum.contains(index.getSpectrumId(i)));
+      }
+      assertTrue(new String(index.readChromatogram(0), StandardCharsets.UTF_8).startsWith(
+          "<chromatogram "));
+    }
+  }
+
+  @Test
+  void testScannedIndexAndSidecar() throws Exception {
+    final byte[] content = Files.readAllBytes(getIndexedFile().toPath());
+    final String text = new String(content, StandardCharsets.ISO_8859_1);
+    // remove the index list to simulate a plain mzML file
+    final int indexListStart = text.indexOf("<indexList ");
+    final File plain = tempDir.resolve("plain.mzML").toFile();
+    Files.write(plain.toPath(), Arrays.copyOf(content, indexListStart));
+
+    assertNull(MzMLIndex.open(plain, false));
+
+    final long[] expected;
+    try (MzMLIndex indexed = MzMLIndex.open(getIndexedFile(), false)) {
+      assertNotNull(indexed);
+      expected = offsets(indexed);
+    }
+    try (MzMLIndex scanned = MzMLIndex.open(plain, true)) {
+      assertNotNull(scanned);
+      assertEquals(1, scanned.getNumberOfChromatograms());
+      assertEquals("controllerType=0 controllerNumber=1 scan=5940", scanned.getSpectrumId(20));
+      assertTrue(Arrays.equals(expected, offsets(scanned)));
+    }
+
+    assertTrue(new File(plain.getPath() + MzMLIndex.SIDECAR_SUFFIX).isFile());
+    try (MzMLIndex cached = MzMLIndex.open(plain, false)) {
+      assertNotNull(cached);
+      assertTrue(Arrays.equals(expected, offsets(cached)));
+    }
+  }
+
+  private static long[] offsets(MzMLIndex index) throws IOException {
+    final long[] offsets = new long[index.getNumberOfSpectra()];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = index.getSpectrumOffset(i);
+    }
+    return offsets;
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.io.projectload;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
+import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import io.github.mzmine.modules.io.projectsave.RawDataContainerWriter;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes a raw data file to a container and reads it back
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class RawDataContainerReaderTest {
+
+  @TempDir
+  File dir;
+
+  private RawDataFile file;
+  private File container;
+
+  @BeforeAll
+  void writeContainer() throws IOException {
+    final Random rand = new Random(42);
+    file = new RawDataFileImpl("container_test", null, null, Color.BLACK);
+    // data points per scan, including empty scans and scans larger than the small windows below
+    final int[] numDps = {10, 0, 1000, 3, 0, 5000, 1, 200, 0, 64};
+    for (int i = 0; i < numDps.length; i++) {
+      final double[] mzs = new double[numDps[i]];
+      final double[] intensities = new double[numDps[i]];
+      for (int j = 0; j < mzs.length; j++) {
+        mzs[j] = 100 + j * 0.1 + rand.nextDouble() * 0.01;
+        intensities[j] = rand.nextDouble() * 1E5;
+      }
+      final int msLevel = i % 3 == 2 ? 2 : 1;
+      final SimpleScan scan = new SimpleScan(file, i + 1, msLevel, i * 0.1f, null, mzs,
+          intensities, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "scan " + i,
+          Range.closed(50d, 2000d));
+      if (msLevel == 2) {
+        scan.setMsMsInfo(new DDAMsMsInfoImpl(500.5, 1, 30f, scan, file.getScan(i - 1), 2,
+            ActivationMethod.CID, Range.closed(500d, 501d)));
+      }
+      switch (i % 3) {
+        case 0 -> scan.addMassList(new ScanPointerMassList(scan));
+        case 1 -> {
+          // every other data point, empty for empty scans
+          final double[] mlMzs = new double[(mzs.length + 1) / 2];
+          final double[] mlIntensities = new double[mlMzs.length];
+          for (int j = 0; j < mlMzs.length; j++) {
+            mlMzs[j] = mzs[j * 2];
+            mlIntensities[j] = intensities[j * 2];
+          }
+          scan.addMassList(new SimpleMassList(null, mlMzs, mlIntensities));
+        }
+        default -> {
+          // no mass list
+        }
+      }
+      file.addScan(scan);
+    }
+
+    Assertions.assertTrue(RawDataContainerWriter.isSupported(file));
+    container = new File(dir, "file.mzrd");
+    RawDataContainerWriter.write(file, container);
+  }
+
+  @Test
+  void testRoundTrip() throws IOException {
+    assertSameFile(file, RawDataContainerReader.read(container, List.of()));
+  }
+
+  @Test
+  void testRoundTripMultipleWindows() throws IOException {
+    // smaller than some of the scans, so arrays are read across windows
+    assertSameFile(file, RawDataContainerReader.read(container, List.of(), 1024));
+    // window smaller than a single double block of most scans
+    assertSameFile(file, RawDataContainerReader.read(container, List.of(), 64));
+  }
+
+  private static void assertSameFile(final RawDataFile expected, final RawDataFile actual) {
+    Assertions.assertEquals(expected.getName(), actual.getName());
+    Assertions.assertEquals(expected.getNumOfScans(), actual.getNumOfScans());
+    for (int i = 0; i < expected.getNumOfScans(); i++) {
+      final Scan e = expected.getScan(i);
+      final Scan a = actual.getScan(i);
+      final String msg = "Scan " + i;
+      Assertions.assertEquals(e.getScanNumber(), a.getScanNumber(), msg);
+      Assertions.assertEquals(e.getMSLevel(), a.getMSLevel(), msg);
+      Assertions.assertEquals(e.getRetentionTime(), a.getRetentionTime(), msg);
+      Assertions.assertEquals(e.getScanDefinition(), a.getScanDefinition(), msg);
+      Assertions.assertEquals(e.getScanningMZRange(), a.getScanningMZRange(), msg);
+      assertSameSpectrum(e.getMzValues(new double[0]), e.getIntensityValues(new double[0]),
+          a.getMzValues(new double[0]), a.getIntensityValues(new double[0]),
+          e.getNumberOfDataPoints(), a.getNumberOfDataPoints(), msg);
+
+      final MassList eMassList = e.getMassList();
+      final MassList aMassList = a.getMassList();
+      if (eMassList == null) {
+        Assertions.assertNull(aMassList, msg);
+      } else {
+        Assertions.assertNotNull(aMassList, msg);
+        Assertions.assertEquals(eMassList.getClass(), aMassList.getClass(), msg);
+        assertSameSpectrum(eMassList.getMzValues(new double[0]),
+            eMassList.getIntensityValues(new double[0]), aMassList.getMzValues(new double[0]),
+            aMassList.getIntensityValues(new double[0]), eMassList.getNumberOfDataPoints(),
+            aMassList.getNumberOfDataPoints(), msg + " mass list");
+      }
+
+      if (e.getMsMsInfo() instanceof DDAMsMsInfo eInfo) {
+        final DDAMsMsInfo aInfo = Assertions.assertInstanceOf(DDAMsMsInfo.class,
+            a.getMsMsInfo(), msg);
+        Assertions.assertEquals(eInfo.getIsolationMz(), aInfo.getIsolationMz(), msg);
+        Assertions.assertEquals(eInfo.getPrecursorCharge(), aInfo.getPrecursorCharge(), msg);
+        Assertions.assertEquals(eInfo.getActivationEnergy(), aInfo.getActivationEnergy(), msg);
+        Assertions.assertEquals(eInfo.getIsolationWindow(), aInfo.getIsolationWindow(), msg);
+        Assertions.assertSame(actual.getScan(i - 1), aInfo.getParentScan(), msg);
+      } else {
+        Assertions.assertNull(a.getMsMsInfo(), msg);
+      }
+    }
+  }
+
+  private static void assertSameSpectrum(final double[] eMzs, final double[] eIntensities,
+      final double[] aMzs, final double[] aIntensities, final int eNumDp, final int aNumDp,
+      final String msg) {
+    Assertions.assertEquals(eNumDp, aNumDp, msg);
+    Assertions.assertArrayEquals(Arrays.copyOf(eMzs, eNumDp), Arrays.copyOf(aMzs, aNumDp), msg);
+    Assertions.assertArrayEquals(Arrays.copyOf(eIntensities, eNumDp),
+        Arrays.copyOf(aIntensities, aNumDp), msg);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.tools.isotopeprediction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.common.cache.CacheStats;
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.PolarityType;
+import org.junit.jupiter.api.Test;
+
+class IsotopePatternCalculatorTest {
+
+  @Test
+  void cachedPatternsForEqualRequests() {
+    IsotopePatternCalculator.clearCache();
+    final IsotopePattern first = IsotopePatternCalculator.calculateIsotopePattern("C6H12O6",
+        0.001, 1, PolarityType.POSITIVE);
+    // new formula instance, same string
+    final IsotopePattern second = IsotopePatternCalculator.calculateIsotopePattern("C6H12O6",
+        0.001, 1, PolarityType.POSITIVE);
+    final IsotopePattern otherCharge = IsotopePatternCalculator.calculateIsotopePattern(
+        "C6H12O6", 0.001, 2, PolarityType.POSITIVE);
+
+    assertSame(first, second);
+    assertNotSame(first, otherCharge);
+    assertEquals(first.getMzValue(0) / 2, otherCharge.getMzValue(0), 0.001);
+
+    final CacheStats stats = IsotopePatternCalculator.getCacheStats();
+    assertEquals(1, stats.hitCount());
+    assertEquals(2, stats.missCount());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelBlockWriterTest {
+
+  @TempDir
+  File dir;
+
+  @Test
+  void writesBlocksInOrder() throws IOException {
+    writeAndRead(false);
+  }
+
+  @Test
+  void writesCompressedBlocksInOrder() throws IOException {
+    writeAndRead(true);
+  }
+
+  private void writeAndRead(boolean compress) throws IOException {
+    final List<Integer> items = IntStream.range(0, 10_003).boxed().toList();
+    final File file = new File(dir, "out.csv");
+    try (var writer = ParallelBlockWriter.open(file, compress)) {
+      writer.write("header\n");
+      assertEquals(items.size(),
+          writer.writeAll(items, 100, () -> (i, text) -> text.append(i).append(",µ\n"), null));
+    }
+
+    try (InputStream in = compress ? new GZIPInputStream(new FileInputStream(file))
+        : new FileInputStream(file)) {
+      final String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+      assertEquals(items.size() + 1, lines.length);
+      assertEquals("header", lines[0]);
+      for (int i = 0; i < items.size(); i++) {
+        assertEquals(i + ",µ", lines[i + 1]);
+      }
+    }
+  }
+
+  @Test
+  void formatPerThreadMatchesSequentialFormatting() throws IOException {
+    final NumberFormat format = new DecimalFormat("0.0000");
+    final Random random = new Random(42);
+    final List<Double> items = random.doubles(100_000, 0, 2000).boxed().toList();
+    final StringBuilder expected = new StringBuilder();
+    for (Double item : items) {
+      expected.append(format.format(item)).append('\n');
+    }
+
+    final File file = new File(dir, "format.csv");
+    try (var writer = ParallelBlockWriter.open(file, false)) {
+      // NumberFormat is not thread safe, each formatter uses its own copy
+      final AtomicInteger numFormatters = new AtomicInteger();
+      writer.writeAll(items, 100, () -> {
+        numFormatters.incrementAndGet();
+        final NumberFormat threadFormat = ParallelBlockWriter.copyFormat(format);
+        return (d, text) -> text.append(threadFormat.format(d)).append('\n');
+      }, null);
+      assertTrue(numFormatters.get() >= 1);
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      assertEquals(expected.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void formatErrorIsThrown() {
+    final List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+    final File file = new File(dir, "error.csv");
+    assertThrows(IOException.class, () -> {
+      try (var writer = ParallelBlockWriter.open(file, false)) {
+        writer.writeAll(items, 10, () -> (i, text) -> {
+          if (i == 500) {
+            throw new IllegalStateException("format error");
+          }
+          text.append(i);
+        }, null);
+      }
+    });
+  }
+}
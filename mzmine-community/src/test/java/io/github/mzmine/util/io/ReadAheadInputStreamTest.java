@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+class ReadAheadInputStreamTest {
+
+  /**
+   * Returns only a few bytes per read like the pipe of a process
+   */
+  private static InputStream trickle(byte[] data) {
+    final InputStream in = new ByteArrayInputStream(data);
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        return in.read();
+      }
+
+      @Override
+      public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        return in.read(b, off, Math.min(len, 3));
+      }
+    };
+  }
+
+  private static byte[] data(int length) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 31);
+    }
+    return data;
+  }
+
+  @Test
+  void fillsChunks() throws IOException {
+    final byte[] data = data(1000);
+    try (var in = new ReadAheadInputStream(trickle(data), 64, 4, "read ahead test")) {
+      assertEquals(data[0] & 0xff, in.read());
+      assertEquals(63, in.available());
+      final byte[] rest = in.readAllBytes();
+      assertEquals(data.length - 1, rest.length);
+      for (int i = 0; i < rest.length; i++) {
+        assertEquals(data[i + 1], rest[i]);
+      }
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  void readsExactMultipleOfChunkSize() throws IOException {
+    final byte[] data = data(256);
+    try (var in = new ReadAheadInputStream(trickle(data), 64, 2, "read ahead test")) {
+      assertArrayEquals(data, in.readAllBytes());
+    }
+  }
+
+  @Test
+  void readsEmptySource() throws IOException {
+    try (var in = new ReadAheadInputStream(trickle(new byte[0]), 64, 2, "read ahead test")) {
+      assertEquals(-1, in.read());
+    }
+  }
+}
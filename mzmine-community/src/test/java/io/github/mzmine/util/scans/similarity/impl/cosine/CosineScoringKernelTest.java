@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.similarity.impl.cosine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.DataPointSorter;
+import io.github.mzmine.util.maths.similarity.Similarity;
+import io.github.mzmine.util.scans.ScanAlignment;
+import io.github.mzmine.util.scans.similarity.HandleUnmatchedSignalOptions;
+import io.github.mzmine.util.scans.similarity.Weights;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CosineScoringKernelTest {
+
+  private final MZTolerance tolerance = new MZTolerance(0.005, 10);
+
+  private static DataPoint[] randomSpectrum(Random random, int n) {
+    DataPoint[] dps = new DataPoint[n];
+    for (int i = 0; i < n; i++) {
+      // coarse m/z grid to create many close and ambiguous signals
+      double mz = 50 + random.nextInt(400) * 0.5 + random.nextInt(3) * 0.002;
+      dps[i] = new SimpleDataPoint(mz, 1 + random.nextInt(1000));
+    }
+    Arrays.sort(dps, DataPointSorter.DEFAULT_INTENSITY);
+    return dps;
+  }
+
+  private double legacyCosine(DataPoint[] a, DataPoint[] b, Weights weights,
+      HandleUnmatchedSignalOptions handleUnmatched, double precursorA, double precursorB) {
+    List<DataPoint[]> aligned =
+        precursorA > 0 && precursorB > 0 ? ScanAlignment.alignOfSortedModAware(tolerance, a, b,
+            precursorA, precursorB) : ScanAlignment.alignOfSorted(tolerance, a, b);
+    aligned = handleUnmatched.handleUnmatched(aligned);
+    return Similarity.COSINE.calc(
+        ScanAlignment.toIntensityMatrixWeighted(aligned, weights.getIntensity(), weights.getMz()));
+  }
+
+  @Test
+  void testSameAsAlignment() {
+    Random random = new Random(42);
+    CosineScoringKernel kernel = CosineScoringKernel.get();
+    for (int i = 0; i < 200; i++) {
+      DataPoint[] a = randomSpectrum(random, 5 + random.nextInt(60));
+      DataPoint[] b = randomSpectrum(random, 5 + random.nextInt(60));
+      Weights weights = Weights.VALUES[i % Weights.VALUES.length];
+      HandleUnmatchedSignalOptions handle = HandleUnmatchedSignalOptions.values()[i
+          % HandleUnmatchedSignalOptions.values().length];
+      double precursorA = i % 2 == 0 ? -1 : 300;
+      double precursorB = i % 2 == 0 ? -1 : 300 + random.nextInt(40) * 0.5;
+
+      double cosine = kernel.score(a, b, tolerance, weights, handle, 1, precursorA, precursorB);
+      if (kernel.getOverlap() == 0) {
+        assertTrue(Double.isNaN(cosine));
+        continue;
+      }
+      double expected = legacyCosine(a, b, weights, handle, precursorA, precursorB);
+      assertEquals(expected, cosine, 1E-9);
+
+      List<DataPoint[]> aligned = kernel.createAligned(a, b, handle);
+      long matched = aligned.stream().filter(dp -> dp[0] != null && dp[1] != null).count();
+      assertEquals(kernel.getOverlap(), matched);
+    }
+  }
+
+  @Test
+  void testMinMatchAndExplainedIntensity() {
+    double[] mzsA = {100, 150, 200};
+    double[] intensitiesA = {10, 30, 60};
+    double[] mzsB = {100.001, 200.001, 250};
+    double[] intensitiesB = {20, 20, 60};
+    CosineScoringKernel kernel = CosineScoringKernel.get();
+
+    double cosine = kernel.score(mzsA, intensitiesA, 3, mzsB, intensitiesB, 3, tolerance,
+        Weights.NONE, HandleUnmatchedSignalOptions.REMOVE_ALL, 3, -1, -1);
+    assertTrue(Double.isNaN(cosine));
+
+    cosine = kernel.score(mzsA, intensitiesA, 3, mzsB, intensitiesB, 3, tolerance, Weights.NONE,
+        HandleUnmatchedSignalOptions.KEEP_ALL_AND_MATCH_TO_ZERO, 2, -1, -1);
+    double dot = 10 * 20 + 60 * 20;
+    double expected = dot / (Math.sqrt(100 + 900 + 3600) * Math.sqrt(400 + 400 + 3600));
+    assertEquals(expected, cosine, 1E-12);
+    assertEquals(0.7, kernel.getExplainedIntensityA(), 1E-12);
+    assertEquals(0.4, kernel.getExplainedIntensityB(), 1E-12);
+  }
+}
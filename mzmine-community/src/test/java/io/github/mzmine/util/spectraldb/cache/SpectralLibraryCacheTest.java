@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralDBEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.parser.mzmine.SpectralQuality;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpectralLibraryCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void saveAndLoad() throws IOException {
+    final File source = tempDir.resolve("library.msp").toFile();
+    Files.writeString(source.toPath(), "placeholder");
+    final SpectralLibraryCache cache = new SpectralLibraryCache(tempDir.resolve("cache").toFile());
+    assertNull(cache.load(source));
+
+    final SpectralLibrary library = SpectralLibrary.createPacked(null, source);
+    library.addEntries(List.of(
+        new SpectralDBEntry(null, new double[]{50, 100.5, 200}, new double[]{10, 100, 5},
+            Map.of(DBEntryField.NAME, "first", DBEntryField.PRECURSOR_MZ, 250.1d,
+                DBEntryField.CCS, 180.5f, DBEntryField.CHARGE, 1)),
+        new SpectralDBEntry(null, new double[]{75.1}, new double[]{1000},
+            Map.of(DBEntryField.NAME, "second", DBEntryField.COMMENT, "x".repeat(70_000)))));
+    assertTrue(cache.save(library));
+
+    final SpectralLibrary loaded = cache.load(source);
+    assertNotNull(loaded);
+    assertEquals(library.size(), loaded.size());
+    for (int i = 0; i < library.size(); i++) {
+      SpectralLibraryEntry expected = library.getEntries().get(i);
+      SpectralLibraryEntry actual = loaded.getEntries().get(i);
+      assertEquals(expected.getFields(), actual.getFields());
+      assertArrayEquals(expected.getMzValues(new double[0]), actual.getMzValues(new double[0]));
+      assertArrayEquals(expected.getIntensityValues(new double[0]),
+          actual.getIntensityValues(new double[0]));
+    }
+
+    // changed source invalidates the cache
+    Files.writeString(source.toPath(), "changed content");
+    assertNull(cache.load(source));
+  }
+
+  @Test
+  void failedSaveRemovesTemporaryFile() throws IOException {
+    final File source = tempDir.resolve("library.msp").toFile();
+    Files.writeString(source.toPath(), "placeholder");
+    final Path cacheDir = tempDir.resolve("cache");
+    final SpectralLibraryCache cache = new SpectralLibraryCache(cacheDir.toFile());
+    // a non-empty directory in place of the cache file fails the final move
+    final Path blocked = cache.getCacheFile(source).toPath();
+    Files.createDirectories(blocked);
+    Files.writeString(blocked.resolve("content"), "x");
+
+    final SpectralLibrary library = SpectralLibrary.createPacked(null, source);
+    library.addEntries(List.of(
+        new SpectralDBEntry(null, new double[]{50}, new double[]{10},
+            Map.of(DBEntryField.NAME, "first"))));
+    assertFalse(cache.save(library));
+
+    try (var files = Files.list(cacheDir)) {
+      assertEquals(List.of(blocked), files.toList());
+    }
+  }
+
+  @Test
+  void saveAndLoadMSnEntry() throws IOException {
+    final File source = tempDir.resolve("library.json").toFile();
+    Files.writeString(source.toPath(), "placeholder");
+    final SpectralLibraryCache cache = new SpectralLibraryCache(tempDir.resolve("cache").toFile());
+
+    final Map<DBEntryField, Object> fields = Map.of(DBEntryField.NAME, "msn",
+        DBEntryField.MS_LEVEL, 3, DBEntryField.SYNONYMS, List.of("a", "b"),
+        DBEntryField.MSN_PRECURSOR_MZS, new double[]{400.2, 250.1},
+        DBEntryField.MSN_ISOLATION_WINDOWS, new double[]{1.0, 1.5},
+        DBEntryField.MSN_COLLISION_ENERGIES, new float[]{20f, 35f},
+        DBEntryField.MSN_FRAGMENTATION_METHODS, new String[]{"HCD", "CID"},
+        DBEntryField.QUALITY, new SpectralQuality(0.8f, null, "passed", 1.2f, 0.5f));
+    final SpectralLibrary library = SpectralLibrary.createPacked(null, source);
+    library.addEntries(
+        List.of(new SpectralDBEntry(null, new double[]{50, 120}, new double[]{10, 20}, fields)));
+    assertTrue(cache.save(library));
+
+    final SpectralLibrary loaded = cache.load(source);
+    assertNotNull(loaded);
+    final SpectralLibraryEntry actual = loaded.getEntries().getFirst();
+    assertEquals(fields.keySet(), actual.getFields().keySet());
+    for (Entry<DBEntryField, Object> field : fields.entrySet()) {
+      final Object value = actual.getField(field.getKey()).orElseThrow();
+      switch (field.getValue()) {
+        case double[] expected -> assertArrayEquals(expected, (double[]) value);
+        case float[] expected -> assertArrayEquals(expected, (float[]) value);
+        case String[] expected -> assertArrayEquals(expected, (String[]) value);
+        default -> assertEquals(field.getValue(), value, field.getKey().toString());
+      }
+    }
+  }
+
+  @Test
+  void unsupportedValueIsNotCached() throws IOException {
+    final File source = tempDir.resolve("library.json").toFile();
+    Files.writeString(source.toPath(), "placeholder");
+    final SpectralLibraryCache cache = new SpectralLibraryCache(tempDir.resolve("cache").toFile());
+
+    final SpectralLibrary library = SpectralLibrary.createPacked(null, source);
+    library.addEntries(List.of(new SpectralDBEntry(null, new double[]{50}, new double[]{10},
+        Map.of(DBEntryField.NAME, "first", DBEntryField.UNSPECIFIED, new int[]{1}))));
+    assertFalse(cache.save(library));
+    assertFalse(cache.getCacheFile(source).exists());
+    assertNull(cache.load(source));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.PercentTolerance;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SpectralLibraryPrecursorIndexTest {
+
+  private final MZTolerance tolerance = new MZTolerance(0.005, 10);
+  private List<SpectralLibraryEntry> entries;
+  private SpectralLibraryPrecursorIndex index;
+
+  private static SpectralLibraryEntry entry(Double mz, PolarityType polarity, Float ccs) {
+    var entry = new SpectralDBEntry(null, new double[]{50d}, new double[]{100d},
+        Map.of(DBEntryField.NAME, "test"));
+    entry.putIfNotNull(DBEntryField.PRECURSOR_MZ, mz);
+    entry.putIfNotNull(DBEntryField.POLARITY, polarity);
+    entry.putIfNotNull(DBEntryField.CCS, ccs);
+    return entry;
+  }
+
+  @BeforeEach
+  void init() {
+    entries = new ArrayList<>();
+    entries.add(entry(300.1, PolarityType.POSITIVE, 180f));
+    entries.add(entry(200.0, PolarityType.POSITIVE, 150f));
+    entries.add(entry(200.001, PolarityType.NEGATIVE, null));
+    entries.add(entry(200.002, null, 151f));
+    entries.add(entry(200.5, PolarityType.POSITIVE, null));
+    entries.add(entry(null, PolarityType.POSITIVE, null));
+    index = SpectralLibraryPrecursorIndex.create(entries);
+  }
+
+  @Test
+  void size() {
+    // entry without precursor is not indexed
+    assertEquals(5, index.size());
+  }
+
+  @Test
+  void candidatesMatchFullScan() {
+    for (double mz : new double[]{199.99, 200.0, 200.001, 200.5, 300.1, 500}) {
+      var expected = entries.stream().filter(e -> e.getPrecursorMZ() != null)
+          .filter(e -> tolerance.checkWithinTolerance(e.getPrecursorMZ(), mz)).toList();
+      var candidates = index.getCandidates(mz, tolerance, null, null, null);
+      assertEquals(expected.size(), candidates.size());
+      assertTrue(candidates.containsAll(expected));
+    }
+  }
+
+  @Test
+  void polarity() {
+    // positive and undefined
+    assertEquals(2, index.getCandidates(200.001, tolerance, PolarityType.POSITIVE, null, null).size());
+    // negative and undefined
+    assertEquals(2, index.getCandidates(200.001, tolerance, PolarityType.NEGATIVE, null, null).size());
+    assertEquals(3, index.getCandidates(200.001, tolerance, PolarityType.UNKNOWN, null, null).size());
+  }
+
+  @Test
+  void ccs() {
+    var ccsTolerance = new PercentTolerance(0.01);
+    var candidates = index.getCandidates(200.001, tolerance, null, 150f, ccsTolerance);
+    assertEquals(2, candidates.size());
+    // no query ccs
+    assertEquals(0, index.getCandidates(200.001, tolerance, null, null, ccsTolerance).size());
+  }
+}